@@ -0,0 +1,78 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Full scans scattered over the hash partitions of a {@link DocumentCluster}
+ * of in-process managers, against the same corpus in one partition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class ClusterSearchBenchmark {
+
+    public static class ClusterCorpus extends LoadedCorpus {
+        @Param({ "1", "4" })
+        public int partitions;
+
+        List<DocumentManager> leaders;
+        DocumentCluster documentCluster;
+
+        /**
+         * Copies the loaded corpus into the partitions.
+         */
+        @Override
+        void loaded() {
+            leaders = IntStream.range(0,
+                                      partitions)
+                               .mapToObj(index -> new DocumentManager())
+                               .collect(Collectors.toList());
+            documentCluster = new DocumentCluster(DocumentCluster.Configuration.builder()
+                                                                               .partitions(leaders.stream()
+                                                                                                  .map(leader -> DocumentCluster.Partition.builder()
+                                                                                                                                          .leader(leader)
+                                                                                                                                          .build())
+                                                                                                  .collect(Collectors.toList()))
+                                                                               .build());
+            documentCluster.saveAll(documentManager.search(null));
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            leaders.forEach(DocumentManager::close);
+        }
+    }
+
+    /**
+     * The created range covers everything, so every partition scans, and the
+     * two-letter term matches nothing.
+     */
+    @Benchmark
+    public List<Document> scatterGatherFullScan(ClusterCorpus corpus) {
+        return corpus.documentCluster.search(SearchRequest.builder()
+                                                          .createdFrom(Instant.EPOCH)
+                                                          .containsContents(List.of("zq"))
+                                                          .build());
+    }
+
+}
@@ -0,0 +1,132 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.innovatelu.document_manager.DocumentManager.Configuration;
+import tech.innovatelu.document_manager.DocumentManager.ContentStorage;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory against latency of the {@link ContentStorage} modes. The heap the
+ * loaded corpus retains is printed once per trial; the benchmarks read
+ * contents through a few hot documents, through documents spread over the
+ * whole corpus, through a content search and through a full scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class ContentStorageBenchmark {
+    private static final int HOT_DOCUMENTS = 64;
+    private static final int QUERY_COUNT = 16;
+
+    public static class ContentCorpus extends LoadedCorpus {
+        @Param({ "HEAP", "COMPRESSED" })
+        public ContentStorage contentStorage;
+        /**
+         * Only read by {@link ContentStorage#COMPRESSED}.
+         */
+        @Param({ "0", "1048576", "33554432" })
+        public long decodedContentCacheSize;
+
+        private long heapBeforeLoad;
+
+        @Override
+        DocumentManager newDocumentManager() {
+            heapBeforeLoad = retainedHeap();
+            return new DocumentManager(Configuration.builder()
+                                                    .contentStorage(contentStorage)
+                                                    .decodedContentCacheSize(decodedContentCacheSize)
+                                                    .build());
+        }
+
+        @Override
+        void loaded() {
+            System.out.printf("%n%s content storage, %d documents: %.1f MB retained%n",
+                              contentStorage,
+                              corpusSize,
+                              (retainedHeap() - heapBeforeLoad) / (1024.0 * 1024.0));
+        }
+
+        private static long retainedHeap() {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            for (int collection = 0; collection < 3; collection++) {
+                System.gc();
+            }
+            return memory.getHeapMemoryUsage()
+                         .getUsed();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private int next;
+
+        String hotId() {
+            return CorpusGenerator.idOf(next++ % HOT_DOCUMENTS);
+        }
+
+        String spreadId(int corpusSize) {
+            return CorpusGenerator.idOf(Math.floorMod(next++ * 7_919,
+                                                      corpusSize));
+        }
+
+        /**
+         * Moderately frequent words, which the n-gram index narrows down but
+         * whose candidates still have to be read.
+         */
+        SearchRequest contentRequest(ContentCorpus corpus) {
+            return SearchRequest.builder()
+                                .containsContents(List.of(corpus.generator.word(150 + next++ % QUERY_COUNT)))
+                                .build();
+        }
+    }
+
+    @Benchmark
+    public Optional<Document> findHotDocument(ContentCorpus corpus,
+                                              Reader reader) {
+        return corpus.documentManager.findById(reader.hotId());
+    }
+
+    @Benchmark
+    public Optional<Document> findSpreadDocument(ContentCorpus corpus,
+                                                 Reader reader) {
+        return corpus.documentManager.findById(reader.spreadId(corpus.corpusSize));
+    }
+
+    @Benchmark
+    public List<Document> searchContent(ContentCorpus corpus,
+                                        Reader reader) {
+        return corpus.documentManager.search(reader.contentRequest(corpus));
+    }
+
+    /**
+     * The two-letter term is too short for the content index, so every
+     * content is read.
+     */
+    @Benchmark
+    public List<Document> scanContent(ContentCorpus corpus) {
+        return corpus.documentManager.search(SearchRequest.builder()
+                                                          .containsContents(List.of("zq"))
+                                                          .build());
+    }
+
+}
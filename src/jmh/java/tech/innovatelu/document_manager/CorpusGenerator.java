@@ -0,0 +1,218 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Author;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a reproducible synthetic corpus for the benchmarks. Title words,
+ * content words and authors follow Zipf distributions, content lengths are
+ * log-normal and creation times are skewed towards the recent past, which is
+ * roughly how real document stores look.
+ */
+final class CorpusGenerator {
+    static final Instant NEWEST_CREATED = Instant.parse("2024-06-01T00:00:00Z");
+
+    private static final String[] STOP_WORDS = { "the", "of", "and", "to", "in", "a", "is", "that", "for", "it",
+                                                 "as", "was", "with", "be", "by", "on", "not", "he", "this", "are" };
+    private static final String[] SYLLABLES = { "ka", "lo", "mi", "ter", "van", "dor", "shi", "pel", "ru", "gan",
+                                                "sto", "bri", "ne", "qua", "lix", "mon", "tra", "vel", "zu", "fen" };
+    private static final int VOCABULARY_SIZE = 8_000;
+    private static final int TITLE_STARTER_COUNT = 200;
+    private static final double ZIPF_EXPONENT = 1.07;
+    private static final Duration MEAN_AGE = Duration.ofDays(180);
+    private static final Duration MAX_AGE = Duration.ofDays(3 * 365);
+    /**
+     * Words the pre-generated documents of a benchmark thread hold at most,
+     * about 45 MB of content.
+     */
+    private static final int POOL_CONTENT_WORDS = 6_000_000;
+
+    private final SplittableRandom random;
+    private final String[] vocabulary;
+    private final ZipfSampler wordSampler;
+    private final ZipfSampler titleStarterSampler;
+    private final ZipfSampler authorSampler;
+    private final int meanContentWords;
+
+    /**
+     * @param seed             - seed of the random generator
+     * @param corpusSize       - expected number of documents, sizes the author
+     *                         population
+     * @param meanContentWords - average number of words of a content
+     */
+    CorpusGenerator(long seed,
+                    int corpusSize,
+                    int meanContentWords) {
+        this.random = new SplittableRandom(seed);
+        this.vocabulary = vocabulary();
+        this.wordSampler = new ZipfSampler(VOCABULARY_SIZE);
+        this.titleStarterSampler = new ZipfSampler(TITLE_STARTER_COUNT);
+        this.authorSampler = new ZipfSampler(Math.max(100,
+                                                      corpusSize / 100));
+        this.meanContentWords = meanContentWords;
+    }
+
+    /**
+     * @return documents with the ids [firstIndex] .. [firstIndex] + [count] - 1
+     */
+    List<Document> documents(int firstIndex,
+                             int count) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int index = firstIndex; index < firstIndex + count; index++) {
+            documents.add(document(idOf(index)));
+        }
+        return documents;
+    }
+
+    /**
+     * @param id - document id, null lets the manager generate one
+     */
+    Document document(String id) {
+        int authorRank = authorSampler.sample(random);
+        return Document.builder()
+                       .id(id)
+                       .title(title())
+                       .content(content())
+                       .author(Author.builder()
+                                     .id(authorId(authorRank))
+                                     .name("Author " + authorRank)
+                                     .build())
+                       .created(created())
+                       .build();
+    }
+
+    /**
+     * @param maxPoolSize      - pool size for short contents
+     * @param meanContentWords - average number of words of a content
+     * @return [maxPoolSize], or a smaller power of two for long contents, so
+     *         their pool still fits in the heap while outgrowing the CPU
+     *         caches
+     */
+    static int poolSize(int maxPoolSize,
+                        int meanContentWords) {
+        return Math.min(maxPoolSize,
+                        Integer.highestOneBit(Math.max(1,
+                                                       POOL_CONTENT_WORDS / meanContentWords)));
+    }
+
+    static String idOf(int index) {
+        return "document-" + index;
+    }
+
+    static String authorId(int rank) {
+        return "author-" + rank;
+    }
+
+    /**
+     * @param rank - popularity rank, 0 is the most frequent title starter
+     */
+    String titleStarter(int rank) {
+        return capitalize(vocabulary[STOP_WORDS.length + rank]);
+    }
+
+    /**
+     * @param rank - popularity rank, 0 is the most frequent word
+     */
+    String word(int rank) {
+        return vocabulary[rank];
+    }
+
+    int randomIndex(int bound) {
+        return random.nextInt(bound);
+    }
+
+    private String title() {
+        StringBuilder title = new StringBuilder(titleStarter(titleStarterSampler.sample(random)));
+        int words = 2 + random.nextInt(5);
+        for (int word = 0; word < words; word++) {
+            title.append(' ')
+                 .append(vocabulary[wordSampler.sample(random)]);
+        }
+        return title.toString();
+    }
+
+    private String content() {
+        double logNormal = Math.exp(gaussian() * 0.5 - 0.125);
+        int words = Math.max(5,
+                             (int) (meanContentWords * logNormal));
+        StringBuilder content = new StringBuilder(words * 7);
+        for (int word = 0; word < words; word++) {
+            String nextWord = vocabulary[wordSampler.sample(random)];
+            boolean startsSentence = word == 0
+                                     || content.charAt(content.length() - 2) == '.';
+            content.append(startsSentence ? capitalize(nextWord)
+                                          : nextWord)
+                   .append(random.nextInt(12) == 0 ? ". "
+                                                   : " ");
+        }
+        return content.toString()
+                      .trim();
+    }
+
+    private Instant created() {
+        long ageSeconds = (long) (-Math.log(1 - random.nextDouble()) * MEAN_AGE.getSeconds());
+        return NEWEST_CREATED.minusSeconds(Math.min(ageSeconds,
+                                                    MAX_AGE.getSeconds()));
+    }
+
+    private double gaussian() {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static String[] vocabulary() {
+        String[] vocabulary = Arrays.copyOf(STOP_WORDS,
+                                            VOCABULARY_SIZE);
+        SplittableRandom wordRandom = new SplittableRandom(VOCABULARY_SIZE);
+        for (int rank = STOP_WORDS.length; rank < VOCABULARY_SIZE; rank++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + wordRandom.nextInt(3);
+            for (int syllable = 0; syllable < syllables; syllable++) {
+                word.append(SYLLABLES[wordRandom.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[rank] = word.append(rank)
+                                   .toString();
+        }
+        return vocabulary;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    /**
+     * Samples ranks 0..n-1 where rank k has a probability proportional to
+     * 1 / (k + 1)^s.
+     */
+    private static final class ZipfSampler {
+        private final double[] cumulativeProbabilities;
+
+        private ZipfSampler(int ranks) {
+            cumulativeProbabilities = new double[ranks];
+            double total = 0;
+            for (int rank = 0; rank < ranks; rank++) {
+                total += 1 / Math.pow(rank + 1,
+                                      ZIPF_EXPONENT);
+                cumulativeProbabilities[rank] = total;
+            }
+            for (int rank = 0; rank < ranks; rank++) {
+                cumulativeProbabilities[rank] /= total;
+            }
+        }
+
+        private int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulativeProbabilities,
+                                            random.nextDouble());
+            return Math.min(index < 0 ? -index - 1
+                                      : index,
+                            cumulativeProbabilities.length - 1);
+        }
+    }
+
+}
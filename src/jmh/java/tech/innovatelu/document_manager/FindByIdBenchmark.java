@@ -0,0 +1,70 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.innovatelu.document_manager.DocumentManager.Configuration;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link DocumentManager#findById} for ids that exist and for ids
+ * that do not, with and without the Bloom filter of the stored ids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class FindByIdBenchmark {
+
+    public static class FindByIdCorpus extends LoadedCorpus {
+        @Param({ "false", "true" })
+        public boolean bloomFilter;
+
+        @Override
+        DocumentManager newDocumentManager() {
+            return new DocumentManager(Configuration.builder()
+                                                    .findByIdBloomFilter(bloomFilter)
+                                                    .build());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private int next;
+
+        String existingId(int corpusSize) {
+            return CorpusGenerator.idOf(Math.floorMod(next++ * 7_919,
+                                                      corpusSize));
+        }
+
+        String missingId() {
+            return "missing-" + next++;
+        }
+    }
+
+    @Benchmark
+    public Optional<Document> hit(FindByIdCorpus corpus,
+                                  Reader reader) {
+        return corpus.documentManager.findById(reader.existingId(corpus.corpusSize));
+    }
+
+    @Benchmark
+    public Optional<Document> miss(FindByIdCorpus corpus,
+                                   Reader reader) {
+        return corpus.documentManager.findById(reader.missingId());
+    }
+
+}
@@ -0,0 +1,66 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@link DocumentManager} preloaded with a synthetic corpus, shared by all
+ * benchmark threads. Larger corpora need a bigger heap, e.g.
+ * {@code -p corpusSize=10000000 -jvmArgsAppend -Xmx64g}.
+ * <p>
+ * Contents average about 450 bytes at 60 words and 300 KB at 40000 words,
+ * the size of long reports or books; run those with a small corpus, e.g.
+ * {@code -p corpusSize=1000 -p meanContentWords=40000 -jvmArgsAppend -Xmx3g}.
+ */
+@State(Scope.Benchmark)
+public class LoadedCorpus {
+    static final long SEED = 42;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int corpusSize;
+
+    @Param({ "60", "40000" })
+    public int meanContentWords;
+
+    DocumentManager documentManager;
+    CorpusGenerator generator;
+
+    @Setup(Level.Trial)
+    public void load() {
+        documentManager = newDocumentManager();
+        generator = new CorpusGenerator(SEED,
+                                        corpusSize,
+                                        meanContentWords);
+        for (int loaded = 0; loaded < corpusSize; loaded += LOAD_BATCH_SIZE) {
+            int batchSize = Math.min(LOAD_BATCH_SIZE,
+                                     corpusSize - loaded);
+            documentManager.saveAll(generator.documents(loaded,
+                                                        batchSize));
+        }
+        loaded();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        documentManager.close();
+    }
+
+    /**
+     * Benchmarks comparing configurations override this.
+     */
+    DocumentManager newDocumentManager() {
+        return new DocumentManager();
+    }
+
+    /**
+     * Called once the corpus is loaded.
+     */
+    void loaded() {
+    }
+
+}
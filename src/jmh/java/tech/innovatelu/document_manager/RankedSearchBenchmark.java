@@ -0,0 +1,89 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.innovatelu.document_manager.DocumentManager.Configuration;
+import tech.innovatelu.document_manager.DocumentManager.ScoredDocument;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link DocumentManager#searchRanked} for queries of one to three
+ * words. The {@code words} parameter picks how frequent the words are:
+ * {@code rare}, {@code moderate}, or {@code common} mixed with a moderate one,
+ * the case MaxScore skipping is for.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class RankedSearchBenchmark {
+    private static final int QUERY_COUNT = 16;
+
+    public static class RankedCorpus extends LoadedCorpus {
+        @Override
+        DocumentManager newDocumentManager() {
+            return new DocumentManager(Configuration.builder()
+                                                    .fullTextIndex(true)
+                                                    .build());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Queries {
+        @Param({ "rare", "moderate", "common" })
+        public String words;
+
+        @Param({ "10", "1000" })
+        public int limit;
+
+        private String[] queries;
+
+        @Setup(Level.Trial)
+        public void build(RankedCorpus corpus) {
+            CorpusGenerator generator = corpus.generator;
+            queries = new String[QUERY_COUNT];
+            for (int query = 0; query < QUERY_COUNT; query++) {
+                queries[query] = switch (words) {
+                    case "rare" -> generator.word(3_000 + query) + " " + generator.word(4_000 + query);
+                    case "moderate" -> generator.word(150 + query) + " " + generator.word(300 + query);
+                    case "common" -> generator.word(20 + query % 4) + " " + generator.word(40 + query) + " "
+                                     + generator.word(200 + query);
+                    default -> throw new IllegalArgumentException("Unknown words " + words);
+                };
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextQuery(Queries queries) {
+            return queries.queries[next++ & (QUERY_COUNT - 1)];
+        }
+    }
+
+    @Benchmark
+    public List<ScoredDocument> searchRanked(RankedCorpus corpus,
+                                             Queries queries,
+                                             Cursor cursor) {
+        return corpus.documentManager.searchRanked(cursor.nextQuery(queries),
+                                                   queries.limit);
+    }
+
+}
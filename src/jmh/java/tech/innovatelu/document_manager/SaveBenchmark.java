@@ -0,0 +1,152 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link DocumentManager#save} and
+ * {@link DocumentManager#saveAll}: inserts of new documents, updates of
+ * existing ones, single and multi-threaded, and updates contended on a few hot
+ * ids.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class SaveBenchmark {
+    private static final int MULTIPLE_THREADS = 8;
+    private static final int HOT_IDS = 16;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int DOCUMENT_POOL_SIZE = 4_096;
+
+    /**
+     * Every thread cycles through its own pool of pre-generated documents, so
+     * generating documents is not part of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        private List<Document> pool;
+        private int poolSize;
+        private int corpusSize;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void generate(LoadedCorpus corpus,
+                             ThreadParams threadParams) {
+            CorpusGenerator generator = new CorpusGenerator(LoadedCorpus.SEED + threadParams.getThreadIndex() + 1,
+                                                            corpus.corpusSize,
+                                                            corpus.meanContentWords);
+            poolSize = CorpusGenerator.poolSize(DOCUMENT_POOL_SIZE,
+                                                corpus.meanContentWords);
+            pool = new ArrayList<>(poolSize);
+            for (int index = 0; index < poolSize; index++) {
+                pool.add(generator.document(null));
+            }
+            corpusSize = corpus.corpusSize;
+        }
+
+        Document newDocument() {
+            return copyWithId(null);
+        }
+
+        Document existingDocument() {
+            return copyWithId(CorpusGenerator.idOf(Math.floorMod(next * 7_919,
+                                                                 corpusSize)));
+        }
+
+        Document hotDocument() {
+            return copyWithId(CorpusGenerator.idOf(next % HOT_IDS));
+        }
+
+        List<Document> newBatch() {
+            List<Document> batch = new ArrayList<>(BATCH_SIZE);
+            for (int index = 0; index < BATCH_SIZE; index++) {
+                batch.add(newDocument());
+            }
+            return batch;
+        }
+
+        private Document copyWithId(String id) {
+            Document template = pool.get(next++ & (poolSize - 1));
+            return Document.builder()
+                           .id(id)
+                           .title(template.getTitle())
+                           .content(template.getContent())
+                           .author(template.getAuthor())
+                           .created(template.getCreated())
+                           .build();
+        }
+    }
+
+    @Benchmark
+    public Document insert(LoadedCorpus corpus,
+                           Writer writer) {
+        return corpus.documentManager.save(writer.newDocument());
+    }
+
+    @Benchmark
+    public Document update(LoadedCorpus corpus,
+                           Writer writer) {
+        return corpus.documentManager.save(writer.existingDocument());
+    }
+
+    @Benchmark
+    @Threads(MULTIPLE_THREADS)
+    public Document insertMultiThreaded(LoadedCorpus corpus,
+                                        Writer writer) {
+        return corpus.documentManager.save(writer.newDocument());
+    }
+
+    @Benchmark
+    @Threads(MULTIPLE_THREADS)
+    public Document updateMultiThreaded(LoadedCorpus corpus,
+                                        Writer writer) {
+        return corpus.documentManager.save(writer.existingDocument());
+    }
+
+    @Benchmark
+    @Threads(MULTIPLE_THREADS)
+    public Document updateContended(LoadedCorpus corpus,
+                                    Writer writer) {
+        return corpus.documentManager.save(writer.hotDocument());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int insertBatchWithSaveLoop(LoadedCorpus corpus,
+                                       Writer writer) {
+        List<Document> batch = writer.newBatch();
+        for (Document document : batch) {
+            corpus.documentManager.save(document);
+        }
+        return batch.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Document> insertBatchWithSaveAll(LoadedCorpus corpus,
+                                                 Writer writer) {
+        return corpus.documentManager.saveAll(writer.newBatch());
+    }
+
+}
@@ -0,0 +1,111 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.SearchOptions;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+import tech.innovatelu.document_manager.DocumentManager.SortKey;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Latency of {@link DocumentManager#search} for every combination of the
+ * search fields. The {@code shape} parameter names the fields set on the
+ * request joined by {@code +}, e.g. {@code title+created}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    private static final int QUERY_COUNT = 16;
+    private static final int PAGE_SIZE = 20;
+    private static final Duration CREATED_WINDOW = Duration.ofDays(30);
+
+    @State(Scope.Benchmark)
+    public static class Queries {
+        @Param({ "title", "content", "author", "created", "title+content", "title+author", "title+created",
+                 "content+author", "content+created", "author+created", "title+content+author",
+                 "title+content+created", "title+author+created", "content+author+created",
+                 "title+content+author+created" })
+        public String shape;
+
+        private SearchRequest[] requests;
+
+        /**
+         * Queries rotate over moderately selective values: neither the most
+         * frequent ones nor ones matching almost nothing.
+         */
+        @Setup(Level.Trial)
+        public void build(LoadedCorpus corpus) {
+            List<String> fields = Arrays.asList(shape.split("\\+"));
+            CorpusGenerator generator = corpus.generator;
+            requests = new SearchRequest[QUERY_COUNT];
+            for (int query = 0; query < QUERY_COUNT; query++) {
+                SearchRequest.SearchRequestBuilder request = SearchRequest.builder();
+                if (fields.contains("title"))
+                    request.titlePrefixes(List.of(generator.titleStarter(3 + query % 4)));
+                if (fields.contains("content"))
+                    request.containsContents(List.of(generator.word(150 + query)));
+                if (fields.contains("author"))
+                    request.authorIds(IntStream.range(50 + query,
+                                                      60 + query)
+                                               .mapToObj(CorpusGenerator::authorId)
+                                               .collect(Collectors.toList()));
+                if (fields.contains("created"))
+                    request.createdFrom(CorpusGenerator.NEWEST_CREATED.minus(CREATED_WINDOW.multipliedBy(query + 1)))
+                           .createdTo(CorpusGenerator.NEWEST_CREATED.minus(CREATED_WINDOW.multipliedBy(query)));
+                requests[query] = request.build();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        SearchRequest nextRequest(Queries queries) {
+            return queries.requests[next++ & (QUERY_COUNT - 1)];
+        }
+    }
+
+    @Benchmark
+    public List<Document> search(LoadedCorpus corpus,
+                                 Queries queries,
+                                 Cursor cursor) {
+        return corpus.documentManager.search(cursor.nextRequest(queries));
+    }
+
+    @Benchmark
+    public List<Document> searchFirstPageByCreated(LoadedCorpus corpus,
+                                                   Queries queries,
+                                                   Cursor cursor) {
+        return corpus.documentManager.search(cursor.nextRequest(queries),
+                                             SearchOptions.builder()
+                                                          .sortBy(SortKey.CREATED)
+                                                          .descending(true)
+                                                          .limit(PAGE_SIZE)
+                                                          .build());
+    }
+
+}
@@ -0,0 +1,198 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cost per document of checking it against a search request, for the
+ * compiled filter and for the per-document evaluation it replaced, which
+ * re-read the request and streamed its lists for every document. Requests set
+ * {@code terms} values on one field, or on every field for {@code allFields}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class SearchFilterBenchmark {
+    private static final int DOCUMENTS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Filters {
+        @Param({ "1", "4", "16", "64" })
+        public int terms;
+
+        @Param({ "interpreted", "compiled" })
+        public String filter;
+
+        @Param({ "60", "40000" })
+        public int meanContentWords;
+
+        private StoredDocument[] documents;
+        private Predicate<StoredDocument> titlePrefixesFilter;
+        private Predicate<StoredDocument> containsContentsFilter;
+        private Predicate<StoredDocument> authorIdsFilter;
+        private Predicate<StoredDocument> allFieldsFilter;
+
+        @Setup(Level.Trial)
+        public void build() {
+            CorpusGenerator generator = new CorpusGenerator(LoadedCorpus.SEED,
+                                                            DOCUMENTS,
+                                                            meanContentWords);
+            HeapContentStore contentStore = new HeapContentStore();
+            // Long contents are generated once per pool slot and repeated.
+            StoredDocument[] distinctDocuments = generator.documents(0,
+                                                                     CorpusGenerator.poolSize(DOCUMENTS,
+                                                                                              meanContentWords))
+                                                          .stream()
+                                                          .map(document -> StoredDocument.of(DocumentKey.of(document.getId()),
+                                                                                             document,
+                                                                                             contentStore,
+                                                                                             0,
+                                                                                             null))
+                                                          .toArray(StoredDocument[]::new);
+            documents = new StoredDocument[DOCUMENTS];
+            for (int index = 0; index < DOCUMENTS; index++) {
+                documents[index] = distinctDocuments[index % distinctDocuments.length];
+            }
+
+            List<String> titlePrefixes = values(generator::titleStarter);
+            List<String> containsContents = values(rank -> generator.word(150 + rank));
+            List<String> authorIds = values(rank -> CorpusGenerator.authorId(rank * 3));
+            titlePrefixesFilter = filterOf(SearchRequest.builder()
+                                                        .titlePrefixes(titlePrefixes)
+                                                        .build());
+            containsContentsFilter = filterOf(SearchRequest.builder()
+                                                           .containsContents(containsContents)
+                                                           .build());
+            authorIdsFilter = filterOf(SearchRequest.builder()
+                                                    .authorIds(authorIds)
+                                                    .build());
+            allFieldsFilter = filterOf(SearchRequest.builder()
+                                                    .titlePrefixes(titlePrefixes)
+                                                    .containsContents(containsContents)
+                                                    .authorIds(authorIds)
+                                                    .createdFrom(CorpusGenerator.NEWEST_CREATED.minusSeconds(365L * 24 * 3600))
+                                                    .build());
+        }
+
+        private List<String> values(IntFunction<String> valueOfRank) {
+            return IntStream.range(0,
+                                   terms)
+                            .mapToObj(valueOfRank)
+                            .collect(Collectors.toList());
+        }
+
+        private Predicate<StoredDocument> filterOf(SearchRequest searchRequest) {
+            List<DocumentManager.SearchPredicate> predicates = QueryPlanner.predicatesOf(searchRequest);
+            return filter.equals("compiled") ? CompiledFilter.compile(predicates,
+                                                                      searchRequest)
+                                             : InterpretedFilter.of(predicates,
+                                                                    searchRequest);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public int titlePrefixes(Filters filters) {
+        return countMatches(filters.documents,
+                            filters.titlePrefixesFilter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public int containsContents(Filters filters) {
+        return countMatches(filters.documents,
+                            filters.containsContentsFilter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public int authorIds(Filters filters) {
+        return countMatches(filters.documents,
+                            filters.authorIdsFilter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public int allFields(Filters filters) {
+        return countMatches(filters.documents,
+                            filters.allFieldsFilter);
+    }
+
+    private static int countMatches(StoredDocument[] documents,
+                                    Predicate<StoredDocument> filter) {
+        int matches = 0;
+        for (StoredDocument document : documents) {
+            if (filter.test(document))
+                matches++;
+        }
+        return matches;
+    }
+
+    /**
+     * The evaluation before the filters were compiled: a chain of predicates
+     * reading the request fields and streaming their lists per document.
+     */
+    private static final class InterpretedFilter {
+
+        static Predicate<StoredDocument> of(List<DocumentManager.SearchPredicate> predicates,
+                                            SearchRequest searchRequest) {
+            Predicate<StoredDocument> filter = document -> true;
+            for (DocumentManager.SearchPredicate predicate : predicates) {
+                filter = filter.and(switch (predicate) {
+                    case AUTHOR_IDS -> document -> searchRequest.getAuthorIds() == null
+                                                   || document.getAuthorId() != null
+                                                      && searchRequest.getAuthorIds()
+                                                                      .contains(document.getAuthorId());
+                    case CREATED_RANGE -> document -> (searchRequest.getCreatedFrom() == null
+                                                       || document.getCreated() != null
+                                                          && !document.getCreated()
+                                                                      .isBefore(searchRequest.getCreatedFrom()))
+                                                      && (searchRequest.getCreatedTo() == null
+                                                          || document.getCreated() != null
+                                                             && !document.getCreated()
+                                                                         .isAfter(searchRequest.getCreatedTo()));
+                    case TITLE_PREFIXES -> document -> searchRequest.getTitlePrefixes() == null
+                                                       || searchRequest.getTitlePrefixes()
+                                                                       .stream()
+                                                                       .anyMatch(prefix -> document.getTitle() != null
+                                                                                           && document.getTitle()
+                                                                                                      .startsWith(prefix));
+                    case CONTAINS_CONTENTS -> document -> {
+                        if (searchRequest.getContainsContents() == null)
+                            return true;
+
+                        String documentContent = document.readContent();
+                        return searchRequest.getContainsContents()
+                                            .stream()
+                                            .anyMatch(documentContent::contains);
+                    };
+                });
+            }
+            return filter;
+        }
+    }
+
+}
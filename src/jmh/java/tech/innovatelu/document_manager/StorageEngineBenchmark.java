@@ -0,0 +1,145 @@
+package tech.innovatelu.document_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import tech.innovatelu.document_manager.DocumentManager.Configuration;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.DocumentStorage;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link DocumentStorage} engines: a burst of inserts from many
+ * threads, point lookups, a parallel full scan and a scan of the recent
+ * documents.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class StorageEngineBenchmark {
+    private static final int WRITER_THREADS = 64;
+    private static final int DOCUMENT_POOL_SIZE = 4_096;
+    private static final Instant RECENT_FROM = CorpusGenerator.NEWEST_CREATED.minus(Duration.ofDays(30));
+
+    public static class StorageCorpus extends LoadedCorpus {
+        @Param({ "CONCURRENT_MAP", "SHARDED", "TIME_PARTITIONED" })
+        public DocumentStorage documentStorage;
+
+        /**
+         * Every search runs in parallel, so scans show how the storage splits.
+         */
+        @Override
+        DocumentManager newDocumentManager() {
+            return new DocumentManager(Configuration.builder()
+                                                    .documentStorage(documentStorage)
+                                                    .parallelSearchPool(ForkJoinPool.commonPool())
+                                                    .parallelSearchThreshold(0)
+                                                    .build());
+        }
+
+        /**
+         * Daily partitions older than the recent range are sealed.
+         */
+        @Override
+        void loaded() {
+            if (documentStorage == DocumentStorage.TIME_PARTITIONED)
+                documentManager.sealPartitionsBefore(RECENT_FROM);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Inserter {
+        private List<Document> pool;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void generate(ThreadParams threadParams) {
+            CorpusGenerator generator = new CorpusGenerator(LoadedCorpus.SEED + threadParams.getThreadIndex() + 1,
+                                                            DOCUMENT_POOL_SIZE,
+                                                            20);
+            pool = new ArrayList<>(DOCUMENT_POOL_SIZE);
+            for (int index = 0; index < DOCUMENT_POOL_SIZE; index++) {
+                pool.add(generator.document(null));
+            }
+        }
+
+        Document newDocument() {
+            Document template = pool.get(next++ & (DOCUMENT_POOL_SIZE - 1));
+            return Document.builder()
+                           .title(template.getTitle())
+                           .content(template.getContent())
+                           .author(template.getAuthor())
+                           .created(template.getCreated())
+                           .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private int next;
+    }
+
+    @Benchmark
+    @Threads(WRITER_THREADS)
+    public Document insertBurst(StorageCorpus corpus,
+                                Inserter inserter) {
+        return corpus.documentManager.save(inserter.newDocument());
+    }
+
+    @Benchmark
+    @Threads(WRITER_THREADS)
+    public Optional<Document> findById(StorageCorpus corpus,
+                                       Reader reader) {
+        return corpus.documentManager.findById(CorpusGenerator.idOf(Math.floorMod(reader.next++ * 7_919,
+                                                                                  corpus.corpusSize)));
+    }
+
+    /**
+     * The created range covers everything, so the planner scans, and the
+     * two-letter term is too short for the content index and matches nothing.
+     */
+    @Benchmark
+    public List<Document> parallelFullScan(StorageCorpus corpus) {
+        return corpus.documentManager.search(SearchRequest.builder()
+                                                          .createdFrom(Instant.EPOCH)
+                                                          .containsContents(List.of("zq"))
+                                                          .build());
+    }
+
+    /**
+     * The last 30 days hold about 15% of the corpus. The map storages fetch
+     * them through the created index, the time-partitioned storage scans the
+     * partitions of those days; the term again matches nothing.
+     */
+    @Benchmark
+    public List<Document> recentRangeScan(StorageCorpus corpus) {
+        return corpus.documentManager.search(SearchRequest.builder()
+                                                          .createdFrom(RECENT_FROM)
+                                                          .containsContents(List.of("zq"))
+                                                          .build());
+    }
+
+}
@@ -0,0 +1,254 @@
+package tech.innovatelu.document_manager;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Runs the calls of the asynchronous {@link DocumentManager} API. A call is
+ * admitted only while fewer than [maxConcurrentCalls] run, otherwise it fails
+ * right away instead of queueing behind the others. Every call gets a check
+ * telling it whether its caller is gone (the future is completed, cancelled or
+ * timed out, the subscription cancelled), which searches test for every
+ * candidate, so an abandoned scan stops instead of running to its end.
+ */
+class AsyncExecution implements AutoCloseable {
+    private final Executor configuredExecutor;
+    private final Semaphore permits;
+    private final Duration timeout;
+    private ExecutorService ownedExecutor;
+    private boolean closed;
+
+    /**
+     * @param executor           - runs the calls, null runs every call on a
+     *                           new virtual thread
+     * @param maxConcurrentCalls - calls and open publications admitted at once
+     * @param timeout            - time after which a call's future fails with
+     *                           a timeout, null for none
+     */
+    AsyncExecution(Executor executor,
+                   int maxConcurrentCalls,
+                   Duration timeout) {
+        if (maxConcurrentCalls < 1)
+            throw new IllegalArgumentException("Max concurrent calls must be positive");
+
+        this.configuredExecutor = executor;
+        this.permits = new Semaphore(maxConcurrentCalls);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param call - receives the check whether the caller is gone
+     */
+    <T> CompletableFuture<T> submit(Function<BooleanSupplier, T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!permits.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException("Too many asynchronous calls in progress"));
+            return future;
+        }
+
+        try {
+            executor().execute(() -> {
+                try {
+                    if (!future.isDone())
+                        future.complete(call.apply(future::isDone));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            future.completeExceptionally(e);
+        }
+        if (timeout != null)
+            future.orTimeout(timeout.toNanos(),
+                             TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * Every subscription opens its own stream on its first request and
+     * closes it when it completes, fails or is cancelled.
+     *
+     * @param stream - opens the stream, receives the check whether the
+     *               subscription is cancelled
+     */
+    <T> Flow.Publisher<T> publish(Function<BooleanSupplier, Stream<T>> stream) {
+        return subscriber -> {
+            StreamSubscription<T> subscription = new StreamSubscription<>(subscriber,
+                                                                          stream);
+            subscriber.onSubscribe(subscription);
+            if (!permits.tryAcquire()) {
+                subscription.fail(new RejectedExecutionException("Too many asynchronous calls in progress"));
+                return;
+            }
+            subscription.admitted = true;
+            subscription.drain();
+        };
+    }
+
+    /**
+     * Stops the owned virtual thread executor; calls in progress finish, later
+     * ones are rejected. A configured executor is left to its owner.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (ownedExecutor != null)
+            ownedExecutor.shutdown();
+    }
+
+    private Executor executor() {
+        if (configuredExecutor != null)
+            return configuredExecutor;
+
+        synchronized (this) {
+            if (closed)
+                throw new RejectedExecutionException("Document manager is closed");
+            if (ownedExecutor == null)
+                ownedExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            return ownedExecutor;
+        }
+    }
+
+    /**
+     * Emits on the executor, one drain at a time: whoever finds the work
+     * counter at zero runs the drain, the others only make it loop once more.
+     */
+    private class StreamSubscription<T> implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Function<BooleanSupplier, Stream<T>> streamOpener;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean admitted;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private boolean done;
+        private Stream<T> stream;
+        private Iterator<T> iterator;
+
+        private StreamSubscription(Flow.Subscriber<? super T> subscriber,
+                                   Function<BooleanSupplier, Stream<T>> streamOpener) {
+            this.subscriber = subscriber;
+            this.streamOpener = streamOpener;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0)
+                error = new IllegalArgumentException("Requested elements must be positive");
+            else
+                demand.accumulateAndGet(n,
+                                        (current, added) -> current + added < 0 ? Long.MAX_VALUE
+                                                                                : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void fail(Throwable throwable) {
+            done = true;
+            subscriber.onError(throwable);
+        }
+
+        private void drain() {
+            if (!admitted
+                || pendingDrains.getAndIncrement() != 0)
+                return;
+
+            try {
+                executor().execute(this::runDrains);
+            } catch (RejectedExecutionException e) {
+                error = e;
+                runDrains();
+            }
+        }
+
+        private void runDrains() {
+            int drains = pendingDrains.get();
+            do {
+                emit();
+                drains = pendingDrains.addAndGet(-drains);
+            } while (drains != 0);
+        }
+
+        private void emit() {
+            if (done)
+                return;
+
+            try {
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (error != null) {
+                    finish();
+                    subscriber.onError(error);
+                    return;
+                }
+                if (demand.get() == 0)
+                    return;
+
+                if (iterator == null) {
+                    stream = streamOpener.apply(() -> cancelled);
+                    iterator = stream.iterator();
+                }
+                while (demand.get() > 0
+                       && !cancelled) {
+                    if (!iterator.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(iterator.next());
+                }
+                if (cancelled)
+                    finish();
+            } catch (RuntimeException e) {
+                // A terminal callback that throws gets no second signal.
+                boolean terminated = done;
+                finish();
+                if (!terminated
+                    && !cancelled)
+                    subscriber.onError(e);
+            }
+        }
+
+        /**
+         * Releases the permit once, also when a terminal callback throws after
+         * it.
+         */
+        private void finish() {
+            if (done)
+                return;
+
+            done = true;
+            try {
+                if (stream != null)
+                    stream.close();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Author;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash index from {@link Author#getId()} to the ids of the documents written by
+ * that author. Documents whose author has a null id are kept in a posting list
+ * of their own, as a null author id in a request matches them; documents
+ * without an author match no author id.
+ */
+class AuthorIndex implements DocumentIndex {
+    private final PostingLists<String> idsByAuthorId = new PostingLists<>();
+    private final Map<DocumentKey, String> authorIdsById = new ConcurrentHashMap<>();
+    private final Set<DocumentKey> idsWithNullAuthorId = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void index(DocumentKey id,
+                      Document document) {
+        String authorId = authorIdOf(document);
+        if (document.getAuthor() != null
+            && authorId == null)
+            idsWithNullAuthorId.add(id);
+        else
+            idsWithNullAuthorId.remove(id);
+        String previousAuthorId = authorId == null ? authorIdsById.remove(id)
+                                                   : authorIdsById.put(id,
+                                                                       authorId);
+
+        if (Objects.equals(previousAuthorId,
+                           authorId))
+            return;
+
+        if (previousAuthorId != null)
+            idsByAuthorId.remove(previousAuthorId,
+                                 id);
+        if (authorId != null)
+            idsByAuthorId.add(authorId,
+                              id);
+    }
+
+    @Override
+    public void remove(DocumentKey id) {
+        idsWithNullAuthorId.remove(id);
+        String previousAuthorId = authorIdsById.remove(id);
+        if (previousAuthorId != null)
+            idsByAuthorId.remove(previousAuthorId,
+                                 id);
+    }
+
+    /**
+     * @param authorIds - author ids, a document matches if it was written by any
+     *                  of them
+     * @return ids of the documents written by one of the [authorIds]
+     */
+    Set<DocumentKey> findIds(List<String> authorIds) {
+        Set<DocumentKey> ids = new HashSet<>();
+        for (String authorId : authorIds) {
+            ids.addAll(authorId == null ? idsWithNullAuthorId
+                                        : idsByAuthorId.get(authorId));
+        }
+        return ids;
+    }
+
+    /**
+     * @param authorIds - author ids
+     * @return number of documents written by one of the [authorIds]
+     */
+    long estimateIds(List<String> authorIds) {
+        return authorIds.stream()
+                        .distinct()
+                        .mapToLong(authorId -> authorId == null ? idsWithNullAuthorId.size()
+                                                                : idsByAuthorId.get(authorId)
+                                                                               .size())
+                        .sum();
+    }
+
+    private String authorIdOf(Document document) {
+        return document.getAuthor() == null ? null
+                                            : document.getAuthor()
+                                                      .getId();
+    }
+
+}
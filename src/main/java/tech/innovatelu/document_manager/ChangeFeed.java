@@ -0,0 +1,255 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+import tech.innovatelu.document_manager.DocumentManager.ChangeEvent;
+import tech.innovatelu.document_manager.DocumentManager.ChangeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Ring buffer of the latest saves, sequenced by their commit version. A save
+ * writes its slot before its version becomes stable, and readers only read up
+ * to the stable version, so they see the saves in sequence order however
+ * concurrent saves finish.
+ * <p>
+ * Sequences have gaps where a save failed after getting its version. A slot
+ * holding a newer sequence than the one looked for was overwritten: the
+ * reader fell more than the capacity behind and lost events.
+ */
+class ChangeFeed implements AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(ChangeFeed.class.getName());
+
+    private final AtomicReferenceArray<Change> slots;
+    private final int mask;
+    private final LongSupplier stableSequence;
+    /**
+     * Sequences up to it were taken before the feed existed, e.g. by the
+     * recovery, and have no events.
+     */
+    private final long firstSequence;
+    private final Executor executor;
+    private final Set<ChangeSubscription> subscriptions = new CopyOnWriteArraySet<>();
+    private volatile boolean closed;
+
+    /**
+     * @param capacity       - number of retained events, rounded up to a power
+     *                       of two
+     * @param stableSequence - sequence below which no save is in flight
+     * @param executor       - runs the deliveries to subscribers
+     */
+    ChangeFeed(int capacity,
+               LongSupplier stableSequence,
+               Executor executor) {
+        int slotCount = Integer.highestOneBit(Math.max(1,
+                                                       capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+        this.stableSequence = stableSequence;
+        this.firstSequence = stableSequence.getAsLong();
+        this.executor = executor;
+    }
+
+    /**
+     * Must be called before the version of [storedDocument] becomes stable.
+     */
+    void append(StoredDocument storedDocument) {
+        slots.set((int) storedDocument.getVersion() & mask,
+                  new Change(storedDocument.getVersion(),
+                             storedDocument.getPreviousVersion() == null ? ChangeType.INSERT
+                                                                         : ChangeType.UPDATE,
+                             storedDocument));
+    }
+
+    /**
+     * Wakes up the subscribers waiting for events. Called after a version
+     * became stable.
+     */
+    void signal() {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.drain();
+        }
+    }
+
+    long lastSequence() {
+        return stableSequence.getAsLong();
+    }
+
+    /**
+     * @return up to [maxEvents] events with sequences above [afterSequence],
+     *         in sequence order
+     * @throws IllegalStateException if events after [afterSequence] were
+     *                               already overwritten
+     */
+    List<ChangeEvent> read(long afterSequence,
+                           int maxEvents) {
+        List<ChangeEvent> events = new ArrayList<>();
+        long lastSequence = stableSequence.getAsLong();
+        for (long sequence = Math.max(afterSequence,
+                                      firstSequence) + 1; sequence <= lastSequence && events.size() < maxEvents; sequence++) {
+            Change change = slots.get((int) sequence & mask);
+            if (change == null
+                || change.getSequence() < sequence)
+                continue;
+            if (change.getSequence() > sequence)
+                throw new IllegalStateException("Change feed no longer retains sequence " + sequence);
+
+            events.add(change.toEvent());
+        }
+        return events;
+    }
+
+    Flow.Publisher<ChangeEvent> publisher(long afterSequence) {
+        return subscriber -> {
+            ChangeSubscription subscription = new ChangeSubscription(subscriber,
+                                                                     afterSequence);
+            subscriber.onSubscribe(subscription);
+            subscriptions.add(subscription);
+            if (closed)
+                subscription.complete();
+            else
+                subscription.drain();
+        };
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    @Value
+    private static class Change {
+        long sequence;
+        ChangeType type;
+        StoredDocument document;
+
+        ChangeEvent toEvent() {
+            return ChangeEvent.builder()
+                              .sequence(sequence)
+                              .type(type)
+                              .document(document.toDocument())
+                              .build();
+        }
+    }
+
+    /**
+     * Delivers on the executor, one drain at a time per subscription: whoever
+     * finds the work counter at zero runs the drain, the others only make it
+     * loop once more. Events the subscriber has not requested stay in the
+     * ring, so a slow subscriber holds no memory but can fall behind and
+     * fail once its next event is overwritten.
+     */
+    private class ChangeSubscription implements Flow.Subscription {
+        private static final int BATCH_SIZE = 256;
+
+        private final Flow.Subscriber<? super ChangeEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile long lastDeliveredSequence;
+        private volatile boolean completing;
+        private volatile boolean done;
+        private volatile Throwable error;
+
+        private ChangeSubscription(Flow.Subscriber<? super ChangeEvent> subscriber,
+                                   long afterSequence) {
+            this.subscriber = subscriber;
+            this.lastDeliveredSequence = afterSequence;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0)
+                error = new IllegalArgumentException("Requested events must be positive");
+            else
+                demand.accumulateAndGet(n,
+                                        (current, added) -> current + added < 0 ? Long.MAX_VALUE
+                                                                                : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        private void complete() {
+            completing = true;
+            drain();
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0)
+                executor.execute(this::runDrains);
+        }
+
+        private void runDrains() {
+            int drains = pendingDrains.get();
+            do {
+                try {
+                    deliver();
+                } catch (RuntimeException e) {
+                    finish();
+                    LOGGER.log(System.Logger.Level.WARNING,
+                               "Change feed subscriber failed and was cancelled",
+                               e);
+                }
+                drains = pendingDrains.addAndGet(-drains);
+            } while (drains != 0);
+        }
+
+        private void deliver() {
+            while (!done) {
+                if (error != null) {
+                    finish();
+                    subscriber.onError(error);
+                    return;
+                }
+
+                List<ChangeEvent> events;
+                try {
+                    events = demand.get() == 0 ? List.of()
+                                               : read(lastDeliveredSequence,
+                                                      (int) Math.min(demand.get(),
+                                                                     BATCH_SIZE));
+                } catch (IllegalStateException e) {
+                    error = e;
+                    continue;
+                }
+                if (events.isEmpty()) {
+                    if (completing) {
+                        finish();
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+
+                for (ChangeEvent event : events) {
+                    if (done)
+                        return;
+
+                    demand.decrementAndGet();
+                    lastDeliveredSequence = event.getSequence();
+                    subscriber.onNext(event);
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+            subscriptions.remove(this);
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.SearchPredicate;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Predicates of a {@link SearchRequest} compiled once per search. The request
+ * fields are read, copied and preprocessed up front, so checking a document
+ * allocates nothing and runs a single chain of plain checks instead of one
+ * lambda per predicate: unchecked fields are skipped by a null test, author
+ * ids are hashed, title prefixes sorted and content terms turned into an
+ * automaton when there are many of them.
+ * <p>
+ * The checks run in the declaration order of {@link SearchPredicate}, the
+ * cheapest first.
+ */
+final class CompiledFilter implements Predicate<StoredDocument> {
+    private final String authorId;
+    private final Set<String> authorIds;
+    private final boolean checksCreated;
+    private final Instant createdFrom;
+    private final Instant createdTo;
+    private final TitlePrefixes titlePrefixes;
+    private final ContentTerms contentTerms;
+
+    /**
+     * @param predicates - predicates of the [searchRequest] to check, the
+     *                   others are skipped
+     */
+    static CompiledFilter compile(List<SearchPredicate> predicates,
+                                  SearchRequest searchRequest) {
+        List<String> authorIds = predicates.contains(SearchPredicate.AUTHOR_IDS) ? searchRequest.getAuthorIds()
+                                                                                 : null;
+        boolean checksCreated = predicates.contains(SearchPredicate.CREATED_RANGE);
+        return new CompiledFilter(authorIds,
+                                  checksCreated ? searchRequest.getCreatedFrom()
+                                                : null,
+                                  checksCreated ? searchRequest.getCreatedTo()
+                                                : null,
+                                  predicates.contains(SearchPredicate.TITLE_PREFIXES) ? searchRequest.getTitlePrefixes()
+                                                                                      : null,
+                                  predicates.contains(SearchPredicate.CONTAINS_CONTENTS) ? searchRequest.getContainsContents()
+                                                                                         : null);
+    }
+
+    private CompiledFilter(List<String> authorIds,
+                           Instant createdFrom,
+                           Instant createdTo,
+                           List<String> titlePrefixes,
+                           List<String> containsContents) {
+        boolean singleAuthorId = authorIds != null
+                                 && authorIds.size() == 1
+                                 && authorIds.get(0) != null;
+        this.authorId = singleAuthorId ? authorIds.get(0)
+                                       : null;
+        this.authorIds = authorIds != null
+                         && !singleAuthorId ? new HashSet<>(authorIds)
+                                            : null;
+        this.checksCreated = createdFrom != null
+                             || createdTo != null;
+        this.createdFrom = createdFrom;
+        this.createdTo = createdTo;
+        this.titlePrefixes = titlePrefixes == null ? null
+                                                   : new TitlePrefixes(titlePrefixes);
+        this.contentTerms = containsContents == null ? null
+                                                     : new ContentTerms(containsContents);
+    }
+
+    @Override
+    public boolean test(StoredDocument document) {
+        if (authorId != null
+            && !authorId.equals(document.getAuthorId()))
+            return false;
+        if (authorIds != null
+            && (!document.isHasAuthor()
+                || !authorIds.contains(document.getAuthorId())))
+            return false;
+        if (checksCreated
+            && !isCreatedInRange(document.getCreated()))
+            return false;
+        if (titlePrefixes != null
+            && !titlePrefixes.matches(document.getTitle()))
+            return false;
+        return contentTerms == null
+               || contentTerms.matches(document.scanContent());
+    }
+
+    private boolean isCreatedInRange(Instant created) {
+        return created != null
+               && (createdFrom == null
+                   || !created.isBefore(createdFrom))
+               && (createdTo == null
+                   || !created.isAfter(createdTo));
+    }
+
+    /**
+     * Prefixes sorted with the ones starting with another prefix dropped. Every
+     * string between a prefix and a title starting with it starts with the
+     * prefix as well, so the only prefix a title can start with is the
+     * greatest one not after it, found by a binary search. Up to
+     * {@value #BINARY_SEARCH_MIN_PREFIXES} prefixes trying each one is
+     * cheaper.
+     */
+    static final class TitlePrefixes {
+        static final int BINARY_SEARCH_MIN_PREFIXES = 8;
+
+        private final String[] prefixes;
+
+        TitlePrefixes(List<String> titlePrefixes) {
+            String[] sortedPrefixes = titlePrefixes.stream()
+                                                   .filter(Objects::nonNull)
+                                                   .sorted()
+                                                   .toArray(String[]::new);
+            int count = 0;
+            for (String prefix : sortedPrefixes) {
+                if (count == 0
+                    || !prefix.startsWith(sortedPrefixes[count - 1]))
+                    sortedPrefixes[count++] = prefix;
+            }
+            this.prefixes = Arrays.copyOf(sortedPrefixes,
+                                          count);
+        }
+
+        boolean matches(String title) {
+            if (title == null)
+                return false;
+            if (prefixes.length < BINARY_SEARCH_MIN_PREFIXES) {
+                for (String prefix : prefixes) {
+                    if (title.startsWith(prefix))
+                        return true;
+                }
+                return false;
+            }
+
+            int position = Arrays.binarySearch(prefixes,
+                                               title);
+            if (position >= 0)
+                return true;
+
+            int floor = -position - 2;
+            return floor >= 0
+                   && title.startsWith(prefixes[floor]);
+        }
+    }
+
+    /**
+     * Up to {@value #AUTOMATON_MIN_TERMS} terms are looked up one by one with
+     * {@link String#contains}, which is vectorised and beats a char-by-char
+     * automaton while the terms are few. From there on an Aho-Corasick
+     * automaton finds all the terms in a single pass over the content.
+     */
+    static final class ContentTerms {
+        static final int AUTOMATON_MIN_TERMS = 10;
+
+        private final String[] terms;
+        private final boolean matchesAnyContent;
+        private final CharAutomaton automaton;
+
+        ContentTerms(List<String> containsContents) {
+            this(containsContents,
+                 AUTOMATON_MIN_TERMS);
+        }
+
+        /**
+         * @param automatonMinTerms - number of terms from which the automaton
+         *                          is used
+         */
+        ContentTerms(List<String> containsContents,
+                     int automatonMinTerms) {
+            this.terms = containsContents.stream()
+                                         .filter(Objects::nonNull)
+                                         .distinct()
+                                         .toArray(String[]::new);
+            this.matchesAnyContent = containsContents.contains("");
+            this.automaton = !matchesAnyContent
+                             && terms.length >= automatonMinTerms ? new CharAutomaton(terms)
+                                                                  : null;
+        }
+
+        boolean matches(String content) {
+            if (content == null)
+                return false;
+            if (matchesAnyContent)
+                return true;
+            if (automaton != null)
+                return automaton.occursIn(content);
+
+            for (String term : terms) {
+                if (content.contains(term))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton compiled to a transition table over the chars
+     * occurring in the terms; all other chars lead back to the start. Entries
+     * are offsets of the next state's row, and -1 for a state completing a
+     * term, where the search stops.
+     */
+    private static final class CharAutomaton {
+        private static final int COMPLETED_TERM = -1;
+        private static final int ASCII = 128;
+
+        private final int[] asciiClasses = new int[ASCII];
+        /**
+         * Sorted non-ASCII chars of the terms, their class is their position
+         * after the ASCII classes.
+         */
+        private final char[] otherChars;
+        private final int width;
+        private final int[] transitions;
+
+        private CharAutomaton(String[] terms) {
+            StringBuilder otherCharsBuilder = new StringBuilder();
+            int classCount = 1;
+            int stateCount = 1;
+            for (String term : terms) {
+                stateCount += term.length();
+                for (int index = 0; index < term.length(); index++) {
+                    char c = term.charAt(index);
+                    if (c < ASCII) {
+                        if (asciiClasses[c] == 0)
+                            asciiClasses[c] = classCount++;
+                    } else if (otherCharsBuilder.indexOf(String.valueOf(c)) < 0) {
+                        otherCharsBuilder.append(c);
+                    }
+                }
+            }
+            this.otherChars = otherCharsBuilder.toString()
+                                               .toCharArray();
+            Arrays.sort(otherChars);
+            this.width = classCount + otherChars.length;
+
+            int[] trie = new int[stateCount * width];
+            boolean[] completesTerm = new boolean[stateCount];
+            int usedStates = 1;
+            for (String term : terms) {
+                int state = 0;
+                for (int index = 0; index < term.length(); index++) {
+                    int edge = state * width + classOf(term.charAt(index));
+                    if (trie[edge] == 0)
+                        trie[edge] = usedStates++;
+                    state = trie[edge];
+                }
+                completesTerm[state] = true;
+            }
+
+            this.transitions = new int[usedStates * width];
+            int[] failures = new int[usedStates];
+            Queue<Integer> states = new ArrayDeque<>();
+            states.add(0);
+            while (!states.isEmpty()) {
+                int state = states.remove();
+                for (int charClass = 1; charClass < width; charClass++) {
+                    int child = trie[state * width + charClass];
+                    int fallback = state == 0 ? 0
+                                              : stateAfter(failures[state],
+                                                           charClass,
+                                                           trie,
+                                                           failures);
+                    if (child == 0) {
+                        transitions[state * width + charClass] = rowOf(fallback,
+                                                                       completesTerm);
+                        continue;
+                    }
+                    failures[child] = fallback;
+                    completesTerm[child] |= completesTerm[fallback];
+                    transitions[state * width + charClass] = rowOf(child,
+                                                                   completesTerm);
+                    states.add(child);
+                }
+            }
+        }
+
+        /**
+         * Follows the failure links from [state] to the first state with a
+         * trie edge for [charClass]; failure links always point to states
+         * closer to the start, which the breadth-first build completed before.
+         */
+        private int stateAfter(int state,
+                               int charClass,
+                               int[] trie,
+                               int[] failures) {
+            while (true) {
+                int child = trie[state * width + charClass];
+                if (child != 0)
+                    return child;
+                if (state == 0)
+                    return 0;
+                state = failures[state];
+            }
+        }
+
+        private int rowOf(int state,
+                          boolean[] completesTerm) {
+            return completesTerm[state] ? COMPLETED_TERM
+                                        : state * width;
+        }
+
+        private int classOf(char c) {
+            if (c < ASCII)
+                return asciiClasses[c];
+
+            int position = Arrays.binarySearch(otherChars,
+                                               c);
+            return position < 0 ? 0
+                                : width - otherChars.length + position;
+        }
+
+        boolean occursIn(String content) {
+            int row = 0;
+            for (int index = 0; index < content.length(); index++) {
+                row = transitions[row + classOf(content.charAt(index))];
+                if (row == COMPLETED_TERM)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+}
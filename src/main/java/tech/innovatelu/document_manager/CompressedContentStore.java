@@ -0,0 +1,255 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Keeps contents on the Java heap as {@link LzCodec} blocks of their UTF-8
+ * bytes. Documents are mostly short prose, which has little to match against
+ * itself, so once enough contents were seen the store trains a preset
+ * dictionary from their most frequent words and encodes every later content
+ * against it. Contents UTF-8 cannot hold, see {@link Utf16}, are kept as
+ * strings.
+ * <p>
+ * Contents are only decoded when they are read. Optionally, contents read
+ * again are kept decoded, bounded by their total length, so hot documents are
+ * not decoded on every lookup. The cache takes no lock: a content holds its
+ * own decoded string, and contents are admitted on their second read only and
+ * evicted first in first out, so one pass over many documents cannot flush
+ * it. {@link Content#scan() Scans} neither read nor fill it.
+ */
+class CompressedContentStore implements ContentStore {
+    /**
+     * Shorter contents are kept as strings: the handle overhead eats the gain.
+     */
+    private static final int MIN_COMPRESSED_LENGTH = 64;
+    private static final int DICTIONARY_SAMPLE_LENGTH = 256 << 10;
+    private static final int MAX_DICTIONARY_LENGTH = 16 << 10;
+
+    private static final AtomicReferenceFieldUpdater<CompressedContent, String> DECODED = AtomicReferenceFieldUpdater.newUpdater(CompressedContent.class,
+                                                                                                                                  String.class,
+                                                                                                                                  "decoded");
+
+    private final long decodedCacheCapacity;
+    /**
+     * Contents kept decoded, in admission order.
+     */
+    private final Queue<CompressedContent> decodedContents = new ConcurrentLinkedQueue<>();
+    private final AtomicLong decodedLength = new AtomicLong();
+    private final List<String> dictionarySamples = new ArrayList<>();
+    private int dictionarySampleLength;
+    private volatile LzCodec codec;
+
+    /**
+     * @param decodedCacheCapacity - maximum total length of the contents kept
+     *                             decoded, 0 decodes on every read
+     */
+    CompressedContentStore(long decodedCacheCapacity) {
+        this.decodedCacheCapacity = decodedCacheCapacity;
+    }
+
+    @Override
+    public Content store(String content) {
+        if (!Utf16.isWellFormed(content))
+            return new PlainContent(content);
+
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < MIN_COMPRESSED_LENGTH)
+            return new PlainContent(content);
+
+        LzCodec contentCodec = codec;
+        if (contentCodec == null)
+            contentCodec = sampleForDictionary(content);
+
+        byte[] compressed = contentCodec.encode(bytes);
+        if (compressed == null)
+            return new PlainContent(content);
+
+        return new CompressedContent(compressed,
+                                     bytes.length,
+                                     contentCodec);
+    }
+
+    @Override
+    public void close() {
+        CompressedContent content;
+        while ((content = decodedContents.poll()) != null) {
+            evict(content);
+        }
+    }
+
+    /**
+     * Collects [content] until the sample is large enough to train the
+     * dictionary.
+     *
+     * @return codec with the trained dictionary, one without a dictionary
+     *         while it is still sampling
+     */
+    private synchronized LzCodec sampleForDictionary(String content) {
+        if (codec != null)
+            return codec;
+
+        dictionarySamples.add(content);
+        dictionarySampleLength += content.length();
+        if (dictionarySampleLength < DICTIONARY_SAMPLE_LENGTH)
+            return LzCodec.NO_DICTIONARY;
+
+        codec = new LzCodec(trainDictionary(dictionarySamples));
+        dictionarySamples.clear();
+        return codec;
+    }
+
+    /**
+     * Matches are looked up by the hash of their first bytes and only the last
+     * position of a hash is kept, so the words saving the most bytes go last
+     * where they win those collisions.
+     */
+    static byte[] trainDictionary(List<String> samples) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String sample : samples) {
+            for (String word : sample.split("\\s+")) {
+                if (word.length() > 2)
+                    frequencies.merge(word + ' ',
+                                      1,
+                                      Integer::sum);
+            }
+        }
+
+        List<String> words = frequencies.entrySet()
+                                        .stream()
+                                        .filter(frequency -> frequency.getValue() > 1)
+                                        .sorted(Comparator.comparingLong(frequency -> -(long) frequency.getValue()
+                                                                                      * frequency.getKey()
+                                                                                                 .length()))
+                                        .map(Map.Entry::getKey)
+                                        .toList();
+        List<String> dictionaryWords = new ArrayList<>();
+        int dictionaryLength = 0;
+        for (String word : words) {
+            dictionaryLength += word.length();
+            if (dictionaryLength > MAX_DICTIONARY_LENGTH)
+                break;
+            dictionaryWords.add(word);
+        }
+        Collections.reverse(dictionaryWords);
+        return String.join("",
+                           dictionaryWords)
+                     .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String read(CompressedContent content) {
+        String decoded = content.decoded;
+        if (decoded != null)
+            return decoded;
+
+        decoded = decode(content);
+        if (decodedCacheCapacity > 0
+            && decoded.length() <= decodedCacheCapacity) {
+            if (content.readBefore)
+                cacheDecoded(content,
+                             decoded);
+            else
+                content.readBefore = true;
+        }
+        return decoded;
+    }
+
+    private String decode(CompressedContent content) {
+        return new String(content.codec.decode(content.compressed,
+                                               content.length),
+                          StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Only the thread setting the decoded string queues the content, so a
+     * content is queued at most once at a time.
+     */
+    private void cacheDecoded(CompressedContent content,
+                              String decoded) {
+        if (!DECODED.compareAndSet(content,
+                                   null,
+                                   decoded))
+            return;
+
+        decodedContents.add(content);
+        long length = decodedLength.addAndGet(decoded.length());
+        while (length > decodedCacheCapacity) {
+            CompressedContent eldest = decodedContents.poll();
+            if (eldest == null)
+                return;
+
+            length = evict(eldest);
+        }
+    }
+
+    /**
+     * @return total length of the contents still kept decoded
+     */
+    private long evict(CompressedContent content) {
+        String decoded = DECODED.getAndSet(content,
+                                           null);
+        return decoded == null ? decodedLength.get()
+                               : decodedLength.addAndGet(-decoded.length());
+    }
+
+    @Value
+    private static class PlainContent implements Content {
+        String content;
+
+        @Override
+        public String read() {
+            return content;
+        }
+
+        @Override
+        public Content forSinglePass() {
+            return this;
+        }
+    }
+
+    private class CompressedContent implements Content {
+        private final byte[] compressed;
+        private final int length;
+        private final LzCodec codec;
+        /**
+         * Set while the content is in the decoded cache.
+         */
+        private volatile String decoded;
+        private volatile boolean readBefore;
+
+        /**
+         * @param length - length of the UTF-8 bytes
+         */
+        private CompressedContent(byte[] compressed,
+                                  int length,
+                                  LzCodec codec) {
+            this.compressed = compressed;
+            this.length = length;
+            this.codec = codec;
+        }
+
+        @Override
+        public String read() {
+            return CompressedContentStore.this.read(this);
+        }
+
+        @Override
+        public String scan() {
+            String cachedDecoded = decoded;
+            return cachedDecoded == null ? decode(this)
+                                         : cachedDecoded;
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps all the documents in a single {@link ConcurrentHashMap}.
+ */
+class ConcurrentMapStorageEngine implements StorageEngine {
+    private final Map<DocumentKey, StoredDocument> documents;
+
+    /**
+     * @param expectedDocuments - number of documents the map is sized for
+     */
+    ConcurrentMapStorageEngine(int expectedDocuments) {
+        this.documents = new ConcurrentHashMap<>(expectedDocuments);
+    }
+
+    @Override
+    public StoredDocument get(DocumentKey key) {
+        return documents.get(key);
+    }
+
+    @Override
+    public StoredDocument compute(DocumentKey key,
+                                  BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping) {
+        return documents.compute(key,
+                                 remapping);
+    }
+
+    @Override
+    public StoredDocument computeIfPresent(DocumentKey key,
+                                           BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping) {
+        return documents.computeIfPresent(key,
+                                          remapping);
+    }
+
+    @Override
+    public void put(DocumentKey key,
+                    StoredDocument document) {
+        documents.put(key,
+                      document);
+    }
+
+    @Override
+    public long size() {
+        return documents.size();
+    }
+
+    @Override
+    public Stream<StoredDocument> documents() {
+        return PrefixSplittingSpliterator.stream(documents.values());
+    }
+
+}
@@ -0,0 +1,275 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Inverted n-gram index over {@link Document#getContent()}. A document can only
+ * contain a term if it contains every n-gram of that term, so intersecting the
+ * posting lists of those n-grams yields a small superset of the matches which
+ * still has to be confirmed with {@link String#contains}.
+ * <p>
+ * Grams of up to {@value #PACKED_GRAM_LENGTH} chars are packed into a long as
+ * they are, longer ones are hashed into it: a collision only adds candidates.
+ * Posting lists are {@link OrdinalSet}s of the documents' ordinals, so
+ * re-indexing an updated document touches one block per changed gram. The
+ * index keeps no grams per document; the caller passes the content indexed
+ * before, whose grams missing from the new content are removed. An unknown
+ * previous content only leaves its grams behind as extra candidates.
+ */
+class ContentNGramIndex {
+    private static final int PACKED_GRAM_LENGTH = 4;
+    private static final long[] NO_GRAMS = new long[0];
+
+    private final int gramLength;
+    private final Map<Long, OrdinalSet> postingsByGram = new ConcurrentHashMap<>();
+    private final DocumentOrdinals ordinals = new DocumentOrdinals();
+
+    ContentNGramIndex(int gramLength) {
+        if (gramLength < 1)
+            throw new IllegalArgumentException("Gram length must be positive");
+
+        this.gramLength = gramLength;
+    }
+
+    /**
+     * Must be called under the index lock of the [id].
+     *
+     * @param content        - content to index
+     * @param indexedContent - content indexed for the [id] before, null if
+     *                       none or unknown
+     */
+    void index(DocumentKey id,
+               String content,
+               String indexedContent) {
+        long[] grams = gramsOf(content);
+        if (grams.length == 0) {
+            remove(id,
+                   indexedContent);
+            return;
+        }
+
+        long[] previousGrams = gramsOf(indexedContent);
+        int ordinal = ordinals.ordinalOf(id);
+        forEachMissing(previousGrams,
+                       grams,
+                       gram -> removePosting(gram,
+                                             ordinal));
+        forEachMissing(grams,
+                       previousGrams,
+                       gram -> postingsByGram.compute(gram,
+                                                      (key, postings) -> {
+                                                          OrdinalSet gramPostings = postings == null ? new OrdinalSet()
+                                                                                                     : postings;
+                                                          gramPostings.add(ordinal);
+                                                          return gramPostings;
+                                                      }));
+    }
+
+    /**
+     * Must be called under the index lock of the [id].
+     *
+     * @param indexedContent - content indexed for the [id]
+     */
+    void remove(DocumentKey id,
+                String indexedContent) {
+        int ordinal = ordinals.find(id);
+        if (ordinal < 0)
+            return;
+
+        for (long gram : gramsOf(indexedContent)) {
+            removePosting(gram,
+                          ordinal);
+        }
+        ordinals.release(id);
+    }
+
+    /**
+     * @param terms - content terms, a document matches if it contains any of them
+     * @return ids of the documents which may contain one of the [terms], or empty
+     *         if some term is shorter than the gram length and the index cannot
+     *         narrow the search down
+     */
+    Optional<Set<DocumentKey>> findCandidateIds(List<String> terms) {
+        if (!isIndexable(terms))
+            return Optional.empty();
+
+        Set<DocumentKey> ids = new HashSet<>();
+        for (String term : terms) {
+            postingsOf(term).ifPresent(postings -> OrdinalSet.forEachCommon(postings,
+                                                                            ordinal -> {
+                                                                                DocumentKey id = ordinals.idOf(ordinal);
+                                                                                if (id != null)
+                                                                                    ids.add(id);
+                                                                            }));
+        }
+        return Optional.of(ids);
+    }
+
+    /**
+     * @param terms - content terms
+     * @return upper bound of the number of documents containing one of the
+     *         [terms], or empty if the index cannot narrow the search down
+     */
+    OptionalLong estimateCandidateIds(List<String> terms) {
+        if (!isIndexable(terms))
+            return OptionalLong.empty();
+
+        return OptionalLong.of(terms.stream()
+                                    .mapToLong(this::estimateCandidateIdsOf)
+                                    .sum());
+    }
+
+    private long estimateCandidateIdsOf(String term) {
+        return postingsOf(term).map(postings -> postings.stream()
+                                                        .mapToLong(OrdinalSet::size)
+                                                        .min()
+                                                        .orElse(0))
+                               .orElse(0L);
+    }
+
+    private boolean isIndexable(List<String> terms) {
+        return terms.stream()
+                    .allMatch(term -> term.length() >= gramLength);
+    }
+
+    /**
+     * @return sets of the term's grams, empty if some gram has no postings
+     */
+    private Optional<List<OrdinalSet>> postingsOf(String term) {
+        List<OrdinalSet> postings = new ArrayList<>();
+        for (long gram : gramsOf(term)) {
+            OrdinalSet gramPostings = postingsByGram.get(gram);
+            if (gramPostings == null)
+                return Optional.empty();
+
+            postings.add(gramPostings);
+        }
+        return Optional.of(postings);
+    }
+
+    private void removePosting(long gram,
+                               int ordinal) {
+        postingsByGram.computeIfPresent(gram,
+                                        (key, postings) -> {
+                                            postings.remove(ordinal);
+                                            return postings.isEmpty() ? null
+                                                                      : postings;
+                                        });
+    }
+
+    /**
+     * Calls the [action] for every gram of the sorted [grams] missing from the
+     * sorted [otherGrams].
+     */
+    private void forEachMissing(long[] grams,
+                                long[] otherGrams,
+                                LongConsumer action) {
+        int other = 0;
+        for (long gram : grams) {
+            while (other < otherGrams.length
+                   && otherGrams[other] < gram) {
+                other++;
+            }
+            if (other == otherGrams.length
+                || otherGrams[other] != gram)
+                action.accept(gram);
+        }
+    }
+
+    /**
+     * Collects the keys in an open-addressing table first, so only the
+     * distinct grams are sorted: a long content repeats its words, and has
+     * far fewer distinct grams than positions.
+     *
+     * @return distinct gram keys of the [text], sorted
+     */
+    private long[] gramsOf(String text) {
+        if (text == null
+            || text.length() < gramLength)
+            return NO_GRAMS;
+
+        int positions = text.length() - gramLength + 1;
+        long[] table = new long[Integer.highestOneBit(Math.min(positions,
+                                                               1 << 12)) << 1];
+        boolean zeroKey = false;
+        int distinct = 0;
+        for (int start = 0; start < positions; start++) {
+            long key = keyOf(text,
+                             start);
+            if (key == 0) {
+                zeroKey = true;
+                continue;
+            }
+            if (insert(table,
+                       key)
+                && ++distinct * 2 > table.length)
+                table = rehashed(table);
+        }
+
+        long[] grams = new long[distinct + (zeroKey ? 1
+                                                    : 0)];
+        int gram = 0;
+        for (long key : table) {
+            if (key != 0)
+                grams[gram++] = key;
+        }
+        Arrays.sort(grams);
+        return grams;
+    }
+
+    /**
+     * @param table - power-of-two sized table, 0 marks a free slot
+     * @return whether the [key] was missing
+     */
+    private static boolean insert(long[] table,
+                                  long key) {
+        int mask = table.length - 1;
+        int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+        while (table[slot] != 0) {
+            if (table[slot] == key)
+                return false;
+
+            slot = slot + 1 & mask;
+        }
+        table[slot] = key;
+        return true;
+    }
+
+    private static long[] rehashed(long[] table) {
+        long[] grownTable = new long[table.length * 2];
+        for (long key : table) {
+            if (key != 0)
+                insert(grownTable,
+                       key);
+        }
+        return grownTable;
+    }
+
+    private long keyOf(String text,
+                       int start) {
+        long key = 0;
+        if (gramLength <= PACKED_GRAM_LENGTH) {
+            for (int index = start; index < start + gramLength; index++) {
+                key = key << Character.SIZE | text.charAt(index);
+            }
+            return key;
+        }
+
+        for (int index = start; index < start + gramLength; index++) {
+            key = (key ^ text.charAt(index)) * 0x100000001B3L;
+        }
+        return key ^ key >>> 29;
+    }
+
+}
@@ -0,0 +1,79 @@
+package tech.innovatelu.document_manager;
+
+import java.io.Closeable;
+
+/**
+ * Keeps the content of stored documents. The storage only holds the returned
+ * {@link Content} handles, so a store can keep the bytes wherever it likes and
+ * decode them on demand.
+ */
+interface ContentStore extends Closeable {
+
+    /**
+     * @param content - document content, never null
+     * @return handle reading the [content] back
+     */
+    Content store(String content);
+
+    @Override
+    void close();
+
+    interface Content {
+
+        String read();
+
+        /**
+         * Reads the content for a bulk pass over many documents, such as a
+         * filter scan or a snapshot, which should not displace the contents
+         * kept for point reads.
+         */
+        default String scan() {
+            return read();
+        }
+
+        /**
+         * Returns a handle for a single pass that decodes the content at most
+         * once, however often the pass reads it, e.g. when a search filters a
+         * candidate by its content and then returns it. Contents kept as
+         * strings return themselves.
+         */
+        default Content forSinglePass() {
+            return new SinglePassContent(this);
+        }
+
+    }
+
+    /**
+     * Keeps the string it decoded, so it must not outlive the pass it was
+     * made for. Used by one thread at a time.
+     */
+    final class SinglePassContent implements Content {
+        private final Content content;
+        private String decoded;
+
+        private SinglePassContent(Content content) {
+            this.content = content;
+        }
+
+        @Override
+        public String read() {
+            if (decoded == null)
+                decoded = content.read();
+            return decoded;
+        }
+
+        @Override
+        public String scan() {
+            if (decoded == null)
+                decoded = content.scan();
+            return decoded;
+        }
+
+        @Override
+        public Content forSinglePass() {
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Time-ordered index over {@link Document#getCreated()}. A range lookup walks
+ * only the timestamps inside the requested window.
+ */
+class CreatedIndex implements DocumentIndex {
+    private final SortedPostingLists<Instant> idsByCreated = new SortedPostingLists<>();
+    private final Map<DocumentKey, Instant> createdById = new ConcurrentHashMap<>();
+
+    @Override
+    public void index(DocumentKey id,
+                      Document document) {
+        Instant created = document.getCreated();
+        Instant previousCreated = created == null ? createdById.remove(id)
+                                                  : createdById.put(id,
+                                                                    created);
+
+        if (Objects.equals(previousCreated,
+                           created))
+            return;
+
+        if (previousCreated != null)
+            idsByCreated.remove(previousCreated,
+                                id);
+        if (created != null)
+            idsByCreated.add(created,
+                             id);
+    }
+
+    @Override
+    public void remove(DocumentKey id) {
+        Instant previousCreated = createdById.remove(id);
+        if (previousCreated != null)
+            idsByCreated.remove(previousCreated,
+                                id);
+    }
+
+    /**
+     * @param from - inclusive lower bound, null for an open range
+     * @param to   - inclusive upper bound, null for an open range
+     * @return ids of the documents created inside the range
+     */
+    Set<DocumentKey> findIds(Instant from,
+                             Instant to) {
+        Set<DocumentKey> ids = new HashSet<>();
+        for (Instant created : keysBetween(from,
+                                           to)) {
+            ids.addAll(idsByCreated.get(created));
+        }
+        return ids;
+    }
+
+    /**
+     * @param from  - inclusive lower bound, null for an open range
+     * @param to    - inclusive upper bound, null for an open range
+     * @param limit - count after which the estimation stops
+     * @return number of documents created inside the range, capped at [limit]
+     */
+    long estimateIds(Instant from,
+                     Instant to,
+                     long limit) {
+        long estimate = 0;
+        for (Instant created : keysBetween(from,
+                                           to)) {
+            estimate += idsByCreated.get(created)
+                                    .size();
+            if (estimate >= limit)
+                return limit;
+        }
+        return estimate;
+    }
+
+    /**
+     * @param from       - inclusive lower bound, null for an open range
+     * @param to         - inclusive upper bound, null for an open range
+     * @param descending - whether the newest documents come first
+     * @return lazily produced ids of the documents created inside the range,
+     *         ordered by creation time and then by id
+     */
+    Stream<DocumentKey> idsInOrder(Instant from,
+                                   Instant to,
+                                   boolean descending) {
+        NavigableSet<Instant> keys = keysBetween(from,
+                                                 to);
+        return (descending ? keys.descendingSet()
+                           : keys).stream()
+                                  .flatMap(created -> idsByCreated.get(created)
+                                                                  .stream()
+                                                                  .sorted());
+    }
+
+    private NavigableSet<Instant> keysBetween(Instant from,
+                                              Instant to) {
+        NavigableSet<Instant> keys = idsByCreated.keys();
+        if (from != null
+            && to != null)
+            return from.isAfter(to) ? Collections.emptyNavigableSet()
+                                    : keys.subSet(from,
+                                                  true,
+                                                  to,
+                                                  true);
+        if (from != null)
+            return keys.tailSet(from,
+                                true);
+        if (to != null)
+            return keys.headSet(to,
+                                true);
+        return keys;
+    }
+
+}
@@ -0,0 +1,274 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Builder;
+import lombok.Data;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.SearchOptions;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads the documents over [partitions] by the hash of their id. Every
+ * partition is a leader {@link DocumentManager} taking the saves of its ids,
+ * with replicas following it that take its reads in turn. A search is
+ * scattered to one node of every partition at once and their results are
+ * gathered into one list, so a scan is split across the partitions.
+ * <p>
+ * The partition of an id depends on the number of partitions only: a cluster
+ * has to be recreated with the same partitions in the same order to find the
+ * documents saved before.
+ */
+public class DocumentCluster {
+    private final List<Partition> partitions;
+    private final Executor searchExecutor;
+    private final List<AtomicInteger> nextReaders;
+
+    public DocumentCluster(Configuration configuration) {
+        if (configuration == null)
+            throw new IllegalArgumentException("Configuration cannot be null");
+        if (configuration.getPartitions() == null
+            || configuration.getPartitions()
+                            .isEmpty())
+            throw new IllegalArgumentException("Cluster needs at least one partition");
+        if (configuration.getPartitions()
+                         .stream()
+                         .anyMatch(partition -> partition == null
+                                                || partition.getLeader() == null))
+            throw new IllegalArgumentException("Every partition needs a leader");
+
+        this.partitions = List.copyOf(configuration.getPartitions());
+        this.searchExecutor = configuration.getSearchExecutor() == null ? ForkJoinPool.commonPool()
+                                                                        : configuration.getSearchExecutor();
+        this.nextReaders = partitions.stream()
+                                     .map(partition -> new AtomicInteger())
+                                     .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Saves the [document] on the leader of its partition, generating its id
+     * first when it has none, see {@link DocumentManager#save(Document)}.
+     *
+     * @param document - document content and author data
+     * @return saved document
+     */
+    public Document save(Document document) {
+        if (document == null)
+            throw new IllegalArgumentException("Document cannot be null");
+
+        setIdIfMissing(document);
+        return partitionOf(document.getId()).getLeader()
+                                            .save(document);
+    }
+
+    /**
+     * Saves the [documents] with one {@link DocumentManager#saveAll} per
+     * partition they fall into. Unlike on a single manager the batch is not
+     * logged as a whole: a failure can leave the batches of other partitions
+     * saved.
+     *
+     * @param documents - documents content and author data
+     * @return saved documents, in the order of [documents], in a list as
+     *         modifiable as the one of a single manager
+     */
+    public List<Document> saveAll(Collection<Document> documents) {
+        if (documents == null)
+            throw new IllegalArgumentException("Documents cannot be null");
+        if (documents.stream()
+                     .anyMatch(Objects::isNull))
+            throw new IllegalArgumentException("Document cannot be null");
+
+        List<Document> orderedDocuments = new ArrayList<>(documents);
+        orderedDocuments.forEach(this::setIdIfMissing);
+        Map<Integer, List<Integer>> positionsByPartition = IntStream.range(0,
+                                                                           orderedDocuments.size())
+                                                                    .boxed()
+                                                                    .collect(Collectors.groupingBy(position -> partitionIndexOf(orderedDocuments.get(position)
+                                                                                                                                                .getId())));
+        Document[] savedDocuments = new Document[orderedDocuments.size()];
+        positionsByPartition.forEach((partitionIndex, positions) -> {
+            List<Document> saved = partitions.get(partitionIndex)
+                                             .getLeader()
+                                             .saveAll(positions.stream()
+                                                               .map(orderedDocuments::get)
+                                                               .collect(Collectors.toList()));
+            for (int index = 0; index < positions.size(); index++) {
+                savedDocuments[positions.get(index)] = saved.get(index);
+            }
+        });
+        return new ArrayList<>(Arrays.asList(savedDocuments));
+    }
+
+    /**
+     * Finds the document by [id] on a node of its partition, see
+     * {@link DocumentManager#findById(String)}.
+     */
+    public Optional<Document> findById(String id) {
+        if (id == null)
+            throw new IllegalArgumentException("Document ID cannot be null");
+
+        return read(partitionIndexOf(id),
+                    node -> node.findById(id));
+    }
+
+    /**
+     * Scatters the search to one node of every partition and gathers the
+     * matches, partition after partition.
+     *
+     * @param searchRequest - search request, each field could be null
+     * @return list matched documents
+     */
+    public List<Document> search(SearchRequest searchRequest) {
+        return gather(node -> node.search(searchRequest)).stream()
+                                                         .flatMap(List::stream)
+                                                         .collect(Collectors.toList());
+    }
+
+    /**
+     * Scatters the search for the first [offset] + [limit] matches to one node
+     * of every partition and merges them into the requested page, in the
+     * order {@link DocumentManager#search(SearchRequest, SearchOptions)} sorts
+     * by. Without a sort key the page is taken from the matches partition
+     * after partition.
+     *
+     * @param searchOptions - sort key, offset and limit of the page
+     * @return matched documents of the requested page
+     */
+    public List<Document> search(SearchRequest searchRequest,
+                                 SearchOptions searchOptions) {
+        DocumentManager.validateSearchOptions(searchOptions);
+
+        SearchOptions firstPages = SearchOptions.builder()
+                                                .sortBy(searchOptions.getSortBy())
+                                                .descending(searchOptions.isDescending())
+                                                .offset(0)
+                                                .limit((int) Math.min((long) searchOptions.getOffset() + searchOptions.getLimit(),
+                                                                      Integer.MAX_VALUE))
+                                                .build();
+        return gather(node -> node.search(searchRequest,
+                                          firstPages)).stream()
+                                                      .flatMap(List::stream)
+                                                      .sorted(DocumentManager.comparatorOf(searchOptions,
+                                                                                           Document::getCreated,
+                                                                                           Document::getTitle,
+                                                                                           Document::getId))
+                                                      .skip(searchOptions.getOffset())
+                                                      .limit(searchOptions.getLimit())
+                                                      .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs the [search] on a node of every partition on the search executor
+     * and waits for all of them.
+     */
+    private <T> List<T> gather(Function<DocumentManager, T> search) {
+        List<CompletableFuture<T>> results = IntStream.range(0,
+                                                             partitions.size())
+                                                      .mapToObj(partitionIndex -> CompletableFuture.supplyAsync(() -> read(partitionIndex,
+                                                                                                                           search),
+                                                                                                                searchExecutor))
+                                                      .collect(Collectors.toList());
+        try {
+            return results.stream()
+                          .map(CompletableFuture::join)
+                          .collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads from the replicas of the partition in turn. A replica lagging
+     * beyond its [maxReplicationLag] fails the read, which then goes to the
+     * leader.
+     */
+    private <T> T read(int partitionIndex,
+                       Function<DocumentManager, T> read) {
+        Partition partition = partitions.get(partitionIndex);
+        List<DocumentManager> replicas = partition.getReplicas();
+        if (replicas == null
+            || replicas.isEmpty())
+            return read.apply(partition.getLeader());
+
+        DocumentManager replica = replicas.get(Math.floorMod(nextReaders.get(partitionIndex)
+                                                                         .getAndIncrement(),
+                                                             replicas.size()));
+        try {
+            return read.apply(replica);
+        } catch (IllegalStateException e) {
+            return read.apply(partition.getLeader());
+        }
+    }
+
+    private Partition partitionOf(String id) {
+        return partitions.get(partitionIndexOf(id));
+    }
+
+    /**
+     * {@link String#hashCode()} is specified, so ids keep their partition
+     * across restarts and JVMs.
+     */
+    private int partitionIndexOf(String id) {
+        return Math.floorMod(id.hashCode(),
+                             partitions.size());
+    }
+
+    /**
+     * The id decides the partition, so it is generated here rather than by
+     * the leader.
+     */
+    private void setIdIfMissing(Document document) {
+        if (document.getId() == null
+            || document.getId()
+                       .isEmpty())
+            document.setId(UUID.randomUUID()
+                               .toString());
+    }
+
+    @Data
+    @Builder
+    public static class Partition {
+        /**
+         * Manager taking the saves of the partition.
+         */
+        private DocumentManager leader;
+        /**
+         * Managers configured with the leader as their [replicationLeader],
+         * empty reads from the leader.
+         */
+        @Builder.Default
+        private List<DocumentManager> replicas = List.of();
+    }
+
+    @Data
+    @Builder
+    public static class Configuration {
+        /**
+         * Partitions the ids are hashed over, in a fixed order.
+         */
+        private List<Partition> partitions;
+        /**
+         * Executor running the searches of the partitions, null uses the
+         * common pool.
+         */
+        private Executor searchExecutor;
+    }
+
+}
@@ -0,0 +1,148 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Author;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary form of a {@link Document} shared by the write-ahead log and
+ * the snapshots. Strings are written as length-prefixed UTF-8, so contents are
+ * not limited to the 64 KB of {@link DataOutput#writeUTF}. A string UTF-8
+ * cannot hold, see {@link Utf16}, is written as its chars behind a length of
+ * {@value #CHARS_LENGTH_BASE} minus their number.
+ */
+final class DocumentCodec {
+    private static final int NULL_LENGTH = -1;
+    private static final int CHARS_LENGTH_BASE = -2;
+
+    private DocumentCodec() {
+    }
+
+    static byte[] encode(Document document) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            write(document,
+                  output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Document decode(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void write(Document document,
+                      DataOutput output) throws IOException {
+        writeString(document.getId(),
+                    output);
+        writeString(document.getTitle(),
+                    output);
+        writeString(document.getContent(),
+                    output);
+        writeAuthor(document.getAuthor(),
+                    output);
+        writeInstant(document.getCreated(),
+                     output);
+    }
+
+    static Document read(DataInput input) throws IOException {
+        return Document.builder()
+                       .id(readString(input))
+                       .title(readString(input))
+                       .content(readString(input))
+                       .author(readAuthor(input))
+                       .created(readInstant(input))
+                       .build();
+    }
+
+    private static void writeAuthor(Author author,
+                                    DataOutput output) throws IOException {
+        output.writeBoolean(author != null);
+        if (author == null)
+            return;
+
+        writeString(author.getId(),
+                    output);
+        writeString(author.getName(),
+                    output);
+    }
+
+    private static Author readAuthor(DataInput input) throws IOException {
+        if (!input.readBoolean())
+            return null;
+
+        return Author.builder()
+                     .id(readString(input))
+                     .name(readString(input))
+                     .build();
+    }
+
+    private static void writeInstant(Instant instant,
+                                     DataOutput output) throws IOException {
+        output.writeBoolean(instant != null);
+        if (instant == null)
+            return;
+
+        output.writeLong(instant.getEpochSecond());
+        output.writeInt(instant.getNano());
+    }
+
+    private static Instant readInstant(DataInput input) throws IOException {
+        if (!input.readBoolean())
+            return null;
+
+        return Instant.ofEpochSecond(input.readLong(),
+                                     input.readInt());
+    }
+
+    private static void writeString(String string,
+                                    DataOutput output) throws IOException {
+        if (string == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        if (!Utf16.isWellFormed(string)) {
+            output.writeInt(CHARS_LENGTH_BASE - string.length());
+            output.write(Utf16.encode(string));
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length == NULL_LENGTH)
+            return null;
+        if (length <= CHARS_LENGTH_BASE) {
+            byte[] chars = new byte[(CHARS_LENGTH_BASE - length) * Character.BYTES];
+            input.readFully(chars);
+            return Utf16.decode(chars);
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes,
+                          StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,33 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+/**
+ * Secondary index over the documents held by {@link DocumentManager}.
+ * <p>
+ * Implementations remember the value they indexed for every document id, so a
+ * document can be re-indexed (and its old entries dropped) even when the
+ * caller has mutated the saved instance in the meantime. Ids are held as the
+ * {@link DocumentKey} the storage keeps the document under, so the indexes
+ * share one key instance per document.
+ */
+interface DocumentIndex {
+
+    /**
+     * Adds the [document] to the index or replaces the entries previously
+     * indexed for its id.
+     *
+     * @param id       - key of the id of the [document]
+     * @param document - stored document, its id is never null
+     */
+    void index(DocumentKey id,
+               Document document);
+
+    /**
+     * Drops every entry indexed for the document with the given [id].
+     *
+     * @param id - key of the document id
+     */
+    void remove(DocumentKey id);
+
+}
@@ -0,0 +1,181 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Key a document is kept under in the storage and the indexes. An id in the
+ * canonical form of {@link UUID#toString()}, as generated ids are, is kept as
+ * its two longs: 32 bytes against about 80 for the string and its array, and
+ * an equality check of two longs instead of 36 chars. Any other id is kept as
+ * the string of the caller. The id string of a generated id is only built for
+ * the documents handed out to callers.
+ * <p>
+ * Keys of the same id are equal whichever way they were made, and keys order
+ * like their id strings.
+ */
+abstract class DocumentKey implements Comparable<DocumentKey> {
+    private static final int UUID_LENGTH = 36;
+    /**
+     * Value of the lower case hex digits by char, -1 for any other char, as
+     * other digits would not print back the same.
+     */
+    private static final byte[] HEX_DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(HEX_DIGITS,
+                    (byte) -1);
+        for (int digit = 0; digit < 16; digit++) {
+            HEX_DIGITS[Character.forDigit(digit,
+                                          16)] = (byte) digit;
+        }
+    }
+
+    private DocumentKey() {
+    }
+
+    /**
+     * @param id - document id, not null
+     */
+    static DocumentKey of(String id) {
+        if (id.length() != UUID_LENGTH
+            || id.charAt(8) != '-'
+            || id.charAt(13) != '-'
+            || id.charAt(18) != '-'
+            || id.charAt(23) != '-')
+            return new NamedKey(id);
+
+        long timeLow = hexDigits(id,
+                                 0,
+                                 8);
+        long timeMid = hexDigits(id,
+                                 9,
+                                 13);
+        long timeHigh = hexDigits(id,
+                                  14,
+                                  18);
+        long clockSequence = hexDigits(id,
+                                       19,
+                                       23);
+        long node = hexDigits(id,
+                              24,
+                              36);
+        if ((timeLow | timeMid | timeHigh | clockSequence | node) < 0)
+            return new NamedKey(id);
+
+        return new UuidKey(timeLow << 32 | timeMid << 16 | timeHigh,
+                           clockSequence << 48 | node);
+    }
+
+    /**
+     * Decodes every char through a table and checks them once at the end, as
+     * the digits of a random id would mispredict a branch per char.
+     *
+     * @return value of the lower case hex digits from [from] to [to], -1 if
+     *         some other char sits among them
+     */
+    private static long hexDigits(String id,
+                                  int from,
+                                  int to) {
+        long value = 0;
+        int invalid = 0;
+        for (int index = from; index < to; index++) {
+            char c = id.charAt(index);
+            int digit = c < HEX_DIGITS.length ? HEX_DIGITS[c]
+                                              : -1;
+            invalid |= digit;
+            value = value << 4 | digit & 0xF;
+        }
+        return invalid < 0 ? -1
+                           : value;
+    }
+
+    /**
+     * @return id of the document, built anew for a generated id
+     */
+    abstract String id();
+
+    @Override
+    public String toString() {
+        return id();
+    }
+
+    private static final class NamedKey extends DocumentKey {
+        private final String id;
+
+        private NamedKey(String id) {
+            this.id = id;
+        }
+
+        @Override
+        String id() {
+            return id;
+        }
+
+        @Override
+        public int compareTo(DocumentKey other) {
+            return id.compareTo(other.id());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof NamedKey
+                   && id.equals(((NamedKey) other).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    /**
+     * Canonical UUIDs print as fixed-width lower case hex, so comparing the
+     * longs unsigned orders them like their strings.
+     */
+    private static final class UuidKey extends DocumentKey {
+        private final long mostSignificantBits;
+        private final long leastSignificantBits;
+
+        private UuidKey(long mostSignificantBits,
+                        long leastSignificantBits) {
+            this.mostSignificantBits = mostSignificantBits;
+            this.leastSignificantBits = leastSignificantBits;
+        }
+
+        @Override
+        String id() {
+            return new UUID(mostSignificantBits,
+                            leastSignificantBits).toString();
+        }
+
+        @Override
+        public int compareTo(DocumentKey other) {
+            if (!(other instanceof UuidKey))
+                return id().compareTo(other.id());
+
+            UuidKey uuidKey = (UuidKey) other;
+            int order = Long.compareUnsigned(mostSignificantBits,
+                                             uuidKey.mostSignificantBits);
+            return order != 0 ? order
+                              : Long.compareUnsigned(leastSignificantBits,
+                                                     uuidKey.leastSignificantBits);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof UuidKey))
+                return false;
+
+            UuidKey uuidKey = (UuidKey) other;
+            return mostSignificantBits == uuidKey.mostSignificantBits
+                   && leastSignificantBits == uuidKey.leastSignificantBits;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(mostSignificantBits ^ leastSignificantBits);
+        }
+    }
+
+}
@@ -3,13 +3,34 @@ package tech.innovatelu.document_manager;
 import lombok.Builder;
 import lombok.Data;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * For implement this task focus on clear code, and make this solution as simple
@@ -20,8 +41,149 @@ import java.util.stream.Collectors;
  * "findById" Implementations should be in a single class. This class could be
  * auto tested
  */
-public class DocumentManager {
-    private final Map<String, Document> documentStorage = new ConcurrentHashMap<>();
+public class DocumentManager implements AutoCloseable {
+    private static final int INDEX_LOCK_STRIPES = 256;
+
+    private final StorageEngine documentStorage;
+    private final TimePartitionedStorageEngine partitionedStorage;
+    private final TitlePrefixIndex titlePrefixIndex;
+    private final ContentNGramIndex contentNGramIndex;
+    private final AuthorIndex authorIndex;
+    private final CreatedIndex createdIndex;
+    private final FullTextIndex fullTextIndex;
+    private final IdBloomFilter idBloomFilter;
+    private final List<DocumentIndex> indexes;
+    private final Object[] indexLocks = Stream.generate(Object::new)
+                                              .limit(INDEX_LOCK_STRIPES)
+                                              .toArray();
+    private final QueryPlanner queryPlanner;
+    private final ForkJoinPool parallelSearchPool;
+    private final long parallelSearchThreshold;
+    private final ContentStore contentStore;
+    private final DocumentPersistence persistence;
+    private final Instrumentation instrumentation;
+    private final SearchResultCache searchResultCache;
+    private final ChangeFeed changeFeed;
+    private final AsyncExecution asyncExecution;
+    private final PartitionMaintenance partitionMaintenance;
+    private final Duration maxReplicationLag;
+    private final Replication replication;
+    private final VersionClock versionClock = new VersionClock();
+    /**
+     * Ids with older versions still linked to the stored one. The indexes only
+     * reflect the stored versions, so these ids are candidates of every
+     * indexed search in case an older version matches.
+     */
+    private final Set<DocumentKey> multiVersionIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reclaimingVersions = new AtomicBoolean();
+
+    public DocumentManager() {
+        this(Configuration.builder()
+                          .build());
+    }
+
+    public DocumentManager(Configuration configuration) {
+        if (configuration == null)
+            throw new IllegalArgumentException("Configuration cannot be null");
+
+        this.documentStorage = openStorageEngine(configuration);
+        this.partitionedStorage = documentStorage instanceof TimePartitionedStorageEngine ? (TimePartitionedStorageEngine) documentStorage
+                                                                                          : null;
+        this.titlePrefixIndex = new TitlePrefixIndex();
+        this.contentNGramIndex = new ContentNGramIndex(configuration.getContentGramLength());
+        this.authorIndex = new AuthorIndex();
+        this.createdIndex = new CreatedIndex();
+        this.fullTextIndex = configuration.isFullTextIndex() ? new FullTextIndex()
+                                                             : null;
+        this.idBloomFilter = configuration.isFindByIdBloomFilter() ? new IdBloomFilter(configuration.getExpectedDocumentCount(),
+                                                                                       documentStorage::size,
+                                                                                       () -> documentStorage.documents()
+                                                                                                            .map(StoredDocument::getKey))
+                                                                   : null;
+        this.indexes = Stream.of(titlePrefixIndex,
+                                 authorIndex,
+                                 createdIndex,
+                                 fullTextIndex,
+                                 idBloomFilter)
+                             .filter(Objects::nonNull)
+                             .collect(Collectors.toUnmodifiableList());
+        this.queryPlanner = new QueryPlanner(titlePrefixIndex,
+                                             contentNGramIndex,
+                                             authorIndex,
+                                             createdIndex,
+                                             documentStorage);
+        this.parallelSearchPool = configuration.getParallelSearchPool();
+        this.parallelSearchThreshold = configuration.getParallelSearchThreshold();
+        this.instrumentation = new Instrumentation(configuration.getSlowSearchThreshold());
+        this.searchResultCache = configuration.getSearchCacheCapacity() > 0 ? new SearchResultCache(configuration.getSearchCacheCapacity(),
+                                                                                                    this::filterOf,
+                                                                                                    versionClock::oldestReadableVersion)
+                                                                            : null;
+        this.contentStore = openContentStore(configuration);
+        this.persistence = openPersistence(configuration);
+        this.changeFeed = configuration.getChangeFeedCapacity() > 0 ? new ChangeFeed(configuration.getChangeFeedCapacity(),
+                                                                                     versionClock::stableVersion,
+                                                                                     configuration.getChangeFeedExecutor() == null ? ForkJoinPool.commonPool()
+                                                                                                                                   : configuration.getChangeFeedExecutor())
+                                                                    : null;
+        this.asyncExecution = new AsyncExecution(configuration.getAsyncExecutor(),
+                                                 configuration.getMaxConcurrentAsyncCalls(),
+                                                 configuration.getAsyncTimeout());
+        this.maxReplicationLag = configuration.getMaxReplicationLag();
+        this.replication = configuration.getReplicationLeader() == null ? null
+                                                                        : new Replication(configuration.getReplicationLeader(),
+                                                                                          configuration.getReplicationInterval(),
+                                                                                          this::replicate);
+        // Last, as its first run starts right away on another thread.
+        this.partitionMaintenance = openPartitionMaintenance(configuration);
+    }
+
+    private StorageEngine openStorageEngine(Configuration configuration) {
+        return switch (configuration.getDocumentStorage()) {
+            case CONCURRENT_MAP -> new ConcurrentMapStorageEngine(configuration.getExpectedDocumentCount());
+            case SHARDED -> new ShardedStorageEngine(configuration.getStorageShards(),
+                                                     configuration.getExpectedDocumentCount());
+            case TIME_PARTITIONED -> new TimePartitionedStorageEngine(configuration.getPartitionUnit(),
+                                                                      configuration.getPartitionSpillDirectory(),
+                                                                      configuration.getExpectedDocumentCount());
+        };
+    }
+
+    private PartitionMaintenance openPartitionMaintenance(Configuration configuration) {
+        if (partitionedStorage == null
+            || configuration.getSealPartitionsAfter() == null
+               && configuration.getPartitionRetention() == null)
+            return null;
+
+        return new PartitionMaintenance(configuration.getPartitionMaintenanceInterval(),
+                                        configuration.getSealPartitionsAfter(),
+                                        configuration.getPartitionRetention(),
+                                        this::sealPartitions,
+                                        this::dropPartitions);
+    }
+
+    private ContentStore openContentStore(Configuration configuration) {
+        return switch (configuration.getContentStorage()) {
+            case HEAP -> new HeapContentStore();
+            case MEMORY_MAPPED -> new MappedContentStore(configuration.getContentStorageDirectory());
+            case COMPRESSED -> new CompressedContentStore(configuration.getDecodedContentCacheSize());
+        };
+    }
+
+    private DocumentPersistence openPersistence(Configuration configuration) {
+        if (configuration.getPersistenceDirectory() == null)
+            return null;
+
+        DocumentPersistence documentPersistence = new DocumentPersistence(configuration.getPersistenceDirectory(),
+                                                                          configuration.getFsyncPolicy(),
+                                                                          configuration.getFsyncInterval(),
+                                                                          configuration.getSnapshotInterval(),
+                                                                          () -> documentStorage.documents()
+                                                                                               .map(StoredDocument::toScannedDocument)
+                                                                                               .iterator());
+        documentPersistence.recover(this::applyDocument);
+        return documentPersistence;
+    }
 
     /**
      * Implementation of this method should upsert the [document] to your
@@ -34,23 +196,147 @@ public class DocumentManager {
     public Document save(Document document) {
         if (document == null)
             throw new IllegalArgumentException("Document cannot be null");
+        rejectOnReplica();
+
+        long startTime = System.nanoTime();
+        Document savedDocument = persistence == null ? upsertDocument(document)
+                                                     : persistence.write(() -> upsertDocument(document));
+        instrumentation.recordSave(System.nanoTime() - startTime);
+        return savedDocument;
+    }
+
+    /**
+     * Upserts a batch of [documents] in one pass. Like {@link #save(Document)}
+     * it generates ids for documents without one and keeps the [created] field
+     * of documents already in the storage; with persistence the batch waits
+     * for the log once, so it costs at most one fsync. A later document in the
+     * batch overrides an earlier one with the same id.
+     *
+     * @param documents - documents content and author data
+     * @return saved documents, in the order of [documents]
+     */
+    public List<Document> saveAll(Collection<Document> documents) {
+        if (documents == null)
+            throw new IllegalArgumentException("Documents cannot be null");
+        if (documents.stream()
+                     .anyMatch(Objects::isNull))
+            throw new IllegalArgumentException("Document cannot be null");
+        rejectOnReplica();
+
+        long startTime = System.nanoTime();
+        documents.stream()
+                 .filter(document -> !idIsNeitherNullNorEmpty(document.getId()))
+                 .forEach(this::setUniqueId);
+        List<Document> savedDocuments = upsertAll(documents);
+        instrumentation.recordSaveAll(System.nanoTime() - startTime);
+        return savedDocuments;
+    }
+
+    private List<Document> upsertAll(Collection<Document> documents) {
+        Supplier<List<Document>> upsertAll = () -> documents.stream()
+                                                            .map(this::upsertDocument)
+                                                            .collect(Collectors.toList());
+        return persistence == null ? upsertAll.get()
+                                   : persistence.write(upsertAll);
+    }
+
+    /**
+     * Applies a batch shipped by the leader like a {@link #saveAll} the
+     * callers of the replica cannot make. The documents carry their ids and
+     * the [created] of the leader.
+     */
+    private void replicate(List<Document> documents) {
+        upsertAll(documents);
+    }
+
+    private void rejectOnReplica() {
+        if (replication != null)
+            throw new IllegalStateException("Replica does not accept saves, save to its leader");
+    }
 
-        return upsertDocument(document);
+    /**
+     * Reads of a replica fail rather than return results older than
+     * [maxReplicationLag].
+     */
+    private void checkReplicationLag() {
+        if (replication == null
+            || maxReplicationLag == null)
+            return;
+
+        Duration lag = replication.lag();
+        if (lag.compareTo(maxReplicationLag) > 0)
+            throw new IllegalStateException("Replica is " + lag.toMillis() + " ms behind its leader");
     }
 
+    /**
+     * Reading the previous version, reserving the log record and storing the
+     * new version happen in a single {@link ConcurrentHashMap#compute} call, so
+     * concurrent saves of the same id can neither lose the original [created]
+     * nor reach the log in a different order than the storage. The record is
+     * encoded and appended after the compute, outside its bin lock. A reserved
+     * record the save fails to append is released, or the records behind it
+     * would wait for it forever.
+     * <p>
+     * The cache is invalidated before the version turns stable, whether the
+     * save succeeded or not, as a failure after the compute still leaves the
+     * new version stored.
+     */
     private Document upsertDocument(Document document) {
-        String id = document.getId();
+        if (!idIsNeitherNullNorEmpty(document.getId()))
+            setUniqueId(document);
 
-        if (idIsNeitherNullNorEmpty(id)) {
-            if (isDocumentPresentInStorage(id)) {
-                return updateDocument(document);
-            } else {
-                return putNewDocument(document);
+        // Reset once the sequence is handed to the log, which then owns it.
+        long[] logSequence = new long[1];
+        try {
+            StoredDocument storedDocument = documentStorage.compute(DocumentKey.of(document.getId()),
+                                                                    (key, storedVersion) -> storeVersion(key,
+                                                                                                         document,
+                                                                                                         storedVersion,
+                                                                                                         logSequence));
+            StoredDocument previousDocument = storedDocument.getPreviousVersion();
+            Document savedDocument = Objects.equals(document.getCreated(),
+                                                    storedDocument.getCreated()) ? document
+                                                                                 : copyOf(document,
+                                                                                          storedDocument.getCreated());
+            try {
+                if (persistence != null)
+                    logVersion(logSequence,
+                               savedDocument);
+                indexLatestVersion(storedDocument,
+                                   savedDocument);
+                if (changeFeed != null)
+                    changeFeed.append(storedDocument);
+            } finally {
+                try {
+                    if (searchResultCache != null)
+                        searchResultCache.invalidate(storedDocument.getVersion(),
+                                                     previousDocument,
+                                                     storedDocument);
+                } finally {
+                    versionClock.endWrite(storedDocument.getVersion());
+                }
             }
-        } else {
-            return putNewDocument(setUniqueId(document));
+            if (changeFeed != null)
+                changeFeed.signal();
+            if (previousDocument != null)
+                reclaimVersions(storedDocument.getKey());
+            return savedDocument;
+        } finally {
+            if (logSequence[0] != 0)
+                logVersion(logSequence,
+                           null);
         }
+    }
 
+    /**
+     * @param savedDocument - document to log, null releases the sequence
+     */
+    private void logVersion(long[] logSequence,
+                            Document savedDocument) {
+        long sequence = logSequence[0];
+        logSequence[0] = 0;
+        persistence.log(sequence,
+                        savedDocument);
     }
 
     private boolean idIsNeitherNullNorEmpty(String string) {
@@ -58,39 +344,147 @@ public class DocumentManager {
                && !string.isEmpty();
     }
 
-    private boolean isDocumentPresentInStorage(String id) {
-        return documentStorage.containsKey(id);
+    /**
+     * A new version takes the key of the stored one, so a document keeps a
+     * single key in the storage and the indexes however many equal ids
+     * callers update it with.
+     *
+     * @param key         - key the save looked the document up with
+     * @param logSequence - receives the sequence of the reserved log record
+     */
+    private StoredDocument storeVersion(DocumentKey key,
+                                        Document document,
+                                        StoredDocument previousDocument,
+                                        long[] logSequence) {
+        Document savedDocument = previousDocument == null ? document
+                                                          : copyOf(document,
+                                                                   previousDocument.getCreated());
+        long version = versionClock.beginWrite();
+        try {
+            StoredDocument storedDocument = StoredDocument.of(previousDocument == null ? key
+                                                                                       : previousDocument.getKey(),
+                                                              savedDocument,
+                                                              contentStore,
+                                                              version,
+                                                              previousDocument);
+            if (previousDocument != null)
+                multiVersionIds.add(storedDocument.getKey());
+            if (persistence != null)
+                logSequence[0] = persistence.reserve();
+            return storedDocument;
+        } catch (RuntimeException e) {
+            versionClock.endWrite(version);
+            throw e;
+        }
+    }
+
+    /**
+     * Cuts the versions of [id] no snapshot can read any more. It runs inside
+     * a compute, so it cannot race with a save of the same id.
+     */
+    private void reclaimVersions(DocumentKey id) {
+        long oldestReadableVersion = versionClock.oldestReadableVersion();
+        documentStorage.computeIfPresent(id,
+                                         (key, storedDocument) -> {
+                                             storedDocument.reclaimVersionsBefore(oldestReadableVersion);
+                                             if (storedDocument.getPreviousVersion() == null)
+                                                 multiVersionIds.remove(key);
+                                             return storedDocument;
+                                         });
     }
 
-    private Document updateDocument(Document document) {
-        String idOfDocument = document.getId();
-        Instant oldCreationData = getOldDocumentCreationDate(idOfDocument);
-        Document updatedDocument = Document.builder()
-                                           .author(document.getAuthor())
-                                           .content(document.getContent())
-                                           .created(oldCreationData)
-                                           .id(idOfDocument)
-                                           .title(document.getTitle())
-                                           .build();
-        documentStorage.put(idOfDocument,
-                            document);
-        return updatedDocument;
+    /**
+     * Reclaims the versions an old snapshot was the last reader of. A single
+     * thread sweeps at a time, the others rely on it or on a later sweep.
+     */
+    private void reclaimVersions() {
+        if (multiVersionIds.isEmpty()
+            || !reclaimingVersions.compareAndSet(false,
+                                                 true))
+            return;
 
+        try {
+            multiVersionIds.forEach(this::reclaimVersions);
+        } finally {
+            reclaimingVersions.set(false);
+        }
     }
 
-    private Instant getOldDocumentCreationDate(String idOldDocument) {
-        return getDocumentFromStorage(idOldDocument).map(Document::getCreated)
-                                                    .orElseThrow(() -> new IllegalArgumentException("Document with ID "
-                                                                                                    + idOldDocument
-                                                                                                    + " not found"));
+    private Document copyOf(Document document,
+                            Instant created) {
+        return Document.builder()
+                       .author(document.getAuthor())
+                       .content(document.getContent())
+                       .created(created)
+                       .id(document.getId())
+                       .title(document.getTitle())
+                       .build();
     }
 
-    private Document putNewDocument(Document document) {
-        documentStorage.put(document.getId(),
-                            document);
-        return document;
+    /**
+     * Indexing a large content takes too long to hold a storage bin lock, so it
+     * runs after the compute. Whoever indexes an id last reads the version that
+     * is stored at that moment, which keeps the indexes in line with the
+     * storage whatever order concurrent saves finish in.
+     * <p>
+     * The n-gram index keeps no grams per document, it is handed the content
+     * of the newest indexed version instead. That version stays linked until
+     * a newer one is indexed: versions are only reclaimed below the stable
+     * version, and a newer save has indexed before its version becomes
+     * stable.
+     */
+    private void indexLatestVersion(StoredDocument storedDocument,
+                                    Document savedDocument) {
+        DocumentKey key = storedDocument.getKey();
+        synchronized (indexLockOf(key)) {
+            StoredDocument latestDocument = documentStorage.get(key);
+            Document documentToIndex = latestDocument == storedDocument ? savedDocument
+                                                                        : latestDocument.toDocument();
+            indexes.forEach(index -> index.index(key,
+                                                 documentToIndex));
+            contentNGramIndex.index(key,
+                                    documentToIndex.getContent(),
+                                    indexedContentOf(latestDocument.indexedVersion()));
+            latestDocument.markIndexed();
+        }
+    }
+
+    private String indexedContentOf(StoredDocument indexedDocument) {
+        return indexedDocument == null ? null
+                                       : indexedDocument.scanContent();
     }
 
+    private Object indexLockOf(DocumentKey id) {
+        return indexLocks[Math.floorMod(id.hashCode(),
+                                        indexLocks.length)];
+    }
+
+    private void applyDocument(Document document) {
+        DocumentKey key = DocumentKey.of(document.getId());
+        StoredDocument previousDocument = documentStorage.get(key);
+        DocumentKey storedKey = previousDocument == null ? key
+                                                         : previousDocument.getKey();
+        long version = versionClock.beginWrite();
+        StoredDocument storedDocument = StoredDocument.of(storedKey,
+                                                          document,
+                                                          contentStore,
+                                                          version,
+                                                          null);
+        documentStorage.put(storedKey,
+                            storedDocument);
+        indexes.forEach(index -> index.index(storedKey,
+                                             document));
+        contentNGramIndex.index(storedKey,
+                                document.getContent(),
+                                indexedContentOf(previousDocument));
+        storedDocument.markIndexed();
+        versionClock.endWrite(version);
+    }
+
+    /**
+     * Generated ids are canonical UUIDs, which the storage and the indexes
+     * keep as two longs, see {@link DocumentKey}.
+     */
     private Document setUniqueId(Document document) {
         document.setId(UUID.randomUUID()
                            .toString());
@@ -104,74 +498,474 @@ public class DocumentManager {
      * @return list matched documents
      */
     public List<Document> search(SearchRequest searchRequest) {
-        return documentStorage.values()
-                              .stream()
-                              .filter(document -> matchesSearchRequest(document,
-                                                                       searchRequest))
-                              .collect(Collectors.toList());
+        return search(searchRequest,
+                      null,
+                      null);
+    }
+
+    /**
+     * @param searchOptions - page to return, null returns all the matches
+     * @param abandoned     - whether the caller is gone, null if it waits
+     */
+    private List<Document> search(SearchRequest searchRequest,
+                                  SearchOptions searchOptions,
+                                  BooleanSupplier abandoned) {
+        checkReplicationLag();
+        if (searchOptions == null)
+            return executeSearch(searchRequest,
+                                 null,
+                                 abandoned,
+                                 (searchPlan, readView) -> searchAll(searchPlan,
+                                                                     searchRequest,
+                                                                     readView));
+
+        return executeSearch(searchRequest,
+                             searchOptions,
+                             abandoned,
+                             (searchPlan, readView) -> searchPage(searchPlan,
+                                                                  searchRequest,
+                                                                  searchOptions,
+                                                                  readView));
+    }
+
+    /**
+     * Serves the search from the result cache when possible, otherwise plans
+     * and runs it with [execution]. Either way the search reads a snapshot
+     * taken at its start and is measured.
+     */
+    private List<Document> executeSearch(SearchRequest searchRequest,
+                                         SearchOptions searchOptions,
+                                         BooleanSupplier abandoned,
+                                         BiFunction<SearchPlan, ReadView, List<Document>> execution) {
+        long startTime = System.nanoTime();
+        long snapshotVersion = versionClock.openSnapshot();
+        try {
+            if (searchResultCache != null) {
+                Optional<List<DocumentKey>> cachedIds = searchResultCache.get(searchRequest,
+                                                                              searchOptions,
+                                                                              snapshotVersion);
+                if (cachedIds.isPresent()) {
+                    List<Document> documents = documentsWithIds(cachedIds.get()
+                                                                         .stream()).map(document -> document.versionAt(snapshotVersion))
+                                                                                   .filter(Objects::nonNull)
+                                                                                   .map(StoredDocument::toDocument)
+                                                                                   .collect(Collectors.toList());
+                    instrumentation.recordSearch(searchRequest,
+                                                 null,
+                                                 System.nanoTime() - startTime,
+                                                 null);
+                    return documents;
+                }
+            }
+
+            SearchPlan searchPlan = queryPlanner.plan(searchRequest);
+            ReadView readView = new ReadView(snapshotVersion,
+                                             instrumentation.newScanCounter(),
+                                             abandoned);
+            List<Document> documents = execution.apply(searchPlan,
+                                                       readView);
+            instrumentation.recordSearch(searchRequest,
+                                         searchPlan,
+                                         System.nanoTime() - startTime,
+                                         readView.getScannedDocuments());
+            if (searchResultCache != null)
+                searchResultCache.put(searchRequest,
+                                      searchOptions,
+                                      documents,
+                                      snapshotVersion);
+            return documents;
+        } finally {
+            closeSnapshot(snapshotVersion);
+        }
+    }
+
+    private void closeSnapshot(long snapshotVersion) {
+        if (versionClock.closeSnapshot(snapshotVersion))
+            reclaimVersions();
     }
 
-    private boolean matchesSearchRequest(Document document,
-                                         SearchRequest searchRequest) {
-        if (searchRequest == null)
-            return true;
+    private List<Document> searchAll(SearchPlan searchPlan,
+                                     SearchRequest searchRequest,
+                                     ReadView readView) {
+        return isWorthSearchingInParallel(searchPlan) ? searchInParallel(searchPlan,
+                                                                         searchRequest,
+                                                                         readView)
+                                                      : searchSequentially(searchPlan,
+                                                                           searchRequest,
+                                                                           readView);
+    }
+
+    private List<Document> searchSequentially(SearchPlan searchPlan,
+                                              SearchRequest searchRequest,
+                                              ReadView readView) {
+        return matches(searchPlan,
+                       searchRequest,
+                       readView).map(StoredDocument::toDocument)
+                                .collect(Collectors.toList());
+    }
+
+    private boolean isWorthSearchingInParallel(SearchPlan searchPlan) {
+        return parallelSearchPool != null
+               && searchPlan.getEstimatedCandidates() >= parallelSearchThreshold;
+    }
+
+    /**
+     * The candidates are split into partitions by their spliterator and the
+     * partitions are filtered on the configured pool. Partial results are
+     * concatenated in partition order, and every storage engine splits off
+     * prefixes, so the result is the one of a sequential search whichever
+     * worker finished first.
+     */
+    private List<Document> searchInParallel(SearchPlan searchPlan,
+                                            SearchRequest searchRequest,
+                                            ReadView readView) {
+        return parallelSearchPool.submit(() -> matches(searchPlan,
+                                                       searchRequest,
+                                                       readView).parallel()
+                                                                .map(StoredDocument::toDocument)
+                                                                .collect(Collectors.toList()))
+                                 .join();
+    }
+
+    /**
+     * Finds documents which match with [request] and returns one page of them,
+     * optionally sorted.
+     *
+     * @param searchRequest - search request, each field could be null
+     * @param searchOptions - sort key, offset and limit of the page
+     * @return matched documents of the requested page
+     */
+    public List<Document> search(SearchRequest searchRequest,
+                                 SearchOptions searchOptions) {
+        validateSearchOptions(searchOptions);
+        return search(searchRequest,
+                      searchOptions,
+                      null);
+    }
+
+    /**
+     * Shared with {@link DocumentCluster}, so a page of a cluster fails the
+     * same way as a page of a single manager.
+     */
+    static void validateSearchOptions(SearchOptions searchOptions) {
+        if (searchOptions == null)
+            throw new IllegalArgumentException("Search options cannot be null");
+        if (searchOptions.getOffset() < 0
+            || searchOptions.getLimit() < 0)
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+    }
+
+    private List<Document> searchPage(SearchPlan searchPlan,
+                                      SearchRequest searchRequest,
+                                      SearchOptions searchOptions,
+                                      ReadView readView) {
+        if (searchOptions.getSortBy() == null)
+            return page(matches(searchPlan,
+                                searchRequest,
+                                readView),
+                        searchOptions);
+
+        if (canFollowCreatedOrder(searchPlan,
+                                  searchOptions))
+            return page(matchesInCreatedOrder(searchRequest == null ? SearchRequest.builder()
+                                                                                   .build()
+                                                                    : searchRequest,
+                                              searchOptions.isDescending(),
+                                              readView),
+                        searchOptions);
+
+        List<StoredDocument> firstDocuments = TopK.select(matches(searchPlan,
+                                                                  searchRequest,
+                                                                  readView),
+                                                    comparatorOf(searchOptions),
+                                                    pageEnd(searchOptions));
+        return page(firstDocuments.stream(),
+                    searchOptions);
+    }
+
+    /**
+     * Finds documents which match with [request] lazily: documents are checked
+     * only as the returned stream is consumed. The stream reads a snapshot
+     * taken when it is created and holds the old versions the snapshot reads
+     * until it is consumed to the end or closed. A stream left unfinished, e.g.
+     * after {@link Stream#findFirst()}, must be closed, with try-with-resources
+     * for instance, or those versions are never reclaimed.
+     *
+     * @param searchRequest - search request, each field could be null
+     * @return stream of matched documents
+     */
+    public Stream<Document> searchStream(SearchRequest searchRequest) {
+        return searchStream(searchRequest,
+                            null);
+    }
+
+    private Stream<Document> searchStream(SearchRequest searchRequest,
+                                          BooleanSupplier abandoned) {
+        checkReplicationLag();
+        long snapshotVersion = versionClock.openSnapshot();
+        try {
+            return ReleasingSpliterator.releasing(matches(queryPlanner.plan(searchRequest),
+                                                          searchRequest,
+                                                          new ReadView(snapshotVersion,
+                                                                       null,
+                                                                       abandoned)).map(StoredDocument::toDocument),
+                                                  () -> closeSnapshot(snapshotVersion));
+        } catch (RuntimeException e) {
+            closeSnapshot(snapshotVersion);
+            throw e;
+        }
+    }
+
+    /**
+     * The candidates are the stored versions, while the search has to match
+     * the versions of its snapshot. When the snapshot reads an older version,
+     * the index that produced the candidate did not check it, so it is matched
+     * against all the predicates instead of the residual ones only.
+     * <p>
+     * The matches are single-pass versions, so a content decoded by the filter
+     * is not decoded again for the result.
+     */
+    private Stream<StoredDocument> matches(SearchPlan searchPlan,
+                                           SearchRequest searchRequest,
+                                           ReadView readView) {
+        CompiledFilter residualFilter = CompiledFilter.compile(searchPlan.getResidualPredicates(),
+                                                               searchRequest);
+        CompiledFilter fullFilter = searchRequest == null ? residualFilter
+                                                          : CompiledFilter.compile(QueryPlanner.predicatesOf(searchRequest),
+                                                                                   searchRequest);
+        long snapshotVersion = readView.getSnapshotVersion();
+        return readView.counted(candidateDocuments(searchPlan,
+                                                   searchRequest))
+                       .map(storedDocument -> {
+                           StoredDocument document = storedDocument.versionAt(snapshotVersion);
+                           if (document == null)
+                               return null;
+
+                           StoredDocument candidate = document.forSinglePass();
+                           return (document == storedDocument ? residualFilter
+                                                              : fullFilter).test(candidate) ? candidate
+                                                                                            : null;
+                       })
+                       .filter(Objects::nonNull);
+    }
+
+    private Stream<StoredDocument> versionsAt(Stream<StoredDocument> storedDocuments,
+                                              ReadView readView) {
+        return readView.counted(storedDocuments)
+                       .map(storedDocument -> storedDocument.versionAt(readView.getSnapshotVersion()))
+                       .filter(Objects::nonNull)
+                       .map(StoredDocument::forSinglePass);
+    }
+
+    private List<Document> page(Stream<StoredDocument> documents,
+                                SearchOptions searchOptions) {
+        return documents.skip(searchOptions.getOffset())
+                        .limit(searchOptions.getLimit())
+                        .map(StoredDocument::toDocument)
+                        .collect(Collectors.toList());
+    }
+
+    private int pageEnd(SearchOptions searchOptions) {
+        return (int) Math.min((long) searchOptions.getOffset() + searchOptions.getLimit(),
+                              Integer.MAX_VALUE);
+    }
+
+    private Comparator<StoredDocument> comparatorOf(SearchOptions searchOptions) {
+        return comparatorOf(searchOptions,
+                            StoredDocument::getCreated,
+                            StoredDocument::getTitle,
+                            StoredDocument::getKey);
+    }
+
+    /**
+     * Orders by the sort key of [searchOptions], missing values last, then by
+     * id, so pages are stable. Without a sort key every element is equal.
+     * {@link DocumentCluster} merges the pages of its partitions with it, so
+     * they come out in the order of a single manager.
+     */
+    static <T, I extends Comparable<? super I>> Comparator<T> comparatorOf(SearchOptions searchOptions,
+                                                                           Function<T, Instant> created,
+                                                                           Function<T, String> title,
+                                                                           Function<T, I> id) {
+        if (searchOptions.getSortBy() == null)
+            return (first, second) -> 0;
+
+        Comparator<Instant> createdOrder = searchOptions.isDescending() ? Comparator.reverseOrder()
+                                                                        : Comparator.naturalOrder();
+        Comparator<String> titleOrder = searchOptions.isDescending() ? Comparator.reverseOrder()
+                                                                     : Comparator.naturalOrder();
+        Comparator<T> comparator = switch (searchOptions.getSortBy()) {
+            case CREATED -> Comparator.comparing(created,
+                                                 Comparator.nullsLast(createdOrder));
+            case TITLE -> Comparator.comparing(title,
+                                               Comparator.nullsLast(titleOrder));
+        };
+        return comparator.thenComparing(id,
+                                        Comparator.nullsLast(Comparator.naturalOrder()));
+    }
 
-        return matching(document,
-                        searchRequest);
+    /**
+     * The created index already yields documents in the requested order, so a
+     * page can be read from it lazily, unless another index is a better driver.
+     */
+    private boolean canFollowCreatedOrder(SearchPlan searchPlan,
+                                          SearchOptions searchOptions) {
+        return searchOptions.getSortBy() == SortKey.CREATED
+               && (searchPlan.isFullScan()
+                   || searchPlan.getDrivingPredicate() == SearchPredicate.CREATED_RANGE);
     }
 
-    private boolean matching(Document document,
-                             SearchRequest searchRequest) {
-        return matchesTitle(document,
-                            searchRequest)
-               && matchesContent(document,
-                                 searchRequest)
-               && matchesAuthorIds(document,
-                                   searchRequest)
-               && matchesCreatedFrom(document,
-                                     searchRequest)
-               && matchesCreatedTo(document,
-                                   searchRequest);
+    /**
+     * A save keeps the [created] of the stored document, so all the versions
+     * of a document sit at the same place in the created index.
+     */
+    private Stream<StoredDocument> matchesInCreatedOrder(SearchRequest searchRequest,
+                                                   boolean descending,
+                                                   ReadView readView) {
+        CompiledFilter filter = CompiledFilter.compile(QueryPlanner.predicatesOf(searchRequest),
+                                                       searchRequest);
+        Stream<StoredDocument> indexedMatches = versionsAt(documentsWithIds(createdIndex.idsInOrder(searchRequest.getCreatedFrom(),
+                                                                                              searchRequest.getCreatedTo(),
+                                                                                              descending)),
+                                                           readView).filter(filter);
+        if (searchRequest.getCreatedFrom() != null
+            || searchRequest.getCreatedTo() != null)
+            return indexedMatches;
+
+        Stream<StoredDocument> matchesWithoutCreated = versionsAt(allDocuments(),
+                                                                  readView).filter(document -> document.getCreated() == null)
+                                                                           .filter(filter)
+                                                                           .sorted(Comparator.comparing(StoredDocument::getKey));
+        return Stream.concat(indexedMatches,
+                             matchesWithoutCreated);
     }
 
-    private boolean matchesTitle(Document document,
-                                 SearchRequest searchRequest) {
-        return (searchRequest.getTitlePrefixes() == null
-                || searchRequest.getTitlePrefixes()
-                                .stream()
-                                .anyMatch(prefix -> document.getTitle()
-                                                            .startsWith(prefix)));
+    /**
+     * Ranks the documents containing any word of [query] in their title or
+     * content by BM25 relevance and returns the best [limit] of them. Words
+     * are compared case-insensitively and title words weigh more than content
+     * words. Documents are read at a snapshot taken at the start, their scores
+     * reflect the latest saved versions.
+     *
+     * @param query         - free text, split into words
+     * @param searchRequest - filter the ranked documents have to match as well,
+     *                      null for none
+     * @param limit         - maximum number of documents
+     * @return best matching documents by descending score
+     */
+    public List<ScoredDocument> searchRanked(String query,
+                                             SearchRequest searchRequest,
+                                             int limit) {
+        if (fullTextIndex == null)
+            throw new IllegalStateException("Full-text index is not configured");
+        if (query == null)
+            throw new IllegalArgumentException("Query cannot be null");
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit cannot be negative");
+        checkReplicationLag();
+
+        CompiledFilter filter = filterOf(searchRequest);
+        long snapshotVersion = versionClock.openSnapshot();
+        try {
+            Map<DocumentKey, StoredDocument> rankedVersions = new HashMap<>();
+            List<FullTextIndex.Hit> hits = fullTextIndex.topK(query,
+                                                              limit,
+                                                              id -> {
+                                                                  StoredDocument storedDocument = documentStorage.get(id);
+                                                                  StoredDocument document = storedDocument == null ? null
+                                                                                                                   : storedDocument.versionAt(snapshotVersion);
+                                                                  if (document == null
+                                                                      || !filter.test(document))
+                                                                      return false;
+
+                                                                  rankedVersions.put(id,
+                                                                                     document);
+                                                                  return true;
+                                                              });
+            return hits.stream()
+                       .map(hit -> ScoredDocument.builder()
+                                                 .document(rankedVersions.get(hit.getId())
+                                                                         .toDocument())
+                                                 .score(hit.getScore())
+                                                 .build())
+                       .collect(Collectors.toList());
+        } finally {
+            closeSnapshot(snapshotVersion);
+        }
     }
 
-    private boolean matchesContent(Document document,
-                                   SearchRequest searchRequest) {
-        return (searchRequest.getContainsContents() == null
-                || searchRequest.getContainsContents()
-                                .stream()
-                                .anyMatch(content -> document.getContent()
-                                                             .contains(content)));
+    /**
+     * @see #searchRanked(String, SearchRequest, int)
+     */
+    public List<ScoredDocument> searchRanked(String query,
+                                             int limit) {
+        return searchRanked(query,
+                            null,
+                            limit);
     }
 
-    private boolean matchesAuthorIds(Document document,
-                                     SearchRequest searchRequest) {
-        return (searchRequest.getAuthorIds() == null
-                || searchRequest.getAuthorIds()
-                                .contains(document.getAuthor()
-                                                  .getId()));
+    /**
+     * Describes how {@link #search(SearchRequest)} would execute the [request]
+     * right now, without running it.
+     *
+     * @param searchRequest - search request, each field could be null
+     * @return chosen search plan
+     */
+    public SearchPlan explain(SearchRequest searchRequest) {
+        return queryPlanner.plan(searchRequest);
     }
 
-    private boolean matchesCreatedFrom(Document document,
-                                       SearchRequest searchRequest) {
-        return (searchRequest.getCreatedFrom() == null
-                || !document.getCreated()
-                            .isBefore(searchRequest.getCreatedFrom()));
+    private Stream<StoredDocument> candidateDocuments(SearchPlan searchPlan,
+                                                SearchRequest searchRequest) {
+        if (searchPlan.isFullScan())
+            return scannedDocuments(searchRequest);
+
+        return switch (searchPlan.getDrivingPredicate()) {
+            case AUTHOR_IDS -> indexedCandidates(authorIndex.findIds(searchRequest.getAuthorIds()));
+            case CREATED_RANGE -> indexedCandidates(createdIndex.findIds(searchRequest.getCreatedFrom(),
+                                                                         searchRequest.getCreatedTo()));
+            case TITLE_PREFIXES -> indexedCandidates(titlePrefixIndex.findIds(searchRequest.getTitlePrefixes()));
+            case CONTAINS_CONTENTS -> contentNGramIndex.findCandidateIds(searchRequest.getContainsContents())
+                                                       .map(this::indexedCandidates)
+                                                       .orElseGet(() -> scannedDocuments(searchRequest));
+        };
     }
 
-    private boolean matchesCreatedTo(Document document,
-                                     SearchRequest searchRequest) {
-        return (searchRequest.getCreatedTo() == null
-                || !document.getCreated()
-                            .isAfter(searchRequest.getCreatedTo()));
+    /**
+     * A time-partitioned storage only reads the partitions overlapping the
+     * created range of the [searchRequest].
+     */
+    private Stream<StoredDocument> scannedDocuments(SearchRequest searchRequest) {
+        return searchRequest == null ? allDocuments()
+                                     : documentStorage.documents(searchRequest.getCreatedFrom(),
+                                                                 searchRequest.getCreatedTo());
+    }
+
+    /**
+     * @param ids - ids found by an index, a set owned by the caller
+     */
+    private Stream<StoredDocument> indexedCandidates(Set<DocumentKey> ids) {
+        ids.addAll(multiVersionIds);
+        return documentsWithIds(ids);
+    }
+
+    private Stream<StoredDocument> allDocuments() {
+        return documentStorage.documents();
+    }
+
+    private Stream<StoredDocument> documentsWithIds(Set<DocumentKey> ids) {
+        return documentsWithIds(ids.stream());
+    }
+
+    private Stream<StoredDocument> documentsWithIds(Stream<DocumentKey> ids) {
+        return ids.map(documentStorage::get)
+                  .filter(Objects::nonNull);
+    }
+
+    private CompiledFilter filterOf(SearchRequest searchRequest) {
+        return CompiledFilter.compile(searchRequest == null ? List.of()
+                                                            : QueryPlanner.predicatesOf(searchRequest),
+                                      searchRequest);
     }
 
     /**
@@ -183,11 +977,20 @@ public class DocumentManager {
     public Optional<Document> findById(String id) {
         if (id == null)
             throw new IllegalArgumentException("Document ID cannot be null");
-        return getDocumentFromStorage(id);
+        checkReplicationLag();
+
+        long startTime = System.nanoTime();
+        DocumentKey key = DocumentKey.of(id);
+        Optional<Document> document = idBloomFilter == null
+                                      || idBloomFilter.mightContain(key) ? getDocumentFromStorage(key).map(StoredDocument::toDocument)
+                                                                         : Optional.empty();
+        instrumentation.recordFindById(System.nanoTime() - startTime,
+                                       document.isPresent());
+        return document;
     }
 
-    private Optional<Document> getDocumentFromStorage(String id) {
-        return Optional.ofNullable(documentStorage.get(id));
+    private Optional<StoredDocument> getDocumentFromStorage(DocumentKey key) {
+        return Optional.ofNullable(documentStorage.get(key));
     }
 
     @Data
@@ -217,4 +1020,658 @@ public class DocumentManager {
         private String name;
     }
 
+    public enum ChangeType {
+        INSERT,
+        UPDATE
+    }
+
+    @Data
+    @Builder
+    public static class ChangeEvent {
+        private long sequence;
+        private ChangeType type;
+        /**
+         * Document as saved by the change.
+         */
+        private Document document;
+    }
+
+    @Data
+    @Builder
+    public static class ScoredDocument {
+        private Document document;
+        /**
+         * BM25 relevance, only comparable between results of the same query.
+         */
+        private double score;
+    }
+
+    /**
+     * Saves the [document] on the configured async executor, see
+     * {@link #save(Document)}. Completing the returned future early, e.g. by
+     * a timeout, does not undo or stop the save.
+     *
+     * @return future of the saved document, failed with a
+     *         {@link RejectedExecutionException} when too many asynchronous
+     *         calls are in progress
+     */
+    public CompletableFuture<Document> saveAsync(Document document) {
+        if (document == null)
+            throw new IllegalArgumentException("Document cannot be null");
+        rejectOnReplica();
+
+        return asyncExecution.submit(abandoned -> save(document));
+    }
+
+    /**
+     * Finds the document by [id] on the configured async executor, see
+     * {@link #findById(String)}.
+     *
+     * @return future of the optional document, failed with a
+     *         {@link RejectedExecutionException} when too many asynchronous
+     *         calls are in progress
+     */
+    public CompletableFuture<Optional<Document>> findByIdAsync(String id) {
+        if (id == null)
+            throw new IllegalArgumentException("Document ID cannot be null");
+
+        return asyncExecution.submit(abandoned -> findById(id));
+    }
+
+    /**
+     * Searches on the configured async executor, see
+     * {@link #search(SearchRequest)}. Once the returned future is completed
+     * otherwise, i.e. cancelled, timed out by [asyncTimeout] or
+     * {@link CompletableFuture#orTimeout}, the search stops at its next
+     * candidate instead of scanning the rest. Cancelling a future derived
+     * from the returned one does not stop it.
+     *
+     * @return future of the matched documents, failed with a
+     *         {@link RejectedExecutionException} when too many asynchronous
+     *         calls are in progress
+     */
+    public CompletableFuture<List<Document>> searchAsync(SearchRequest searchRequest) {
+        return asyncExecution.submit(abandoned -> search(searchRequest,
+                                                         null,
+                                                         abandoned));
+    }
+
+    /**
+     * Searches one page on the configured async executor, see
+     * {@link #search(SearchRequest, SearchOptions)} and
+     * {@link #searchAsync(SearchRequest)}.
+     */
+    public CompletableFuture<List<Document>> searchAsync(SearchRequest searchRequest,
+                                                         SearchOptions searchOptions) {
+        validateSearchOptions(searchOptions);
+        return asyncExecution.submit(abandoned -> search(searchRequest,
+                                                         searchOptions,
+                                                         abandoned));
+    }
+
+    /**
+     * Publishes the documents matching [request] as far as the subscriber
+     * requests them, see {@link #searchStream(SearchRequest)}. Every
+     * subscription searches its own snapshot, taken at its first request, on
+     * the configured async executor and counts as an asynchronous call until
+     * it completes; too many calls in progress fail it with a
+     * {@link RejectedExecutionException}. Cancelling the subscription stops
+     * the search at its next candidate.
+     *
+     * @param searchRequest - search request, each field could be null
+     * @return publisher of the matched documents
+     */
+    public Flow.Publisher<Document> searchPublisher(SearchRequest searchRequest) {
+        return asyncExecution.publish(abandoned -> searchStream(searchRequest,
+                                                                abandoned));
+    }
+
+    /**
+     * Publishes the saves with sequences above [afterSequence] and every later
+     * save, in sequence order, as far as the subscriber requests them. Events
+     * are delivered on the configured executor. A subscriber falling more than
+     * [changeFeedCapacity] events behind gets an {@link IllegalStateException}
+     * and has to catch up with a search before it resumes.
+     * <p>
+     * Sequences are commit versions: they increase with every save but can
+     * have gaps, and they restart when the manager is recreated. An event can
+     * be delivered before its save is durable under the fsync policy.
+     *
+     * @param afterSequence - last sequence the subscriber has seen, e.g.
+     *                      {@link #lastChangeSequence()} to follow new saves only
+     * @return publisher of the change events
+     */
+    public Flow.Publisher<ChangeEvent> changes(long afterSequence) {
+        return changeFeed().publisher(afterSequence);
+    }
+
+    /**
+     * Reads the retained saves with sequences above [afterSequence] without
+     * waiting for new ones; see {@link #changes(long)}.
+     *
+     * @param afterSequence - last sequence the caller has seen
+     * @param maxEvents     - maximum number of returned events
+     * @return up to [maxEvents] events in sequence order
+     * @throws IllegalStateException if events after [afterSequence] are no
+     *                               longer retained
+     */
+    public List<ChangeEvent> changesAfter(long afterSequence,
+                                          int maxEvents) {
+        if (maxEvents < 0)
+            throw new IllegalArgumentException("Max events cannot be negative");
+
+        return changeFeed().read(afterSequence,
+                                 maxEvents);
+    }
+
+    /**
+     * @return sequence of the latest save visible in the change feed
+     */
+    public long lastChangeSequence() {
+        return changeFeed().lastSequence();
+    }
+
+    private ChangeFeed changeFeed() {
+        if (changeFeed == null)
+            throw new IllegalStateException("Change feed is not configured");
+
+        return changeFeed;
+    }
+
+    /**
+     * Writes a snapshot of the storage, so the next startup only replays the
+     * log written after it. Snapshots are also taken periodically when
+     * [snapshotInterval] is configured.
+     */
+    public void snapshot() {
+        if (persistence == null)
+            throw new IllegalStateException("Persistence is not configured");
+
+        persistence.snapshot();
+    }
+
+    /**
+     * Seals the partitions of a {@link DocumentStorage#TIME_PARTITIONED}
+     * storage whose time bucket ends at or before the [cutoff] into compact
+     * read-only segments, spilled to [partitionSpillDirectory] when it is
+     * configured. Documents saved into a sealed partition later are kept aside
+     * until it is sealed again. Runs periodically when [sealPartitionsAfter] is
+     * configured.
+     *
+     * @param cutoff - end of the newest partitions to seal
+     */
+    public void sealPartitionsBefore(Instant cutoff) {
+        if (cutoff == null)
+            throw new IllegalArgumentException("Cutoff cannot be null");
+
+        sealPartitions(cutoff);
+    }
+
+    /**
+     * Private, so the maintenance started by the constructor cannot run an
+     * override of a subclass that is not initialized yet.
+     */
+    private void sealPartitions(Instant cutoff) {
+        partitionedStorage().sealPartitionsBefore(cutoff);
+    }
+
+    /**
+     * Drops the partitions of a {@link DocumentStorage#TIME_PARTITIONED}
+     * storage whose time bucket ends at or before the [cutoff], with all their
+     * documents. A partition disappears at once however many documents it
+     * holds; its ids are then removed from the indexes one by one. Searches
+     * already running may still return dropped documents, and no change events
+     * are published for them. With persistence a snapshot is written right
+     * after, so the dropped documents stay dropped on the next startup. Runs
+     * periodically when [partitionRetention] is configured.
+     *
+     * @param cutoff - end of the newest partitions to drop
+     * @return number of dropped documents
+     */
+    public long dropPartitionsBefore(Instant cutoff) {
+        if (cutoff == null)
+            throw new IllegalArgumentException("Cutoff cannot be null");
+
+        return dropPartitions(cutoff);
+    }
+
+    /**
+     * @see #sealPartitions(Instant)
+     */
+    private long dropPartitions(Instant cutoff) {
+        TimePartitionedStorageEngine storage = partitionedStorage();
+        // Versioned only so the cache is invalidated before the snapshots
+        // taken after the drop.
+        long version = versionClock.beginWrite();
+        long droppedDocuments;
+        try {
+            droppedDocuments = storage.dropPartitionsBefore(cutoff,
+                                                            this::unindexDroppedDocument);
+        } finally {
+            try {
+                if (searchResultCache != null)
+                    searchResultCache.invalidateAll(version);
+            } finally {
+                versionClock.endWrite(version);
+            }
+        }
+        if (droppedDocuments > 0
+            && persistence != null)
+            persistence.snapshot();
+        return droppedDocuments;
+    }
+
+    private TimePartitionedStorageEngine partitionedStorage() {
+        if (partitionedStorage == null)
+            throw new IllegalStateException("Time-partitioned storage is not configured");
+
+        return partitionedStorage;
+    }
+
+    /**
+     * Unless the id was saved again since its partition was dropped, in which
+     * case the save has indexed it anew.
+     */
+    private void unindexDroppedDocument(StoredDocument droppedDocument) {
+        DocumentKey id = droppedDocument.getKey();
+        synchronized (indexLockOf(id)) {
+            if (documentStorage.get(id) != null)
+                return;
+
+            indexes.forEach(index -> index.remove(id));
+            contentNGramIndex.remove(id,
+                                     indexedContentOf(droppedDocument.indexedVersion()));
+            multiVersionIds.remove(id);
+        }
+    }
+
+    /**
+     * Time since a replica last caught up with every save committed on its
+     * leader. It grows by about [replicationInterval] between two pulls even
+     * when the leader is idle.
+     *
+     * @return lag of the replica behind its leader
+     */
+    public Duration replicationLag() {
+        return replication().lag();
+    }
+
+    /**
+     * Sequence of the leader's change feed up to which a replica applied the
+     * saves. A caller that saved on the leader can wait for it to reach the
+     * leader's {@link #lastChangeSequence()} to read its own write here.
+     *
+     * @return last replicated sequence of the leader
+     */
+    public long replicatedSequence() {
+        return replication().replicatedSequence();
+    }
+
+    private Replication replication() {
+        if (replication == null)
+            throw new IllegalStateException("Replication is not configured");
+
+        return replication;
+    }
+
+    /**
+     * Returns the operation counters and latency percentiles collected since
+     * the manager was created.
+     */
+    public Metrics metrics() {
+        return instrumentation.snapshot(documentStorage.size(),
+                                        searchResultCache == null ? null
+                                                                  : searchResultCache.metrics());
+    }
+
+    /**
+     * Stops the background replication, persistence and partition tasks,
+     * syncs the log and releases the off-heap content storage and the spilled
+     * partitions.
+     * Asynchronous calls already in progress still run, later ones fail.
+     */
+    @Override
+    public void close() {
+        if (replication != null)
+            replication.close();
+        asyncExecution.close();
+        if (partitionMaintenance != null)
+            partitionMaintenance.close();
+        if (changeFeed != null)
+            changeFeed.close();
+        try {
+            if (persistence != null)
+                persistence.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            contentStore.close();
+            documentStorage.close();
+        }
+    }
+
+    /**
+     * Predicates of a {@link SearchRequest} the search can be driven from,
+     * declared from the cheapest to the most expensive per-document check.
+     */
+    public enum SearchPredicate {
+        AUTHOR_IDS,
+        CREATED_RANGE,
+        TITLE_PREFIXES,
+        CONTAINS_CONTENTS
+    }
+
+    @Data
+    @Builder
+    public static class SearchPlan {
+        /**
+         * Predicate whose index produces the candidates, null for a full scan.
+         */
+        private SearchPredicate drivingPredicate;
+        private long estimatedCandidates;
+        /**
+         * Estimated matches of every predicate set on the request. Range and
+         * prefix estimates stop counting once they exceed a cheaper alternative.
+         */
+        private Map<SearchPredicate, Long> estimatedMatches;
+        /**
+         * Predicates checked against every candidate, in evaluation order.
+         */
+        private List<SearchPredicate> residualPredicates;
+
+        public boolean isFullScan() {
+            return drivingPredicate == null;
+        }
+    }
+
+    public enum SortKey {
+        CREATED,
+        TITLE
+    }
+
+    @Data
+    @Builder
+    public static class SearchOptions {
+        /**
+         * Sort key of the results, null keeps the storage order. Documents are
+         * ordered by id within equal keys, documents without the key come last.
+         */
+        private SortKey sortBy;
+        private boolean descending;
+        @Builder.Default
+        private int offset = 0;
+        @Builder.Default
+        private int limit = Integer.MAX_VALUE;
+    }
+
+    public enum FsyncPolicy {
+        /**
+         * Every save, and every saveAll batch as a whole, syncs the log to
+         * disk before it returns.
+         */
+        EVERY_WRITE,
+        /**
+         * A save returns once its record is synced, but concurrent saves share
+         * a single fsync.
+         */
+        GROUP_COMMIT,
+        /**
+         * Saves return immediately and the log is synced every [fsyncInterval];
+         * a crash can lose the saves of the last interval.
+         */
+        PERIODIC
+    }
+
+    public enum DocumentStorage {
+        /**
+         * All documents in a single concurrent hash map.
+         */
+        CONCURRENT_MAP,
+        /**
+         * Documents spread over [storageShards] independently sized maps by
+         * the hash of their id. Parallel searches scan whole shards per
+         * worker.
+         */
+        SHARDED,
+        /**
+         * Documents grouped into partitions by the [partitionUnit] of their
+         * [created] time. Scans of a created range only read the overlapping
+         * partitions, and old partitions can be sealed and dropped whole, see
+         * {@link #sealPartitionsBefore} and {@link #dropPartitionsBefore}.
+         * Lookups by id take a second hash probe.
+         */
+        TIME_PARTITIONED
+    }
+
+    public enum ContentStorage {
+        /**
+         * Contents stay on the Java heap as strings.
+         */
+        HEAP,
+        /**
+         * Contents are kept as UTF-8 bytes in a memory-mapped file and the heap
+         * only holds small handles to them.
+         */
+        MEMORY_MAPPED,
+        /**
+         * Contents stay on the Java heap compressed against a dictionary trained
+         * on the first stored contents, and are decoded when a search or the
+         * caller reads them, once per search candidate. On prose it keeps about
+         * a third less content on the heap, while every read decodes at some
+         * 400 MB/s, about 0.8 ms for a 300 KB content; it pays off for large
+         * contents read a few at a time, not for searches returning many.
+         */
+        COMPRESSED
+    }
+
+    @Data
+    @Builder
+    public static class Configuration {
+        @Builder.Default
+        private DocumentStorage documentStorage = DocumentStorage.CONCURRENT_MAP;
+        /**
+         * Number of shards of {@link DocumentStorage#SHARDED}, rounded up to a
+         * power of two.
+         */
+        @Builder.Default
+        private int storageShards = 64;
+        /**
+         * Length of the time bucket of a {@link DocumentStorage#TIME_PARTITIONED}
+         * partition, in UTC: hours, days, months or years.
+         */
+        @Builder.Default
+        private ChronoUnit partitionUnit = ChronoUnit.DAYS;
+        /**
+         * Age of the end of a partition after which it is sealed, null never
+         * seals automatically.
+         */
+        private Duration sealPartitionsAfter;
+        /**
+         * Directory sealed partitions are spilled to, null keeps them on the
+         * heap. Spilled documents are decoded on every read.
+         */
+        private Path partitionSpillDirectory;
+        /**
+         * Age of the end of a partition after which it is dropped with its
+         * documents, null keeps every partition.
+         */
+        private Duration partitionRetention;
+        @Builder.Default
+        private Duration partitionMaintenanceInterval = Duration.ofMinutes(1);
+        /**
+         * Number of documents the storage is sized for up front, so it does
+         * not resize while it is loaded.
+         */
+        private int expectedDocumentCount;
+        /**
+         * Length of the n-grams indexed for [containsContents] lookups. Terms
+         * shorter than this fall back to a full scan.
+         */
+        @Builder.Default
+        private int contentGramLength = 3;
+        /**
+         * Pool used to search large candidate sets in parallel, null keeps every
+         * search on the calling thread.
+         */
+        private ForkJoinPool parallelSearchPool;
+        /**
+         * Estimated number of candidates from which a search runs in parallel.
+         */
+        @Builder.Default
+        private long parallelSearchThreshold = 50_000;
+        /**
+         * Directory of the write-ahead log and snapshots, null keeps the
+         * documents in memory only.
+         */
+        private Path persistenceDirectory;
+        @Builder.Default
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+        @Builder.Default
+        private Duration fsyncInterval = Duration.ofMillis(100);
+        /**
+         * Interval between automatic snapshots, null disables them.
+         */
+        @Builder.Default
+        private Duration snapshotInterval = Duration.ofMinutes(10);
+        @Builder.Default
+        private ContentStorage contentStorage = ContentStorage.HEAP;
+        /**
+         * Directory of the scratch file used by {@link ContentStorage#MEMORY_MAPPED}.
+         */
+        @Builder.Default
+        private Path contentStorageDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        /**
+         * Total length of the contents kept decoded by
+         * {@link ContentStorage#COMPRESSED} for repeated point reads, such as
+         * findById of hot documents; 0 decodes them on every read. Scans
+         * never go through it.
+         */
+        private long decodedContentCacheSize;
+        /**
+         * Searches taking at least this long are logged with the request and
+         * the number of scanned documents, null disables the log.
+         */
+        private Duration slowSearchThreshold;
+        /**
+         * Maximum number of document ids kept by the search result cache, 0
+         * disables the cache. Results with more documents are not cached.
+         */
+        private long searchCacheCapacity;
+        /**
+         * Whether titles and contents are indexed word by word for
+         * {@link #searchRanked}, which makes every save more expensive.
+         */
+        private boolean fullTextIndex;
+        /**
+         * Whether {@link #findById} screens the ids with a Bloom filter of the
+         * stored ids first, at about 1.25 bytes per document. It answers
+         * misses without probing the storage, which pays off for large
+         * storages: at 3M documents a miss takes about 37 instead of 56 ns,
+         * while below some 100K documents the storage probe is cheaper. Hits
+         * pay for the extra check.
+         */
+        private boolean findByIdBloomFilter;
+        /**
+         * Number of latest saves retained for {@link #changes(long)}, 0
+         * disables the change feed.
+         */
+        private int changeFeedCapacity;
+        /**
+         * Executor delivering change events to subscribers, null uses the
+         * common pool.
+         */
+        private Executor changeFeedExecutor;
+        /**
+         * Leader whose saves this manager replicates as a read-only replica,
+         * null for a standalone manager. The leader needs a change feed; the
+         * replica copies its whole storage when it starts and whenever it
+         * falls more than [changeFeedCapacity] saves behind. Documents the
+         * leader drops with its partitions are not replicated, a replica has
+         * to be configured with the same [partitionRetention].
+         */
+        private DocumentManager replicationLeader;
+        /**
+         * Time between the end of a pull of the leader's saves and the next.
+         */
+        @Builder.Default
+        private Duration replicationInterval = Duration.ofMillis(10);
+        /**
+         * Replication lag beyond which the reads of a replica fail with an
+         * {@link IllegalStateException}, null serves them however stale.
+         */
+        private Duration maxReplicationLag;
+        /**
+         * Executor running the asynchronous calls, null runs every call on a
+         * new virtual thread.
+         */
+        private Executor asyncExecutor;
+        /**
+         * Asynchronous calls and search publications in progress at once,
+         * further ones fail right away instead of queueing.
+         */
+        @Builder.Default
+        private int maxConcurrentAsyncCalls = 1_000;
+        /**
+         * Time after which the future of an asynchronous call fails with a
+         * {@link java.util.concurrent.TimeoutException} and its search stops,
+         * null for none.
+         */
+        private Duration asyncTimeout;
+    }
+
+    @Data
+    @Builder
+    public static class OperationMetrics {
+        private long count;
+        private Duration mean;
+        /**
+         * Percentiles are accurate to about 3%.
+         */
+        private Duration p50;
+        private Duration p90;
+        private Duration p99;
+        private Duration p999;
+        private Duration max;
+    }
+
+    @Data
+    @Builder
+    public static class Metrics {
+        private long documentCount;
+        private OperationMetrics save;
+        private OperationMetrics saveAll;
+        private OperationMetrics findById;
+        private long findByIdMisses;
+        /**
+         * Searches with and without {@link SearchOptions}. Streams returned by
+         * {@link #searchStream(SearchRequest)} are consumed by the caller and
+         * are not measured.
+         */
+        private OperationMetrics search;
+        /**
+         * Searches broken down by the {@link SearchRequest} fields that were
+         * set, the created range counting as one field.
+         */
+        private Map<Set<SearchPredicate>, OperationMetrics> searchesByFields;
+        private long slowSearches;
+        /**
+         * Null when the search result cache is disabled.
+         */
+        private SearchCacheMetrics searchCache;
+    }
+
+    @Data
+    @Builder
+    public static class SearchCacheMetrics {
+        private long hits;
+        private long misses;
+        private long evictions;
+        /**
+         * Entries evicted because a save could change their result.
+         */
+        private long invalidations;
+        private long entries;
+        private long cachedIds;
+    }
+
 }
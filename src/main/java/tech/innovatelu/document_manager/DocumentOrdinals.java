@@ -0,0 +1,88 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense int ordinals of document ids, so indexes can post primitive ordinals
+ * instead of document keys. The ordinal of a released id is handed out again, so
+ * ordinals stay below the peak number of documents an index held at once.
+ * <p>
+ * Callers index and release an id under the index lock of that id; looking up
+ * an assigned ordinal takes no lock, only handing out a new one does.
+ */
+class DocumentOrdinals {
+    private final Map<DocumentKey, Integer> ordinalsById = new ConcurrentHashMap<>();
+    /**
+     * Null at released ordinals. Written under this object's lock only.
+     */
+    private volatile DocumentKey[] idsByOrdinal = new DocumentKey[1024];
+    private int[] releasedOrdinals = new int[64];
+    private int releasedCount;
+    private int ordinalCount;
+
+    /**
+     * @return ordinal of the [id], assigned on the first call
+     */
+    int ordinalOf(DocumentKey id) {
+        Integer ordinal = ordinalsById.get(id);
+        return ordinal == null ? assign(id)
+                               : ordinal;
+    }
+
+    /**
+     * @return ordinal of the [id], -1 if it has none
+     */
+    int find(DocumentKey id) {
+        Integer ordinal = ordinalsById.get(id);
+        return ordinal == null ? -1
+                               : ordinal;
+    }
+
+    /**
+     * @return id holding the [ordinal], null if it is released
+     */
+    DocumentKey idOf(int ordinal) {
+        DocumentKey[] ids = idsByOrdinal;
+        return ordinal < ids.length ? ids[ordinal]
+                                    : null;
+    }
+
+    /**
+     * The caller must have removed every posting of the ordinal before, or
+     * the next id getting it inherits them.
+     */
+    synchronized void release(DocumentKey id) {
+        Integer ordinal = ordinalsById.remove(id);
+        if (ordinal == null)
+            return;
+
+        idsByOrdinal[ordinal] = null;
+        if (releasedCount == releasedOrdinals.length)
+            releasedOrdinals = Arrays.copyOf(releasedOrdinals,
+                                             releasedCount * 2);
+        releasedOrdinals[releasedCount++] = ordinal;
+    }
+
+    private synchronized int assign(DocumentKey id) {
+        Integer assignedOrdinal = ordinalsById.get(id);
+        if (assignedOrdinal != null)
+            return assignedOrdinal;
+
+        int ordinal;
+        if (releasedCount > 0) {
+            ordinal = releasedOrdinals[--releasedCount];
+        } else {
+            if (ordinalCount == idsByOrdinal.length)
+                idsByOrdinal = Arrays.copyOf(idsByOrdinal,
+                                             ordinalCount * 2);
+            ordinal = ordinalCount++;
+        }
+        idsByOrdinal[ordinal] = id;
+        ordinalsById.put(id,
+                         ordinal);
+        return ordinal;
+    }
+
+}
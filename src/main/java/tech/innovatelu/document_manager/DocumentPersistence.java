@@ -0,0 +1,213 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.FsyncPolicy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Makes the document storage durable: every save reserves its record of the
+ * {@link WriteAheadLog} as it is applied in memory, appends it right after
+ * and returns once the log is as durable as the fsync policy requires.
+ * Periodic snapshots bound how much of the log has to be replayed on
+ * startup.
+ */
+class DocumentPersistence implements Closeable {
+    private static final System.Logger LOGGER = System.getLogger(DocumentPersistence.class.getName());
+
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final Supplier<Iterator<Document>> storedDocuments;
+    /**
+     * Writers hold the read lock while they log and apply documents, so the
+     * snapshot, which takes the write lock to pick its sequence, never covers a
+     * logged record that is not in memory yet.
+     */
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService scheduler;
+    private final FsyncPolicy fsyncPolicy;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+
+    DocumentPersistence(Path directory,
+                        FsyncPolicy fsyncPolicy,
+                        Duration fsyncInterval,
+                        Duration snapshotInterval,
+                        Supplier<Iterator<Document>> storedDocuments) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.writeAheadLog = new WriteAheadLog(directory,
+                                               fsyncPolicy);
+        this.snapshotStore = new SnapshotStore(directory);
+        this.storedDocuments = storedDocuments;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable,
+                                       "document-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the latest snapshot, replays the log written after it and starts
+     * the background fsync and snapshot tasks.
+     *
+     * @param restore - applies a recovered document to the storage
+     */
+    void recover(Consumer<Document> restore) {
+        try {
+            long snapshotSequence = snapshotStore.load(restore);
+            writeAheadLog.recover(snapshotSequence,
+                                  restore);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.PERIODIC)
+            schedule(this::sync,
+                     fsyncInterval);
+        if (snapshotInterval != null)
+            schedule(this::snapshot,
+                     snapshotInterval);
+    }
+
+    /**
+     * Runs [write], which applies documents to memory and {@link #log logs}
+     * them, and then waits until the log is as durable as the fsync policy
+     * requires. A whole batch waits for the log once, so it costs at most one
+     * fsync, and its records reach the file in one write unless they overflow
+     * the log buffer.
+     */
+    <T> T write(Supplier<T> write) {
+        T result;
+        long sequence;
+        checkpointLock.readLock()
+                      .lock();
+        try {
+            result = write.get();
+            sequence = writeAheadLog.lastSequence();
+        } finally {
+            checkpointLock.readLock()
+                          .unlock();
+        }
+
+        try {
+            writeAheadLog.awaitDurable(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Reserves the log record of a document. Must be called from inside
+     * {@link #write}, at the point where the document is applied to memory,
+     * and be followed by {@link #log} with the returned sequence.
+     *
+     * @return sequence of the record
+     */
+    long reserve() {
+        return writeAheadLog.reserve();
+    }
+
+    /**
+     * Appends the [document] to the log as the record [sequence] reserved
+     * before, or releases the [sequence] if the [document] is null because it
+     * was not applied.
+     */
+    void log(long sequence,
+             Document document) {
+        try {
+            writeAheadLog.append(sequence,
+                                 document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the storage and drops the log segments it covers.
+     */
+    synchronized void snapshot() {
+        try {
+            long sequence;
+            checkpointLock.writeLock()
+                          .lock();
+            try {
+                sequence = writeAheadLog.lastSequence();
+                writeAheadLog.roll();
+            } finally {
+                checkpointLock.writeLock()
+                              .unlock();
+            }
+
+            if (sequence == snapshotStore.latestSequence())
+                return;
+
+            snapshotStore.write(sequence,
+                                storedDocuments.get());
+            writeAheadLog.deleteSegmentsBefore(sequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1,
+                                       TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+        writeAheadLog.close();
+    }
+
+    private void sync() {
+        try {
+            writeAheadLog.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void schedule(Runnable task,
+                          Duration interval) {
+        scheduler.scheduleWithFixedDelay(() -> runLoggingFailures(task),
+                                         interval.toMillis(),
+                                         interval.toMillis(),
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    private void runLoggingFailures(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                       "Background persistence task failed",
+                       e);
+        }
+    }
+
+}
@@ -0,0 +1,498 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Inverted word index over {@link Document#getTitle()} and
+ * {@link Document#getContent()} ranking documents by BM25. Title words count
+ * {@value #TITLE_WEIGHT} times, as if the title was repeated in the content.
+ * <p>
+ * Every document gets a dense {@link DocumentOrdinals} ordinal on its first
+ * save, handed out again once the document is removed, and posting lists keep
+ * the ordinals in ascending order, so a query walks all its lists in step
+ * and keeps the best [k] documents in a bounded heap. It skips with MaxScore:
+ * once the heap is full, terms whose upper bounds together cannot lift a
+ * document over the worst kept score are only probed for documents found
+ * through the other terms.
+ */
+class FullTextIndex implements DocumentIndex {
+    static final int TITLE_WEIGHT = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Postings> postingsByTerm = new ConcurrentHashMap<>();
+    private final DocumentOrdinals ordinals = new DocumentOrdinals();
+    /**
+     * Indexed by ordinal and guarded by this index. Readers see the lengths
+     * without locking; a length read while its document is re-indexed, or
+     * while its ordinal passes to another document, only skews that
+     * document's score.
+     */
+    private volatile int[] lengthsByOrdinal = new int[1024];
+    private String[][] termsByOrdinal = new String[1024][];
+    private volatile int documentCount;
+    private volatile long totalLength;
+
+    @Override
+    public void index(DocumentKey id,
+                      Document document) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(document.getContent(),
+                              1,
+                              frequencies)
+                     + addTerms(document.getTitle(),
+                                TITLE_WEIGHT,
+                                frequencies);
+        int ordinal;
+        String[] previousTerms;
+        synchronized (this) {
+            ordinal = ordinals.ordinalOf(id);
+            ensureCapacity(ordinal);
+            previousTerms = termsByOrdinal[ordinal];
+            updateLength(ordinal,
+                         previousTerms == null ? -1
+                                               : lengthsByOrdinal[ordinal],
+                         frequencies.isEmpty() ? -1
+                                               : length);
+            termsByOrdinal[ordinal] = frequencies.isEmpty() ? null
+                                                            : frequencies.keySet()
+                                                                         .toArray(new String[0]);
+        }
+
+        if (previousTerms != null) {
+            for (String term : previousTerms) {
+                if (!frequencies.containsKey(term))
+                    postingsByTerm.computeIfPresent(term,
+                                                    (key, postings) -> postings.remove(ordinal) ? null
+                                                                                                : postings);
+            }
+        }
+        frequencies.forEach((term, frequency) -> postingsByTerm.compute(term,
+                                                                         (key, postings) -> {
+                                                                             Postings termPostings = postings == null ? new Postings()
+                                                                                                                      : postings;
+                                                                             termPostings.put(ordinal,
+                                                                                              frequency);
+                                                                             return termPostings;
+                                                                         }));
+    }
+
+    /**
+     * Releases the ordinal of the [id] once its postings are gone, so removed
+     * documents, like the ones of dropped partitions, leave no slot behind.
+     */
+    @Override
+    public void remove(DocumentKey id) {
+        int ordinal = ordinals.find(id);
+        if (ordinal < 0)
+            return;
+
+        String[] previousTerms;
+        synchronized (this) {
+            previousTerms = termsByOrdinal[ordinal];
+            if (previousTerms != null)
+                updateLength(ordinal,
+                             lengthsByOrdinal[ordinal],
+                             -1);
+            termsByOrdinal[ordinal] = null;
+        }
+        if (previousTerms != null) {
+            for (String term : previousTerms) {
+                postingsByTerm.computeIfPresent(term,
+                                                (key, postings) -> postings.remove(ordinal) ? null
+                                                                                            : postings);
+            }
+        }
+        ordinals.release(id);
+    }
+
+    /**
+     * @param query  - free text, split into terms like the documents
+     * @param k      - maximum number of hits
+     * @param filter - whether a document id may be returned, checked only for
+     *               documents that would enter the top [k]
+     * @return best [k] documents containing any query term, by descending
+     *         score and ascending ordinal within equal scores
+     */
+    List<Hit> topK(String query,
+                   int k,
+                   Predicate<DocumentKey> filter) {
+        List<TermCursor> cursors = cursorsOf(query);
+        if (k == 0
+            || cursors.isEmpty())
+            return new ArrayList<>();
+
+        cursors.sort(Comparator.comparingDouble(cursor -> cursor.upperBound));
+        double[] upperBoundSums = new double[cursors.size()];
+        double upperBoundSum = 0;
+        for (int index = 0; index < cursors.size(); index++) {
+            upperBoundSum += cursors.get(index).upperBound;
+            upperBoundSums[index] = upperBoundSum;
+        }
+
+        double averageLength = Math.max(1,
+                                        (double) totalLength / Math.max(1,
+                                                                        documentCount));
+        Comparator<Hit> worstFirst = Comparator.comparingDouble(Hit::getScore)
+                                               .thenComparing(Hit::getOrdinal,
+                                                              Comparator.reverseOrder());
+        PriorityQueue<Hit> worstOnTop = new PriorityQueue<>(worstFirst);
+        double threshold = 0;
+        // Terms before it are non-essential: they only add to documents found
+        // through the essential ones.
+        int firstEssential = 0;
+
+        while (firstEssential < cursors.size()) {
+            int ordinal = Integer.MAX_VALUE;
+            for (int index = firstEssential; index < cursors.size(); index++) {
+                ordinal = Math.min(ordinal,
+                                   cursors.get(index)
+                                          .ordinal());
+            }
+            if (ordinal == Integer.MAX_VALUE)
+                break;
+
+            int[] lengths = lengthsByOrdinal;
+            int length = ordinal < lengths.length ? lengths[ordinal]
+                                                  : 0;
+            double score = 0;
+            for (int index = firstEssential; index < cursors.size(); index++) {
+                TermCursor cursor = cursors.get(index);
+                if (cursor.ordinal() == ordinal) {
+                    score += cursor.score(length,
+                                          averageLength);
+                    cursor.next();
+                }
+            }
+            boolean competitive = true;
+            for (int index = firstEssential - 1; index >= 0; index--) {
+                if (worstOnTop.size() == k
+                    && score + upperBoundSums[index] <= threshold) {
+                    competitive = false;
+                    break;
+                }
+                TermCursor cursor = cursors.get(index);
+                if (cursor.advanceTo(ordinal))
+                    score += cursor.score(length,
+                                          averageLength);
+            }
+            if (!competitive
+                || worstOnTop.size() == k && score <= threshold)
+                continue;
+
+            DocumentKey id = ordinals.idOf(ordinal);
+            if (id == null
+                || !filter.test(id))
+                continue;
+
+            worstOnTop.add(new Hit(id,
+                                   ordinal,
+                                   score));
+            if (worstOnTop.size() > k)
+                worstOnTop.poll();
+            if (worstOnTop.size() == k) {
+                threshold = worstOnTop.peek()
+                                      .getScore();
+                while (firstEssential < cursors.size()
+                       && upperBoundSums[firstEssential] <= threshold) {
+                    firstEssential++;
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(worstOnTop);
+        hits.sort(worstFirst.reversed());
+        return hits;
+    }
+
+    /**
+     * Lower-cased runs of letters and digits.
+     */
+    static List<String> termsOf(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null)
+            return terms;
+
+        StringBuilder term = new StringBuilder();
+        text.codePoints()
+            .forEach(codePoint -> {
+                if (Character.isLetterOrDigit(codePoint)) {
+                    term.appendCodePoint(Character.toLowerCase(codePoint));
+                } else if (!term.isEmpty()) {
+                    terms.add(term.toString());
+                    term.setLength(0);
+                }
+            });
+        if (!term.isEmpty())
+            terms.add(term.toString());
+        return terms;
+    }
+
+    private int addTerms(String text,
+                         int weight,
+                         Map<String, Integer> frequencies) {
+        List<String> terms = termsOf(text);
+        for (String term : terms) {
+            frequencies.merge(term,
+                              weight,
+                              Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    /**
+     * @param previousLength - length counted so far, -1 if not counted
+     * @param length         - length to count, -1 to stop counting it
+     */
+    private void updateLength(int ordinal,
+                              int previousLength,
+                              int length) {
+        if (previousLength >= 0) {
+            totalLength -= previousLength;
+            documentCount--;
+        }
+        if (length >= 0) {
+            totalLength += length;
+            documentCount++;
+        }
+        lengthsByOrdinal[ordinal] = Math.max(length,
+                                             0);
+    }
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal < termsByOrdinal.length)
+            return;
+
+        int capacity = Math.max(ordinal + 1,
+                                termsByOrdinal.length * 2);
+        termsByOrdinal = Arrays.copyOf(termsByOrdinal,
+                                       capacity);
+        lengthsByOrdinal = Arrays.copyOf(lengthsByOrdinal,
+                                         capacity);
+    }
+
+    private List<TermCursor> cursorsOf(String query) {
+        int documents = Math.max(1,
+                                 documentCount);
+        List<TermCursor> cursors = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(termsOf(query))) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null)
+                continue;
+
+            PostingsView view = postings.view;
+            if (view.size > 0)
+                cursors.add(new TermCursor(view,
+                                           Math.log(1 + (documents - view.size + 0.5) / (view.size + 0.5))));
+        }
+        return cursors;
+    }
+
+    @Value
+    static class Hit {
+        DocumentKey id;
+        int ordinal;
+        double score;
+    }
+
+    /**
+     * Ordinals and term frequencies of the documents containing a term, sorted
+     * by ordinal. Mutations run inside the {@link ConcurrentHashMap#compute} of
+     * the term and publish a new view; appends reuse the arrays past the end
+     * of the published view, anything else copies them, so a view never
+     * changes under a reader except for the frequency of a re-indexed entry.
+     */
+    private static class Postings {
+        private volatile PostingsView view = new PostingsView(new int[4],
+                                                              new int[4],
+                                                              0,
+                                                              0);
+
+        void put(int ordinal,
+                 int frequency) {
+            PostingsView current = view;
+            int index = Arrays.binarySearch(current.ordinals,
+                                            0,
+                                            current.size,
+                                            ordinal);
+            int maxFrequency = Math.max(current.maxFrequency,
+                                        frequency);
+            if (index >= 0) {
+                current.frequencies[index] = frequency;
+                view = new PostingsView(current.ordinals,
+                                        current.frequencies,
+                                        current.size,
+                                        maxFrequency);
+                return;
+            }
+
+            int insertion = -index - 1;
+            if (insertion == current.size
+                && current.size < current.ordinals.length) {
+                current.ordinals[insertion] = ordinal;
+                current.frequencies[insertion] = frequency;
+                view = new PostingsView(current.ordinals,
+                                        current.frequencies,
+                                        current.size + 1,
+                                        maxFrequency);
+                return;
+            }
+
+            int capacity = current.size < current.ordinals.length ? current.ordinals.length
+                                                                   : current.ordinals.length * 2;
+            int[] ordinals = new int[capacity];
+            int[] frequencies = new int[capacity];
+            System.arraycopy(current.ordinals,
+                             0,
+                             ordinals,
+                             0,
+                             insertion);
+            System.arraycopy(current.frequencies,
+                             0,
+                             frequencies,
+                             0,
+                             insertion);
+            ordinals[insertion] = ordinal;
+            frequencies[insertion] = frequency;
+            System.arraycopy(current.ordinals,
+                             insertion,
+                             ordinals,
+                             insertion + 1,
+                             current.size - insertion);
+            System.arraycopy(current.frequencies,
+                             insertion,
+                             frequencies,
+                             insertion + 1,
+                             current.size - insertion);
+            view = new PostingsView(ordinals,
+                                    frequencies,
+                                    current.size + 1,
+                                    maxFrequency);
+        }
+
+        /**
+         * The maximum frequency is kept, it stays a valid upper bound.
+         *
+         * @return whether the postings are empty now
+         */
+        boolean remove(int ordinal) {
+            PostingsView current = view;
+            int index = Arrays.binarySearch(current.ordinals,
+                                            0,
+                                            current.size,
+                                            ordinal);
+            if (index < 0)
+                return current.size == 0;
+
+            int[] ordinals = new int[current.ordinals.length];
+            int[] frequencies = new int[current.ordinals.length];
+            System.arraycopy(current.ordinals,
+                             0,
+                             ordinals,
+                             0,
+                             index);
+            System.arraycopy(current.frequencies,
+                             0,
+                             frequencies,
+                             0,
+                             index);
+            System.arraycopy(current.ordinals,
+                             index + 1,
+                             ordinals,
+                             index,
+                             current.size - index - 1);
+            System.arraycopy(current.frequencies,
+                             index + 1,
+                             frequencies,
+                             index,
+                             current.size - index - 1);
+            view = new PostingsView(ordinals,
+                                    frequencies,
+                                    current.size - 1,
+                                    current.maxFrequency);
+            return current.size == 1;
+        }
+    }
+
+    @Value
+    private static class PostingsView {
+        int[] ordinals;
+        int[] frequencies;
+        int size;
+        int maxFrequency;
+    }
+
+    private static class TermCursor {
+        private final PostingsView postings;
+        private final double idf;
+        /**
+         * Score of the most frequent occurrence in a document of zero length,
+         * which no document of the list can exceed.
+         */
+        private final double upperBound;
+        private int position;
+
+        private TermCursor(PostingsView postings,
+                           double idf) {
+            this.postings = postings;
+            this.idf = idf;
+            this.upperBound = idf * postings.maxFrequency * (K1 + 1) / (postings.maxFrequency + K1 * (1 - B));
+        }
+
+        int ordinal() {
+            return position < postings.size ? postings.ordinals[position]
+                                            : Integer.MAX_VALUE;
+        }
+
+        void next() {
+            position++;
+        }
+
+        /**
+         * Gallops to the first entry at or after [target].
+         *
+         * @return whether the cursor is on [target]
+         */
+        boolean advanceTo(int target) {
+            if (ordinal() >= target)
+                return ordinal() == target;
+
+            int step = 1;
+            int low = position;
+            int high = position + 1;
+            while (high < postings.size
+                   && postings.ordinals[high] < target) {
+                low = high;
+                step <<= 1;
+                high = position + step;
+            }
+            int index = Arrays.binarySearch(postings.ordinals,
+                                            low,
+                                            Math.min(high + 1,
+                                                     postings.size),
+                                            target);
+            position = index >= 0 ? index
+                                  : -index - 1;
+            return index >= 0;
+        }
+
+        double score(int length,
+                     double averageLength) {
+            double frequency = postings.frequencies[position];
+            return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+
+/**
+ * Keeps contents as plain strings on the Java heap.
+ */
+class HeapContentStore implements ContentStore {
+
+    @Override
+    public Content store(String content) {
+        return new HeapContent(content);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Value
+    private static class HeapContent implements Content {
+        String content;
+
+        @Override
+        public String read() {
+            return content;
+        }
+
+        @Override
+        public Content forSinglePass() {
+            return this;
+        }
+    }
+
+}
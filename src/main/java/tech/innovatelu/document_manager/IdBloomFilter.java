@@ -0,0 +1,185 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Blocked Bloom filter of the stored ids, so {@link DocumentManager#findById}
+ * answers most misses without probing the storage. All the bits of an id sit
+ * in one 64-byte block, one bit per word, so a lookup reads a single cache
+ * line. At {@value #BITS_PER_ID} bits per id about 1% of the missing ids pass.
+ * <p>
+ * Bits are never cleared: a removed id only passes as a false positive. When
+ * the storage outgrows the filter, the save that notices builds a filter twice
+ * as large from the stored ids, then it replaces the filter. Other saves do not
+ * wait for it: they add to both filters meanwhile.
+ */
+class IdBloomFilter implements DocumentIndex {
+    static final int BITS_PER_ID = 10;
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int MAX_BLOCKS = 1 << 27;
+    private static final int[] SALTS = { 0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b,
+            0x9efc4947, 0x5c6bfb31 };
+
+    private final LongSupplier storedIdCount;
+    private final Supplier<Stream<DocumentKey>> storedIds;
+    private volatile Filter filter;
+    private volatile Filter growingFilter;
+    private final AtomicBoolean growing = new AtomicBoolean();
+
+    /**
+     * @param expectedIds   - number of ids the filter is sized for up front
+     * @param storedIdCount - number of stored documents
+     * @param storedIds     - ids of the stored documents, weakly consistent
+     */
+    IdBloomFilter(long expectedIds,
+                  LongSupplier storedIdCount,
+                  Supplier<Stream<DocumentKey>> storedIds) {
+        this.filter = new Filter(expectedIds);
+        this.storedIdCount = storedIdCount;
+        this.storedIds = storedIds;
+    }
+
+    /**
+     * Must be called after the document is stored. Reading the growing filter
+     * first guarantees that an id missed by it was stored before the growing
+     * filter started to read the stored ids, or is added to the new filter.
+     * Updates set no new bits and skip counting the stored ids.
+     */
+    @Override
+    public void index(DocumentKey id,
+                      Document document) {
+        Filter nextFilter = growingFilter;
+        Filter currentFilter = filter;
+        boolean newBits = currentFilter.add(id);
+        if (nextFilter != null)
+            nextFilter.add(id);
+        if (newBits
+            && storedIdCount.getAsLong() > currentFilter.capacity)
+            grow();
+    }
+
+    @Override
+    public void remove(DocumentKey id) {
+    }
+
+    /**
+     * @return false if no document with the [id] is stored, true if one may be
+     */
+    boolean mightContain(DocumentKey id) {
+        return filter.mightContain(id);
+    }
+
+    /**
+     * A single save rebuilds at a time. A save that finds a rebuild running
+     * returns at once, as the ids it stored are read by it or were added to
+     * the growing filter.
+     */
+    private void grow() {
+        if (!growing.compareAndSet(false,
+                                   true))
+            return;
+
+        try {
+            long idCount = storedIdCount.getAsLong();
+            if (idCount <= filter.capacity)
+                return;
+
+            Filter nextFilter = new Filter(Math.max(idCount,
+                                                    filter.capacity) * 2);
+            growingFilter = nextFilter;
+            try (Stream<DocumentKey> ids = storedIds.get()) {
+                ids.forEach(nextFilter::add);
+            }
+            filter = nextFilter;
+            growingFilter = null;
+        } finally {
+            growing.set(false);
+        }
+    }
+
+    private static final class Filter {
+        private final AtomicLongArray words;
+        private final int blockMask;
+        private final long capacity;
+
+        /**
+         * The block count is rounded up to a power of two, which at most
+         * doubles the bits per id.
+         */
+        private Filter(long capacity) {
+            long blocks = Math.max(1,
+                                   capacity * BITS_PER_ID / (WORDS_PER_BLOCK * Long.SIZE));
+            int blockCount = (int) Math.min(1L << Long.SIZE - Long.numberOfLeadingZeros(blocks - 1),
+                                            MAX_BLOCKS);
+            this.words = new AtomicLongArray(blockCount * WORDS_PER_BLOCK);
+            this.blockMask = blockCount - 1;
+            this.capacity = (long) words.length() * Long.SIZE / BITS_PER_ID;
+        }
+
+        /**
+         * @return whether a bit was set that was clear before
+         */
+        private boolean add(DocumentKey id) {
+            long hash = hashOf(id);
+            int firstWord = blockOf(hash) * WORDS_PER_BLOCK;
+            boolean newBits = false;
+            for (int word = 0; word < WORDS_PER_BLOCK; word++) {
+                long bit = bitOf(hash,
+                                 word);
+                long bits = words.get(firstWord + word);
+                while ((bits & bit) == 0) {
+                    if (words.compareAndSet(firstWord + word,
+                                            bits,
+                                            bits | bit)) {
+                        newBits = true;
+                        break;
+                    }
+                    bits = words.get(firstWord + word);
+                }
+            }
+            return newBits;
+        }
+
+        /**
+         * Plain reads suffice: the bits of a save are set with a volatile
+         * write before it returns, so they are visible to every lookup that
+         * happens after it. Lookups concurrent with the save may miss them.
+         */
+        private boolean mightContain(DocumentKey id) {
+            long hash = hashOf(id);
+            int firstWord = blockOf(hash) * WORDS_PER_BLOCK;
+            for (int word = 0; word < WORDS_PER_BLOCK; word++) {
+                if ((words.getPlain(firstWord + word) & bitOf(hash,
+                                                         word)) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+        private int blockOf(long hash) {
+            return (int) (hash >>> 32) & blockMask;
+        }
+
+        private static long bitOf(long hash,
+                                  int word) {
+            return 1L << ((int) hash * SALTS[word] >>> 26);
+        }
+
+        /**
+         * Spreads the hash code of the id over 64 bits.
+         */
+        private static long hashOf(DocumentKey id) {
+            long hash = id.hashCode() * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+            hash *= 0xD6E8FEB86659FD93L;
+            return hash ^ hash >>> 32;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Metrics;
+import tech.innovatelu.document_manager.DocumentManager.OperationMetrics;
+import tech.innovatelu.document_manager.DocumentManager.SearchCacheMetrics;
+import tech.innovatelu.document_manager.DocumentManager.SearchPlan;
+import tech.innovatelu.document_manager.DocumentManager.SearchPredicate;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Counters and latency histograms of the {@link DocumentManager} operations.
+ * Searches are recorded in one histogram per combination of the
+ * {@link SearchRequest} fields that were set, so the hot combinations are
+ * visible, and searches slower than the configured threshold are logged.
+ */
+class Instrumentation {
+    private static final System.Logger LOGGER = System.getLogger(Instrumentation.class.getName());
+    private static final SearchPredicate[] SEARCH_PREDICATES = SearchPredicate.values();
+
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram saveAllLatency = new LatencyHistogram();
+    private final LatencyHistogram findByIdLatency = new LatencyHistogram();
+    private final LongAdder findByIdMisses = new LongAdder();
+    /**
+     * Indexed by the bit mask of the set fields, bit i standing for the i-th
+     * {@link SearchPredicate}.
+     */
+    private final LatencyHistogram[] searchLatencies = Stream.generate(LatencyHistogram::new)
+                                                             .limit(1L << SEARCH_PREDICATES.length)
+                                                             .toArray(LatencyHistogram[]::new);
+    private final LongAdder slowSearches = new LongAdder();
+    private final long slowSearchThresholdNanos;
+
+    /**
+     * @param slowSearchThreshold - searches taking at least this long are
+     *                            logged, null disables the log
+     */
+    Instrumentation(Duration slowSearchThreshold) {
+        this.slowSearchThresholdNanos = slowSearchThreshold == null ? -1
+                                                                    : slowSearchThreshold.toNanos();
+    }
+
+    void recordSave(long elapsedNanos) {
+        saveLatency.record(elapsedNanos);
+    }
+
+    void recordSaveAll(long elapsedNanos) {
+        saveAllLatency.record(elapsedNanos);
+    }
+
+    void recordFindById(long elapsedNanos,
+                        boolean found) {
+        findByIdLatency.record(elapsedNanos);
+        if (!found)
+            findByIdMisses.increment();
+    }
+
+    /**
+     * Counting the scanned documents costs an increment per candidate, so it
+     * is only done when the slow search log needs it.
+     *
+     * @return counter for the documents a search scans, null when the slow
+     *         search log is disabled
+     */
+    LongAdder newScanCounter() {
+        return slowSearchThresholdNanos < 0 ? null
+                                            : new LongAdder();
+    }
+
+    /**
+     * @param searchPlan       - executed plan, null for a search served from
+     *                         the result cache
+     * @param scannedDocuments - counter from {@link #newScanCounter()}, null
+     *                         for a search served from the result cache
+     */
+    void recordSearch(SearchRequest searchRequest,
+                      SearchPlan searchPlan,
+                      long elapsedNanos,
+                      LongAdder scannedDocuments) {
+        searchLatencies[fieldMaskOf(searchRequest)].record(elapsedNanos);
+        if (scannedDocuments == null
+            || elapsedNanos < slowSearchThresholdNanos)
+            return;
+
+        slowSearches.increment();
+        LOGGER.log(System.Logger.Level.WARNING,
+                   "Slow search took {0} ms and scanned {1} documents, driven by {2}: {3}",
+                   elapsedNanos / 1_000_000.0,
+                   scannedDocuments.sum(),
+                   searchPlan.isFullScan() ? "full scan"
+                                           : searchPlan.getDrivingPredicate(),
+                   searchRequest);
+    }
+
+    Metrics snapshot(long documentCount,
+                     SearchCacheMetrics searchCacheMetrics) {
+        Map<Set<SearchPredicate>, OperationMetrics> searchesByFields = new LinkedHashMap<>();
+        for (int fieldMask = 0; fieldMask < searchLatencies.length; fieldMask++) {
+            OperationMetrics searches = LatencyHistogram.summarize(searchLatencies[fieldMask]);
+            if (searches.getCount() > 0)
+                searchesByFields.put(fieldsOf(fieldMask),
+                                     searches);
+        }
+        return Metrics.builder()
+                      .documentCount(documentCount)
+                      .save(LatencyHistogram.summarize(saveLatency))
+                      .saveAll(LatencyHistogram.summarize(saveAllLatency))
+                      .findById(LatencyHistogram.summarize(findByIdLatency))
+                      .findByIdMisses(findByIdMisses.sum())
+                      .search(LatencyHistogram.summarize(searchLatencies))
+                      .searchesByFields(Collections.unmodifiableMap(searchesByFields))
+                      .slowSearches(slowSearches.sum())
+                      .searchCache(searchCacheMetrics)
+                      .build();
+    }
+
+    /**
+     * Same notion of a set field as {@link QueryPlanner#predicatesOf}, without
+     * allocating a list.
+     */
+    private static int fieldMaskOf(SearchRequest searchRequest) {
+        if (searchRequest == null)
+            return 0;
+
+        int fieldMask = 0;
+        if (searchRequest.getAuthorIds() != null)
+            fieldMask |= 1 << SearchPredicate.AUTHOR_IDS.ordinal();
+        if (searchRequest.getCreatedFrom() != null
+            || searchRequest.getCreatedTo() != null)
+            fieldMask |= 1 << SearchPredicate.CREATED_RANGE.ordinal();
+        if (searchRequest.getTitlePrefixes() != null)
+            fieldMask |= 1 << SearchPredicate.TITLE_PREFIXES.ordinal();
+        if (searchRequest.getContainsContents() != null)
+            fieldMask |= 1 << SearchPredicate.CONTAINS_CONTENTS.ordinal();
+        return fieldMask;
+    }
+
+    private static Set<SearchPredicate> fieldsOf(int fieldMask) {
+        Set<SearchPredicate> fields = EnumSet.noneOf(SearchPredicate.class);
+        for (SearchPredicate predicate : SEARCH_PREDICATES) {
+            if ((fieldMask & 1 << predicate.ordinal()) != 0)
+                fields.add(predicate);
+        }
+        return Collections.unmodifiableSet(fields);
+    }
+
+}
@@ -0,0 +1,118 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.OperationMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: every power of
+ * two is split into {@value #SUB_BUCKETS} equal buckets, which keeps the
+ * relative error of a recorded value around 3% over the whole range.
+ * Recording touches preallocated counters only, so it never allocates.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Longer latencies, about five hours, are recorded as this one.
+     */
+    private static final long MAX_TRACKABLE_NANOS = (1L << 44) - 1;
+    private static final int BUCKETS = bucketOf(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max,
+                                                                 0);
+
+    void record(long nanos) {
+        long trackedNanos = Math.min(Math.max(nanos,
+                                              0),
+                                     MAX_TRACKABLE_NANOS);
+        counts.incrementAndGet(bucketOf(trackedNanos));
+        totalNanos.add(trackedNanos);
+        maxNanos.accumulate(trackedNanos);
+    }
+
+    /**
+     * Merges the [histograms] into one summary. Values recorded while it is
+     * taken may or may not be included.
+     */
+    static OperationMetrics summarize(LatencyHistogram... histograms) {
+        long[] mergedCounts = new long[BUCKETS];
+        long count = 0;
+        long total = 0;
+        long max = 0;
+        for (LatencyHistogram histogram : histograms) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long bucketCount = histogram.counts.get(bucket);
+                mergedCounts[bucket] += bucketCount;
+                count += bucketCount;
+            }
+            total += histogram.totalNanos.sum();
+            max = Math.max(max,
+                           histogram.maxNanos.get());
+        }
+        return OperationMetrics.builder()
+                               .count(count)
+                               .mean(Duration.ofNanos(count == 0 ? 0
+                                                                 : total / count))
+                               .p50(percentile(mergedCounts,
+                                               count,
+                                               0.5))
+                               .p90(percentile(mergedCounts,
+                                               count,
+                                               0.9))
+                               .p99(percentile(mergedCounts,
+                                               count,
+                                               0.99))
+                               .p999(percentile(mergedCounts,
+                                                count,
+                                                0.999))
+                               .max(Duration.ofNanos(max))
+                               .build();
+    }
+
+    private static Duration percentile(long[] counts,
+                                       long count,
+                                       double quantile) {
+        if (count == 0)
+            return Duration.ZERO;
+
+        long rank = Math.max(1,
+                             (long) Math.ceil(count * quantile));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank)
+                return Duration.ofNanos(highestValueOf(bucket));
+        }
+        return Duration.ofNanos(MAX_TRACKABLE_NANOS);
+    }
+
+    /**
+     * Values below {@value #SUB_BUCKETS} get a bucket each; a larger value
+     * is located by its highest set bit and the {@value #SUB_BUCKET_BITS}
+     * bits following it.
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowestValue = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+
+}
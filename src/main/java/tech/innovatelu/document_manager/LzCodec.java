@@ -0,0 +1,252 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Arrays;
+
+/**
+ * LZ77 byte codec in the spirit of LZ4: no entropy coding, so decoding is
+ * little more than array copies. Matches may reach back into a preset
+ * dictionary, which is what makes short inputs compress at all.
+ * <p>
+ * An encoded block is a series of sequences, each a token byte holding the
+ * literal length in its high and the match length minus {@value #MIN_MATCH}
+ * in its low nibble, lengths of 15 and more continued in bytes of 255, the
+ * literals, and a two byte little endian match offset. The last sequence only
+ * has literals.
+ */
+class LzCodec {
+    static final LzCodec NO_DICTIONARY = new LzCodec(new byte[0]);
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_BITS = 12;
+    private static final int LENGTH_NIBBLE = 15;
+
+    private final byte[] dictionary;
+    /**
+     * Last dictionary position of every hash, copied by every encoding.
+     */
+    private final int[] dictionaryPositions;
+
+    /**
+     * @param dictionary - preset dictionary, its last {@value #MAX_OFFSET}
+     *                   bytes are used
+     */
+    LzCodec(byte[] dictionary) {
+        this.dictionary = Arrays.copyOfRange(dictionary,
+                                             Math.max(0,
+                                                      dictionary.length - MAX_OFFSET),
+                                             dictionary.length);
+        this.dictionaryPositions = new int[1 << HASH_BITS];
+        Arrays.fill(dictionaryPositions,
+                    -1);
+        for (int position = 0; position + MIN_MATCH <= this.dictionary.length; position++) {
+            dictionaryPositions[hash(this.dictionary,
+                                     position)] = position;
+        }
+    }
+
+    /**
+     * @return the encoded [input], null when encoding does not make it shorter
+     */
+    byte[] encode(byte[] input) {
+        byte[] window = Arrays.copyOf(dictionary,
+                                      dictionary.length + input.length);
+        System.arraycopy(input,
+                         0,
+                         window,
+                         dictionary.length,
+                         input.length);
+        int[] positions = dictionaryPositions.clone();
+        byte[] output = new byte[input.length];
+        int outputPosition = 0;
+        int literalsStart = dictionary.length;
+        int position = dictionary.length;
+
+        while (position + MIN_MATCH <= window.length) {
+            int hash = hash(window,
+                            position);
+            int candidate = positions[hash];
+            positions[hash] = position;
+            if (candidate < 0
+                || position - candidate > MAX_OFFSET
+                || !startsMatch(window,
+                                candidate,
+                                position)) {
+                position++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (position + matchLength < window.length
+                   && window[candidate + matchLength] == window[position + matchLength]) {
+                matchLength++;
+            }
+            int literalLength = position - literalsStart;
+            if (outputPosition + sequenceLength(literalLength,
+                                                matchLength) > output.length)
+                return null;
+
+            outputPosition = writeSequence(output,
+                                           outputPosition,
+                                           window,
+                                           literalsStart,
+                                           literalLength,
+                                           matchLength - MIN_MATCH);
+            output[outputPosition++] = (byte) (position - candidate);
+            output[outputPosition++] = (byte) ((position - candidate) >>> 8);
+            outputPosition = writeLength(output,
+                                         outputPosition,
+                                         matchLength - MIN_MATCH);
+            position += matchLength;
+            literalsStart = position;
+        }
+
+        int literalLength = window.length - literalsStart;
+        if (outputPosition + sequenceLength(literalLength,
+                                            0) >= output.length)
+            return null;
+
+        outputPosition = writeSequence(output,
+                                       outputPosition,
+                                       window,
+                                       literalsStart,
+                                       literalLength,
+                                       0);
+        return Arrays.copyOf(output,
+                             outputPosition);
+    }
+
+    /**
+     * @param length - length of the decoded bytes
+     */
+    byte[] decode(byte[] encoded,
+                  int length) {
+        byte[] output = new byte[length];
+        int inputPosition = 0;
+        int outputPosition = 0;
+        while (true) {
+            int token = encoded[inputPosition++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == LENGTH_NIBBLE) {
+                int lengthByte;
+                do {
+                    lengthByte = encoded[inputPosition++] & 0xFF;
+                    literalLength += lengthByte;
+                } while (lengthByte == 0xFF);
+            }
+            System.arraycopy(encoded,
+                             inputPosition,
+                             output,
+                             outputPosition,
+                             literalLength);
+            inputPosition += literalLength;
+            outputPosition += literalLength;
+            if (inputPosition == encoded.length)
+                return output;
+
+            int offset = (encoded[inputPosition++] & 0xFF) | (encoded[inputPosition++] & 0xFF) << 8;
+            int matchLength = token & LENGTH_NIBBLE;
+            if (matchLength == LENGTH_NIBBLE) {
+                int lengthByte;
+                do {
+                    lengthByte = encoded[inputPosition++] & 0xFF;
+                    matchLength += lengthByte;
+                } while (lengthByte == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+
+            int matchStart = outputPosition - offset;
+            if (matchStart < 0) {
+                int fromDictionary = Math.min(-matchStart,
+                                              matchLength);
+                System.arraycopy(dictionary,
+                                 dictionary.length + matchStart,
+                                 output,
+                                 outputPosition,
+                                 fromDictionary);
+                outputPosition += fromDictionary;
+                matchLength -= fromDictionary;
+                matchStart = 0;
+            }
+            if (outputPosition - matchStart >= matchLength) {
+                System.arraycopy(output,
+                                 matchStart,
+                                 output,
+                                 outputPosition,
+                                 matchLength);
+                outputPosition += matchLength;
+            } else {
+                for (int copied = 0; copied < matchLength; copied++) {
+                    output[outputPosition++] = output[matchStart++];
+                }
+            }
+        }
+    }
+
+    private static int hash(byte[] bytes,
+                            int position) {
+        int value = (bytes[position] & 0xFF)
+                    | (bytes[position + 1] & 0xFF) << 8
+                    | (bytes[position + 2] & 0xFF) << 16
+                    | (bytes[position + 3] & 0xFF) << 24;
+        return (value * -1640531535) >>> (Integer.SIZE - HASH_BITS);
+    }
+
+    private static boolean startsMatch(byte[] window,
+                                       int candidate,
+                                       int position) {
+        for (int index = 0; index < MIN_MATCH; index++) {
+            if (window[candidate + index] != window[position + index])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return upper bound of the encoded length of a sequence
+     */
+    private static int sequenceLength(int literalLength,
+                                      int matchLength) {
+        return 1 + literalLength / 0xFF + 1 + literalLength + 2 + matchLength / 0xFF + 1;
+    }
+
+    private static int writeSequence(byte[] output,
+                                     int outputPosition,
+                                     byte[] window,
+                                     int literalsStart,
+                                     int literalLength,
+                                     int matchLengthCode) {
+        output[outputPosition++] = (byte) (Math.min(literalLength,
+                                                    LENGTH_NIBBLE) << 4
+                                           | Math.min(matchLengthCode,
+                                                      LENGTH_NIBBLE));
+        outputPosition = writeLength(output,
+                                     outputPosition,
+                                     literalLength);
+        System.arraycopy(window,
+                         literalsStart,
+                         output,
+                         outputPosition,
+                         literalLength);
+        return outputPosition + literalLength;
+    }
+
+    /**
+     * Writes the continuation bytes of a [length] that does not fit its nibble.
+     */
+    private static int writeLength(byte[] output,
+                                   int outputPosition,
+                                   int length) {
+        if (length < LENGTH_NIBBLE)
+            return outputPosition;
+
+        int remaining = length - LENGTH_NIBBLE;
+        while (remaining >= 0xFF) {
+            output[outputPosition++] = (byte) 0xFF;
+            remaining -= 0xFF;
+        }
+        output[outputPosition++] = (byte) remaining;
+        return outputPosition;
+    }
+
+}
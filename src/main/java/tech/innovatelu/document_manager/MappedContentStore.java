@@ -0,0 +1,136 @@
+package tech.innovatelu.document_manager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps contents as UTF-8 bytes in a memory-mapped scratch file, outside of the
+ * Java heap, or as their chars if UTF-8 cannot hold them, see {@link Utf16}. The file is mapped in chunks and every content lives inside a
+ * single chunk, so a handle is just a chunk number, an offset and a length.
+ * <p>
+ * The file is append-only: space of overwritten contents is not reused until
+ * the store is recreated. Durability is the job of the write-ahead log, the
+ * file is deleted on close.
+ */
+class MappedContentStore implements ContentStore {
+    private static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int chunkSize;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private volatile MappedByteBuffer[] readableChunks = new MappedByteBuffer[0];
+    private long fileSize;
+    private int chunkPosition;
+
+    MappedContentStore(Path directory) {
+        this(directory,
+             DEFAULT_CHUNK_SIZE);
+    }
+
+    MappedContentStore(Path directory,
+                       int chunkSize) {
+        try {
+            Files.createDirectories(directory);
+            this.file = Files.createTempFile(directory,
+                                             "contents-",
+                                             ".bin");
+            this.channel = FileChannel.open(file,
+                                            StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Content store(String content) {
+        boolean chars = !Utf16.isWellFormed(content);
+        byte[] bytes = chars ? Utf16.encode(content)
+                             : content.getBytes(StandardCharsets.UTF_8);
+        MappedContent mappedContent = allocate(bytes.length,
+                                               chars);
+        readableChunks[mappedContent.chunk].put(mappedContent.offset,
+                                                bytes);
+        return mappedContent;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized MappedContent allocate(int length,
+                                                boolean chars) {
+        if (chunks.isEmpty()
+            || chunkPosition + length > chunks.get(chunks.size() - 1)
+                                              .capacity())
+            mapChunk(Math.max(chunkSize,
+                              length));
+
+        MappedContent mappedContent = new MappedContent(chunks.size() - 1,
+                                                        chunkPosition,
+                                                        length,
+                                                        chars);
+        chunkPosition += length;
+        return mappedContent;
+    }
+
+    private void mapChunk(int size) {
+        try {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                                   fileSize,
+                                   size));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fileSize += size;
+        chunkPosition = 0;
+        readableChunks = chunks.toArray(new MappedByteBuffer[0]);
+    }
+
+    private class MappedContent implements Content {
+        private final int chunk;
+        private final int offset;
+        private final int length;
+        /**
+         * Whether the bytes are UTF-16 chars rather than UTF-8.
+         */
+        private final boolean chars;
+
+        private MappedContent(int chunk,
+                              int offset,
+                              int length,
+                              boolean chars) {
+            this.chunk = chunk;
+            this.offset = offset;
+            this.length = length;
+            this.chars = chars;
+        }
+
+        @Override
+        public String read() {
+            byte[] bytes = new byte[length];
+            readableChunks[chunk].get(offset,
+                                      bytes);
+            return chars ? Utf16.decode(bytes)
+                         : new String(bytes,
+                                      StandardCharsets.UTF_8);
+        }
+    }
+
+}
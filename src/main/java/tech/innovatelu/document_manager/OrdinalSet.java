@@ -0,0 +1,374 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of {@link DocumentOrdinals} split into blocks of {@value #BLOCK_SIZE}
+ * consecutive ordinals, like a Roaring bitmap: a block with few ordinals keeps
+ * their low bits in a sorted char array, a fuller one in a bitset. Adding or
+ * removing an ordinal only rewrites its block, or flips a bit, whatever the
+ * size of the set, and an entry costs at most two bytes.
+ * <p>
+ * Writers must be serialized by the caller. Readers take no lock: a block is
+ * replaced as a whole or changed one bitset word at a time, so a reader
+ * running alongside a write sees the written ordinal or not, and every other
+ * ordinal as it was.
+ */
+class OrdinalSet {
+    private static final int BLOCK_BITS = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    /**
+     * Array blocks grow up to the size of a bitset, bitsets shrink back at
+     * half of it, so an ordinal flapping at the limit does not convert the
+     * block every time.
+     */
+    private static final int MAX_ARRAY_LENGTH = BLOCK_SIZE / Character.SIZE;
+    private static final int MIN_BITSET_CARDINALITY = MAX_ARRAY_LENGTH / 2;
+
+    private volatile Blocks blocks = new Blocks(new int[0],
+                                                new AtomicReferenceArray<>(0));
+    private volatile int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int ordinal) {
+        Block block = blocks.get(ordinal >>> BLOCK_BITS);
+        return block != null
+               && block.contains(ordinal & BLOCK_MASK);
+    }
+
+    /**
+     * @return whether the [ordinal] was missing
+     */
+    boolean add(int ordinal) {
+        Blocks currentBlocks = blocks;
+        int key = ordinal >>> BLOCK_BITS;
+        int position = currentBlocks.indexOf(key);
+        if (position < 0) {
+            blocks = currentBlocks.inserted(-position - 1,
+                                            key,
+                                            ArrayBlock.of((char) (ordinal & BLOCK_MASK)));
+            size++;
+            return true;
+        }
+
+        Block block = currentBlocks.blocks.get(position);
+        Block grownBlock = block.add((char) (ordinal & BLOCK_MASK));
+        if (grownBlock == null)
+            return false;
+
+        if (grownBlock != block)
+            currentBlocks.blocks.set(position,
+                                     grownBlock);
+        size++;
+        return true;
+    }
+
+    /**
+     * @return whether the [ordinal] was present
+     */
+    boolean remove(int ordinal) {
+        Blocks currentBlocks = blocks;
+        int position = currentBlocks.indexOf(ordinal >>> BLOCK_BITS);
+        if (position < 0)
+            return false;
+
+        Block block = currentBlocks.blocks.get(position);
+        Block shrunkBlock = block.remove((char) (ordinal & BLOCK_MASK));
+        if (shrunkBlock == null)
+            return false;
+
+        if (shrunkBlock.cardinality() == 0)
+            blocks = currentBlocks.removed(position);
+        else if (shrunkBlock != block)
+            currentBlocks.blocks.set(position,
+                                     shrunkBlock);
+        size--;
+        return true;
+    }
+
+    /**
+     * Calls the [action] for every ordinal contained in all the [sets], in
+     * ascending order. Walks the blocks of the smallest set and probes the
+     * others block by block.
+     */
+    static void forEachCommon(List<OrdinalSet> sets,
+                              IntConsumer action) {
+        Blocks[] setBlocks = sets.stream()
+                                 .sorted(Comparator.comparingInt(OrdinalSet::size))
+                                 .map(set -> set.blocks)
+                                 .toArray(Blocks[]::new);
+        Blocks smallest = setBlocks[0];
+        Block[] blocksOfKey = new Block[setBlocks.length];
+        for (int position = 0; position < smallest.keys.length; position++) {
+            int key = smallest.keys[position];
+            boolean inAll = true;
+            for (int set = 0; set < setBlocks.length && inAll; set++) {
+                blocksOfKey[set] = set == 0 ? smallest.blocks.get(position)
+                                            : setBlocks[set].get(key);
+                inAll = blocksOfKey[set] != null;
+            }
+            if (!inAll)
+                continue;
+
+            int base = key << BLOCK_BITS;
+            blocksOfKey[0].forEach(low -> {
+                for (int set = 1; set < blocksOfKey.length; set++) {
+                    if (!blocksOfKey[set].contains(low))
+                        return;
+                }
+                action.accept(base | low);
+            });
+        }
+    }
+
+    /**
+     * Sorted keys of the blocks with the blocks at the same positions. A block
+     * is replaced in place; adding or dropping a block publishes new arrays.
+     */
+    private static final class Blocks {
+        private final int[] keys;
+        private final AtomicReferenceArray<Block> blocks;
+
+        private Blocks(int[] keys,
+                       AtomicReferenceArray<Block> blocks) {
+            this.keys = keys;
+            this.blocks = blocks;
+        }
+
+        private int indexOf(int key) {
+            return Arrays.binarySearch(keys,
+                                       key);
+        }
+
+        private Block get(int key) {
+            int position = indexOf(key);
+            return position < 0 ? null
+                                : blocks.get(position);
+        }
+
+        private Blocks inserted(int position,
+                                int key,
+                                Block block) {
+            int[] insertedKeys = new int[keys.length + 1];
+            AtomicReferenceArray<Block> insertedBlocks = new AtomicReferenceArray<>(keys.length + 1);
+            for (int index = 0, target = 0; index <= keys.length; index++, target++) {
+                if (index == position) {
+                    insertedKeys[target] = key;
+                    insertedBlocks.set(target++,
+                                       block);
+                }
+                if (index < keys.length) {
+                    insertedKeys[target] = keys[index];
+                    insertedBlocks.set(target,
+                                       blocks.get(index));
+                }
+            }
+            return new Blocks(insertedKeys,
+                              insertedBlocks);
+        }
+
+        private Blocks removed(int position) {
+            int[] remainingKeys = new int[keys.length - 1];
+            AtomicReferenceArray<Block> remainingBlocks = new AtomicReferenceArray<>(keys.length - 1);
+            for (int index = 0, target = 0; index < keys.length; index++) {
+                if (index == position)
+                    continue;
+
+                remainingKeys[target] = keys[index];
+                remainingBlocks.set(target++,
+                                    blocks.get(index));
+            }
+            return new Blocks(remainingKeys,
+                              remainingBlocks);
+        }
+    }
+
+    private interface Block {
+
+        boolean contains(int low);
+
+        /**
+         * @return block holding the [low] bits, null if it was already there
+         */
+        Block add(char low);
+
+        /**
+         * @return block without the [low] bits, null if they were missing
+         */
+        Block remove(char low);
+
+        int cardinality();
+
+        void forEach(IntConsumer action);
+
+    }
+
+    /**
+     * Immutable, every change copies the array.
+     */
+    private static final class ArrayBlock implements Block {
+        private final char[] lows;
+
+        private ArrayBlock(char[] lows) {
+            this.lows = lows;
+        }
+
+        private static ArrayBlock of(char low) {
+            return new ArrayBlock(new char[] { low });
+        }
+
+        @Override
+        public boolean contains(int low) {
+            return Arrays.binarySearch(lows,
+                                       (char) low) >= 0;
+        }
+
+        @Override
+        public Block add(char low) {
+            int position = Arrays.binarySearch(lows,
+                                               low);
+            if (position >= 0)
+                return null;
+
+            if (lows.length == MAX_ARRAY_LENGTH) {
+                BitsetBlock bitset = new BitsetBlock(this);
+                bitset.add(low);
+                return bitset;
+            }
+
+            int insertion = -position - 1;
+            char[] grownLows = new char[lows.length + 1];
+            System.arraycopy(lows,
+                             0,
+                             grownLows,
+                             0,
+                             insertion);
+            grownLows[insertion] = low;
+            System.arraycopy(lows,
+                             insertion,
+                             grownLows,
+                             insertion + 1,
+                             lows.length - insertion);
+            return new ArrayBlock(grownLows);
+        }
+
+        @Override
+        public Block remove(char low) {
+            int position = Arrays.binarySearch(lows,
+                                               low);
+            if (position < 0)
+                return null;
+
+            char[] shrunkLows = new char[lows.length - 1];
+            System.arraycopy(lows,
+                             0,
+                             shrunkLows,
+                             0,
+                             position);
+            System.arraycopy(lows,
+                             position + 1,
+                             shrunkLows,
+                             position,
+                             lows.length - position - 1);
+            return new ArrayBlock(shrunkLows);
+        }
+
+        @Override
+        public int cardinality() {
+            return lows.length;
+        }
+
+        @Override
+        public void forEach(IntConsumer action) {
+            for (char low : lows) {
+                action.accept(low);
+            }
+        }
+    }
+
+    /**
+     * Changed in place one word at a time.
+     */
+    private static final class BitsetBlock implements Block {
+        private final AtomicLongArray words = new AtomicLongArray(BLOCK_SIZE / Long.SIZE);
+        private int cardinality;
+
+        private BitsetBlock(ArrayBlock arrayBlock) {
+            for (char low : arrayBlock.lows) {
+                words.set(low >>> 6,
+                          words.get(low >>> 6) | 1L << low);
+            }
+            this.cardinality = arrayBlock.lows.length;
+        }
+
+        @Override
+        public boolean contains(int low) {
+            return (words.get(low >>> 6) & 1L << low) != 0;
+        }
+
+        @Override
+        public Block add(char low) {
+            long word = words.get(low >>> 6);
+            if ((word & 1L << low) != 0)
+                return null;
+
+            words.set(low >>> 6,
+                      word | 1L << low);
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Block remove(char low) {
+            long word = words.get(low >>> 6);
+            if ((word & 1L << low) == 0)
+                return null;
+
+            if (cardinality - 1 < MIN_BITSET_CARDINALITY) {
+                char[] lows = new char[cardinality - 1];
+                int length = 0;
+                for (int index = 0; index < BLOCK_SIZE; index++) {
+                    if (index != low
+                        && contains(index))
+                        lows[length++] = (char) index;
+                }
+                return new ArrayBlock(lows);
+            }
+
+            words.set(low >>> 6,
+                      word & ~(1L << low));
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(IntConsumer action) {
+            for (int wordIndex = 0; wordIndex < words.length(); wordIndex++) {
+                long word = words.get(wordIndex);
+                while (word != 0) {
+                    action.accept(wordIndex << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+}
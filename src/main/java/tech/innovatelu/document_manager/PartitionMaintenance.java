@@ -0,0 +1,84 @@
+package tech.innovatelu.document_manager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically seals the partitions of a {@link TimePartitionedStorageEngine}
+ * older than [sealAfter] and drops the ones older than [retention]. The first
+ * run happens right away, so partitions that expired while the manager was
+ * down are dropped once the storage is recovered.
+ */
+class PartitionMaintenance implements AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(PartitionMaintenance.class.getName());
+
+    private final ScheduledExecutorService scheduler;
+    private final Duration sealAfter;
+    private final Duration retention;
+    private final Consumer<Instant> seal;
+    private final Consumer<Instant> drop;
+
+    /**
+     * @param interval  - time between the end of a run and the next one
+     * @param sealAfter - age of the end of a partition after which it is
+     *                  sealed, null never seals
+     * @param retention - age of the end of a partition after which it is
+     *                  dropped, null never drops
+     * @param seal      - seals the partitions ending before the given instant
+     * @param drop      - drops the partitions ending before the given instant
+     */
+    PartitionMaintenance(Duration interval,
+                         Duration sealAfter,
+                         Duration retention,
+                         Consumer<Instant> seal,
+                         Consumer<Instant> drop) {
+        this.sealAfter = sealAfter;
+        this.retention = retention;
+        this.seal = seal;
+        this.drop = drop;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable,
+                                       "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain,
+                                         0,
+                                         interval.toMillis(),
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1,
+                                       TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+    }
+
+    /**
+     * Drops first, so expired partitions are not sealed on their way out.
+     */
+    private void maintain() {
+        try {
+            Instant now = Instant.now();
+            if (retention != null)
+                drop.accept(now.minus(retention));
+            if (sealAfter != null)
+                seal.accept(now.minus(sealAfter));
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                       "Partition maintenance failed",
+                       e);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps index keys to the ids of the documents carrying them. Every mutation of
+ * a posting list happens inside {@link ConcurrentHashMap#compute}, so adding
+ * and removing ids for the same key never loses an update.
+ *
+ * @param <K> - type of the index key
+ */
+class PostingLists<K> {
+    private final Map<K, Set<DocumentKey>> idsByKey = new ConcurrentHashMap<>();
+
+    void add(K key,
+             DocumentKey id) {
+        idsByKey.compute(key,
+                         (existingKey, ids) -> {
+                             if (ids == null) {
+                                 ids = ConcurrentHashMap.newKeySet();
+                                 onKeyAdded(existingKey);
+                             }
+                             ids.add(id);
+                             return ids;
+                         });
+    }
+
+    void remove(K key,
+                DocumentKey id) {
+        idsByKey.computeIfPresent(key,
+                                  (existingKey, ids) -> {
+                                      ids.remove(id);
+                                      if (!ids.isEmpty())
+                                          return ids;
+
+                                      onKeyRemoved(existingKey);
+                                      return null;
+                                  });
+    }
+
+    Set<DocumentKey> get(K key) {
+        return idsByKey.getOrDefault(key,
+                                     Collections.emptySet());
+    }
+
+    protected void onKeyAdded(K key) {
+    }
+
+    protected void onKeyRemoved(K key) {
+    }
+
+}
@@ -0,0 +1,66 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hands the first half out when split, like an ordered spliterator does. The
+ * spliterators of {@link java.util.concurrent.ConcurrentHashMap} views hand
+ * out the second half, so a parallel stream over them concatenates its parts
+ * in another order than a sequential one walks them; over this one, both see
+ * the same order.
+ */
+final class PrefixSplittingSpliterator<T> implements Spliterator<T> {
+    private Spliterator<T> spliterator;
+
+    private PrefixSplittingSpliterator(Spliterator<T> spliterator) {
+        this.spliterator = spliterator;
+    }
+
+    static <T> Spliterator<T> of(Spliterator<T> spliterator) {
+        return new PrefixSplittingSpliterator<>(spliterator);
+    }
+
+    /**
+     * @return sequential stream of the [values], which splits into prefixes
+     */
+    static <T> Stream<T> stream(Collection<T> values) {
+        return StreamSupport.stream(of(values.spliterator()),
+                                    false);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        return spliterator.tryAdvance(action);
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        spliterator.forEachRemaining(action);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        Spliterator<T> suffix = spliterator.trySplit();
+        if (suffix == null)
+            return null;
+
+        Spliterator<T> prefix = new PrefixSplittingSpliterator<>(spliterator);
+        spliterator = suffix;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return spliterator.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return spliterator.characteristics();
+    }
+
+}
@@ -0,0 +1,126 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.SearchPlan;
+import tech.innovatelu.document_manager.DocumentManager.SearchPredicate;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Chooses how a {@link SearchRequest} is executed. Every predicate set on the
+ * request is costed through its index, the cheapest one drives the search and
+ * the others are evaluated as residual filters on its candidates. When no index
+ * beats a plain scan of the storage, the search falls back to a full scan,
+ * costed by the documents the storage reads for the created range.
+ */
+class QueryPlanner {
+    /**
+     * Cost of fetching one candidate through an index relative to checking one
+     * document during a full scan: every candidate pays an extra storage lookup.
+     */
+    private static final long INDEX_CANDIDATE_COST = 2;
+
+    private final TitlePrefixIndex titlePrefixIndex;
+    private final ContentNGramIndex contentNGramIndex;
+    private final AuthorIndex authorIndex;
+    private final CreatedIndex createdIndex;
+    private final StorageEngine documentStorage;
+
+    QueryPlanner(TitlePrefixIndex titlePrefixIndex,
+                 ContentNGramIndex contentNGramIndex,
+                 AuthorIndex authorIndex,
+                 CreatedIndex createdIndex,
+                 StorageEngine documentStorage) {
+        this.titlePrefixIndex = titlePrefixIndex;
+        this.contentNGramIndex = contentNGramIndex;
+        this.authorIndex = authorIndex;
+        this.createdIndex = createdIndex;
+        this.documentStorage = documentStorage;
+    }
+
+    SearchPlan plan(SearchRequest searchRequest) {
+        if (searchRequest == null)
+            return SearchPlan.builder()
+                             .estimatedCandidates(documentStorage.size())
+                             .estimatedMatches(Collections.emptyMap())
+                             .residualPredicates(Collections.emptyList())
+                             .build();
+
+        long fullScanCost = documentStorage.scanSize(searchRequest.getCreatedFrom(),
+                                                     searchRequest.getCreatedTo());
+        List<SearchPredicate> predicates = predicatesOf(searchRequest);
+        Map<SearchPredicate, Long> estimatedMatches = new EnumMap<>(SearchPredicate.class);
+        SearchPredicate drivingPredicate = null;
+        long cheapestCost = fullScanCost;
+        long estimatedCandidates = fullScanCost;
+
+        for (SearchPredicate predicate : predicates) {
+            OptionalLong estimate = estimate(predicate,
+                                             searchRequest,
+                                             cheapestCost / INDEX_CANDIDATE_COST + 1);
+            estimatedMatches.put(predicate,
+                                 estimate.orElse(fullScanCost));
+            if (estimate.isPresent()
+                && estimate.getAsLong() * INDEX_CANDIDATE_COST < cheapestCost) {
+                drivingPredicate = predicate;
+                estimatedCandidates = estimate.getAsLong();
+                cheapestCost = estimatedCandidates * INDEX_CANDIDATE_COST;
+            }
+        }
+
+        return SearchPlan.builder()
+                         .drivingPredicate(drivingPredicate)
+                         .estimatedCandidates(estimatedCandidates)
+                         .estimatedMatches(estimatedMatches)
+                         .residualPredicates(residualPredicates(predicates,
+                                                                drivingPredicate))
+                         .build();
+    }
+
+    static List<SearchPredicate> predicatesOf(SearchRequest searchRequest) {
+        List<SearchPredicate> predicates = new ArrayList<>();
+        if (searchRequest.getAuthorIds() != null)
+            predicates.add(SearchPredicate.AUTHOR_IDS);
+        if (searchRequest.getCreatedFrom() != null
+            || searchRequest.getCreatedTo() != null)
+            predicates.add(SearchPredicate.CREATED_RANGE);
+        if (searchRequest.getTitlePrefixes() != null)
+            predicates.add(SearchPredicate.TITLE_PREFIXES);
+        if (searchRequest.getContainsContents() != null)
+            predicates.add(SearchPredicate.CONTAINS_CONTENTS);
+        return predicates;
+    }
+
+    private OptionalLong estimate(SearchPredicate predicate,
+                                  SearchRequest searchRequest,
+                                  long limit) {
+        return switch (predicate) {
+            case AUTHOR_IDS -> OptionalLong.of(authorIndex.estimateIds(searchRequest.getAuthorIds()));
+            case CREATED_RANGE -> OptionalLong.of(createdIndex.estimateIds(searchRequest.getCreatedFrom(),
+                                                                           searchRequest.getCreatedTo(),
+                                                                           limit));
+            case TITLE_PREFIXES -> OptionalLong.of(titlePrefixIndex.estimateIds(searchRequest.getTitlePrefixes(),
+                                                                                limit));
+            case CONTAINS_CONTENTS -> contentNGramIndex.estimateCandidateIds(searchRequest.getContainsContents());
+        };
+    }
+
+    /**
+     * The n-gram index only returns possible matches, so [containsContents] is
+     * re-checked even when it drives the search. Residuals keep the declaration
+     * order of {@link SearchPredicate}, which runs the cheap checks first.
+     */
+    private List<SearchPredicate> residualPredicates(List<SearchPredicate> predicates,
+                                                     SearchPredicate drivingPredicate) {
+        List<SearchPredicate> residualPredicates = new ArrayList<>(predicates);
+        if (drivingPredicate != SearchPredicate.CONTAINS_CONTENTS)
+            residualPredicates.remove(drivingPredicate);
+        return residualPredicates;
+    }
+
+}
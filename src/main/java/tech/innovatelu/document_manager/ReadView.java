@@ -0,0 +1,42 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * What a single search reads: the storage as of its snapshot version.
+ */
+@Value
+class ReadView {
+    long snapshotVersion;
+    /**
+     * Counts the candidates checked against the search predicates, null does
+     * not count them.
+     */
+    LongAdder scannedDocuments;
+    /**
+     * Tells whether the caller of the search is gone, null if it waits for
+     * the result anyway.
+     */
+    BooleanSupplier abandoned;
+
+    /**
+     * Wraps the candidates of the search, which stops with a
+     * {@link CancellationException} at the first candidate after it was
+     * abandoned.
+     */
+    Stream<StoredDocument> counted(Stream<StoredDocument> documents) {
+        Stream<StoredDocument> checkedDocuments = abandoned == null ? documents
+                                                                    : documents.peek(document -> {
+                                                                        if (abandoned.getAsBoolean())
+                                                                            throw new CancellationException("Search was abandoned by its caller");
+                                                                    });
+        return scannedDocuments == null ? checkedDocuments
+                                        : checkedDocuments.peek(document -> scannedDocuments.increment());
+    }
+
+}
@@ -0,0 +1,95 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a release action once the wrapped stream is exhausted or closed,
+ * whichever comes first, so a stream consumed to the end frees what it holds
+ * even if the caller never closes it. It does not split: a parallel stream
+ * over it would finish its parts at different times.
+ */
+final class ReleasingSpliterator<T> implements Spliterator<T> {
+    private final Spliterator<T> spliterator;
+    private final Runnable release;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ReleasingSpliterator(Spliterator<T> spliterator,
+                                 Runnable release) {
+        this.spliterator = spliterator;
+        this.release = release;
+    }
+
+    /**
+     * @return sequential stream of the [stream] elements, which runs the
+     *         [release] once when it is exhausted or closed
+     */
+    static <T> Stream<T> releasing(Stream<T> stream,
+                                   Runnable release) {
+        ReleasingSpliterator<T> spliterator = new ReleasingSpliterator<>(stream.spliterator(),
+                                                                         release);
+        return StreamSupport.stream(spliterator,
+                                    false)
+                            .onClose(() -> {
+                                try {
+                                    stream.close();
+                                } finally {
+                                    spliterator.release();
+                                }
+                            });
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (released.get())
+            return false;
+
+        boolean advanced;
+        try {
+            advanced = spliterator.tryAdvance(action);
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+        if (!advanced)
+            release();
+        return advanced;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if (released.get())
+            return;
+
+        try {
+            spliterator.forEachRemaining(action);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return spliterator.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return spliterator.characteristics() & ~(SUBSIZED | CONCURRENT);
+    }
+
+    private void release() {
+        if (released.compareAndSet(false,
+                                   true))
+            release.run();
+    }
+
+}
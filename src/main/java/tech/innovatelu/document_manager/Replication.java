@@ -0,0 +1,143 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.ChangeEvent;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a follower in line with the change feed of its leader. It pulls the
+ * events after the last replicated sequence every [interval] and applies them
+ * in sequence order, a batch at a time. When the follower starts, or fell so
+ * far behind that the leader no longer retains its next event, it copies the
+ * whole leader storage first and follows the feed from the sequence read
+ * before the copy; events the copy already holds are applied again, which
+ * leaves the same latest versions.
+ * <p>
+ * The lag is the time since the follower last applied everything its leader
+ * had committed: a read starting then and returning a partial batch proves
+ * the follower caught up with the leader as of that start.
+ */
+class Replication implements AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(Replication.class.getName());
+    private static final int BATCH_SIZE = 1_024;
+
+    private final DocumentManager leader;
+    private final Consumer<List<Document>> apply;
+    private final ScheduledExecutorService scheduler;
+    private volatile long replicatedSequence;
+    private volatile long caughtUpTime;
+
+    /**
+     * Copies the leader storage before it returns, so the follower starts
+     * caught up.
+     *
+     * @param leader   - manager with a change feed whose saves are replicated
+     * @param interval - time between the end of a pull and the next one
+     * @param apply    - saves a batch of replicated documents on the follower
+     */
+    Replication(DocumentManager leader,
+                Duration interval,
+                Consumer<List<Document>> apply) {
+        this.leader = leader;
+        this.apply = apply;
+        copyLeader();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable,
+                                       "replication");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pull,
+                                         interval.toMillis(),
+                                         interval.toMillis(),
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    long replicatedSequence() {
+        return replicatedSequence;
+    }
+
+    Duration lag() {
+        return Duration.ofNanos(System.nanoTime() - caughtUpTime);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1,
+                                       TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+    }
+
+    private void pull() {
+        try {
+            while (true) {
+                long readTime = System.nanoTime();
+                List<ChangeEvent> events;
+                try {
+                    events = leader.changesAfter(replicatedSequence,
+                                                 BATCH_SIZE);
+                } catch (IllegalStateException e) {
+                    LOGGER.log(System.Logger.Level.WARNING,
+                               "Replica fell behind the change feed of its leader and copies it again");
+                    copyLeader();
+                    return;
+                }
+                if (!events.isEmpty()) {
+                    apply.accept(events.stream()
+                                       .map(ChangeEvent::getDocument)
+                                       .collect(Collectors.toList()));
+                    replicatedSequence = events.get(events.size() - 1)
+                                               .getSequence();
+                }
+                if (events.size() < BATCH_SIZE) {
+                    caughtUpTime = readTime;
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                       "Replication failed",
+                       e);
+        }
+    }
+
+    /**
+     * Every save up to the sequence read first is visible to the search that
+     * follows, so the feed can be resumed from that sequence.
+     */
+    private void copyLeader() {
+        long readTime = System.nanoTime();
+        long sequence = leader.lastChangeSequence();
+        try (Stream<Document> documents = leader.searchStream(null)) {
+            Iterator<Document> iterator = documents.iterator();
+            List<Document> batch = new ArrayList<>(BATCH_SIZE);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE) {
+                    apply.accept(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty())
+                apply.accept(batch);
+        }
+        replicatedSequence = sequence;
+        caughtUpTime = readTime;
+    }
+
+}
@@ -0,0 +1,263 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable set of keys with their stored documents in plain arrays: a scan
+ * walks an array instead of the nodes of a hash map, and lookups go through an
+ * open-addressing table of positions, a few bytes per document.
+ * <p>
+ * Indexed documents without older versions can be spilled to a file and are
+ * then only kept as their offset in it. Such a document is decoded on every
+ * read; saving it again puts the new version back on the heap. The file is
+ * memory-mapped in chunks that no record crosses, each record is laid out as
+ * {@code length, version, document}, the document encoded by
+ * {@link DocumentCodec}.
+ */
+final class SealedSegment {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+    private static final int RECORD_HEADER_LENGTH = Integer.BYTES + Long.BYTES;
+    private static final long ON_HEAP = -1;
+    /**
+     * Marks the position of a removed document.
+     */
+    private static final StoredDocument REMOVED = new StoredDocument(null,
+                                                                     null,
+                                                                     null,
+                                                                     null,
+                                                                     null,
+                                                                     false,
+                                                                     null,
+                                                                     0,
+                                                                     null,
+                                                                     false);
+    private static final ContentStore SPILLED_CONTENTS = new HeapContentStore();
+
+    private final DocumentKey[] keys;
+    /**
+     * Null at the positions of spilled documents.
+     */
+    private final AtomicReferenceArray<StoredDocument> documents;
+    private final int[] positions;
+    private final int positionShift;
+    private final Path file;
+    private final long[] offsets;
+    private final MappedByteBuffer[] chunks;
+    private final int chunkSize;
+
+    /**
+     * @param documents      - documents with distinct ids
+     * @param spillDirectory - directory of the file the documents are spilled
+     *                       to, null keeps them on the heap
+     */
+    static SealedSegment of(List<StoredDocument> documents,
+                            Path spillDirectory) {
+        return new SealedSegment(documents,
+                                 spillDirectory,
+                                 DEFAULT_CHUNK_SIZE);
+    }
+
+    SealedSegment(List<StoredDocument> storedDocuments,
+                  Path spillDirectory,
+                  int chunkSize) {
+        this.keys = new DocumentKey[storedDocuments.size()];
+        this.documents = new AtomicReferenceArray<>(keys.length);
+        this.positions = new int[Math.max(2,
+                                          Integer.highestOneBit(Math.max(1,
+                                                                         keys.length)) << 2)];
+        this.positionShift = Integer.numberOfLeadingZeros(positions.length) + 1;
+        for (int index = 0; index < keys.length; index++) {
+            StoredDocument document = storedDocuments.get(index);
+            keys[index] = document.getKey();
+            documents.set(index,
+                          document);
+            int position = positionOf(keys[index]);
+            while (positions[position] != 0) {
+                position = position + 1 & positions.length - 1;
+            }
+            positions[position] = index + 1;
+        }
+
+        this.chunkSize = chunkSize;
+        if (spillDirectory == null) {
+            this.file = null;
+            this.offsets = null;
+            this.chunks = null;
+            return;
+        }
+        this.offsets = new long[keys.length];
+        try {
+            Files.createDirectories(spillDirectory);
+            this.file = Files.createTempFile(spillDirectory,
+                                             "partition-",
+                                             ".bin");
+            this.chunks = spill(storedDocuments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the indexed documents without older versions to the file, so
+     * their positions can drop the stored documents; such a document is the
+     * version the indexes hold, which its decoded copies keep telling. A
+     * record larger than a chunk stays on the heap.
+     */
+    private MappedByteBuffer[] spill(List<StoredDocument> storedDocuments) throws IOException {
+        long fileSize = 0;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (int index = 0; index < keys.length; index++) {
+                StoredDocument document = storedDocuments.get(index);
+                byte[] bytes = DocumentCodec.encode(document.toScannedDocument());
+                int recordLength = RECORD_HEADER_LENGTH + bytes.length;
+                if (document.getPreviousVersion() != null
+                    || !document.isIndexed()
+                    || recordLength > chunkSize) {
+                    offsets[index] = ON_HEAP;
+                    continue;
+                }
+
+                int padding = fileSize % chunkSize + recordLength > chunkSize ? (int) (chunkSize - fileSize % chunkSize)
+                                                                              : 0;
+                output.write(new byte[padding]);
+                fileSize += padding;
+                offsets[index] = fileSize;
+                output.writeInt(bytes.length);
+                output.writeLong(document.getVersion());
+                output.write(bytes);
+                fileSize += recordLength;
+            }
+        }
+
+        MappedByteBuffer[] mappedChunks = new MappedByteBuffer[(int) ((fileSize + chunkSize - 1) / chunkSize)];
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ)) {
+            for (int chunk = 0; chunk < mappedChunks.length; chunk++) {
+                long chunkStart = (long) chunk * chunkSize;
+                mappedChunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                                  chunkStart,
+                                                  Math.min(chunkSize,
+                                                           fileSize - chunkStart));
+            }
+        }
+        for (int index = 0; index < keys.length; index++) {
+            if (offsets[index] != ON_HEAP)
+                documents.set(index,
+                              null);
+        }
+        return mappedChunks;
+    }
+
+    int length() {
+        return keys.length;
+    }
+
+    /**
+     * @return position of the document with the [key], -1 if the segment
+     *         does not hold it
+     */
+    int indexOf(DocumentKey key) {
+        int position = positionOf(key);
+        while (positions[position] != 0) {
+            int index = positions[position] - 1;
+            if (keys[index].equals(key))
+                return index;
+            position = position + 1 & positions.length - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return document at the [index], null if it was removed
+     */
+    StoredDocument document(int index) {
+        StoredDocument document = documents.get(index);
+        if (document == null)
+            return read(index);
+        return document == REMOVED ? null
+                                   : document;
+    }
+
+    /**
+     * @return whether the position held no document, as it was removed
+     */
+    boolean set(int index,
+                StoredDocument document) {
+        return documents.getAndSet(index,
+                                   document) == REMOVED;
+    }
+
+    /**
+     * @return whether a document was stored at the [index]
+     */
+    boolean remove(int index) {
+        return documents.getAndSet(index,
+                                   REMOVED) != REMOVED;
+    }
+
+    /**
+     * @return weakly consistent stream of the stored documents, which splits
+     *         by halving the positions
+     */
+    Stream<StoredDocument> documents() {
+        return IntStream.range(0,
+                               keys.length)
+                        .mapToObj(this::document)
+                        .filter(Objects::nonNull);
+    }
+
+    /**
+     * Deletes the spill file. Readers still holding the segment keep reading
+     * the mapping, which outlives the file.
+     */
+    void delete() {
+        if (file == null)
+            return;
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StoredDocument read(int index) {
+        MappedByteBuffer chunk = chunks[(int) (offsets[index] / chunkSize)];
+        int offset = (int) (offsets[index] % chunkSize);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        long version = chunk.getLong(offset + Integer.BYTES);
+        chunk.get(offset + RECORD_HEADER_LENGTH,
+                  bytes);
+        Document document = DocumentCodec.decode(bytes);
+        StoredDocument storedDocument = StoredDocument.of(keys[index],
+                                                          document,
+                                                          SPILLED_CONTENTS,
+                                                          version,
+                                                          null);
+        storedDocument.markIndexed();
+        return storedDocument;
+    }
+
+    /**
+     * Fibonacci hashing: the high bits of the spread hash pick the position.
+     */
+    private int positionOf(DocumentKey key) {
+        return key.hashCode() * 0x9E3779B9 >>> positionShift;
+    }
+
+}
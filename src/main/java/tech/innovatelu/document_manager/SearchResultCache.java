@@ -0,0 +1,494 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.SearchCacheMetrics;
+import tech.innovatelu.document_manager.DocumentManager.SearchOptions;
+import tech.innovatelu.document_manager.DocumentManager.SearchRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Least recently used cache of search results, keyed by the normalised
+ * {@link SearchRequest} and {@link SearchOptions}. Only the ids of the matched
+ * documents are kept, and the cache is bounded by their total number rather
+ * than by the number of entries, so a few huge results cannot pin the memory.
+ * <p>
+ * A save only evicts the entries whose request matches the previous or the new
+ * version of the saved document; other cached results cannot change by that
+ * save. To avoid checking every entry, entries are indexed by their most
+ * selective cheap predicate: the author ids, else the first chars of the title
+ * prefixes, else the end of the created range. A save only checks the entries
+ * its versions can match by that predicate, plus the entries with none of
+ * them. The checks run outside the lock of the LRU order, which get and put
+ * hold only for a map operation.
+ * <p>
+ * A write invalidates before its version turns stable, so a snapshot that sees
+ * the write finds none of the entries it changed. An entry remembers the
+ * snapshot it was computed at and only serves searches whose snapshot is not
+ * older. A result computed at a snapshot that missed a write can still be put
+ * after that write invalidated, so writes are also kept as long as a snapshot
+ * older than them is open, and a new entry is checked against the ones its
+ * snapshot missed before it is served.
+ */
+class SearchResultCache {
+    private final long capacity;
+    private final Function<SearchRequest, Predicate<StoredDocument>> filterCompiler;
+    private final LinkedHashMap<CacheKey, CachedResult> entries = new LinkedHashMap<>(16,
+                                                                                       0.75f,
+                                                                                       true);
+    private long weight;
+    private final LongSupplier oldestReadableVersion;
+    /**
+     * Writes by their version, kept while a snapshot older than them may still
+     * put a result.
+     */
+    private final NavigableMap<Long, RecentWrite> recentWrites = new ConcurrentSkipListMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final Map<String, Set<CachedResult>> resultsByAuthorId = new ConcurrentHashMap<>();
+    private final Map<Character, Set<CachedResult>> resultsByTitleStart = new ConcurrentHashMap<>();
+    /**
+     * Results of requests with a created range by its end, {@link Instant#MAX}
+     * if it has none.
+     */
+    private final NavigableMap<Instant, Set<CachedResult>> resultsByCreatedTo = new ConcurrentSkipListMap<>();
+    private final Set<CachedResult> unindexedResults = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param capacity - maximum total number of cached document ids
+     * @param filterCompiler        - compiles the filter of the documents
+     *                              matching a request
+     * @param oldestReadableVersion - oldest version an open or a future
+     *                              snapshot can read
+     */
+    SearchResultCache(long capacity,
+                      Function<SearchRequest, Predicate<StoredDocument>> filterCompiler,
+                      LongSupplier oldestReadableVersion) {
+        this.capacity = capacity;
+        this.filterCompiler = filterCompiler;
+        this.oldestReadableVersion = oldestReadableVersion;
+    }
+
+    /**
+     * A write visible to the [snapshotVersion] invalidated the entries it
+     * changed before the snapshot was taken.
+     *
+     * @param snapshotVersion - snapshot the search reads, taken before
+     * @return ids of the cached result, in the order of the result
+     */
+    Optional<List<DocumentKey>> get(SearchRequest searchRequest,
+                                    SearchOptions searchOptions,
+                                    long snapshotVersion) {
+        CachedResult cachedResult;
+        synchronized (entries) {
+            cachedResult = entries.get(CacheKey.of(searchRequest,
+                                                   searchOptions));
+        }
+        if (cachedResult == null
+            || !cachedResult.isChecked()
+            || cachedResult.getSnapshotVersion() > snapshotVersion) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cachedResult.getIds());
+    }
+
+    /**
+     * Must be called while the snapshot the result was computed at is open, so
+     * the writes it missed are still kept.
+     *
+     * @param snapshotVersion - snapshot the result was computed at
+     */
+    void put(SearchRequest searchRequest,
+             SearchOptions searchOptions,
+             List<Document> documents,
+             long snapshotVersion) {
+        if (documents.size() >= capacity)
+            return;
+
+        CacheKey cacheKey = CacheKey.of(searchRequest,
+                                        searchOptions);
+        CachedResult cachedResult = new CachedResult(cacheKey,
+                                                     documents.stream()
+                                                              .map(document -> DocumentKey.of(document.getId()))
+                                                              .collect(Collectors.toUnmodifiableList()),
+                                                     snapshotVersion,
+                                                     filterCompiler.apply(cacheKey.getSearchRequest()));
+        // Indexed before the missed writes are checked: a write kept after the
+        // check finds the entry in the indexes when it invalidates.
+        updateIndexes(cachedResult,
+                      true);
+        List<CachedResult> removedResults = new ArrayList<>();
+        synchronized (entries) {
+            CachedResult replacedResult = entries.put(cacheKey,
+                                                      cachedResult);
+            if (replacedResult != null) {
+                weight -= replacedResult.weight();
+                removedResults.add(replacedResult);
+            }
+            weight += cachedResult.weight();
+            evictLeastRecentlyUsed(removedResults);
+        }
+        removedResults.forEach(removedResult -> updateIndexes(removedResult,
+                                                              false));
+        // A write kept after this check invalidates the entry itself.
+        if (missedWrite(cachedResult))
+            discard(cachedResult);
+        else
+            cachedResult.check();
+    }
+
+    /**
+     * A write kept before the check is in [recentWrites], as the snapshot of
+     * the result is still open.
+     */
+    private boolean missedWrite(CachedResult cachedResult) {
+        return recentWrites.tailMap(cachedResult.getSnapshotVersion(),
+                                    false)
+                           .values()
+                           .stream()
+                           .anyMatch(recentWrite -> recentWrite.changes(cachedResult.getFilter()));
+    }
+
+    /**
+     * Called once the write reached the storage and before its [version] turns
+     * stable, also when the save fails after the storage.
+     *
+     * @param previousDocument - replaced version, null for a new document
+     * @param savedDocument    - stored version
+     */
+    void invalidate(long version,
+                    StoredDocument previousDocument,
+                    StoredDocument savedDocument) {
+        RecentWrite recentWrite = new RecentWrite(previousDocument,
+                                                  savedDocument);
+        keep(version,
+             recentWrite);
+        Set<CachedResult> candidates = new HashSet<>(unindexedResults);
+        addCandidates(candidates,
+                      savedDocument);
+        if (previousDocument != null)
+            addCandidates(candidates,
+                          previousDocument);
+        for (CachedResult candidate : candidates) {
+            if (recentWrite.changes(candidate.getFilter()))
+                remove(candidate);
+        }
+    }
+
+    /**
+     * Evicts every entry, for writes too broad to check entry by entry. Like
+     * {@link #invalidate}, called before the [version] turns stable.
+     */
+    void invalidateAll(long version) {
+        keep(version,
+             new RecentWrite(null,
+                             null));
+        List<CachedResult> removedResults;
+        synchronized (entries) {
+            removedResults = new ArrayList<>(entries.values());
+            invalidations.add(entries.size());
+            entries.clear();
+            weight = 0;
+        }
+        removedResults.forEach(removedResult -> updateIndexes(removedResult,
+                                                              false));
+    }
+
+    /**
+     * Keeps the write for the results computed at older snapshots and drops
+     * the writes no open snapshot is older than.
+     */
+    private void keep(long version,
+                      RecentWrite recentWrite) {
+        recentWrites.put(version,
+                         recentWrite);
+        recentWrites.headMap(oldestReadableVersion.getAsLong(),
+                             true)
+                    .clear();
+    }
+
+    SearchCacheMetrics metrics() {
+        synchronized (entries) {
+            return SearchCacheMetrics.builder()
+                                     .hits(hits.sum())
+                                     .misses(misses.sum())
+                                     .evictions(evictions.sum())
+                                     .invalidations(invalidations.sum())
+                                     .entries(entries.size())
+                                     .cachedIds(weight)
+                                     .build();
+        }
+    }
+
+    /**
+     * @param evictedResults - receives the evicted results
+     */
+    private void evictLeastRecentlyUsed(List<CachedResult> evictedResults) {
+        Iterator<CachedResult> iterator = entries.values()
+                                                 .iterator();
+        while (weight > capacity) {
+            CachedResult evictedResult = iterator.next();
+            weight -= evictedResult.weight();
+            iterator.remove();
+            evictions.increment();
+            evictedResults.add(evictedResult);
+        }
+    }
+
+    private void remove(CachedResult cachedResult) {
+        if (discard(cachedResult))
+            invalidations.increment();
+    }
+
+    /**
+     * @return whether the [cachedResult] was still cached
+     */
+    private boolean discard(CachedResult cachedResult) {
+        synchronized (entries) {
+            if (!entries.remove(cachedResult.getCacheKey(),
+                                cachedResult))
+                return false;
+
+            weight -= cachedResult.weight();
+        }
+        updateIndexes(cachedResult,
+                      false);
+        return true;
+    }
+
+    /**
+     * Adds the results whose request the [document] may match by its indexed
+     * predicate to the [candidates].
+     */
+    private void addCandidates(Set<CachedResult> candidates,
+                               StoredDocument document) {
+        if (document.getAuthorId() != null)
+            candidates.addAll(resultsByAuthorId.getOrDefault(document.getAuthorId(),
+                                                             Set.of()));
+        if (document.getTitle() != null
+            && !document.getTitle()
+                        .isEmpty())
+            candidates.addAll(resultsByTitleStart.getOrDefault(document.getTitle()
+                                                                       .charAt(0),
+                                                               Set.of()));
+        if (document.getCreated() != null)
+            resultsByCreatedTo.tailMap(document.getCreated(),
+                                       true)
+                              .values()
+                              .forEach(candidates::addAll);
+    }
+
+    /**
+     * Registers the [cachedResult] under its most selective indexed predicate,
+     * or unregisters it. A request with an empty author id list matches no
+     * document and is registered nowhere. A null author id has no key, so a
+     * request with one is registered by its other predicates.
+     */
+    private void updateIndexes(CachedResult cachedResult,
+                               boolean register) {
+        SearchRequest searchRequest = cachedResult.getCacheKey()
+                                                  .getSearchRequest();
+        if (searchRequest != null
+            && searchRequest.getAuthorIds() != null
+            && !searchRequest.getAuthorIds()
+                             .contains(null)) {
+            searchRequest.getAuthorIds()
+                         .stream()
+                         .filter(Objects::nonNull)
+                         .forEach(authorId -> updateIndex(resultsByAuthorId,
+                                                          authorId,
+                                                          cachedResult,
+                                                          register));
+        } else if (searchRequest != null
+                   && searchRequest.getTitlePrefixes() != null
+                   && !searchRequest.getTitlePrefixes()
+                                    .contains("")) {
+            searchRequest.getTitlePrefixes()
+                         .stream()
+                         .filter(Objects::nonNull)
+                         .map(titlePrefix -> titlePrefix.charAt(0))
+                         .distinct()
+                         .forEach(titleStart -> updateIndex(resultsByTitleStart,
+                                                            titleStart,
+                                                            cachedResult,
+                                                            register));
+        } else if (searchRequest != null
+                   && (searchRequest.getCreatedFrom() != null
+                       || searchRequest.getCreatedTo() != null)) {
+            updateIndex(resultsByCreatedTo,
+                        searchRequest.getCreatedTo() == null ? Instant.MAX
+                                                             : searchRequest.getCreatedTo(),
+                        cachedResult,
+                        register);
+        } else if (register) {
+            unindexedResults.add(cachedResult);
+        } else {
+            unindexedResults.remove(cachedResult);
+        }
+    }
+
+    private static <K> void updateIndex(Map<K, Set<CachedResult>> resultsByKey,
+                                        K key,
+                                        CachedResult cachedResult,
+                                        boolean register) {
+        if (register)
+            resultsByKey.compute(key,
+                                 (indexKey, results) -> {
+                                     Set<CachedResult> keyResults = results == null ? ConcurrentHashMap.newKeySet()
+                                                                                    : results;
+                                     keyResults.add(cachedResult);
+                                     return keyResults;
+                                 });
+        else
+            resultsByKey.computeIfPresent(key,
+                                          (indexKey, results) -> {
+                                              results.remove(cachedResult);
+                                              return results.isEmpty() ? null
+                                                                       : results;
+                                          });
+    }
+
+    /**
+     * Compared by identity, so a result replaced under the same key is told
+     * apart from its replacement.
+     */
+    private static class CachedResult {
+        private final CacheKey cacheKey;
+        private final List<DocumentKey> ids;
+        private final long snapshotVersion;
+        /**
+         * Compiled once, as saves check it.
+         */
+        private final Predicate<StoredDocument> filter;
+        /**
+         * Set once the result is known not to miss a write, before which it
+         * is not served.
+         */
+        private volatile boolean checked;
+
+        CachedResult(CacheKey cacheKey,
+                     List<DocumentKey> ids,
+                     long snapshotVersion,
+                     Predicate<StoredDocument> filter) {
+            this.cacheKey = cacheKey;
+            this.ids = ids;
+            this.snapshotVersion = snapshotVersion;
+            this.filter = filter;
+        }
+
+        CacheKey getCacheKey() {
+            return cacheKey;
+        }
+
+        List<DocumentKey> getIds() {
+            return ids;
+        }
+
+        long getSnapshotVersion() {
+            return snapshotVersion;
+        }
+
+        Predicate<StoredDocument> getFilter() {
+            return filter;
+        }
+
+        boolean isChecked() {
+            return checked;
+        }
+
+        void check() {
+            checked = true;
+        }
+
+        /**
+         * An empty result still takes an entry.
+         */
+        long weight() {
+            return ids.size() + 1L;
+        }
+    }
+
+    /**
+     * Versions a write replaced and stored, both null for a write that may
+     * have changed any result.
+     */
+    private static class RecentWrite {
+        private final StoredDocument previousDocument;
+        private final StoredDocument savedDocument;
+
+        RecentWrite(StoredDocument previousDocument,
+                    StoredDocument savedDocument) {
+            this.previousDocument = previousDocument;
+            this.savedDocument = savedDocument;
+        }
+
+        boolean changes(Predicate<StoredDocument> filter) {
+            return savedDocument == null
+                   || filter.test(savedDocument)
+                   || previousDocument != null
+                      && filter.test(previousDocument);
+        }
+    }
+
+    /**
+     * Copies of the request and the options, so callers changing theirs later
+     * cannot corrupt the cache. Lists are sorted and deduplicated, as neither
+     * their order nor duplicates change the result.
+     */
+    @Value
+    private static class CacheKey {
+        SearchRequest searchRequest;
+        SearchOptions searchOptions;
+
+        static CacheKey of(SearchRequest searchRequest,
+                           SearchOptions searchOptions) {
+            return new CacheKey(searchRequest == null ? null
+                                                      : SearchRequest.builder()
+                                                                     .titlePrefixes(normalised(searchRequest.getTitlePrefixes()))
+                                                                     .containsContents(normalised(searchRequest.getContainsContents()))
+                                                                     .authorIds(normalised(searchRequest.getAuthorIds()))
+                                                                     .createdFrom(searchRequest.getCreatedFrom())
+                                                                     .createdTo(searchRequest.getCreatedTo())
+                                                                     .build(),
+                                searchOptions == null ? null
+                                                      : SearchOptions.builder()
+                                                                     .sortBy(searchOptions.getSortBy())
+                                                                     .descending(searchOptions.isDescending())
+                                                                     .offset(searchOptions.getOffset())
+                                                                     .limit(searchOptions.getLimit())
+                                                                     .build());
+        }
+
+        private static List<String> normalised(List<String> values) {
+            return values == null ? null
+                                  : values.stream()
+                                          .distinct()
+                                          .sorted(Comparator.nullsFirst(Comparator.naturalOrder()))
+                                          .collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package tech.innovatelu.document_manager;
+
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spreads the documents over independent {@link ConcurrentHashMap} shards
+ * routed by the hash of the key. Every shard resizes on its own, so a burst of
+ * inserts never waits for one big table to be transferred, and a scan hands
+ * whole shards to the workers of a parallel search before it splits a shard.
+ */
+class ShardedStorageEngine implements StorageEngine {
+    private final ConcurrentHashMap<DocumentKey, StoredDocument>[] shards;
+
+    /**
+     * @param shardCount        - number of shards, rounded up to a power of two
+     * @param expectedDocuments - number of documents the shards are sized for
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ShardedStorageEngine(int shardCount,
+                         int expectedDocuments) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("Shard count must be positive");
+
+        int roundedShardCount = Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new ConcurrentHashMap[Math.max(1,
+                                                     roundedShardCount)];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard] = new ConcurrentHashMap<>(expectedDocuments / shards.length);
+        }
+    }
+
+    @Override
+    public StoredDocument get(DocumentKey key) {
+        return shardOf(key).get(key);
+    }
+
+    @Override
+    public StoredDocument compute(DocumentKey key,
+                                  BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping) {
+        return shardOf(key).compute(key,
+                                    remapping);
+    }
+
+    @Override
+    public StoredDocument computeIfPresent(DocumentKey key,
+                                           BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping) {
+        return shardOf(key).computeIfPresent(key,
+                                             remapping);
+    }
+
+    @Override
+    public void put(DocumentKey key,
+                    StoredDocument document) {
+        shardOf(key).put(key,
+                         document);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (ConcurrentHashMap<DocumentKey, StoredDocument> shard : shards) {
+            size += shard.mappingCount();
+        }
+        return size;
+    }
+
+    @Override
+    public Stream<StoredDocument> documents() {
+        return StreamSupport.stream(new ShardSpliterator(0,
+                                                         shards.length),
+                                    false);
+    }
+
+    /**
+     * The high bits of the spread hash pick the shard, the maps themselves use
+     * the low bits to pick a bin.
+     */
+    private ConcurrentHashMap<DocumentKey, StoredDocument> shardOf(DocumentKey key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return shards[(hash >>> 16) & (shards.length - 1)];
+    }
+
+    /**
+     * Covers the shards [fromShard] to [toShard] exclusive. It splits by
+     * halving the range of shards; a single shard is split by its own
+     * spliterator, into prefixes like the range. A shard already being walked
+     * precedes the range, so it is handed out first and the range is left to
+     * be halved.
+     */
+    private final class ShardSpliterator implements Spliterator<StoredDocument> {
+        private int fromShard;
+        private final int toShard;
+        private Spliterator<StoredDocument> current;
+
+        ShardSpliterator(int fromShard,
+                         int toShard) {
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super StoredDocument> action) {
+            while (true) {
+                if (current == null) {
+                    if (fromShard == toShard)
+                        return false;
+                    current = shardSpliterator(fromShard++);
+                }
+                if (current.tryAdvance(action))
+                    return true;
+                current = null;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super StoredDocument> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            while (fromShard < toShard) {
+                shards[fromShard++].values()
+                                   .forEach(action);
+            }
+        }
+
+        @Override
+        public Spliterator<StoredDocument> trySplit() {
+            if (current != null) {
+                if (fromShard == toShard)
+                    return current.trySplit();
+
+                ShardSpliterator prefix = new ShardSpliterator(fromShard,
+                                                               fromShard);
+                prefix.current = current;
+                current = null;
+                return prefix;
+            }
+            if (toShard - fromShard > 1) {
+                int middleShard = (fromShard + toShard) >>> 1;
+                Spliterator<StoredDocument> prefix = new ShardSpliterator(fromShard,
+                                                                          middleShard);
+                fromShard = middleShard;
+                return prefix;
+            }
+            if (toShard - fromShard == 1) {
+                current = shardSpliterator(fromShard++);
+                return current.trySplit();
+            }
+            return null;
+        }
+
+        private Spliterator<StoredDocument> shardSpliterator(int shard) {
+            return PrefixSplittingSpliterator.of(shards[shard].values()
+                                                              .spliterator());
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = current == null ? 0
+                                        : current.estimateSize();
+            for (int shard = fromShard; shard < toShard; shard++) {
+                size += shards[shard].mappingCount();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.NONNULL;
+        }
+    }
+
+}
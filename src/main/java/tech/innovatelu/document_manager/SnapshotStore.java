@@ -0,0 +1,160 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Stores full copies of the document storage, named after the last log
+ * sequence they cover. A snapshot is written to a temporary file, synced and
+ * then atomically renamed, so a crash never leaves a half written snapshot
+ * under its final name.
+ */
+class SnapshotStore {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x444D534E;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+
+    SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the latest snapshot into the [consumer].
+     *
+     * @return log sequence covered by the loaded snapshot, 0 if there is none
+     */
+    long load(Consumer<Document> consumer) throws IOException {
+        Optional<Path> latestSnapshot = latestSnapshot();
+        if (latestSnapshot.isEmpty())
+            return 0;
+
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(latestSnapshot.get());
+             DataInputStream input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(file,
+                                                                                                        BUFFER_SIZE),
+                                                                                crc))) {
+            if (input.readInt() != MAGIC)
+                throw new IOException("Not a snapshot: " + latestSnapshot.get());
+
+            long sequence = input.readLong();
+            while (input.readBoolean()) {
+                consumer.accept(DocumentCodec.read(input));
+            }
+
+            long expectedChecksum = crc.getValue();
+            if (input.readLong() != expectedChecksum)
+                throw new IOException("Corrupted snapshot: " + latestSnapshot.get());
+            return sequence;
+        }
+    }
+
+    long latestSequence() throws IOException {
+        return latestSnapshot().map(this::sequenceOf)
+                               .orElse(0L);
+    }
+
+    /**
+     * Writes the [documents] as the snapshot of [sequence] and deletes the
+     * snapshots it supersedes.
+     */
+    void write(long sequence,
+               Iterator<Document> documents) throws IOException {
+        Path snapshot = directory.resolve(snapshotFileName(sequence));
+        Path temporary = directory.resolve(snapshotFileName(sequence) + TEMPORARY_SUFFIX);
+
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file,
+                                                                                                             BUFFER_SIZE),
+                                                                                    crc))) {
+            output.writeInt(MAGIC);
+            output.writeLong(sequence);
+            while (documents.hasNext()) {
+                output.writeBoolean(true);
+                DocumentCodec.write(documents.next(),
+                                    output);
+            }
+            output.writeBoolean(false);
+            output.flush();
+            output.writeLong(crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temporary,
+                                                    StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        Files.move(temporary,
+                   snapshot,
+                   StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+        deleteSnapshotsBefore(sequence);
+    }
+
+    private void deleteSnapshotsBefore(long sequence) throws IOException {
+        for (Path snapshot : snapshotFiles()) {
+            if (sequenceOf(snapshot) < sequence)
+                Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private Optional<Path> latestSnapshot() throws IOException {
+        List<Path> snapshots = snapshotFiles();
+        return snapshots.isEmpty() ? Optional.empty()
+                                   : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(this::isSnapshotFile)
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private boolean isSnapshotFile(Path file) {
+        String fileName = file.getFileName()
+                              .toString();
+        return fileName.startsWith(SNAPSHOT_PREFIX)
+               && fileName.endsWith(SNAPSHOT_SUFFIX);
+    }
+
+    private long sequenceOf(Path snapshot) {
+        String fileName = snapshot.getFileName()
+                                  .toString();
+        return Long.parseLong(fileName.substring(SNAPSHOT_PREFIX.length(),
+                                                 fileName.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private String snapshotFileName(long sequence) {
+        return String.format("%s%020d%s",
+                             SNAPSHOT_PREFIX,
+                             sequence,
+                             SNAPSHOT_SUFFIX);
+    }
+
+}
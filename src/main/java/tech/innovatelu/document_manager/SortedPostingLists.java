@@ -0,0 +1,30 @@
+package tech.innovatelu.document_manager;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * {@link PostingLists} that additionally keeps its keys in natural order, so
+ * callers can walk a key range (a title prefix, a time window) without touching
+ * the keys outside of it.
+ *
+ * @param <K> - type of the index key
+ */
+class SortedPostingLists<K extends Comparable<? super K>> extends PostingLists<K> {
+    private final NavigableSet<K> sortedKeys = new ConcurrentSkipListSet<>();
+
+    NavigableSet<K> keys() {
+        return sortedKeys;
+    }
+
+    @Override
+    protected void onKeyAdded(K key) {
+        sortedKeys.add(key);
+    }
+
+    @Override
+    protected void onKeyRemoved(K key) {
+        sortedKeys.remove(key);
+    }
+
+}
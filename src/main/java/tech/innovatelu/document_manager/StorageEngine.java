@@ -0,0 +1,76 @@
+package tech.innovatelu.document_manager;
+
+import java.time.Instant;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the stored version of every document by the {@link DocumentKey} of its
+ * id. Implementations must be safe for concurrent use and run a remapping
+ * function atomically for its key, as
+ * {@link java.util.concurrent.ConcurrentHashMap#compute} does.
+ */
+interface StorageEngine extends AutoCloseable {
+
+    /**
+     * @return stored document with the [key], null if there is none
+     */
+    StoredDocument get(DocumentKey key);
+
+    /**
+     * @param remapping - receives the key and the stored document or null,
+     *                  and returns the document to store
+     * @return stored document
+     */
+    StoredDocument compute(DocumentKey key,
+                           BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping);
+
+    /**
+     * Like {@link #compute}, but only runs when a document with the [key] is
+     * stored.
+     */
+    StoredDocument computeIfPresent(DocumentKey key,
+                                    BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping);
+
+    void put(DocumentKey key,
+             StoredDocument document);
+
+    long size();
+
+    /**
+     * @return weakly consistent stream of the stored documents whose
+     *         spliterator splits well for parallel searches, handing out
+     *         prefixes so parallel and sequential searches see one order
+     */
+    Stream<StoredDocument> documents();
+
+    /**
+     * @param createdFrom - inclusive lower bound of [created], null for an
+     *                    open range
+     * @param createdTo   - inclusive upper bound of [created], null for an open
+     *                    range
+     * @return like {@link #documents()}, but may skip documents created outside
+     *         of the range; the caller still has to check the range
+     */
+    default Stream<StoredDocument> documents(Instant createdFrom,
+                                             Instant createdTo) {
+        return documents();
+    }
+
+    /**
+     * @return number of documents {@link #documents(Instant, Instant)} reads
+     *         for the range
+     */
+    default long scanSize(Instant createdFrom,
+                          Instant createdTo) {
+        return size();
+    }
+
+    /**
+     * Releases the files the engine keeps, if any.
+     */
+    @Override
+    default void close() {
+    }
+
+}
@@ -0,0 +1,185 @@
+package tech.innovatelu.document_manager;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+import tech.innovatelu.document_manager.ContentStore.Content;
+import tech.innovatelu.document_manager.DocumentManager.Author;
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.time.Instant;
+
+/**
+ * Immutable version of a {@link Document} as kept in the storage. The content
+ * is only a {@link Content} handle and is decoded when a predicate or the
+ * caller needs it; callers always receive fresh {@link Document} copies, so
+ * they can no longer change the storage behind its back.
+ * <p>
+ * Every version carries the commit version of its save and links to the
+ * version it replaced, newest first, so a search can read the document as it
+ * was at its snapshot.
+ * <p>
+ * The id is kept as its {@link DocumentKey}, which all the versions of a
+ * document share with the storage and the indexes.
+ */
+@Value
+class StoredDocument {
+    DocumentKey key;
+    String title;
+    Content content;
+    String authorId;
+    String authorName;
+    boolean hasAuthor;
+    Instant created;
+    long version;
+    /**
+     * Cut once no snapshot can read the older versions any more.
+     */
+    @NonFinal
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    volatile StoredDocument previousVersion;
+    /**
+     * Set once the indexes reflect this version, so a later save can tell
+     * which content the n-gram index holds for the id.
+     */
+    @NonFinal
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    volatile boolean indexed;
+
+    /**
+     * @param key             - key of the id of the [document]
+     * @param version         - commit version of the save
+     * @param previousVersion - version replaced by this one, null for a new
+     *                        document
+     */
+    static StoredDocument of(DocumentKey key,
+                             Document document,
+                             ContentStore contentStore,
+                             long version,
+                             StoredDocument previousVersion) {
+        Author author = document.getAuthor();
+        return new StoredDocument(key,
+                                  document.getTitle(),
+                                  document.getContent() == null ? null
+                                                                : contentStore.store(document.getContent()),
+                                  author == null ? null
+                                                 : author.getId(),
+                                  author == null ? null
+                                                 : author.getName(),
+                                  author != null,
+                                  document.getCreated(),
+                                  version,
+                                  previousVersion,
+                                  false);
+    }
+
+    String getId() {
+        return key.id();
+    }
+
+    /**
+     * @return newest version whose commit version is at most [snapshotVersion],
+     *         null when the document did not exist yet
+     */
+    StoredDocument versionAt(long snapshotVersion) {
+        StoredDocument document = this;
+        while (document != null
+               && document.version > snapshotVersion) {
+            document = document.previousVersion;
+        }
+        return document;
+    }
+
+    void markIndexed() {
+        indexed = true;
+    }
+
+    /**
+     * @return newest version of the chain the indexes reflect, null when none
+     *         of them is known to be indexed
+     */
+    StoredDocument indexedVersion() {
+        StoredDocument document = this;
+        while (document != null
+               && !document.indexed) {
+            document = document.previousVersion;
+        }
+        return document;
+    }
+
+    /**
+     * Drops the versions no snapshot at or after [oldestReadableVersion] can
+     * read.
+     */
+    void reclaimVersionsBefore(long oldestReadableVersion) {
+        StoredDocument document = this;
+        while (document.version > oldestReadableVersion
+               && document.previousVersion != null) {
+            document = document.previousVersion;
+        }
+        document.previousVersion = null;
+    }
+
+    /**
+     * @return this version with a content decoded at most once by a single
+     *         pass, such as a search filtering and returning it; not to be
+     *         kept beyond the pass
+     */
+    StoredDocument forSinglePass() {
+        Content singlePassContent = content == null ? null
+                                                    : content.forSinglePass();
+        return singlePassContent == content ? this
+                                            : new StoredDocument(key,
+                                                                 title,
+                                                                 singlePassContent,
+                                                                 authorId,
+                                                                 authorName,
+                                                                 hasAuthor,
+                                                                 created,
+                                                                 version,
+                                                                 null,
+                                                                 indexed);
+    }
+
+    String readContent() {
+        return content == null ? null
+                               : content.read();
+    }
+
+    /**
+     * Like {@link #readContent()}, for bulk passes over many documents.
+     */
+    String scanContent() {
+        return content == null ? null
+                               : content.scan();
+    }
+
+    Document toDocument() {
+        return toDocument(readContent());
+    }
+
+    /**
+     * Like {@link #toDocument()}, for bulk passes over many documents.
+     */
+    Document toScannedDocument() {
+        return toDocument(scanContent());
+    }
+
+    private Document toDocument(String content) {
+        return Document.builder()
+                       .id(key.id())
+                       .title(title)
+                       .content(content)
+                       .author(hasAuthor ? Author.builder()
+                                                 .id(authorId)
+                                                 .name(authorName)
+                                                 .build()
+                                         : null)
+                       .created(created)
+                       .build();
+    }
+
+}
@@ -0,0 +1,597 @@
+package tech.innovatelu.document_manager;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Groups the documents into partitions by the time bucket of their [created],
+ * an hour, a day, a month or a year in UTC, plus one partition for the
+ * documents without it. A scan of a created range only reads the partitions
+ * overlapping the range.
+ * <p>
+ * A partition keeps its documents in a concurrent map until it is sealed into
+ * a {@link SealedSegment}, which scans faster, takes less memory and can be
+ * spilled to disk; documents added to a sealed partition wait in a new map for
+ * the next seal. Expired partitions are dropped whole: the drop unlinks the
+ * partition at once, the ids it held are released afterwards.
+ * <p>
+ * An id table maps every key to its partition, and every write runs inside the
+ * compute of the id table, which makes it atomic per id. A save keeps the
+ * [created] of the stored document, so documents practically never move
+ * between partitions.
+ */
+class TimePartitionedStorageEngine implements StorageEngine {
+    /**
+     * Instants outside of these, hundreds of millions of years away, are not
+     * bucketed any further and share the partitions at the ends.
+     */
+    private static final Instant FIRST_BUCKETED = Instant.parse("-999999000-01-01T00:00:00Z");
+    private static final Instant LAST_BUCKETED = Instant.parse("+999999000-01-01T00:00:00Z");
+    private static final Set<ChronoUnit> PARTITION_UNITS = Set.of(ChronoUnit.HOURS,
+                                                                  ChronoUnit.DAYS,
+                                                                  ChronoUnit.MONTHS,
+                                                                  ChronoUnit.YEARS);
+
+    private final ChronoUnit partitionUnit;
+    private final Path spillDirectory;
+    private final ConcurrentHashMap<DocumentKey, Partition> partitionsById;
+    private final ConcurrentSkipListMap<Instant, Partition> partitions = new ConcurrentSkipListMap<>();
+    private final Partition undatedPartition = new Partition(null,
+                                                             null);
+    private final LongAdder documentCount = new LongAdder();
+
+    /**
+     * @param partitionUnit     - length of the time bucket of a partition
+     * @param spillDirectory    - directory sealed partitions are spilled to,
+     *                          null keeps them on the heap
+     * @param expectedDocuments - number of documents the id table is sized for
+     */
+    TimePartitionedStorageEngine(ChronoUnit partitionUnit,
+                                 Path spillDirectory,
+                                 int expectedDocuments) {
+        if (!PARTITION_UNITS.contains(partitionUnit))
+            throw new IllegalArgumentException("Partition unit must be hours, days, months or years");
+
+        this.partitionUnit = partitionUnit;
+        this.spillDirectory = spillDirectory;
+        this.partitionsById = new ConcurrentHashMap<>(expectedDocuments);
+    }
+
+    @Override
+    public StoredDocument get(DocumentKey key) {
+        Partition partition = partitionsById.get(key);
+        return partition == null
+               || partition.dropped ? null
+                                    : partition.get(key);
+    }
+
+    @Override
+    public StoredDocument compute(DocumentKey key,
+                                  BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping) {
+        return compute(key,
+                       remapping,
+                       false);
+    }
+
+    @Override
+    public StoredDocument computeIfPresent(DocumentKey key,
+                                           BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping) {
+        return compute(key,
+                       remapping,
+                       true);
+    }
+
+    @Override
+    public void put(DocumentKey key,
+                    StoredDocument document) {
+        compute(key,
+                (storedKey, previousDocument) -> document);
+    }
+
+    @Override
+    public long size() {
+        return documentCount.sum();
+    }
+
+    @Override
+    public Stream<StoredDocument> documents() {
+        List<Partition> scannedPartitions = new ArrayList<>(partitions.values());
+        scannedPartitions.add(undatedPartition);
+        return documentsOf(scannedPartitions);
+    }
+
+    /**
+     * Documents without [created] never match a range, so the undated
+     * partition is skipped with the ones outside of the range.
+     */
+    @Override
+    public Stream<StoredDocument> documents(Instant createdFrom,
+                                            Instant createdTo) {
+        if (createdFrom == null
+            && createdTo == null)
+            return documents();
+
+        return documentsOf(new ArrayList<>(partitionsBetween(createdFrom,
+                                                             createdTo).values()));
+    }
+
+    @Override
+    public long scanSize(Instant createdFrom,
+                         Instant createdTo) {
+        if (createdFrom == null
+            && createdTo == null)
+            return size();
+
+        long scanSize = 0;
+        for (Partition partition : partitionsBetween(createdFrom,
+                                                     createdTo).values()) {
+            scanSize += partition.size.sum();
+        }
+        return scanSize;
+    }
+
+    /**
+     * Seals every partition whose time bucket ends at or before the [cutoff]
+     * and holds documents not sealed yet.
+     */
+    void sealPartitionsBefore(Instant cutoff) {
+        for (Partition partition : partitions.headMap(cutoff)
+                                             .values()) {
+            if (!partition.end.isAfter(cutoff))
+                partition.seal();
+        }
+    }
+
+    /**
+     * Drops every partition whose time bucket ends at or before the [cutoff].
+     * The documents disappear when their partition is unlinked; the ids are
+     * then released one by one, spilled documents decoded on the way.
+     *
+     * @param droppedDocuments - receives every dropped document once its id
+     *                         is released, unless the id was saved again in
+     *                         the meantime
+     * @return number of dropped documents
+     */
+    long dropPartitionsBefore(Instant cutoff,
+                              Consumer<StoredDocument> droppedDocuments) {
+        List<Partition> droppedPartitions = new ArrayList<>();
+        long droppedCount = 0;
+        for (Partition partition : partitions.headMap(cutoff)
+                                             .values()) {
+            if (partition.end.isAfter(cutoff)
+                || !partition.drop())
+                continue;
+
+            partitions.remove(partition.start,
+                              partition);
+            long partitionSize = partition.size.sum();
+            documentCount.add(-partitionSize);
+            droppedCount += partitionSize;
+            droppedPartitions.add(partition);
+        }
+
+        for (Partition partition : droppedPartitions) {
+            try (Stream<StoredDocument> documents = partition.contents.documents()) {
+                documents.filter(document -> partitionsById.remove(document.getKey(),
+                                                                    partition))
+                         .forEach(droppedDocuments);
+            }
+            partition.deleteSpillFile();
+        }
+        return droppedCount;
+    }
+
+    @Override
+    public void close() {
+        partitions.values()
+                  .forEach(Partition::deleteSpillFile);
+    }
+
+    /**
+     * Runs the [remapping] inside the compute of the id table, holding the
+     * partition of the id against seals and drops. A document whose partition
+     * was dropped counts as absent.
+     *
+     * @param onlyIfPresent - whether the [remapping] is skipped for an absent
+     *                      document
+     */
+    private StoredDocument compute(DocumentKey key,
+                                   BiFunction<DocumentKey, StoredDocument, StoredDocument> remapping,
+                                   boolean onlyIfPresent) {
+        StoredDocument[] storedDocument = new StoredDocument[1];
+        partitionsById.compute(key,
+                               (storedKey, partition) -> {
+                                   Partition lockedPartition = partition != null
+                                                               && partition.lockForWrite() ? partition
+                                                                                           : null;
+                                   try {
+                                       StoredDocument previousDocument = lockedPartition == null ? null
+                                                                                                 : lockedPartition.get(storedKey);
+                                       // Keeps the id of a dropped partition mapped until the
+                                       // drop releases it.
+                                       if (previousDocument == null
+                                           && onlyIfPresent)
+                                           return partition;
+
+                                       StoredDocument document = remapping.apply(storedKey,
+                                                                                 previousDocument);
+                                       storedDocument[0] = document;
+                                       return store(storedKey,
+                                                    document,
+                                                    lockedPartition);
+                                   } finally {
+                                       if (lockedPartition != null)
+                                           lockedPartition.unlockForWrite();
+                                   }
+                               });
+        return storedDocument[0];
+    }
+
+    /**
+     * @param partition - current partition of the [key], locked for writes,
+     *                  null for a new document
+     * @return partition the [document] is stored in, null when it is removed
+     */
+    private Partition store(DocumentKey key,
+                            StoredDocument document,
+                            Partition partition) {
+        if (document == null) {
+            if (partition != null)
+                partition.remove(key);
+            return null;
+        }
+
+        Partition targetPartition = partitionOf(document.getCreated());
+        if (targetPartition == partition) {
+            partition.store(key,
+                            document);
+            return partition;
+        }
+
+        if (partition != null)
+            partition.remove(key);
+        while (!targetPartition.lockForWrite()) {
+            partitions.remove(targetPartition.start,
+                              targetPartition);
+            targetPartition = partitionOf(document.getCreated());
+        }
+        try {
+            targetPartition.store(key,
+                                  document);
+        } finally {
+            targetPartition.unlockForWrite();
+        }
+        return targetPartition;
+    }
+
+    private Partition partitionOf(Instant created) {
+        if (created == null)
+            return undatedPartition;
+
+        return partitions.computeIfAbsent(startOf(created),
+                                          start -> new Partition(start,
+                                                                 endOf(start)));
+    }
+
+    /**
+     * @return partitions whose time bucket overlaps the range, keyed by the
+     *         start of the bucket
+     */
+    private NavigableMap<Instant, Partition> partitionsBetween(Instant createdFrom,
+                                                               Instant createdTo) {
+        if (createdFrom != null
+            && createdTo != null
+            && createdFrom.isAfter(createdTo))
+            return new ConcurrentSkipListMap<>();
+        if (createdFrom == null)
+            return partitions.headMap(createdTo,
+                                      true);
+        if (createdTo == null)
+            return partitions.tailMap(startOf(createdFrom),
+                                      true);
+        return partitions.subMap(startOf(createdFrom),
+                                 true,
+                                 createdTo,
+                                 true);
+    }
+
+    private Instant startOf(Instant created) {
+        if (created.isBefore(FIRST_BUCKETED))
+            return Instant.MIN;
+        if (!created.isBefore(LAST_BUCKETED))
+            return LAST_BUCKETED;
+
+        return switch (partitionUnit) {
+            case MONTHS -> created.atZone(ZoneOffset.UTC)
+                                  .withDayOfMonth(1)
+                                  .truncatedTo(ChronoUnit.DAYS)
+                                  .toInstant();
+            case YEARS -> created.atZone(ZoneOffset.UTC)
+                                 .withDayOfYear(1)
+                                 .truncatedTo(ChronoUnit.DAYS)
+                                 .toInstant();
+            default -> created.truncatedTo(partitionUnit);
+        };
+    }
+
+    private Instant endOf(Instant start) {
+        if (start.equals(Instant.MIN))
+            return FIRST_BUCKETED;
+        if (start.equals(LAST_BUCKETED))
+            return Instant.MAX;
+
+        ZonedDateTime startTime = start.atZone(ZoneOffset.UTC);
+        return startTime.plus(1,
+                              partitionUnit)
+                        .toInstant();
+    }
+
+    private Stream<StoredDocument> documentsOf(List<Partition> scannedPartitions) {
+        return StreamSupport.stream(new PartitionSpliterator(scannedPartitions,
+                                                             0,
+                                                             scannedPartitions.size()),
+                                    false);
+    }
+
+    /**
+     * Sealed documents and the documents added since, replaced as a whole when
+     * the partition is sealed again, so a reader sees every document in
+     * exactly one of them.
+     */
+    @Value
+    private static class Contents {
+        SealedSegment sealedSegment;
+        ConcurrentHashMap<DocumentKey, StoredDocument> openDocuments;
+
+        StoredDocument get(DocumentKey key) {
+            if (sealedSegment != null) {
+                int index = sealedSegment.indexOf(key);
+                if (index >= 0)
+                    return sealedSegment.document(index);
+            }
+            return openDocuments.get(key);
+        }
+
+        Stream<StoredDocument> documents() {
+            return sealedSegment == null ? PrefixSplittingSpliterator.stream(openDocuments.values())
+                                         : Stream.concat(sealedSegment.documents(),
+                                                         PrefixSplittingSpliterator.stream(openDocuments.values()));
+        }
+    }
+
+    /**
+     * Writers hold the read lock, so they run concurrently with each other
+     * and never while the partition is sealed or dropped. Readers take no lock.
+     */
+    private final class Partition {
+        private final Instant start;
+        private final Instant end;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongAdder size = new LongAdder();
+        private volatile Contents contents = new Contents(null,
+                                                          new ConcurrentHashMap<>());
+        private volatile boolean dropped;
+
+        private Partition(Instant start,
+                          Instant end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return false, without the lock, when the partition was dropped
+         */
+        private boolean lockForWrite() {
+            lock.readLock()
+                .lock();
+            if (!dropped)
+                return true;
+
+            lock.readLock()
+                .unlock();
+            return false;
+        }
+
+        private void unlockForWrite() {
+            lock.readLock()
+                .unlock();
+        }
+
+        private StoredDocument get(DocumentKey key) {
+            return contents.get(key);
+        }
+
+        private void store(DocumentKey key,
+                           StoredDocument document) {
+            Contents currentContents = contents;
+            if (currentContents.sealedSegment != null) {
+                int index = currentContents.sealedSegment.indexOf(key);
+                if (index >= 0) {
+                    if (currentContents.sealedSegment.set(index,
+                                                          document))
+                        countAdded(1);
+                    return;
+                }
+            }
+            if (currentContents.openDocuments.put(key,
+                                                  document) == null)
+                countAdded(1);
+        }
+
+        private void remove(DocumentKey key) {
+            Contents currentContents = contents;
+            if (currentContents.sealedSegment != null) {
+                int index = currentContents.sealedSegment.indexOf(key);
+                if (index >= 0) {
+                    if (currentContents.sealedSegment.remove(index))
+                        countAdded(-1);
+                    return;
+                }
+            }
+            if (currentContents.openDocuments.remove(key) != null)
+                countAdded(-1);
+        }
+
+        private void countAdded(long documents) {
+            size.add(documents);
+            documentCount.add(documents);
+        }
+
+        /**
+         * Merges the documents added since the last seal with the sealed ones
+         * into a new segment. Writers of the partition wait meanwhile; readers
+         * keep reading the previous contents until the new ones replace them.
+         */
+        private void seal() {
+            lock.writeLock()
+                .lock();
+            try {
+                Contents currentContents = contents;
+                if (dropped
+                    || currentContents.openDocuments.isEmpty())
+                    return;
+
+                List<StoredDocument> sealedDocuments = new ArrayList<>();
+                try (Stream<StoredDocument> documents = currentContents.documents()) {
+                    documents.forEach(sealedDocuments::add);
+                }
+                contents = new Contents(SealedSegment.of(sealedDocuments,
+                                                         spillDirectory),
+                                        new ConcurrentHashMap<>());
+                if (currentContents.sealedSegment != null)
+                    currentContents.sealedSegment.delete();
+            } finally {
+                lock.writeLock()
+                    .unlock();
+            }
+        }
+
+        /**
+         * @return false when the partition was dropped before
+         */
+        private boolean drop() {
+            lock.writeLock()
+                .lock();
+            try {
+                if (dropped)
+                    return false;
+
+                dropped = true;
+                return true;
+            } finally {
+                lock.writeLock()
+                    .unlock();
+            }
+        }
+
+        private void deleteSpillFile() {
+            SealedSegment sealedSegment = contents.sealedSegment;
+            if (sealedSegment != null)
+                sealedSegment.delete();
+        }
+    }
+
+    /**
+     * Covers the partitions [fromPartition] to [toPartition] exclusive, split
+     * by halving the range of partitions; a single partition is split by its
+     * own spliterator.
+     */
+    private static final class PartitionSpliterator implements Spliterator<StoredDocument> {
+        private final List<Partition> scannedPartitions;
+        private int fromPartition;
+        private final int toPartition;
+        private Spliterator<StoredDocument> current;
+
+        PartitionSpliterator(List<Partition> scannedPartitions,
+                             int fromPartition,
+                             int toPartition) {
+            this.scannedPartitions = scannedPartitions;
+            this.fromPartition = fromPartition;
+            this.toPartition = toPartition;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super StoredDocument> action) {
+            while (true) {
+                if (current == null) {
+                    if (fromPartition == toPartition)
+                        return false;
+                    current = nextPartition();
+                }
+                if (current.tryAdvance(action))
+                    return true;
+                current = null;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super StoredDocument> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            while (fromPartition < toPartition) {
+                nextPartition().forEachRemaining(action);
+            }
+        }
+
+        @Override
+        public Spliterator<StoredDocument> trySplit() {
+            if (current != null)
+                return null;
+            if (toPartition - fromPartition > 1) {
+                int middlePartition = (fromPartition + toPartition) >>> 1;
+                Spliterator<StoredDocument> prefix = new PartitionSpliterator(scannedPartitions,
+                                                                              fromPartition,
+                                                                              middlePartition);
+                fromPartition = middlePartition;
+                return prefix;
+            }
+            if (toPartition - fromPartition == 1) {
+                current = nextPartition();
+                return current.trySplit();
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = current == null ? 0
+                                        : current.estimateSize();
+            for (int partition = fromPartition; partition < toPartition; partition++) {
+                size += scannedPartitions.get(partition).size.sum();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.NONNULL;
+        }
+
+        private Spliterator<StoredDocument> nextPartition() {
+            return scannedPartitions.get(fromPartition++).contents.documents()
+                                                                  .spliterator();
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorted index over {@link Document#getTitle()}. Titles sharing a prefix are
+ * adjacent in the sorted key set, so a prefix lookup only visits the titles
+ * that actually start with it.
+ */
+class TitlePrefixIndex implements DocumentIndex {
+    private final SortedPostingLists<String> idsByTitle = new SortedPostingLists<>();
+    private final Map<DocumentKey, String> titlesById = new ConcurrentHashMap<>();
+
+    @Override
+    public void index(DocumentKey id,
+                      Document document) {
+        String title = document.getTitle();
+        String previousTitle = title == null ? titlesById.remove(id)
+                                             : titlesById.put(id,
+                                                              title);
+
+        if (Objects.equals(previousTitle,
+                           title))
+            return;
+
+        if (previousTitle != null)
+            idsByTitle.remove(previousTitle,
+                              id);
+        if (title != null)
+            idsByTitle.add(title,
+                           id);
+    }
+
+    @Override
+    public void remove(DocumentKey id) {
+        String previousTitle = titlesById.remove(id);
+        if (previousTitle != null)
+            idsByTitle.remove(previousTitle,
+                              id);
+    }
+
+    /**
+     * @param prefixes - title prefixes, a document matches if its title starts
+     *                 with any of them
+     * @return ids of the documents whose title starts with one of the [prefixes]
+     */
+    Set<DocumentKey> findIds(List<String> prefixes) {
+        Set<DocumentKey> ids = new HashSet<>();
+        for (String prefix : prefixes) {
+            collectIds(prefix,
+                       ids);
+        }
+        return ids;
+    }
+
+    /**
+     * @param prefixes - title prefixes
+     * @param limit    - count after which the estimation stops
+     * @return number of documents whose title starts with one of the
+     *         [prefixes], capped at [limit]
+     */
+    long estimateIds(List<String> prefixes,
+                     long limit) {
+        long estimate = 0;
+        for (String prefix : prefixes) {
+            for (String title : titlesStartingWith(prefix)) {
+                estimate += idsByTitle.get(title)
+                                      .size();
+                if (estimate >= limit)
+                    return limit;
+            }
+        }
+        return estimate;
+    }
+
+    private void collectIds(String prefix,
+                            Set<DocumentKey> ids) {
+        for (String title : titlesStartingWith(prefix)) {
+            ids.addAll(idsByTitle.get(title));
+        }
+    }
+
+    private Iterable<String> titlesStartingWith(String prefix) {
+        return () -> idsByTitle.keys()
+                               .tailSet(prefix,
+                                        true)
+                               .stream()
+                               .takeWhile(title -> title.startsWith(prefix))
+                               .iterator();
+    }
+
+}
@@ -0,0 +1,47 @@
+package tech.innovatelu.document_manager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Selects the first [k] elements of a stream in a given order while holding at
+ * most [k] of them at a time, instead of sorting the whole stream.
+ */
+final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * @param elements   - elements to select from
+     * @param comparator - order of the result
+     * @param k          - maximum number of selected elements
+     * @return at most [k] smallest [elements] according to the [comparator],
+     *         sorted by it
+     */
+    static <T> List<T> select(Stream<T> elements,
+                              Comparator<? super T> comparator,
+                              int k) {
+        if (k == 0)
+            return new ArrayList<>();
+
+        PriorityQueue<T> worstOnTop = new PriorityQueue<>(comparator.reversed());
+        elements.forEach(element -> {
+            if (worstOnTop.size() < k) {
+                worstOnTop.add(element);
+            } else if (comparator.compare(element,
+                                          worstOnTop.peek()) < 0) {
+                worstOnTop.poll();
+                worstOnTop.add(element);
+            }
+        });
+
+        List<T> selected = new ArrayList<>(worstOnTop);
+        selected.sort(comparator);
+        return selected;
+    }
+
+}
@@ -0,0 +1,52 @@
+package tech.innovatelu.document_manager;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Java strings are UTF-16 and may hold unpaired surrogates, which UTF-8 cannot
+ * represent: encoding replaces them with '?'. Strings are stored as UTF-8 when
+ * they survive the round trip and as their raw UTF-16 chars otherwise.
+ */
+final class Utf16 {
+
+    private Utf16() {
+    }
+
+    /**
+     * @return whether every surrogate of the [string] is part of a pair, so it
+     *         survives a round trip through UTF-8
+     */
+    static boolean isWellFormed(String string) {
+        for (int index = 0; index < string.length(); index++) {
+            char c = string.charAt(index);
+            if (!Character.isSurrogate(c))
+                continue;
+            if (!Character.isHighSurrogate(c)
+                || index + 1 == string.length()
+                || !Character.isLowSurrogate(string.charAt(index + 1)))
+                return false;
+            index++;
+        }
+        return true;
+    }
+
+    /**
+     * @return the chars of the [string], two big endian bytes each
+     */
+    static byte[] encode(String string) {
+        ByteBuffer bytes = ByteBuffer.allocate(string.length() * Character.BYTES);
+        bytes.asCharBuffer()
+             .put(string);
+        return bytes.array();
+    }
+
+    /**
+     * @param bytes - chars written by {@link #encode(String)}
+     */
+    static String decode(byte[] bytes) {
+        return ByteBuffer.wrap(bytes)
+                         .asCharBuffer()
+                         .toString();
+    }
+
+}
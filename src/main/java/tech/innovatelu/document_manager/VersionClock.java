@@ -0,0 +1,184 @@
+package tech.innovatelu.document_manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out commit versions to writes and snapshot versions to reads. A
+ * snapshot sees every write whose version is at most its own, so it is taken
+ * at the stable version: the highest one below which no write is still in
+ * flight. Versions older than the oldest open snapshot are not needed by any
+ * reader and can be reclaimed.
+ * <p>
+ * No method takes a lock. A finished write marks its version in a ring of
+ * {@value #WRITE_RING_SIZE} slots and whoever finishes a write moves the
+ * stable version past the marked ones. An open snapshot publishes its version
+ * in a slot of its own, which only closing snapshots and
+ * {@link #oldestReadableVersion()} scan.
+ */
+class VersionClock {
+    private static final int WRITE_RING_SIZE = 1 << 12;
+    private static final int WRITE_RING_MASK = WRITE_RING_SIZE - 1;
+    /**
+     * Snapshot slots are a cache line apart, so snapshots opened on different
+     * threads do not write to the same line.
+     */
+    private static final int SLOT_STRIDE = 8;
+    /**
+     * Two slots per processor, so the threads running searches rarely probe
+     * past their first slot.
+     */
+    private static final int SLOTS_PER_SEGMENT = Integer.highestOneBit(Math.max(4,
+                                                                                Runtime.getRuntime()
+                                                                                       .availableProcessors()) * 2 - 1) << 1;
+    private static final long FREE = Long.MAX_VALUE;
+    /**
+     * Held by a slot while its snapshot reads the stable version, so
+     * {@link #oldestReadableVersion()} either sees the slot or read a stable
+     * version not above the snapshot's. Below every version, it makes a
+     * concurrent reclaimer keep everything.
+     */
+    private static final long PENDING = -1;
+
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final AtomicLong stableVersion = new AtomicLong();
+    /**
+     * Finished versions by their position in the ring.
+     */
+    private final AtomicLongArray finishedWrites = new AtomicLongArray(WRITE_RING_SIZE);
+    private final SnapshotSegment snapshots = new SnapshotSegment();
+
+    /**
+     * Every call must be followed by {@link #endWrite(long)} once the write is
+     * visible to searches, also when the write fails. Waits while the write
+     * would lap the ring, that is while {@value #WRITE_RING_SIZE} older writes
+     * are still in flight.
+     *
+     * @return version of the write
+     */
+    long beginWrite() {
+        long version = lastVersion.incrementAndGet();
+        while (version - stableVersion.get() > WRITE_RING_SIZE) {
+            Thread.yield();
+        }
+        return version;
+    }
+
+    /**
+     * Marks the [version] finished before moving the stable version, so of two
+     * writes finishing together at least one sees the other's mark.
+     */
+    void endWrite(long version) {
+        finishedWrites.set((int) version & WRITE_RING_MASK,
+                           version);
+        long stable = stableVersion.get();
+        while (finishedWrites.get((int) (stable + 1) & WRITE_RING_MASK) == stable + 1) {
+            stableVersion.compareAndSet(stable,
+                                        stable + 1);
+            stable = stableVersion.get();
+        }
+    }
+
+    /**
+     * Every call must be followed by {@link #closeSnapshot(long)}.
+     *
+     * @return version of the snapshot
+     */
+    long openSnapshot() {
+        SnapshotSegment segment = snapshots;
+        int slot = SnapshotSegment.firstSlotOf(Thread.currentThread());
+        while (true) {
+            for (int probe = 0; probe < SLOTS_PER_SEGMENT; probe++) {
+                int index = (slot + probe) % SLOTS_PER_SEGMENT * SLOT_STRIDE;
+                if (segment.versions.get(index) == FREE
+                    && segment.versions.compareAndSet(index,
+                                                      FREE,
+                                                      PENDING)) {
+                    long version = stableVersion.get();
+                    segment.versions.set(index,
+                                         version);
+                    return version;
+                }
+            }
+            segment = segment.nextOrAppend();
+        }
+    }
+
+    /**
+     * @return whether no older or equal snapshot is open any more, so older
+     *         versions may have become reclaimable
+     */
+    boolean closeSnapshot(long version) {
+        int slot = SnapshotSegment.firstSlotOf(Thread.currentThread());
+        boolean closed = false;
+        boolean wasOldest = true;
+        for (SnapshotSegment segment = snapshots; segment != null; segment = segment.next.get()) {
+            for (int probe = 0; probe < SLOTS_PER_SEGMENT; probe++) {
+                int index = (slot + probe) % SLOTS_PER_SEGMENT * SLOT_STRIDE;
+                long openVersion = segment.versions.get(index);
+                if (!closed
+                    && openVersion == version
+                    && segment.versions.compareAndSet(index,
+                                                      version,
+                                                      FREE))
+                    closed = true;
+                else if (openVersion <= version)
+                    wasOldest = false;
+            }
+        }
+        return wasOldest;
+    }
+
+    /**
+     * @return oldest version an open or a future snapshot can read
+     */
+    long oldestReadableVersion() {
+        long oldest = stableVersion.get();
+        for (SnapshotSegment segment = snapshots; segment != null; segment = segment.next.get()) {
+            for (int slot = 0; slot < SLOTS_PER_SEGMENT; slot++) {
+                oldest = Math.min(oldest,
+                                  segment.versions.get(slot * SLOT_STRIDE));
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * @return highest version below which no write is in flight
+     */
+    long stableVersion() {
+        return stableVersion.get();
+    }
+
+    /**
+     * Slots of open snapshots, {@link #FREE} when unused. Segments are
+     * appended once every slot is taken and never removed.
+     */
+    private static final class SnapshotSegment {
+        private final AtomicLongArray versions = new AtomicLongArray(SLOTS_PER_SEGMENT * SLOT_STRIDE);
+        private final AtomicReference<SnapshotSegment> next = new AtomicReference<>();
+
+        private SnapshotSegment() {
+            for (int slot = 0; slot < SLOTS_PER_SEGMENT; slot++) {
+                versions.set(slot * SLOT_STRIDE,
+                             FREE);
+            }
+        }
+
+        private static int firstSlotOf(Thread thread) {
+            return (int) (thread.threadId() * 0x9E3779B9L >>> 16) & SLOTS_PER_SEGMENT - 1;
+        }
+
+        private SnapshotSegment nextOrAppend() {
+            SnapshotSegment nextSegment = next.get();
+            if (nextSegment != null)
+                return nextSegment;
+
+            next.compareAndSet(null,
+                               new SnapshotSegment());
+            return next.get();
+        }
+    }
+
+}
@@ -0,0 +1,334 @@
+package tech.innovatelu.document_manager;
+
+import tech.innovatelu.document_manager.DocumentManager.Document;
+import tech.innovatelu.document_manager.DocumentManager.FsyncPolicy;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of saved documents, split into segment files named after the
+ * sequence number of their first record. Each record is laid out as
+ * <pre>
+ * [int payload length][long sequence][payload][int CRC32 of sequence and payload]
+ * </pre>
+ * A record that is cut short or fails its checksum marks the end of the
+ * segment: it was never acknowledged to the caller, so recovery drops it.
+ * <p>
+ * Writers reserve a sequence while they hold the lock ordering their writes
+ * and append the record after releasing it, so encoding and file I/O happen
+ * outside that lock while records still reach the file in sequence order.
+ */
+class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_LENGTH = Integer.BYTES + Long.BYTES;
+    private static final int CHECKSUM_LENGTH = Integer.BYTES;
+    private static final int REPLAY_BUFFER_SIZE = 1 << 20;
+    private static final int FLUSH_THRESHOLD = 1 << 20;
+    private static final byte[] NO_RECORD = new byte[0];
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final ByteArrayOutputStream pendingRecords = new ByteArrayOutputStream();
+    private final AtomicLong reservedSequence = new AtomicLong();
+    /**
+     * Appended records whose predecessors are not appended yet, by sequence.
+     */
+    private final Map<Long, byte[]> waitingRecords = new HashMap<>();
+    private FileChannel segment;
+    private long segmentFirstSequence;
+    /**
+     * Sequence of the last record in the buffer or the segment file.
+     */
+    private long lastSequence;
+    private volatile long durableSequence;
+
+    WriteAheadLog(Path directory,
+                  FsyncPolicy fsyncPolicy) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Replays the records written after [afterSequence] and opens a new segment
+     * for the records to come.
+     *
+     * @param afterSequence - sequence already covered by a snapshot
+     * @param consumer      - receives the replayed documents in log order
+     */
+    void recover(long afterSequence,
+                 Consumer<Document> consumer) throws IOException {
+        long recoveredSequence = afterSequence;
+        for (Path segmentFile : segmentFiles()) {
+            recoveredSequence = Math.max(recoveredSequence,
+                                         replaySegment(segmentFile,
+                                                       afterSequence,
+                                                       consumer));
+        }
+
+        synchronized (appendLock) {
+            reservedSequence.set(recoveredSequence);
+            lastSequence = recoveredSequence;
+            durableSequence = recoveredSequence;
+            openSegment(recoveredSequence + 1);
+        }
+    }
+
+    /**
+     * Reserves the sequence number of the next record. Every reserved sequence
+     * must be passed to {@link #append} later, also when the caller fails, as
+     * records behind it wait for it to reach the log.
+     *
+     * @return sequence number of the record
+     */
+    long reserve() {
+        return reservedSequence.incrementAndGet();
+    }
+
+    /**
+     * Encodes the [document] and adds it to the log buffer as the record with
+     * the reserved [sequence], or, if the [document] is null, only releases
+     * the [sequence]. Records enter the buffer in sequence order whatever
+     * order they are appended in. They reach the segment file when the buffer
+     * fills up or the log is synced, so a batch of appends costs one file
+     * write, and they are not durable until {@link #awaitDurable} returns.
+     */
+    void append(long sequence,
+                Document document) throws IOException {
+        byte[] record = null;
+        try {
+            record = document == null ? NO_RECORD
+                                      : recordOf(sequence,
+                                                 document);
+        } finally {
+            synchronized (appendLock) {
+                waitingRecords.put(sequence,
+                                   record == null ? NO_RECORD
+                                                  : record);
+                byte[] nextRecord;
+                while ((nextRecord = waitingRecords.remove(lastSequence + 1)) != null) {
+                    pendingRecords.write(nextRecord);
+                    lastSequence++;
+                }
+                if (pendingRecords.size() >= FLUSH_THRESHOLD)
+                    flushPendingRecords();
+            }
+        }
+    }
+
+    /**
+     * Blocks until the records up to the given [sequence] are on disk. Under
+     * group commit one fsync covers every writer waiting at that moment, every
+     * write syncs on its own, and the periodic policy returns immediately and
+     * leaves syncing to {@link #sync()}. Records reserved but not appended yet
+     * are waited for.
+     */
+    void awaitDurable(long sequence) throws IOException {
+        if (fsyncPolicy == FsyncPolicy.PERIODIC)
+            return;
+
+        while (durableSequence < sequence) {
+            if (fsyncPolicy == FsyncPolicy.EVERY_WRITE) {
+                sync();
+            } else {
+                synchronized (syncLock) {
+                    if (durableSequence < sequence)
+                        sync();
+                }
+            }
+            if (durableSequence < sequence)
+                Thread.yield();
+        }
+    }
+
+    void sync() throws IOException {
+        FileChannel syncedSegment;
+        long syncedSequence;
+        synchronized (appendLock) {
+            flushPendingRecords();
+            syncedSegment = segment;
+            syncedSequence = lastSequence;
+        }
+        if (durableSequence >= syncedSequence)
+            return;
+
+        try {
+            syncedSegment.force(false);
+        } catch (IOException e) {
+            if (syncedSegment.isOpen())
+                throw e;
+        }
+        durableSequence = Math.max(durableSequence,
+                                   syncedSequence);
+    }
+
+    /**
+     * @return sequence of the last reserved record
+     */
+    long lastSequence() {
+        return reservedSequence.get();
+    }
+
+    /**
+     * Closes the current segment and starts a new one, so that every record up
+     * to {@link #lastSequence()} lives in older segments.
+     */
+    void roll() throws IOException {
+        synchronized (appendLock) {
+            if (segmentFirstSequence > lastSequence)
+                return;
+
+            flushPendingRecords();
+            segment.force(false);
+            durableSequence = lastSequence;
+            segment.close();
+            openSegment(lastSequence + 1);
+        }
+    }
+
+    /**
+     * Deletes the segments which start before [sequence]. Callers must have
+     * {@link #roll() rolled} the log past it first.
+     */
+    void deleteSegmentsBefore(long sequence) throws IOException {
+        for (Path segmentFile : segmentFiles()) {
+            if (firstSequenceOf(segmentFile) < sequence)
+                Files.deleteIfExists(segmentFile);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (segment == null
+                || !segment.isOpen())
+                return;
+
+            flushPendingRecords();
+            segment.force(false);
+            durableSequence = lastSequence;
+            segment.close();
+        }
+    }
+
+    private byte[] recordOf(long sequence,
+                            Document document) {
+        byte[] payload = DocumentCodec.encode(document);
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length + CHECKSUM_LENGTH)
+                         .putInt(payload.length)
+                         .putLong(sequence)
+                         .put(payload)
+                         .putInt(checksum(sequence,
+                                          payload))
+                         .array();
+    }
+
+    private void flushPendingRecords() throws IOException {
+        if (pendingRecords.size() == 0)
+            return;
+
+        ByteBuffer records = ByteBuffer.wrap(pendingRecords.toByteArray());
+        while (records.hasRemaining()) {
+            segment.write(records);
+        }
+        pendingRecords.reset();
+    }
+
+    private long replaySegment(Path segmentFile,
+                               long afterSequence,
+                               Consumer<Document> consumer) throws IOException {
+        long lastReplayedSequence = 0;
+        long remainingBytes = Files.size(segmentFile);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentFile),
+                                                                                 REPLAY_BUFFER_SIZE))) {
+            while (remainingBytes >= HEADER_LENGTH) {
+                int payloadLength = input.readInt();
+                long sequence = input.readLong();
+                remainingBytes -= HEADER_LENGTH;
+                if (payloadLength < 0
+                    || payloadLength + CHECKSUM_LENGTH > remainingBytes)
+                    break;
+
+                byte[] payload = new byte[payloadLength];
+                input.readFully(payload);
+                int checksum = input.readInt();
+                remainingBytes -= payloadLength + CHECKSUM_LENGTH;
+                if (checksum != checksum(sequence,
+                                         payload))
+                    break;
+
+                if (sequence > afterSequence)
+                    consumer.accept(DocumentCodec.decode(payload));
+                lastReplayedSequence = sequence;
+            }
+        }
+        return lastReplayedSequence;
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        segment = FileChannel.open(directory.resolve(segmentFileName(firstSequence)),
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        segmentFirstSequence = firstSequence;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(this::isSegmentFile)
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private boolean isSegmentFile(Path file) {
+        String fileName = file.getFileName()
+                              .toString();
+        return fileName.startsWith(SEGMENT_PREFIX)
+               && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private long firstSequenceOf(Path segmentFile) {
+        String fileName = segmentFile.getFileName()
+                                     .toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                                                 fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private String segmentFileName(long firstSequence) {
+        return String.format("%s%020d%s",
+                             SEGMENT_PREFIX,
+                             firstSequence,
+                             SEGMENT_SUFFIX);
+    }
+
+    private int checksum(long sequence,
+                         byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES)
+                             .putLong(0,
+                                      sequence));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+}
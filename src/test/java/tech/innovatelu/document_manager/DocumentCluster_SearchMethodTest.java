@@ -0,0 +1,267 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentCluster_SearchMethodTest {
+    private static final Instant FIRST_DAY = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void testScatterGatherMatchesSingleManager() throws InterruptedException {
+        List<DocumentManager> leaders = leaders(3);
+        List<DocumentManager> replicas = leaders.stream()
+                                                .map(leader -> new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                                .replicationLeader(leader)
+                                                                                                                .build()))
+                                                .collect(Collectors.toList());
+        DocumentCluster documentCluster = new DocumentCluster(DocumentCluster.Configuration.builder()
+                                                                                           .partitions(IntStream.range(0,
+                                                                                                                       leaders.size())
+                                                                                                                .mapToObj(index -> DocumentCluster.Partition.builder()
+                                                                                                                                                            .leader(leaders.get(index))
+                                                                                                                                                            .replicas(List.of(replicas.get(index)))
+                                                                                                                                                            .build())
+                                                                                                                .collect(Collectors.toList()))
+                                                                                           .build());
+        DocumentManager documentManager = new DocumentManager();
+        List<DocumentManager.Document> documents = documents();
+        documentCluster.saveAll(copiesOf(documents));
+        documentManager.saveAll(copiesOf(documents));
+        for (int index = 0; index < leaders.size(); index++) {
+            awaitReplication(leaders.get(index),
+                             replicas.get(index));
+        }
+
+        List<DocumentManager.SearchRequest> requests = List.of(DocumentManager.SearchRequest.builder()
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .createdFrom(FIRST_DAY.plus(10,
+                                                                                                                        ChronoUnit.DAYS))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .authorIds(List.of("author-1"))
+                                                                                            .titlePrefixes(List.of("Title 1"))
+                                                                                            .build());
+        List<DocumentManager.SearchOptions> pages = List.of(DocumentManager.SearchOptions.builder()
+                                                                                         .sortBy(DocumentManager.SortKey.TITLE)
+                                                                                         .offset(5)
+                                                                                         .limit(7)
+                                                                                         .build(),
+                                                            DocumentManager.SearchOptions.builder()
+                                                                                         .sortBy(DocumentManager.SortKey.CREATED)
+                                                                                         .descending(true)
+                                                                                         .limit(10)
+                                                                                         .build());
+        for (DocumentManager.SearchRequest request : requests) {
+            assertEquals(idsOf(documentManager.search(request)),
+                         idsOf(documentCluster.search(request)),
+                         request.toString());
+            for (DocumentManager.SearchOptions page : pages) {
+                assertEquals(documentManager.search(request,
+                                                    page),
+                             documentCluster.search(request,
+                                                    page),
+                             request + " " + page);
+            }
+        }
+        for (DocumentManager.Document document : documentManager.search(null)) {
+            assertEquals(documentManager.findById(document.getId()),
+                         documentCluster.findById(document.getId()));
+        }
+        replicas.forEach(DocumentManager::close);
+    }
+
+    @Test
+    void testSavesAreSpreadOverPartitionLeaders() {
+        List<DocumentManager> leaders = leaders(4);
+        DocumentCluster documentCluster = clusterOf(leaders);
+
+        List<DocumentManager.Document> savedDocuments = new ArrayList<>();
+        for (int index = 0; index < 40; index++) {
+            savedDocuments.add(documentCluster.save(DocumentManager.Document.builder()
+                                                                            .title("Title " + index)
+                                                                            .content("content " + index)
+                                                                            .build()));
+        }
+
+        assertEquals(40,
+                     documentCluster.search(null)
+                                    .size());
+        assertEquals(40,
+                     leaders.stream()
+                            .mapToLong(leader -> leader.metrics()
+                                                       .getDocumentCount())
+                            .sum());
+        assertTrue(leaders.stream()
+                          .allMatch(leader -> leader.metrics()
+                                                    .getDocumentCount() > 0));
+        for (DocumentManager.Document document : savedDocuments) {
+            assertEquals(1,
+                         leaders.stream()
+                                .filter(leader -> leader.findById(document.getId())
+                                                        .isPresent())
+                                .count());
+        }
+    }
+
+    @Test
+    void testSaveAllReturnsSavedDocumentsInOrder() {
+        DocumentCluster documentCluster = clusterOf(leaders(3));
+        List<DocumentManager.Document> documents = documents();
+
+        List<DocumentManager.Document> savedDocuments = documentCluster.saveAll(copiesOf(documents));
+
+        assertEquals(documents.stream()
+                              .map(DocumentManager.Document::getId)
+                              .collect(Collectors.toList()),
+                     savedDocuments.stream()
+                                   .map(DocumentManager.Document::getId)
+                                   .collect(Collectors.toList()));
+        savedDocuments.remove(0);
+        assertEquals(documents.size() - 1,
+                     savedDocuments.size());
+    }
+
+    @Test
+    void testStaleReplicaReadsFallBackToLeader() {
+        DocumentManager leader = leaders(1).get(0);
+        try (DocumentManager replica = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                        .replicationLeader(leader)
+                                                                                        .replicationInterval(Duration.ofHours(1))
+                                                                                        .maxReplicationLag(Duration.ZERO)
+                                                                                        .build())) {
+            DocumentCluster documentCluster = new DocumentCluster(DocumentCluster.Configuration.builder()
+                                                                                               .partitions(List.of(DocumentCluster.Partition.builder()
+                                                                                                                                            .leader(leader)
+                                                                                                                                            .replicas(List.of(replica))
+                                                                                                                                            .build()))
+                                                                                               .build());
+            documentCluster.save(document("1",
+                                          "Title 1",
+                                          FIRST_DAY));
+
+            assertTrue(documentCluster.findById("1")
+                                      .isPresent());
+            assertEquals(List.of("1"),
+                         idsOf(documentCluster.search(null)));
+        }
+    }
+
+    @Test
+    void testClusterValidatesItsArguments() {
+        DocumentCluster documentCluster = clusterOf(leaders(2));
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DocumentCluster(DocumentCluster.Configuration.builder()
+                                                                            .partitions(List.of())
+                                                                            .build()));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DocumentCluster(DocumentCluster.Configuration.builder()
+                                                                            .partitions(List.of(DocumentCluster.Partition.builder()
+                                                                                                                         .build()))
+                                                                            .build()));
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentCluster.save(null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentCluster.findById(null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentCluster.search(null,
+                                                  DocumentManager.SearchOptions.builder()
+                                                                               .offset(-1)
+                                                                               .build()));
+    }
+
+    private List<DocumentManager> leaders(int count) {
+        return IntStream.range(0,
+                               count)
+                        .mapToObj(index -> new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                            .changeFeedCapacity(1_024)
+                                                                                            .build()))
+                        .collect(Collectors.toList());
+    }
+
+    private DocumentCluster clusterOf(List<DocumentManager> leaders) {
+        return new DocumentCluster(DocumentCluster.Configuration.builder()
+                                                                .partitions(leaders.stream()
+                                                                                   .map(leader -> DocumentCluster.Partition.builder()
+                                                                                                                           .leader(leader)
+                                                                                                                           .build())
+                                                                                   .collect(Collectors.toList()))
+                                                                .build());
+    }
+
+    private void awaitReplication(DocumentManager leader,
+                                  DocumentManager replica) throws InterruptedException {
+        long sequence = leader.lastChangeSequence();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10)
+                                                    .toNanos();
+        while (replica.replicatedSequence() < sequence
+               && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(replica.replicatedSequence() >= sequence);
+    }
+
+    /**
+     * Two documents a day over twenty days with distinct titles, every third
+     * one without an author and every seventh one without [created].
+     */
+    private List<DocumentManager.Document> documents() {
+        List<DocumentManager.Document> documents = new ArrayList<>();
+        for (int index = 0; index < 40; index++) {
+            DocumentManager.Document document = document("document-" + index,
+                                                         "Title " + index,
+                                                         index % 7 == 0 ? null
+                                                                        : FIRST_DAY.plus(index * 12L,
+                                                                                         ChronoUnit.HOURS));
+            if (index % 3 == 0)
+                document.setAuthor(null);
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title,
+                                              Instant created) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .content("content of " + id)
+                                       .author(DocumentManager.Author.builder()
+                                                                     .id("author-1")
+                                                                     .name("Author One")
+                                                                     .build())
+                                       .created(created)
+                                       .build();
+    }
+
+    private List<DocumentManager.Document> copiesOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(document -> DocumentManager.Document.builder()
+                                                                 .id(document.getId())
+                                                                 .title(document.getTitle())
+                                                                 .content(document.getContent())
+                                                                 .author(document.getAuthor())
+                                                                 .created(document.getCreated())
+                                                                 .build())
+                        .collect(Collectors.toList());
+    }
+
+    private List<String> idsOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(DocumentManager.Document::getId)
+                        .sorted()
+                        .collect(Collectors.toList());
+    }
+
+}
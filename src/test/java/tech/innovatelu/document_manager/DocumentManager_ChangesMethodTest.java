@@ -0,0 +1,277 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_ChangesMethodTest {
+
+    private DocumentManager documentManager;
+
+    @BeforeEach
+    void setUp() {
+        documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                           .changeFeedCapacity(16)
+                                                                           .changeFeedExecutor(Runnable::run)
+                                                                           .build());
+    }
+
+    @Test
+    void testChangesAfterReturnsInsertsAndUpdatesInOrder() {
+        long start = documentManager.lastChangeSequence();
+        save("1",
+             "First");
+        save("2",
+             "Second");
+        save("1",
+             "First Updated");
+
+        List<DocumentManager.ChangeEvent> events = documentManager.changesAfter(start,
+                                                                               10);
+
+        assertEquals(List.of("First",
+                             "Second",
+                             "First Updated"),
+                     titlesOf(events));
+        assertEquals(List.of(DocumentManager.ChangeType.INSERT,
+                             DocumentManager.ChangeType.INSERT,
+                             DocumentManager.ChangeType.UPDATE),
+                     events.stream()
+                           .map(DocumentManager.ChangeEvent::getType)
+                           .collect(Collectors.toList()));
+        assertTrue(events.get(0)
+                         .getSequence() < events.get(1)
+                                                .getSequence());
+        assertEquals(Instant.parse("2024-01-01T10:00:00Z"),
+                     events.get(2)
+                           .getDocument()
+                           .getCreated());
+        assertEquals(events.get(2)
+                           .getSequence(),
+                     documentManager.lastChangeSequence());
+    }
+
+    @Test
+    void testChangesAfterResumesFromSequence() {
+        save("1",
+             "First");
+        long resumeSequence = documentManager.lastChangeSequence();
+        save("2",
+             "Second");
+        save("3",
+             "Third");
+
+        assertEquals(List.of("Second"),
+                     titlesOf(documentManager.changesAfter(resumeSequence,
+                                                           1)));
+        assertEquals(List.of("Second",
+                             "Third"),
+                     titlesOf(documentManager.changesAfter(resumeSequence,
+                                                           10)));
+        assertTrue(documentManager.changesAfter(documentManager.lastChangeSequence(),
+                                                10)
+                                  .isEmpty());
+    }
+
+    @Test
+    void testChangesAfterFailsWhenEventsAreOverwritten() {
+        long start = documentManager.lastChangeSequence();
+        for (int index = 0; index < 20; index++) {
+            save(String.valueOf(index),
+                 "Document " + index);
+        }
+
+        assertThrows(IllegalStateException.class,
+                     () -> documentManager.changesAfter(start,
+                                                        10));
+        assertEquals(16,
+                     documentManager.changesAfter(documentManager.lastChangeSequence() - 16,
+                                                  100)
+                                    .size());
+    }
+
+    @Test
+    void testChangesPublisherHonoursDemand() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        documentManager.changes(documentManager.lastChangeSequence())
+                       .subscribe(subscriber);
+        save("1",
+             "First");
+        save("2",
+             "Second");
+        save("3",
+             "Third");
+
+        assertTrue(subscriber.events.isEmpty());
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of("First",
+                             "Second"),
+                     titlesOf(subscriber.events));
+
+        subscriber.subscription.request(5);
+        save("4",
+             "Fourth");
+        assertEquals(List.of("First",
+                             "Second",
+                             "Third",
+                             "Fourth"),
+                     titlesOf(subscriber.events));
+    }
+
+    @Test
+    void testChangesPublisherSignalsErrorWhenOverrun() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        documentManager.changes(documentManager.lastChangeSequence())
+                       .subscribe(subscriber);
+        for (int index = 0; index < 20; index++) {
+            save(String.valueOf(index),
+                 "Document " + index);
+        }
+
+        subscriber.subscription.request(1);
+
+        assertInstanceOf(IllegalStateException.class,
+                         subscriber.error);
+        assertTrue(subscriber.events.isEmpty());
+    }
+
+    @Test
+    void testChangesPublisherCompletesOnClose() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        documentManager.changes(documentManager.lastChangeSequence())
+                       .subscribe(subscriber);
+
+        documentManager.close();
+
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testChangesPublisherDeliversConcurrentSavesInSequenceOrder() throws Exception {
+        int threads = 4;
+        int savesPerThread = 500;
+        ExecutorService deliveryExecutor = Executors.newSingleThreadExecutor();
+        DocumentManager concurrentDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                     .changeFeedCapacity(threads * savesPerThread)
+                                                                                                     .changeFeedExecutor(deliveryExecutor)
+                                                                                                     .build());
+        CountDownLatch delivered = new CountDownLatch(threads * savesPerThread);
+        List<Long> sequences = new CopyOnWriteArrayList<>();
+        concurrentDocumentManager.changes(concurrentDocumentManager.lastChangeSequence())
+                                 .subscribe(new Flow.Subscriber<>() {
+                                     @Override
+                                     public void onSubscribe(Flow.Subscription subscription) {
+                                         subscription.request(Long.MAX_VALUE);
+                                     }
+
+                                     @Override
+                                     public void onNext(DocumentManager.ChangeEvent event) {
+                                         sequences.add(event.getSequence());
+                                         delivered.countDown();
+                                     }
+
+                                     @Override
+                                     public void onError(Throwable throwable) {
+                                     }
+
+                                     @Override
+                                     public void onComplete() {
+                                     }
+                                 });
+
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            int writer = thread;
+            writers.submit(() -> {
+                for (int index = 0; index < savesPerThread; index++) {
+                    concurrentDocumentManager.save(DocumentManager.Document.builder()
+                                                                           .id(writer + "-" + index % 50)
+                                                                           .title("Title " + index)
+                                                                           .build());
+                }
+            });
+        }
+        writers.shutdown();
+
+        assertTrue(writers.awaitTermination(30,
+                                            TimeUnit.SECONDS));
+        assertTrue(delivered.await(30,
+                                   TimeUnit.SECONDS));
+        List<Long> sortedSequences = new ArrayList<>(sequences);
+        sortedSequences.sort(null);
+        assertEquals(sortedSequences,
+                     sequences);
+        assertEquals(threads * savesPerThread,
+                     sequences.stream()
+                              .distinct()
+                              .count());
+        deliveryExecutor.shutdown();
+    }
+
+    @Test
+    void testChangesRequireChangeFeed() {
+        DocumentManager documentManagerWithoutFeed = new DocumentManager();
+
+        assertThrows(IllegalStateException.class,
+                     documentManagerWithoutFeed::lastChangeSequence);
+        assertThrows(IllegalStateException.class,
+                     () -> documentManagerWithoutFeed.changes(0));
+    }
+
+    private void save(String id,
+                      String title) {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id(id)
+                                                     .title(title)
+                                                     .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                     .build());
+    }
+
+    private List<String> titlesOf(List<DocumentManager.ChangeEvent> events) {
+        return events.stream()
+                     .map(event -> event.getDocument()
+                                        .getTitle())
+                     .collect(Collectors.toList());
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<DocumentManager.ChangeEvent> {
+        private final List<DocumentManager.ChangeEvent> events = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(DocumentManager.ChangeEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}
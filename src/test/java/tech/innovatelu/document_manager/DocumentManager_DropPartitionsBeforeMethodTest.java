@@ -0,0 +1,265 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_DropPartitionsBeforeMethodTest {
+    private static final Instant FIRST_DAY = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void testDropRemovesExpiredPartitionsFromStorageAndIndexes() {
+        DocumentManager documentManager = partitionedDocumentManager();
+        saveDocuments(documentManager);
+        documentManager.sealPartitionsBefore(FIRST_DAY.plus(1,
+                                                            ChronoUnit.DAYS));
+
+        assertEquals(4,
+                     documentManager.dropPartitionsBefore(FIRST_DAY.plus(60,
+                                                                         ChronoUnit.HOURS)));
+
+        assertTrue(documentManager.findById("day-0-1")
+                                  .isEmpty());
+        assertTrue(documentManager.findById("day-1-2")
+                                  .isEmpty());
+        assertTrue(documentManager.findById("day-2-1")
+                                  .isPresent());
+        assertEquals(List.of("day-2-1",
+                             "day-2-2",
+                             "undated"),
+                     idsOf(documentManager.search(null)));
+        assertEquals(List.of("day-2-1",
+                             "day-2-2"),
+                     idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                               .authorIds(List.of("author-1"))
+                                                                               .build())));
+        assertEquals(List.of(),
+                     idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                               .titlePrefixes(List.of("Title of day 0"))
+                                                                               .build())));
+        assertEquals(3,
+                     documentManager.metrics()
+                                    .getDocumentCount());
+        assertEquals(2L,
+                     documentManager.explain(DocumentManager.SearchRequest.builder()
+                                                                          .authorIds(List.of("author-1"))
+                                                                          .build())
+                                    .getEstimatedMatches()
+                                    .get(DocumentManager.SearchPredicate.AUTHOR_IDS));
+        assertEquals(0,
+                     documentManager.dropPartitionsBefore(FIRST_DAY.plus(60,
+                                                                         ChronoUnit.HOURS)));
+    }
+
+    @Test
+    void testDroppedIdsCanBeSavedAgain() {
+        DocumentManager documentManager = partitionedDocumentManager();
+        saveDocuments(documentManager);
+        documentManager.dropPartitionsBefore(FIRST_DAY.plus(1,
+                                                            ChronoUnit.DAYS));
+
+        documentManager.save(document("day-0-1",
+                                      "Title saved again",
+                                      FIRST_DAY));
+
+        assertEquals("Title saved again",
+                     documentManager.findById("day-0-1")
+                                    .orElseThrow()
+                                    .getTitle());
+        assertEquals(List.of("day-0-1"),
+                     idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                               .titlePrefixes(List.of("Title saved"))
+                                                                               .build())));
+        assertEquals(List.of("day-0-1"),
+                     idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                               .createdTo(FIRST_DAY)
+                                                                               .build())));
+    }
+
+    @Test
+    void testDropEvictsCachedResults() {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                           .searchCacheCapacity(100)
+                                                                                           .build());
+        saveDocuments(documentManager);
+        DocumentManager.SearchOptions firstTwo = DocumentManager.SearchOptions.builder()
+                                                                              .sortBy(DocumentManager.SortKey.CREATED)
+                                                                              .limit(2)
+                                                                              .build();
+
+        assertEquals(List.of("day-0-1",
+                             "day-0-2"),
+                     idsOf(documentManager.search(null,
+                                                  firstTwo)));
+
+        documentManager.dropPartitionsBefore(FIRST_DAY.plus(1,
+                                                            ChronoUnit.DAYS));
+
+        assertEquals(List.of("day-1-1",
+                             "day-1-2"),
+                     idsOf(documentManager.search(null,
+                                                  firstTwo)));
+    }
+
+    @Test
+    void testDroppedPartitionsStayDroppedAfterRestart(@TempDir Path directory) {
+        DocumentManager.Configuration configuration = DocumentManager.Configuration.builder()
+                                                                                   .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                   .persistenceDirectory(directory)
+                                                                                   .build();
+        try (DocumentManager documentManager = new DocumentManager(configuration)) {
+            saveDocuments(documentManager);
+            documentManager.dropPartitionsBefore(FIRST_DAY.plus(2,
+                                                                ChronoUnit.DAYS));
+        }
+
+        try (DocumentManager documentManager = new DocumentManager(configuration)) {
+            assertEquals(List.of("day-2-1",
+                                 "day-2-2",
+                                 "undated"),
+                         idsOf(documentManager.search(null)));
+        }
+    }
+
+    @Test
+    void testRetentionDropsExpiredPartitionsInBackground() throws InterruptedException {
+        Instant now = Instant.now();
+        try (DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                                .partitionRetention(Duration.ofDays(30))
+                                                                                                .sealPartitionsAfter(Duration.ofDays(1))
+                                                                                                .partitionMaintenanceInterval(Duration.ofMillis(10))
+                                                                                                .build())) {
+            documentManager.save(document("expired",
+                                          "Expired title",
+                                          now.minus(60,
+                                                    ChronoUnit.DAYS)));
+            documentManager.save(document("sealed",
+                                          "Sealed title",
+                                          now.minus(10,
+                                                    ChronoUnit.DAYS)));
+            documentManager.save(document("recent",
+                                          "Recent title",
+                                          now));
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10)
+                                                        .toNanos();
+            while (documentManager.findById("expired")
+                                  .isPresent()
+                   && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertTrue(documentManager.findById("expired")
+                                      .isEmpty());
+            assertEquals(List.of("recent",
+                                 "sealed"),
+                         idsOf(documentManager.search(null)));
+        }
+    }
+
+    @Test
+    void testDocumentsSavedAfterDropDoNotInheritDroppedRankings() {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                           .fullTextIndex(true)
+                                                                                           .build());
+        saveDocuments(documentManager);
+        documentManager.dropPartitionsBefore(FIRST_DAY.plus(2,
+                                                            ChronoUnit.DAYS));
+        for (int index = 1; index <= 4; index++) {
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id("fresh-" + index)
+                                                         .title("Fresh title")
+                                                         .content("unrelated words")
+                                                         .created(FIRST_DAY.plus(3,
+                                                                                 ChronoUnit.DAYS))
+                                                         .build());
+        }
+
+        assertEquals(List.of("day-2-1",
+                             "day-2-2",
+                             "undated"),
+                     documentManager.searchRanked("title",
+                                                  10)
+                                    .stream()
+                                    .map(scoredDocument -> scoredDocument.getDocument()
+                                                                         .getId())
+                                    .filter(id -> !id.startsWith("fresh-"))
+                                    .sorted()
+                                    .collect(Collectors.toList()));
+        assertEquals(List.of(),
+                     documentManager.searchRanked("0",
+                                                  10));
+        assertEquals(4,
+                     documentManager.searchRanked("unrelated",
+                                                  10)
+                                    .size());
+    }
+
+    @Test
+    void testDropPartitionsRequiresPartitionedStorage() {
+        DocumentManager documentManager = new DocumentManager();
+
+        assertThrows(IllegalStateException.class,
+                     () -> documentManager.dropPartitionsBefore(FIRST_DAY));
+        assertThrows(IllegalArgumentException.class,
+                     () -> partitionedDocumentManager().dropPartitionsBefore(null));
+    }
+
+    private DocumentManager partitionedDocumentManager() {
+        return new DocumentManager(DocumentManager.Configuration.builder()
+                                                                .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                .build());
+    }
+
+    /**
+     * Two documents on each of three days and one without [created].
+     */
+    private void saveDocuments(DocumentManager documentManager) {
+        for (int day = 0; day < 3; day++) {
+            for (int hour = 1; hour <= 2; hour++) {
+                documentManager.save(document("day-" + day + "-" + hour,
+                                              "Title of day " + day,
+                                              FIRST_DAY.plus(day * 24L + hour,
+                                                             ChronoUnit.HOURS)));
+            }
+        }
+        documentManager.save(document("undated",
+                                      "Title without date",
+                                      null));
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title,
+                                              Instant created) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .content("content of " + id)
+                                       .author(created == null ? null
+                                                               : DocumentManager.Author.builder()
+                                                                                       .id("author-1")
+                                                                                       .name("Author One")
+                                                                                       .build())
+                                       .created(created)
+                                       .build();
+    }
+
+    private List<String> idsOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(DocumentManager.Document::getId)
+                        .sorted()
+                        .collect(Collectors.toList());
+    }
+
+}
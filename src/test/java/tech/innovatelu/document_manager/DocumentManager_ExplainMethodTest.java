@@ -0,0 +1,216 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_ExplainMethodTest {
+
+    private DocumentManager documentManager;
+
+    @BeforeEach
+    void setUp() {
+        documentManager = new DocumentManager();
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("1")
+                                                     .title("First Document")
+                                                     .content("This is the content of the first document.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("2")
+                                                     .title("Second Document")
+                                                     .content("This document talks about Java.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-02-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("3")
+                                                     .title("Third Document")
+                                                     .content("Java is a great programming language.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A3")
+                                                                                   .name("Author Three")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-03-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("4")
+                                                     .title("Fourth Document")
+                                                     .content("Content about something else.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-04-01T10:00:00Z"))
+                                                     .build());
+    }
+
+    @Test
+    void testExplainNullRequest() {
+        DocumentManager.SearchPlan plan = documentManager.explain(null);
+
+        assertTrue(plan.isFullScan());
+        assertEquals(4,
+                     plan.getEstimatedCandidates());
+        assertTrue(plan.getResidualPredicates()
+                       .isEmpty());
+    }
+
+    @Test
+    void testExplainDrivesFromMostSelectivePredicate() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .authorIds(List.of("A1"))
+                                                                             .titlePrefixes(List.of("Third"))
+                                                                             .build();
+
+        DocumentManager.SearchPlan plan = documentManager.explain(request);
+
+        assertEquals(DocumentManager.SearchPredicate.TITLE_PREFIXES,
+                     plan.getDrivingPredicate());
+        assertEquals(1,
+                     plan.getEstimatedCandidates());
+        assertEquals(2,
+                     plan.getEstimatedMatches()
+                         .get(DocumentManager.SearchPredicate.AUTHOR_IDS));
+        assertEquals(List.of(DocumentManager.SearchPredicate.AUTHOR_IDS),
+                     plan.getResidualPredicates());
+        assertTrue(documentManager.search(request)
+                                  .isEmpty());
+    }
+
+    @Test
+    void testExplainKeepsContentAsResidualWhenItDrives() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("programming"))
+                                                                             .build();
+
+        DocumentManager.SearchPlan plan = documentManager.explain(request);
+
+        assertEquals(DocumentManager.SearchPredicate.CONTAINS_CONTENTS,
+                     plan.getDrivingPredicate());
+        assertEquals(List.of(DocumentManager.SearchPredicate.CONTAINS_CONTENTS),
+                     plan.getResidualPredicates());
+    }
+
+    @Test
+    void testExplainEstimatesContentFromLatestVersions() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("programming"))
+                                                                             .build();
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("3")
+                                                     .title("Third Document")
+                                                     .content("Kotlin is a great language too.")
+                                                     .build());
+
+        assertEquals(0,
+                     documentManager.explain(request)
+                                    .getEstimatedCandidates());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("5")
+                                                     .title("Fifth Document")
+                                                     .content("Programming in Java is programming.")
+                                                     .build());
+
+        assertEquals(1,
+                     documentManager.explain(request)
+                                    .getEstimatedCandidates());
+        assertEquals(List.of("5"),
+                     documentManager.search(request)
+                                    .stream()
+                                    .map(DocumentManager.Document::getId)
+                                    .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testExplainHashesGramsLongerThanPackedOnes() {
+        DocumentManager longGramDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                   .contentGramLength(6)
+                                                                                                   .build());
+        longGramDocumentManager.save(DocumentManager.Document.builder()
+                                                             .id("1")
+                                                             .content("Java is a great programming language.")
+                                                             .build());
+        longGramDocumentManager.save(DocumentManager.Document.builder()
+                                                             .id("2")
+                                                             .content("Content about something else.")
+                                                             .build());
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("programming"))
+                                                                             .build();
+
+        assertEquals(1L,
+                     longGramDocumentManager.explain(request)
+                                            .getEstimatedMatches()
+                                            .get(DocumentManager.SearchPredicate.CONTAINS_CONTENTS));
+        assertEquals(1,
+                     longGramDocumentManager.search(request)
+                                            .size());
+    }
+
+    @Test
+    void testExplainFallsBackToFullScanForUnselectivePredicates() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .createdFrom(Instant.parse("2023-01-01T00:00:00Z"))
+                                                                             .containsContents(List.of("is"))
+                                                                             .build();
+
+        DocumentManager.SearchPlan plan = documentManager.explain(request);
+
+        assertTrue(plan.isFullScan());
+        assertEquals(List.of(DocumentManager.SearchPredicate.CREATED_RANGE,
+                             DocumentManager.SearchPredicate.CONTAINS_CONTENTS),
+                     plan.getResidualPredicates());
+        assertEquals(3,
+                     documentManager.search(request)
+                                    .size());
+    }
+
+    @Test
+    void testExplainCostsFullScanByOverlappingPartitions() {
+        DocumentManager partitionedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                      .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                                      .partitionUnit(ChronoUnit.MONTHS)
+                                                                                                      .build());
+        documentManager.search(null)
+                       .forEach(partitionedDocumentManager::save);
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .createdFrom(Instant.parse("2024-03-15T00:00:00Z"))
+                                                                             .titlePrefixes(List.of("F"))
+                                                                             .build();
+
+        DocumentManager.SearchPlan plan = partitionedDocumentManager.explain(request);
+
+        assertEquals(DocumentManager.SearchPredicate.CREATED_RANGE,
+                     documentManager.explain(request)
+                                    .getDrivingPredicate());
+        assertTrue(plan.isFullScan());
+        assertEquals(2,
+                     plan.getEstimatedCandidates());
+        assertEquals(List.of("4"),
+                     partitionedDocumentManager.search(request)
+                                               .stream()
+                                               .map(DocumentManager.Document::getId)
+                                               .collect(Collectors.toList()));
+    }
+
+}
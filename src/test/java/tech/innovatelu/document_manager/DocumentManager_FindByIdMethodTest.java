@@ -2,9 +2,18 @@ package tech.innovatelu.document_manager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,4 +84,178 @@ class DocumentManager_FindByIdMethodTest {
                             () -> documentManager.findById(null));
     }
 
+    @Test
+    void testFindByIdReturnsCopyOfStoredDocument() {
+        documentManager.findById("1")
+                       .orElseThrow()
+                       .setTitle("Changed Outside");
+
+        assertEquals("First Document",
+                     documentManager.findById("1")
+                                    .orElseThrow()
+                                    .getTitle());
+    }
+
+    @Test
+    void testFindByIdWithMemoryMappedContent(@TempDir Path directory) {
+        try (DocumentManager mappedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                      .contentStorage(DocumentManager.ContentStorage.MEMORY_MAPPED)
+                                                                                                      .contentStorageDirectory(directory)
+                                                                                                      .build())) {
+            String content = "Zażółć gęślą jaźń ".repeat(1000);
+            mappedDocumentManager.save(DocumentManager.Document.builder()
+                                                               .id("1")
+                                                               .title("Mapped Document")
+                                                               .content(content)
+                                                               .author(DocumentManager.Author.builder()
+                                                                                             .id("A1")
+                                                                                             .name("Author One")
+                                                                                             .build())
+                                                               .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                               .build());
+
+            assertEquals(content,
+                         mappedDocumentManager.findById("1")
+                                              .orElseThrow()
+                                              .getContent());
+            assertEquals(1,
+                         mappedDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                   .containsContents(List.of("gęślą"))
+                                                                                   .build())
+                                              .size());
+
+            String brokenContent = "Unpaired \uD800 surrogate " + content;
+            mappedDocumentManager.save(DocumentManager.Document.builder()
+                                                               .id("2")
+                                                               .title("Broken Document")
+                                                               .content(brokenContent)
+                                                               .build());
+
+            assertEquals(brokenContent,
+                         mappedDocumentManager.findById("2")
+                                              .orElseThrow()
+                                              .getContent());
+        }
+    }
+
+    @Test
+    void testFindByIdWithCompressedContent() {
+        try (DocumentManager compressedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                          .contentStorage(DocumentManager.ContentStorage.COMPRESSED)
+                                                                                                          .decodedContentCacheSize(1_000)
+                                                                                                          .build())) {
+            Random random = new Random(42);
+            List<String> contents = new ArrayList<>();
+            for (int index = 0; index < 2_000; index++) {
+                if (index % 10 == 0)
+                    contents.add("Short " + index);
+                else if (index % 10 == 3)
+                    contents.add("Unpaired \uDC00 surrogate, document " + index + " talks about compression. ".repeat(3));
+                else if (index % 10 == 5)
+                    contents.add(random.ints(600,
+                                             'a',
+                                             'z' + 1)
+                                       .collect(StringBuilder::new,
+                                                StringBuilder::appendCodePoint,
+                                                StringBuilder::append)
+                                       .toString());
+                else
+                    contents.add("Zażółć gęślą jaźń, document " + index + " talks about compression. ".repeat(1 + index % 7));
+                compressedDocumentManager.save(DocumentManager.Document.builder()
+                                                                       .id(String.valueOf(index))
+                                                                       .title("Compressed Document")
+                                                                       .content(contents.get(index))
+                                                                       .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                                       .build());
+            }
+
+            for (int round = 0; round < 2; round++) {
+                for (int index = 0; index < contents.size(); index++) {
+                    assertEquals(contents.get(index),
+                                 compressedDocumentManager.findById(String.valueOf(index))
+                                                          .orElseThrow()
+                                                          .getContent());
+                }
+            }
+            assertEquals(1,
+                         compressedDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                       .containsContents(List.of("document 1999 talks"))
+                                                                                       .build())
+                                                  .size());
+        }
+    }
+
+    @Test
+    void testFindByIdTellsUuidIdsFromTheirVariants() {
+        List<String> ids = List.of("0f8fad5b-d9cb-469f-a165-70867728950e",
+                                   "0F8FAD5B-D9CB-469F-A165-70867728950E",
+                                   "0f8fad5bd9cb469fa16570867728950e",
+                                   "0f8fad5b-d9cb-469f-a165-70867728950g",
+                                   "ffffffff-ffff-ffff-ffff-ffffffffffff");
+        for (String id : ids) {
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id(id)
+                                                         .title("Title of " + id)
+                                                         .build());
+        }
+
+        for (String id : ids) {
+            DocumentManager.Document document = documentManager.findById(id)
+                                                               .orElseThrow();
+            assertEquals(id,
+                         document.getId());
+            assertEquals("Title of " + id,
+                         document.getTitle());
+        }
+        assertTrue(documentManager.findById("0f8fad5b-d9cb-469f-a165-70867728950f")
+                                  .isEmpty());
+    }
+
+    @Test
+    void testFindByIdWithBloomFilterWhileStorageOutgrowsIt() throws Exception {
+        try (DocumentManager filteredDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                            .findByIdBloomFilter(true)
+                                                                                                            .expectedDocumentCount(10)
+                                                                                                            .build())) {
+            int threads = 4;
+            int savesPerThread = 5_000;
+            ExecutorService writers = Executors.newFixedThreadPool(threads);
+            List<Future<?>> saves = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int writer = thread;
+                saves.add(writers.submit(() -> {
+                    for (int index = 0; index < savesPerThread; index++) {
+                        String id = writer + "-" + index;
+                        filteredDocumentManager.save(DocumentManager.Document.builder()
+                                                                             .id(id)
+                                                                             .title("Title " + index)
+                                                                             .build());
+                        assertTrue(filteredDocumentManager.findById(id)
+                                                          .isPresent(),
+                                   id);
+                    }
+                }));
+            }
+            writers.shutdown();
+            for (Future<?> save : saves) {
+                save.get(60,
+                         TimeUnit.SECONDS);
+            }
+
+            for (int thread = 0; thread < threads; thread++) {
+                for (int index = 0; index < savesPerThread; index++) {
+                    assertTrue(filteredDocumentManager.findById(thread + "-" + index)
+                                                      .isPresent());
+                }
+            }
+            for (int index = 0; index < 1_000; index++) {
+                assertTrue(filteredDocumentManager.findById("missing-" + index)
+                                                  .isEmpty());
+            }
+            assertEquals(1_000,
+                         filteredDocumentManager.metrics()
+                                                .getFindByIdMisses());
+        }
+    }
+
 }
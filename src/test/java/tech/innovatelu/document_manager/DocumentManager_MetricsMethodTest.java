@@ -0,0 +1,169 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_MetricsMethodTest {
+
+    private DocumentManager newDocumentManager(Duration slowSearchThreshold) {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .slowSearchThreshold(slowSearchThreshold)
+                                                                                           .build());
+        for (int index = 1; index <= 3; index++) {
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id(String.valueOf(index))
+                                                         .title("Document " + index)
+                                                         .content("Content of document " + index)
+                                                         .author(DocumentManager.Author.builder()
+                                                                                       .id("A" + index)
+                                                                                       .name("Author " + index)
+                                                                                       .build())
+                                                         .created(Instant.parse("2024-01-0" + index + "T10:00:00Z"))
+                                                         .build());
+        }
+        return documentManager;
+    }
+
+    @Test
+    void testMetricsOfNewDocumentManager() {
+        DocumentManager.Metrics metrics = new DocumentManager().metrics();
+
+        assertEquals(0,
+                     metrics.getDocumentCount());
+        assertEquals(0,
+                     metrics.getSave()
+                            .getCount());
+        assertEquals(Duration.ZERO,
+                     metrics.getSearch()
+                            .getP99());
+        assertTrue(metrics.getSearchesByFields()
+                          .isEmpty());
+    }
+
+    @Test
+    void testMetricsCountOperations() {
+        DocumentManager documentManager = newDocumentManager(null);
+        documentManager.findById("1");
+        documentManager.findById("missing");
+        documentManager.saveAll(List.of(DocumentManager.Document.builder()
+                                                                .title("Batch")
+                                                                .build()));
+
+        DocumentManager.Metrics metrics = documentManager.metrics();
+
+        assertEquals(4,
+                     metrics.getDocumentCount());
+        assertEquals(3,
+                     metrics.getSave()
+                            .getCount());
+        assertEquals(1,
+                     metrics.getSaveAll()
+                            .getCount());
+        assertEquals(2,
+                     metrics.getFindById()
+                            .getCount());
+        assertEquals(1,
+                     metrics.getFindByIdMisses());
+    }
+
+    @Test
+    void testMetricsPercentilesAreOrdered() {
+        DocumentManager documentManager = newDocumentManager(null);
+        for (int search = 0; search < 100; search++) {
+            documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                .containsContents(List.of("document"))
+                                                                .build());
+        }
+
+        DocumentManager.OperationMetrics searches = documentManager.metrics()
+                                                                   .getSearch();
+
+        assertEquals(100,
+                     searches.getCount());
+        assertTrue(searches.getP50()
+                           .compareTo(Duration.ZERO) > 0);
+        assertTrue(searches.getP50()
+                           .compareTo(searches.getP99()) <= 0);
+        assertTrue(searches.getP99()
+                           .compareTo(searches.getMax()
+                                              .multipliedBy(105)
+                                              .dividedBy(100)) <= 0);
+    }
+
+    @Test
+    void testMetricsBreakSearchesDownBySetFields() {
+        DocumentManager documentManager = newDocumentManager(null);
+        documentManager.search(null);
+        documentManager.search(DocumentManager.SearchRequest.builder()
+                                                            .titlePrefixes(List.of("Document"))
+                                                            .build());
+        documentManager.search(DocumentManager.SearchRequest.builder()
+                                                            .titlePrefixes(List.of("Doc"))
+                                                            .authorIds(List.of("A1"))
+                                                            .build());
+        documentManager.search(DocumentManager.SearchRequest.builder()
+                                                            .authorIds(List.of("A2"))
+                                                            .titlePrefixes(List.of("Document"))
+                                                            .build(),
+                               DocumentManager.SearchOptions.builder()
+                                                            .sortBy(DocumentManager.SortKey.TITLE)
+                                                            .build());
+
+        DocumentManager.Metrics metrics = documentManager.metrics();
+
+        assertEquals(4,
+                     metrics.getSearch()
+                            .getCount());
+        assertEquals(3,
+                     metrics.getSearchesByFields()
+                            .size());
+        assertEquals(1,
+                     metrics.getSearchesByFields()
+                            .get(Set.of())
+                            .getCount());
+        assertEquals(1,
+                     metrics.getSearchesByFields()
+                            .get(Set.of(DocumentManager.SearchPredicate.TITLE_PREFIXES))
+                            .getCount());
+        assertEquals(2,
+                     metrics.getSearchesByFields()
+                            .get(Set.of(DocumentManager.SearchPredicate.TITLE_PREFIXES,
+                                        DocumentManager.SearchPredicate.AUTHOR_IDS))
+                            .getCount());
+    }
+
+    @Test
+    void testMetricsCountSlowSearches() {
+        DocumentManager documentManager = newDocumentManager(Duration.ZERO);
+        documentManager.search(DocumentManager.SearchRequest.builder()
+                                                            .containsContents(List.of("Content"))
+                                                            .build());
+        documentManager.search(DocumentManager.SearchRequest.builder()
+                                                            .createdFrom(Instant.parse("2024-01-02T00:00:00Z"))
+                                                            .build(),
+                               DocumentManager.SearchOptions.builder()
+                                                            .sortBy(DocumentManager.SortKey.CREATED)
+                                                            .build());
+
+        assertEquals(2,
+                     documentManager.metrics()
+                                    .getSlowSearches());
+    }
+
+    @Test
+    void testMetricsDoNotCountSlowSearchesWhenLogIsDisabled() {
+        DocumentManager documentManager = newDocumentManager(null);
+        documentManager.search(null);
+
+        assertEquals(0,
+                     documentManager.metrics()
+                                    .getSlowSearches());
+    }
+
+}
@@ -0,0 +1,175 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_ReplicationLagMethodTest {
+    private static final Instant CREATED = Instant.parse("2024-01-01T10:00:00Z");
+
+    @Test
+    void testReplicaCopiesLeaderAndFollowsItsSaves() throws InterruptedException {
+        DocumentManager leader = leader(1_024);
+        leader.save(document("1",
+                             "First"));
+        try (DocumentManager replica = replicaOf(leader,
+                                                 null)) {
+            assertEquals(Optional.of("First"),
+                         replica.findById("1")
+                                .map(DocumentManager.Document::getTitle));
+
+            leader.save(document("2",
+                                 "Second"));
+            leader.save(DocumentManager.Document.builder()
+                                                .id("1")
+                                                .title("First Updated")
+                                                .content("content of 1")
+                                                .build());
+            awaitReplication(leader,
+                             replica);
+
+            assertEquals(leader.search(null,
+                                       sortedByTitle()),
+                         replica.search(null,
+                                        sortedByTitle()));
+            assertEquals(CREATED,
+                         replica.findById("1")
+                                .orElseThrow()
+                                .getCreated());
+            assertEquals(List.of("2"),
+                         idsOf(replica.search(DocumentManager.SearchRequest.builder()
+                                                                           .titlePrefixes(List.of("Sec"))
+                                                                           .build())));
+        }
+    }
+
+    @Test
+    void testReplicaCopiesLeaderAgainAfterFallingBehindItsChangeFeed() throws InterruptedException {
+        DocumentManager leader = leader(4);
+        try (DocumentManager replica = replicaOf(leader,
+                                                 null)) {
+            for (int index = 0; index < 100; index++) {
+                leader.save(document(String.valueOf(index),
+                                     "Title " + index));
+            }
+            awaitReplication(leader,
+                             replica);
+
+            assertEquals(leader.search(null,
+                                       sortedByTitle()),
+                         replica.search(null,
+                                        sortedByTitle()));
+        }
+    }
+
+    @Test
+    void testStaleReplicaRejectsReads() throws InterruptedException {
+        DocumentManager leader = leader(16);
+        try (DocumentManager replica = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                        .replicationLeader(leader)
+                                                                                        .replicationInterval(Duration.ofHours(1))
+                                                                                        .maxReplicationLag(Duration.ofMillis(20))
+                                                                                        .build())) {
+            Thread.sleep(50);
+
+            assertTrue(replica.replicationLag()
+                              .compareTo(Duration.ofMillis(50)) >= 0);
+            assertThrows(IllegalStateException.class,
+                         () -> replica.findById("1"));
+            assertThrows(IllegalStateException.class,
+                         () -> replica.search(null));
+            assertThrows(IllegalStateException.class,
+                         () -> replica.searchStream(null));
+        }
+    }
+
+    @Test
+    void testReplicaRejectsSaves() {
+        DocumentManager leader = leader(16);
+        try (DocumentManager replica = replicaOf(leader,
+                                                 null)) {
+            assertThrows(IllegalStateException.class,
+                         () -> replica.save(document("1",
+                                                     "First")));
+            assertThrows(IllegalStateException.class,
+                         () -> replica.saveAll(List.of(document("1",
+                                                                "First"))));
+            assertThrows(IllegalStateException.class,
+                         () -> replica.saveAsync(document("1",
+                                                          "First")));
+        }
+    }
+
+    @Test
+    void testReplicationRequiresLeaderWithChangeFeed() {
+        DocumentManager documentManager = new DocumentManager();
+
+        assertThrows(IllegalStateException.class,
+                     documentManager::replicationLag);
+        assertThrows(IllegalStateException.class,
+                     documentManager::replicatedSequence);
+        assertThrows(IllegalStateException.class,
+                     () -> replicaOf(documentManager,
+                                     null));
+    }
+
+    private DocumentManager leader(int changeFeedCapacity) {
+        return new DocumentManager(DocumentManager.Configuration.builder()
+                                                                .changeFeedCapacity(changeFeedCapacity)
+                                                                .build());
+    }
+
+    private DocumentManager replicaOf(DocumentManager leader,
+                                      Duration maxReplicationLag) {
+        return new DocumentManager(DocumentManager.Configuration.builder()
+                                                                .replicationLeader(leader)
+                                                                .maxReplicationLag(maxReplicationLag)
+                                                                .build());
+    }
+
+    private void awaitReplication(DocumentManager leader,
+                                  DocumentManager replica) throws InterruptedException {
+        long sequence = leader.lastChangeSequence();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10)
+                                                    .toNanos();
+        while (replica.replicatedSequence() < sequence
+               && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(replica.replicatedSequence() >= sequence);
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .content("content of " + id)
+                                       .author(DocumentManager.Author.builder()
+                                                                     .id("author-1")
+                                                                     .name("Author One")
+                                                                     .build())
+                                       .created(CREATED)
+                                       .build();
+    }
+
+    private DocumentManager.SearchOptions sortedByTitle() {
+        return DocumentManager.SearchOptions.builder()
+                                            .sortBy(DocumentManager.SortKey.TITLE)
+                                            .build();
+    }
+
+    private List<String> idsOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(DocumentManager.Document::getId)
+                        .sorted()
+                        .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,135 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SaveAllMethodTest {
+
+    private DocumentManager documentManager;
+
+    @BeforeEach
+    void setUp() {
+        documentManager = new DocumentManager();
+
+        documentManager.save(document("1",
+                                      "First Document",
+                                      Instant.parse("2024-01-01T10:00:00Z")));
+    }
+
+    @Test
+    void testSaveAllNewAndExistingDocuments() {
+        List<DocumentManager.Document> savedDocuments = documentManager.saveAll(List.of(document("1",
+                                                                                                 "Updated Document",
+                                                                                                 Instant.now()),
+                                                                                        document(null,
+                                                                                                 "New Document",
+                                                                                                 Instant.parse("2024-02-01T10:00:00Z")),
+                                                                                        document("3",
+                                                                                                 "Third Document",
+                                                                                                 Instant.parse("2024-03-01T10:00:00Z"))));
+
+        assertEquals(3,
+                     savedDocuments.size());
+        assertEquals(Instant.parse("2024-01-01T10:00:00Z"),
+                     savedDocuments.get(0)
+                                   .getCreated());
+        assertEquals(Instant.parse("2024-01-01T10:00:00Z"),
+                     documentManager.findById("1")
+                                    .orElseThrow()
+                                    .getCreated());
+        assertNotNull(savedDocuments.get(1)
+                                    .getId());
+        assertEquals("New Document",
+                     documentManager.findById(savedDocuments.get(1)
+                                                            .getId())
+                                    .orElseThrow()
+                                    .getTitle());
+        assertEquals(1,
+                     documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                         .titlePrefixes(List.of("Updated"))
+                                                                         .build())
+                                    .size());
+    }
+
+    @Test
+    void testSaveAllKeepsCreatedOfFirstOccurrenceInBatch() {
+        documentManager.saveAll(List.of(document("2",
+                                                 "Second Document",
+                                                 Instant.parse("2024-02-01T10:00:00Z")),
+                                        document("2",
+                                                 "Second Document Again",
+                                                 Instant.parse("2024-05-01T10:00:00Z"))));
+
+        DocumentManager.Document storedDocument = documentManager.findById("2")
+                                                                 .orElseThrow();
+        assertEquals("Second Document Again",
+                     storedDocument.getTitle());
+        assertEquals(Instant.parse("2024-02-01T10:00:00Z"),
+                     storedDocument.getCreated());
+    }
+
+    @Test
+    void testSaveAllIsRecoveredFromLog(@TempDir Path directory) {
+        DocumentManager.Configuration configuration = DocumentManager.Configuration.builder()
+                                                                                   .persistenceDirectory(directory)
+                                                                                   .snapshotInterval(null)
+                                                                                   .build();
+        try (DocumentManager persistentDocumentManager = new DocumentManager(configuration)) {
+            persistentDocumentManager.saveAll(List.of(document("1",
+                                                               "First Document",
+                                                               Instant.parse("2024-01-01T10:00:00Z")),
+                                                      document("2",
+                                                               "Second Document",
+                                                               Instant.parse("2024-02-01T10:00:00Z"))));
+        }
+
+        try (DocumentManager recoveredDocumentManager = new DocumentManager(configuration)) {
+            assertEquals(2,
+                         recoveredDocumentManager.search(null)
+                                                 .size());
+        }
+    }
+
+    @Test
+    void testSaveAllNullCollectionThrowsException() {
+        assertThrowsExactly(IllegalArgumentException.class,
+                            () -> documentManager.saveAll(null));
+    }
+
+    @Test
+    void testSaveAllWithNullDocumentThrowsException() {
+        List<DocumentManager.Document> documents = Arrays.asList(document("2",
+                                                                          "Second Document",
+                                                                          Instant.now()),
+                                                                 null);
+
+        assertThrowsExactly(IllegalArgumentException.class,
+                            () -> documentManager.saveAll(documents));
+        assertFalse(documentManager.findById("2")
+                                   .isPresent());
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title,
+                                              Instant created) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .content("Content of " + title)
+                                       .author(DocumentManager.Author.builder()
+                                                                     .id("A1")
+                                                                     .name("Author One")
+                                                                     .build())
+                                       .created(created)
+                                       .build();
+    }
+
+}
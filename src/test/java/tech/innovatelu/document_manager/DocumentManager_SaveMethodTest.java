@@ -2,9 +2,18 @@ package tech.innovatelu.document_manager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -143,4 +152,150 @@ class DocumentManager_SaveMethodTest {
                      savedDocument.getTitle());
     }
 
+    @Test
+    void testUpdateKeepsCreatedOfStoredDocument() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("1")
+                                                     .title("Updated Document")
+                                                     .content("Updated content")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.now())
+                                                     .build());
+
+        assertEquals(Instant.parse("2024-01-01T10:00:00Z"),
+                     documentManager.findById("1")
+                                    .orElseThrow()
+                                    .getCreated());
+        assertEquals(1,
+                     documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                         .createdTo(Instant.parse("2024-01-01T10:00:00Z"))
+                                                                         .build())
+                                    .size());
+    }
+
+    @Test
+    void testUpdateKeepsIdInstanceOfStoredDocument() {
+        String id = "id-instance";
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id(id)
+                                                     .title("First")
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id(new String(id))
+                                                     .title("Second")
+                                                     .build());
+
+        DocumentManager.Document stored = documentManager.findById(id)
+                                                         .orElseThrow();
+        assertEquals("Second",
+                     stored.getTitle());
+        assertSame(id,
+                   stored.getId());
+    }
+
+    @Test
+    void testConcurrentUpdatesKeepCreatedAndIndexes() throws Exception {
+        int writers = 8;
+        int updatesPerWriter = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            String author = "A" + writer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int update = 0; update < updatesPerWriter; update++) {
+                    documentManager.save(DocumentManager.Document.builder()
+                                                                 .id("1")
+                                                                 .title("Title of " + author)
+                                                                 .content("Content " + update)
+                                                                 .author(DocumentManager.Author.builder()
+                                                                                               .id(author)
+                                                                                               .name("Author")
+                                                                                               .build())
+                                                                 .created(Instant.now())
+                                                                 .build());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1,
+                       TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        DocumentManager.Document storedDocument = documentManager.findById("1")
+                                                                 .orElseThrow();
+        assertEquals(Instant.parse("2024-01-01T10:00:00Z"),
+                     storedDocument.getCreated());
+        List<DocumentManager.Document> byAuthor = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                      .authorIds(List.of(storedDocument.getAuthor()
+                                                                                                                                       .getId()))
+                                                                                                      .build());
+        List<DocumentManager.Document> byTitle = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                     .titlePrefixes(List.of(storedDocument.getTitle()))
+                                                                                                     .build());
+        assertEquals(1,
+                     byAuthor.size());
+        assertEquals(1,
+                     byTitle.size());
+    }
+
+    @Test
+    void testConcurrentUpdatesAreRecoveredInStorageOrder(@TempDir Path directory) throws Exception {
+        DocumentManager.Configuration configuration = DocumentManager.Configuration.builder()
+                                                                                   .persistenceDirectory(directory)
+                                                                                   .fsyncPolicy(DocumentManager.FsyncPolicy.GROUP_COMMIT)
+                                                                                   .build();
+        List<Optional<DocumentManager.Document>> savedDocuments = new ArrayList<>();
+        try (DocumentManager persistentDocumentManager = new DocumentManager(configuration)) {
+            int writers = 4;
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                String author = "A" + writer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int update = 0; update < 200; update++) {
+                        persistentDocumentManager.save(DocumentManager.Document.builder()
+                                                                               .id(String.valueOf(update % 3))
+                                                                               .title("Title of " + author)
+                                                                               .content("Content " + update)
+                                                                               .author(DocumentManager.Author.builder()
+                                                                                                             .id(author)
+                                                                                                             .name("Author")
+                                                                                                             .build())
+                                                                               .build());
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1,
+                           TimeUnit.MINUTES);
+            }
+            executor.shutdown();
+            for (int id = 0; id < 3; id++) {
+                savedDocuments.add(persistentDocumentManager.findById(String.valueOf(id)));
+            }
+        }
+
+        try (DocumentManager recoveredDocumentManager = new DocumentManager(configuration)) {
+            for (int id = 0; id < 3; id++) {
+                assertEquals(savedDocuments.get(id),
+                             recoveredDocumentManager.findById(String.valueOf(id)));
+            }
+        }
+    }
+
 }
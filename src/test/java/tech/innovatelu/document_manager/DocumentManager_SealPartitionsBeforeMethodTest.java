@@ -0,0 +1,271 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SealPartitionsBeforeMethodTest {
+    private static final Instant FIRST_DAY = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void testSealedPartitionsMatchConcurrentMapStorage() {
+        DocumentManager partitionedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                      .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                                      .build());
+        DocumentManager documentManager = new DocumentManager();
+        saveToBoth(documents(),
+                   partitionedDocumentManager,
+                   documentManager);
+
+        assertSameResults(partitionedDocumentManager,
+                          documentManager);
+
+        partitionedDocumentManager.sealPartitionsBefore(FIRST_DAY.plus(3,
+                                                                       ChronoUnit.DAYS));
+        assertSameResults(partitionedDocumentManager,
+                          documentManager);
+
+        saveToBoth(List.of(document("day-0-hour-1",
+                                    "Updated title",
+                                    "updated content",
+                                    FIRST_DAY.plus(1,
+                                                   ChronoUnit.HOURS)),
+                           document("backfill",
+                                    "Backfilled title",
+                                    "backfilled content",
+                                    FIRST_DAY.plus(30,
+                                                   ChronoUnit.HOURS))),
+                   partitionedDocumentManager,
+                   documentManager);
+        assertSameResults(partitionedDocumentManager,
+                          documentManager);
+
+        partitionedDocumentManager.sealPartitionsBefore(FIRST_DAY.plus(10,
+                                                                       ChronoUnit.DAYS));
+        assertSameResults(partitionedDocumentManager,
+                          documentManager);
+        assertEquals(documentManager.metrics()
+                                    .getDocumentCount(),
+                     partitionedDocumentManager.metrics()
+                                               .getDocumentCount());
+    }
+
+    @Test
+    void testSealedPartitionsSpillToDisk(@TempDir Path directory) throws IOException {
+        DocumentManager documentManager = new DocumentManager();
+        try (DocumentManager partitionedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                           .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                                           .partitionSpillDirectory(directory)
+                                                                                                           .build())) {
+            saveToBoth(documents(),
+                       partitionedDocumentManager,
+                       documentManager);
+
+            partitionedDocumentManager.sealPartitionsBefore(FIRST_DAY.plus(2,
+                                                                           ChronoUnit.DAYS));
+
+            assertEquals(2,
+                         filesIn(directory).size());
+            assertSameResults(partitionedDocumentManager,
+                              documentManager);
+
+            saveToBoth(List.of(document("day-1-hour-2",
+                                        "Updated spilled title",
+                                        "updated spilled content",
+                                        null)),
+                       partitionedDocumentManager,
+                       documentManager);
+            assertEquals(FIRST_DAY.plus(26,
+                                        ChronoUnit.HOURS),
+                         partitionedDocumentManager.findById("day-1-hour-2")
+                                                   .orElseThrow()
+                                                   .getCreated());
+            assertSameResults(partitionedDocumentManager,
+                              documentManager);
+        }
+
+        assertTrue(filesIn(directory).isEmpty());
+    }
+
+    @Test
+    void testSearchStreamReadsItsSnapshotAcrossSeal() {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                           .partitionUnit(ChronoUnit.MONTHS)
+                                                                                           .build());
+        documentManager.save(document("1",
+                                      "Original title",
+                                      "original content",
+                                      FIRST_DAY));
+
+        try (Stream<DocumentManager.Document> documents = documentManager.searchStream(DocumentManager.SearchRequest.builder()
+                                                                                                                  .createdTo(FIRST_DAY)
+                                                                                                                  .build())) {
+            documentManager.save(document("1",
+                                          "Updated title",
+                                          "updated content",
+                                          null));
+            documentManager.sealPartitionsBefore(FIRST_DAY.plus(31,
+                                                                ChronoUnit.DAYS));
+
+            assertEquals(List.of("Original title"),
+                         documents.map(DocumentManager.Document::getTitle)
+                                  .collect(Collectors.toList()));
+        }
+        assertEquals(Optional.of("Updated title"),
+                     documentManager.findById("1")
+                                    .map(DocumentManager.Document::getTitle));
+    }
+
+    @Test
+    void testSealPartitionsRequiresPartitionedStorage() {
+        DocumentManager documentManager = new DocumentManager();
+        DocumentManager partitionedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                      .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                                                      .build());
+
+        assertThrows(IllegalStateException.class,
+                     () -> documentManager.sealPartitionsBefore(FIRST_DAY));
+        assertThrows(IllegalArgumentException.class,
+                     () -> partitionedDocumentManager.sealPartitionsBefore(null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DocumentManager(DocumentManager.Configuration.builder()
+                                                                            .documentStorage(DocumentManager.DocumentStorage.TIME_PARTITIONED)
+                                                                            .partitionUnit(ChronoUnit.WEEKS)
+                                                                            .build()));
+    }
+
+    /**
+     * Three documents a day over five days, one of them without an author,
+     * and two documents without [created].
+     */
+    private List<DocumentManager.Document> documents() {
+        List<DocumentManager.Document> documents = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            for (int hour = 0; hour < 3; hour++) {
+                DocumentManager.Document document = document("day-" + day + "-hour-" + hour,
+                                                             "Title " + hour + " of day " + day,
+                                                             "content " + day + " " + hour,
+                                                             FIRST_DAY.plus(day * 24L + hour,
+                                                                            ChronoUnit.HOURS));
+                if (hour == 2)
+                    document.setAuthor(null);
+                documents.add(document);
+            }
+        }
+        documents.add(document("undated-1",
+                               "Title without date",
+                               "content without date",
+                               null));
+        documents.add(document("undated-2",
+                               "Another title without date",
+                               "content 3 without date",
+                               null));
+        return documents;
+    }
+
+    private void saveToBoth(List<DocumentManager.Document> documents,
+                            DocumentManager partitionedDocumentManager,
+                            DocumentManager documentManager) {
+        for (DocumentManager.Document document : documents) {
+            partitionedDocumentManager.save(copyOf(document));
+            documentManager.save(copyOf(document));
+        }
+    }
+
+    private void assertSameResults(DocumentManager partitionedDocumentManager,
+                                   DocumentManager documentManager) {
+        List<DocumentManager.SearchRequest> requests = List.of(DocumentManager.SearchRequest.builder()
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .createdFrom(FIRST_DAY.plus(1,
+                                                                                                                        ChronoUnit.DAYS))
+                                                                                            .createdTo(FIRST_DAY.plus(2,
+                                                                                                                      ChronoUnit.DAYS))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .createdFrom(FIRST_DAY.plus(50,
+                                                                                                                        ChronoUnit.HOURS))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .createdTo(FIRST_DAY.plus(25,
+                                                                                                                      ChronoUnit.HOURS))
+                                                                                            .containsContents(List.of("content 1",
+                                                                                                                      "content 3"))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .authorIds(List.of("author-1"))
+                                                                                            .titlePrefixes(List.of("Title 1",
+                                                                                                                   "Updated",
+                                                                                                                   "Backfilled"))
+                                                                                            .build());
+        for (DocumentManager.SearchRequest request : requests) {
+            assertEquals(documentManager.search(request,
+                                                sortedByTitle()),
+                         partitionedDocumentManager.search(request,
+                                                           sortedByTitle()),
+                         request.toString());
+        }
+        for (DocumentManager.Document document : documentManager.search(null)) {
+            assertEquals(Optional.of(document),
+                         partitionedDocumentManager.findById(document.getId()));
+        }
+        assertEquals(Optional.empty(),
+                     partitionedDocumentManager.findById("missing"));
+    }
+
+    /**
+     * Titles are unique, so sorting by them gives both storages the same
+     * order.
+     */
+    private DocumentManager.SearchOptions sortedByTitle() {
+        return DocumentManager.SearchOptions.builder()
+                                            .sortBy(DocumentManager.SortKey.TITLE)
+                                            .build();
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title,
+                                              String content,
+                                              Instant created) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .content(content)
+                                       .author(DocumentManager.Author.builder()
+                                                                     .id("author-1")
+                                                                     .name("Author One")
+                                                                     .build())
+                                       .created(created)
+                                       .build();
+    }
+
+    private DocumentManager.Document copyOf(DocumentManager.Document document) {
+        return DocumentManager.Document.builder()
+                                       .id(document.getId())
+                                       .title(document.getTitle())
+                                       .content(document.getContent())
+                                       .author(document.getAuthor())
+                                       .created(document.getCreated())
+                                       .build();
+    }
+
+    private List<Path> filesIn(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+}
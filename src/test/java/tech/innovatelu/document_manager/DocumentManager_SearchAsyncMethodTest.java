@@ -0,0 +1,356 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SearchAsyncMethodTest {
+
+    @Test
+    void testAsyncCallsCompleteOnVirtualThreads() throws Exception {
+        try (DocumentManager documentManager = new DocumentManager()) {
+            DocumentManager.Document savedDocument = documentManager.saveAsync(document("1",
+                                                                                        "Java Basics"))
+                                                                    .get(10,
+                                                                         TimeUnit.SECONDS);
+            documentManager.saveAsync(document("2",
+                                               "Kotlin Basics"))
+                           .get(10,
+                                TimeUnit.SECONDS);
+
+            assertEquals("1",
+                         savedDocument.getId());
+            assertEquals(Optional.of("Java Basics"),
+                         documentManager.findByIdAsync("1")
+                                        .get(10,
+                                             TimeUnit.SECONDS)
+                                        .map(DocumentManager.Document::getTitle));
+            assertEquals(List.of("2"),
+                         idsOf(documentManager.searchAsync(DocumentManager.SearchRequest.builder()
+                                                                                        .titlePrefixes(List.of("Kotlin"))
+                                                                                        .build())
+                                              .get(10,
+                                                   TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    void testSearchAsyncReturnsRequestedPage() throws Exception {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .asyncExecutor(Runnable::run)
+                                                                                           .build());
+        for (int index = 1; index <= 5; index++) {
+            documentManager.save(document(String.valueOf(index),
+                                          "Title " + index));
+        }
+
+        List<DocumentManager.Document> page = documentManager.searchAsync(null,
+                                                                          DocumentManager.SearchOptions.builder()
+                                                                                                       .sortBy(DocumentManager.SortKey.TITLE)
+                                                                                                       .descending(true)
+                                                                                                       .offset(1)
+                                                                                                       .limit(2)
+                                                                                                       .build())
+                                                             .get();
+
+        assertEquals(List.of("4",
+                             "3"),
+                     idsOf(page));
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentManager.searchAsync(null,
+                                                       null));
+    }
+
+    @Test
+    void testAsyncCallsAreRejectedAboveConcurrencyLimit() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .asyncExecutor(executor)
+                                                                                           .maxConcurrentAsyncCalls(1)
+                                                                                           .build());
+        documentManager.save(document("1",
+                                      "Java Basics"));
+
+        CompletableFuture<List<DocumentManager.Document>> admittedSearch = documentManager.searchAsync(null);
+        CompletableFuture<Optional<DocumentManager.Document>> rejectedFind = documentManager.findByIdAsync("1");
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                                                     rejectedFind::get);
+        assertInstanceOf(RejectedExecutionException.class,
+                         exception.getCause());
+
+        executor.runHeldTasks();
+
+        assertEquals(List.of("1"),
+                     idsOf(admittedSearch.get()));
+        CompletableFuture<Optional<DocumentManager.Document>> laterFind = documentManager.findByIdAsync("1");
+        executor.runHeldTasks();
+        assertTrue(laterFind.get()
+                            .isPresent());
+    }
+
+    @Test
+    void testSearchAsyncStopsScanWhenCancelled() throws Exception {
+        ForkJoinPool searchPool = new ForkJoinPool(1,
+                                                   ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                                                   null,
+                                                   false,
+                                                   1,
+                                                   1,
+                                                   0,
+                                                   pool -> true,
+                                                   1,
+                                                   TimeUnit.MINUTES);
+        CountDownLatch searchFinished = new CountDownLatch(1);
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .parallelSearchPool(searchPool)
+                                                                                           .parallelSearchThreshold(0)
+                                                                                           .asyncExecutor(task -> new Thread(() -> {
+                                                                                               task.run();
+                                                                                               searchFinished.countDown();
+                                                                                           }).start())
+                                                                                           .build());
+        for (int index = 0; index < 1_000; index++) {
+            documentManager.save(document(String.valueOf(index),
+                                          "Title " + index));
+        }
+
+        // Keeps the only worker of the pool busy, so the search waits in front
+        // of its scan.
+        CountDownLatch workerReleased = new CountDownLatch(1);
+        searchPool.execute(() -> {
+            try {
+                workerReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+            }
+        });
+        CompletableFuture<List<DocumentManager.Document>> search = documentManager.searchAsync(null);
+        while (searchPool.getQueuedSubmissionCount() == 0) {
+            Thread.onSpinWait();
+        }
+
+        search.cancel(true);
+        workerReleased.countDown();
+
+        assertTrue(searchFinished.await(10,
+                                        TimeUnit.SECONDS));
+        assertThrows(CancellationException.class,
+                     search::get);
+        assertEquals(0,
+                     documentManager.metrics()
+                                    .getSearch()
+                                    .getCount());
+        searchPool.shutdown();
+    }
+
+    @Test
+    void testAsyncCallsTimeOut() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .asyncExecutor(executor)
+                                                                                           .maxConcurrentAsyncCalls(1)
+                                                                                           .asyncTimeout(Duration.ofMillis(20))
+                                                                                           .build());
+
+        CompletableFuture<List<DocumentManager.Document>> search = documentManager.searchAsync(null);
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                                                     () -> search.get(10,
+                                                                      TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class,
+                         exception.getCause());
+
+        executor.runHeldTasks();
+
+        assertEquals(0,
+                     documentManager.metrics()
+                                    .getSearch()
+                                    .getCount());
+        CompletableFuture<List<DocumentManager.Document>> laterSearch = documentManager.searchAsync(null);
+        executor.runHeldTasks();
+        assertTrue(laterSearch.get()
+                              .isEmpty());
+    }
+
+    @Test
+    void testSearchPublisherHonoursDemandAndCancellation() {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .asyncExecutor(Runnable::run)
+                                                                                           .maxConcurrentAsyncCalls(1)
+                                                                                           .build());
+        for (int index = 1; index <= 5; index++) {
+            documentManager.save(document(String.valueOf(index),
+                                          "Title " + index));
+        }
+
+        RecordingSubscriber cancelledSubscriber = new RecordingSubscriber();
+        documentManager.searchPublisher(null)
+                       .subscribe(cancelledSubscriber);
+        assertTrue(cancelledSubscriber.documents.isEmpty());
+
+        cancelledSubscriber.subscription.request(2);
+        assertEquals(2,
+                     cancelledSubscriber.documents.size());
+
+        cancelledSubscriber.subscription.cancel();
+        cancelledSubscriber.subscription.request(10);
+        assertEquals(2,
+                     cancelledSubscriber.documents.size());
+        assertFalse(cancelledSubscriber.completed);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        documentManager.searchPublisher(DocumentManager.SearchRequest.builder()
+                                                                     .titlePrefixes(List.of("Title 3"))
+                                                                     .build())
+                       .subscribe(subscriber);
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of("3"),
+                     idsOf(subscriber.documents));
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testSearchPublisherIsRejectedAboveConcurrencyLimit() {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .asyncExecutor(Runnable::run)
+                                                                                           .maxConcurrentAsyncCalls(1)
+                                                                                           .build());
+        documentManager.save(document("1",
+                                      "Java Basics"));
+
+        RecordingSubscriber openSubscriber = new RecordingSubscriber();
+        documentManager.searchPublisher(null)
+                       .subscribe(openSubscriber);
+        RecordingSubscriber rejectedSubscriber = new RecordingSubscriber();
+        documentManager.searchPublisher(null)
+                       .subscribe(rejectedSubscriber);
+
+        assertInstanceOf(RejectedExecutionException.class,
+                         rejectedSubscriber.error);
+        openSubscriber.subscription.request(1);
+        assertEquals(1,
+                     openSubscriber.documents.size());
+    }
+
+    @Test
+    void testSearchPublisherKeepsConcurrencyLimitWhenSubscriberThrows() {
+        DocumentManager documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                           .asyncExecutor(Runnable::run)
+                                                                                           .maxConcurrentAsyncCalls(1)
+                                                                                           .build());
+        documentManager.save(document("1",
+                                      "Java Basics"));
+
+        RecordingSubscriber throwingSubscriber = new RecordingSubscriber() {
+            @Override
+            public void onComplete() {
+                throw new IllegalStateException("Subscriber failed");
+            }
+        };
+        documentManager.searchPublisher(null)
+                       .subscribe(throwingSubscriber);
+        throwingSubscriber.subscription.request(10);
+        assertNull(throwingSubscriber.error);
+
+        RecordingSubscriber openSubscriber = new RecordingSubscriber();
+        documentManager.searchPublisher(null)
+                       .subscribe(openSubscriber);
+        RecordingSubscriber rejectedSubscriber = new RecordingSubscriber();
+        documentManager.searchPublisher(null)
+                       .subscribe(rejectedSubscriber);
+
+        assertNull(openSubscriber.error);
+        assertInstanceOf(RejectedExecutionException.class,
+                         rejectedSubscriber.error);
+    }
+
+    @Test
+    void testAsyncCallsValidateArguments() {
+        DocumentManager documentManager = new DocumentManager();
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentManager.saveAsync(null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentManager.findByIdAsync(null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DocumentManager(DocumentManager.Configuration.builder()
+                                                                            .maxConcurrentAsyncCalls(0)
+                                                                            .build()));
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .build();
+    }
+
+    private List<String> idsOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(DocumentManager.Document::getId)
+                        .collect(Collectors.toList());
+    }
+
+    private static class HeldExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        synchronized void runHeldTasks() {
+            List<Runnable> heldTasks = new ArrayList<>(tasks);
+            tasks.clear();
+            heldTasks.forEach(Runnable::run);
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<DocumentManager.Document> {
+        private final List<DocumentManager.Document> documents = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(DocumentManager.Document document) {
+            documents.add(document);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}
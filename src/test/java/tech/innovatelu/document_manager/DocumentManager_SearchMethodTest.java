@@ -4,7 +4,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -95,6 +101,47 @@ class DocumentManager_SearchMethodTest {
                             .getTitle());
     }
 
+    @Test
+    void testSearchByTitlePrefixAfterTitleUpdate() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("1")
+                                                     .title("Renamed Document")
+                                                     .content("This is the content of the first document.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .build());
+
+        List<DocumentManager.Document> oldTitleResults = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                             .titlePrefixes(List.of("First"))
+                                                                                                             .build());
+        List<DocumentManager.Document> newTitleResults = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                             .titlePrefixes(List.of("Ren"))
+                                                                                                             .build());
+
+        assertTrue(oldTitleResults.isEmpty());
+        assertEquals(1,
+                     newTitleResults.size());
+        assertEquals("1",
+                     newTitleResults.get(0)
+                                    .getId());
+    }
+
+    @Test
+    void testSearchByOverlappingTitlePrefixes() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .titlePrefixes(List.of("F",
+                                                                                                    "Fi",
+                                                                                                    "Fourth"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request);
+
+        assertEquals(3,
+                     results.size());
+    }
+
     @Test
     void testSearchByContent() {
         DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
@@ -107,6 +154,86 @@ class DocumentManager_SearchMethodTest {
                      results.size());
     }
 
+    @Test
+    void testSearchByContentAfterContentUpdate() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("2")
+                                                     .title("Second Document")
+                                                     .content("This document talks about Kotlin.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .build());
+
+        List<DocumentManager.Document> javaResults = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                         .containsContents(List.of("Java"))
+                                                                                                         .build());
+        List<DocumentManager.Document> kotlinResults = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                           .containsContents(List.of("Kotlin"))
+                                                                                                           .build());
+
+        assertEquals(1,
+                     javaResults.size());
+        assertEquals("3",
+                     javaResults.get(0)
+                                .getId());
+        assertEquals(1,
+                     kotlinResults.size());
+        assertEquals("2",
+                     kotlinResults.get(0)
+                                  .getId());
+    }
+
+    @Test
+    void testSearchByContentAfterManyContentUpdates() {
+        DocumentManager manyDocumentManager = new DocumentManager();
+        for (int index = 0; index < 1_000; index++) {
+            manyDocumentManager.save(DocumentManager.Document.builder()
+                                                             .id(String.valueOf(index))
+                                                             .title("Title " + index)
+                                                             .content("needle " + index)
+                                                             .build());
+        }
+        for (int index = 0; index < 1_000; index++) {
+            if (index % 10 != 0)
+                manyDocumentManager.save(DocumentManager.Document.builder()
+                                                                 .id(String.valueOf(index))
+                                                                 .title("Title " + index)
+                                                                 .content("thread " + index)
+                                                                 .build());
+        }
+
+        List<String> results = idsOf(manyDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                             .containsContents(List.of("needle"))
+                                                                                             .build()));
+
+        assertEquals(IntStream.range(0,
+                                     100)
+                              .mapToObj(index -> String.valueOf(index * 10))
+                              .sorted()
+                              .collect(Collectors.toList()),
+                     results);
+        assertEquals(900,
+                     manyDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("thread"))
+                                                                             .build())
+                                        .size());
+    }
+
+    @Test
+    void testSearchByContentShorterThanGramLength() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("Ja",
+                                                                                                       "else"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request);
+
+        assertEquals(3,
+                     results.size());
+    }
+
     @Test
     void testSearchByAuthorId() {
         DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
@@ -119,6 +246,172 @@ class DocumentManager_SearchMethodTest {
                      results.size());
     }
 
+    @Test
+    void testSearchByNullAuthorId() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("6")
+                                                     .title("Anonymous Document")
+                                                     .content("Written by an author without an id.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .name("Anonymous")
+                                                                                   .build())
+                                                     .build());
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("7")
+                                                     .title("Authorless Document")
+                                                     .content("Written by nobody.")
+                                                     .build());
+        List<String> authorIds = new ArrayList<>();
+        authorIds.add(null);
+        authorIds.add("A3");
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .authorIds(authorIds)
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request);
+
+        assertEquals(List.of("3",
+                             "6"),
+                     results.stream()
+                            .map(DocumentManager.Document::getId)
+                            .sorted()
+                            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSearchByManyAuthorIdsWithTitlePrefix() {
+        List<String> authorIds = IntStream.range(0,
+                                                 500)
+                                          .mapToObj(index -> "Unknown" + index)
+                                          .collect(Collectors.toList());
+        authorIds.add(250,
+                      "A1");
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .titlePrefixes(List.of("First",
+                                                                                                    "Second"))
+                                                                             .authorIds(authorIds)
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request);
+
+        assertEquals(List.of("1"),
+                     results.stream()
+                            .map(DocumentManager.Document::getId)
+                            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSearchByManyNestedTitlePrefixes() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .titlePrefixes(List.of("Fo",
+                                                                                                    "Fourth",
+                                                                                                    "Fift",
+                                                                                                    "Zeroth",
+                                                                                                    "Fourteenth",
+                                                                                                    "S",
+                                                                                                    "Second Document Extended",
+                                                                                                    "Alpha",
+                                                                                                    "Beta",
+                                                                                                    "Gamma",
+                                                                                                    "Delta",
+                                                                                                    "Omega"))
+                                                                             .build();
+
+        assertEquals(List.of("2",
+                             "4",
+                             "5"),
+                     idsOf(documentManager.search(request)));
+        request.setTitlePrefixes(request.getTitlePrefixes()
+                                        .subList(0,
+                                                 7));
+        assertEquals(List.of("2",
+                             "4",
+                             "5"),
+                     idsOf(documentManager.search(request)));
+    }
+
+    @Test
+    void testSearchByManyContentTermsMatchesAnyTerm() {
+        Random random = new Random(11);
+        List<DocumentManager.Document> documents = new ArrayList<>();
+        for (int index = 0; index < 300; index++) {
+            DocumentManager.Document document = DocumentManager.Document.builder()
+                                                                        .id("generated-" + index)
+                                                                        .title("Generated")
+                                                                        .content(randomText(random,
+                                                                                            40))
+                                                                        .build();
+            documents.add(document);
+            documentManager.save(document);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            List<String> terms = new ArrayList<>();
+            for (int term = 0; term < 1 + random.nextInt(40); term++) {
+                terms.add(randomText(random,
+                                     3 + random.nextInt(3)));
+            }
+            List<String> expectedIds = documents.stream()
+                                                .filter(document -> terms.stream()
+                                                                         .anyMatch(document.getContent()::contains))
+                                                .map(DocumentManager.Document::getId)
+                                                .sorted()
+                                                .collect(Collectors.toList());
+
+            List<String> ids = idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                         .titlePrefixes(List.of("Generated"))
+                                                                                         .containsContents(terms)
+                                                                                         .build()));
+
+            assertEquals(expectedIds,
+                         ids,
+                         terms.toString());
+        }
+    }
+
+    @Test
+    void testSearchByOverlappingContentTerms() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("6")
+                                                     .title("Overlaps")
+                                                     .content("ushers in the zażółć era")
+                                                     .build());
+
+        List<String> terms = new ArrayList<>(List.of("hers",
+                                                     "she",
+                                                     "his",
+                                                     "he"));
+        for (int term = 0; term < 10; term++) {
+            terms.add("absent-" + term);
+        }
+
+        assertEquals(List.of("6"),
+                     idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                               .titlePrefixes(List.of("Over"))
+                                                                               .containsContents(terms)
+                                                                               .build())));
+        terms.set(0,
+                  "żółć");
+        terms.set(1,
+                  "hist");
+        terms.set(2,
+                  "shu");
+        terms.set(3,
+                  "zaź");
+        assertEquals(List.of("6"),
+                     idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                               .titlePrefixes(List.of("Over"))
+                                                                               .containsContents(terms.subList(0,
+                                                                                                               1))
+                                                                               .build())));
+        assertTrue(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                       .titlePrefixes(List.of("Over"))
+                                                                       .containsContents(terms.subList(1,
+                                                                                                       terms.size()))
+                                                                       .build())
+                                  .isEmpty());
+    }
+
     @Test
     void testSearchByDateRange() {
         DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
@@ -132,6 +425,54 @@ class DocumentManager_SearchMethodTest {
                      results.size());
     }
 
+    @Test
+    void testSearchByCreatedFromOnly() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .createdFrom(Instant.parse("2024-04-01T10:00:00Z"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request);
+
+        assertEquals(2,
+                     results.size());
+    }
+
+    @Test
+    void testSearchByInvertedDateRange() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .createdFrom(Instant.parse("2024-03-01T10:00:00Z"))
+                                                                             .createdTo(Instant.parse("2024-01-01T10:00:00Z"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request);
+
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void testSearchByAuthorIdAfterAuthorUpdate() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("4")
+                                                     .title("Fourth Document")
+                                                     .content("Content about something else.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A3")
+                                                                                   .name("Author Three")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-04-01T10:00:00Z"))
+                                                     .build());
+
+        List<DocumentManager.Document> results = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                     .authorIds(List.of("A1"))
+                                                                                                     .build());
+
+        assertEquals(1,
+                     results.size());
+        assertEquals("1",
+                     results.get(0)
+                            .getId());
+    }
+
     @Test
     void testSearchWithNoResults() {
         DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
@@ -161,4 +502,326 @@ class DocumentManager_SearchMethodTest {
         assertEquals(2,
                      results.size());
     }
+
+    @Test
+    void testParallelSearchMatchesSequentialSearch() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        DocumentManager parallelDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                   .parallelSearchPool(pool)
+                                                                                                   .parallelSearchThreshold(0)
+                                                                                                   .build());
+        // Saved in the same order, unsorted results come in the same order.
+        DocumentManager sequentialDocumentManager = new DocumentManager();
+        documentManager.search(null)
+                       .forEach(document -> {
+                           sequentialDocumentManager.save(document);
+                           parallelDocumentManager.save(document);
+                       });
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("document"))
+                                                                             .createdTo(Instant.parse("2024-04-01T10:00:00Z"))
+                                                                             .build();
+
+        try {
+            assertEquals(2,
+                         sequentialDocumentManager.search(request)
+                                                  .size());
+            assertEquals(sequentialDocumentManager.search(request),
+                         parallelDocumentManager.search(request));
+            assertEquals(sequentialDocumentManager.search(null),
+                         parallelDocumentManager.search(null));
+            DocumentManager.SearchOptions secondPageByTitle = DocumentManager.SearchOptions.builder()
+                                                                                           .sortBy(DocumentManager.SortKey.TITLE)
+                                                                                           .descending(true)
+                                                                                           .offset(1)
+                                                                                           .limit(2)
+                                                                                           .build();
+            assertEquals(sequentialDocumentManager.search(request,
+                                                          secondPageByTitle),
+                         parallelDocumentManager.search(request,
+                                                        secondPageByTitle));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private DocumentManager newCachingDocumentManager() {
+        DocumentManager cachingDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                  .searchCacheCapacity(100)
+                                                                                                  .build());
+        documentManager.search(null)
+                       .forEach(cachingDocumentManager::save);
+        return cachingDocumentManager;
+    }
+
+    @Test
+    void testCachedSearchIsServedFromCache() {
+        DocumentManager cachingDocumentManager = newCachingDocumentManager();
+
+        List<DocumentManager.Document> firstResults = cachingDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                                 .authorIds(List.of("A1",
+                                                                                                                                    "A2"))
+                                                                                                                 .build());
+        List<DocumentManager.Document> secondResults = cachingDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                                  .authorIds(List.of("A2",
+                                                                                                                                     "A1",
+                                                                                                                                     "A2"))
+                                                                                                                  .build());
+
+        assertEquals(firstResults,
+                     secondResults);
+        DocumentManager.SearchCacheMetrics cacheMetrics = cachingDocumentManager.metrics()
+                                                                                .getSearchCache();
+        assertEquals(1,
+                     cacheMetrics.getHits());
+        assertEquals(1,
+                     cacheMetrics.getMisses());
+    }
+
+    @Test
+    void testCachedSearchSeesMatchingSave() {
+        DocumentManager cachingDocumentManager = newCachingDocumentManager();
+        DocumentManager.SearchRequest byAuthor = DocumentManager.SearchRequest.builder()
+                                                                              .authorIds(List.of("A3"))
+                                                                              .build();
+        DocumentManager.SearchRequest byTitle = DocumentManager.SearchRequest.builder()
+                                                                             .titlePrefixes(List.of("First"))
+                                                                             .build();
+        cachingDocumentManager.search(byAuthor);
+        cachingDocumentManager.search(byTitle);
+
+        cachingDocumentManager.save(DocumentManager.Document.builder()
+                                                            .id("5")
+                                                            .title("Fifth Document")
+                                                            .content("New content.")
+                                                            .author(DocumentManager.Author.builder()
+                                                                                          .id("A3")
+                                                                                          .name("Author Three")
+                                                                                          .build())
+                                                            .build());
+
+        assertEquals(2,
+                     cachingDocumentManager.search(byAuthor)
+                                           .size());
+        assertEquals(1,
+                     cachingDocumentManager.search(byTitle)
+                                           .size());
+        DocumentManager.SearchCacheMetrics cacheMetrics = cachingDocumentManager.metrics()
+                                                                                .getSearchCache();
+        assertEquals(1,
+                     cacheMetrics.getInvalidations());
+        assertEquals(1,
+                     cacheMetrics.getHits());
+    }
+
+    @Test
+    void testCachedSearchSeesUpdateOfPreviouslyMatchingDocument() {
+        DocumentManager cachingDocumentManager = newCachingDocumentManager();
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("Java"))
+                                                                             .build();
+        assertEquals(2,
+                     cachingDocumentManager.search(request)
+                                           .size());
+
+        DocumentManager.Document document = cachingDocumentManager.findById("2")
+                                                                  .orElseThrow();
+        document.setContent("This document talks about Kotlin.");
+        cachingDocumentManager.save(document);
+
+        assertEquals(List.of("3"),
+                     cachingDocumentManager.search(request)
+                                           .stream()
+                                           .map(DocumentManager.Document::getId)
+                                           .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testCachedSearchByNullAuthorIdSeesMatchingSave() {
+        DocumentManager cachingDocumentManager = newCachingDocumentManager();
+        List<String> authorIds = new ArrayList<>();
+        authorIds.add(null);
+        DocumentManager.SearchRequest byNullAuthorId = DocumentManager.SearchRequest.builder()
+                                                                                    .authorIds(authorIds)
+                                                                                    .build();
+        assertTrue(cachingDocumentManager.search(byNullAuthorId)
+                                         .isEmpty());
+
+        cachingDocumentManager.save(DocumentManager.Document.builder()
+                                                            .id("6")
+                                                            .title("Anonymous Document")
+                                                            .author(DocumentManager.Author.builder()
+                                                                                          .name("Anonymous")
+                                                                                          .build())
+                                                            .build());
+
+        assertEquals(1,
+                     cachingDocumentManager.search(byNullAuthorId)
+                                           .size());
+    }
+
+    @Test
+    void testCachedSearchKeepsResultsUnaffectedBySave() {
+        DocumentManager cachingDocumentManager = newCachingDocumentManager();
+        List<DocumentManager.SearchRequest> requests = List.of(DocumentManager.SearchRequest.builder()
+                                                                                            .authorIds(List.of("A2"))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .titlePrefixes(List.of("Sec"))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .createdFrom(Instant.parse("2024-02-01T00:00:00Z"))
+                                                                                            .createdTo(Instant.parse("2024-02-15T00:00:00Z"))
+                                                                                            .build(),
+                                                               DocumentManager.SearchRequest.builder()
+                                                                                            .containsContents(List.of("Java"))
+                                                                                            .build());
+        requests.forEach(cachingDocumentManager::search);
+
+        DocumentManager.Document firstDocument = cachingDocumentManager.findById("1")
+                                                                       .orElseThrow();
+        firstDocument.setContent("Updated content of the first document.");
+        cachingDocumentManager.save(firstDocument);
+        requests.forEach(cachingDocumentManager::search);
+
+        DocumentManager.SearchCacheMetrics cacheMetrics = cachingDocumentManager.metrics()
+                                                                                .getSearchCache();
+        assertEquals(4,
+                     cacheMetrics.getHits());
+        assertEquals(0,
+                     cacheMetrics.getInvalidations());
+
+        DocumentManager.Document secondDocument = cachingDocumentManager.findById("2")
+                                                                        .orElseThrow();
+        secondDocument.setContent("Updated content about Java.");
+        cachingDocumentManager.save(secondDocument);
+
+        assertEquals(4,
+                     cachingDocumentManager.metrics()
+                                           .getSearchCache()
+                                           .getInvalidations());
+        for (DocumentManager.SearchRequest request : requests) {
+            assertEquals(documentManager.search(request)
+                                        .stream()
+                                        .map(DocumentManager.Document::getId)
+                                        .sorted()
+                                        .collect(Collectors.toList()),
+                         idsOf(cachingDocumentManager.search(request)));
+        }
+    }
+
+    @Test
+    void testCachedSearchIsServedDuringUnrelatedSaves() throws InterruptedException {
+        DocumentManager cachingDocumentManager = newCachingDocumentManager();
+        DocumentManager.SearchRequest byAuthor = DocumentManager.SearchRequest.builder()
+                                                                              .authorIds(List.of("A1"))
+                                                                              .build();
+        List<DocumentManager.Document> expectedResults = cachingDocumentManager.search(byAuthor);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (int index = 0; writing.get(); index++) {
+                cachingDocumentManager.save(DocumentManager.Document.builder()
+                                                                    .id("unrelated-" + index % 100)
+                                                                    .title("Unrelated Document")
+                                                                    .author(DocumentManager.Author.builder()
+                                                                                                  .id("A9")
+                                                                                                  .name("Author Nine")
+                                                                                                  .build())
+                                                                    .build());
+            }
+        });
+        writer.start();
+        try {
+            for (int search = 0; search < 1_000; search++) {
+                assertEquals(expectedResults,
+                             cachingDocumentManager.search(byAuthor));
+            }
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+
+        assertEquals(1_000,
+                     cachingDocumentManager.metrics()
+                                           .getSearchCache()
+                                           .getHits());
+    }
+
+    @Test
+    void testSearchCacheEvictsLeastRecentlyUsedResults() {
+        DocumentManager cachingDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                  .searchCacheCapacity(4)
+                                                                                                  .build());
+        documentManager.search(null)
+                       .forEach(cachingDocumentManager::save);
+
+        for (String authorId : List.of("A1",
+                                       "A2",
+                                       "A3",
+                                       "A1")) {
+            cachingDocumentManager.search(DocumentManager.SearchRequest.builder()
+                                                                       .authorIds(List.of(authorId))
+                                                                       .build());
+        }
+
+        DocumentManager.SearchCacheMetrics cacheMetrics = cachingDocumentManager.metrics()
+                                                                                .getSearchCache();
+        assertEquals(0,
+                     cacheMetrics.getHits());
+        assertTrue(cacheMetrics.getEvictions() > 0);
+        assertTrue(cacheMetrics.getCachedIds() <= 4);
+    }
+
+    @Test
+    void testShardedStorageMatchesConcurrentMapStorage() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        DocumentManager shardedDocumentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                                                  .documentStorage(DocumentManager.DocumentStorage.SHARDED)
+                                                                                                  .storageShards(3)
+                                                                                                  .parallelSearchPool(pool)
+                                                                                                  .parallelSearchThreshold(0)
+                                                                                                  .build());
+        documentManager.search(null)
+                       .forEach(shardedDocumentManager::save);
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("document"))
+                                                                             .build();
+
+        try {
+            assertEquals(5,
+                         shardedDocumentManager.metrics()
+                                               .getDocumentCount());
+            assertEquals(documentManager.search(request)
+                                        .stream()
+                                        .map(DocumentManager.Document::getId)
+                                        .sorted()
+                                        .collect(Collectors.toList()),
+                         shardedDocumentManager.search(request)
+                                               .stream()
+                                               .map(DocumentManager.Document::getId)
+                                               .sorted()
+                                               .collect(Collectors.toList()));
+            assertEquals(documentManager.findById("3"),
+                         shardedDocumentManager.findById("3"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<String> idsOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(DocumentManager.Document::getId)
+                        .sorted()
+                        .collect(Collectors.toList());
+    }
+
+    private String randomText(Random random,
+                              int length) {
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < length; index++) {
+            text.append("abcdeé ".charAt(random.nextInt(7)));
+        }
+        return text.toString();
+    }
+
 }
@@ -0,0 +1,187 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SearchRankedMethodTest {
+
+    private DocumentManager documentManager;
+
+    @BeforeEach
+    void setUp() {
+        documentManager = new DocumentManager(DocumentManager.Configuration.builder()
+                                                                           .fullTextIndex(true)
+                                                                           .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("1")
+                                                     .title("Cooking with Java")
+                                                     .content("Coffee beans, water and patience.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("2")
+                                                     .title("Programming Languages")
+                                                     .content("Java, Kotlin and Scala run on the JVM. Java is the oldest of them.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-02-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("3")
+                                                     .title("Gardening")
+                                                     .content("Tomatoes need sun, water and a lot of patience. Nothing about programming.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-03-01T10:00:00Z"))
+                                                     .build());
+    }
+
+    @Test
+    void testSearchRankedWeighsTitleWords() {
+        List<DocumentManager.ScoredDocument> results = documentManager.searchRanked("java",
+                                                                                     10);
+
+        assertEquals(List.of("1",
+                             "2"),
+                     idsOf(results));
+        assertTrue(results.get(0)
+                          .getScore() > results.get(1)
+                                               .getScore());
+    }
+
+    @Test
+    void testSearchRankedMatchesAnyWordIgnoringCase() {
+        List<DocumentManager.ScoredDocument> results = documentManager.searchRanked("PATIENCE, Kotlin!",
+                                                                                     10);
+
+        assertEquals(3,
+                     results.size());
+        assertEquals("2",
+                     results.get(0)
+                            .getDocument()
+                            .getId());
+    }
+
+    @Test
+    void testSearchRankedReturnsBestLimitDocuments() {
+        assertEquals(List.of("1"),
+                     idsOf(documentManager.searchRanked("java",
+                                                        1)));
+        assertTrue(documentManager.searchRanked("java",
+                                                0)
+                                  .isEmpty());
+    }
+
+    @Test
+    void testSearchRankedAppliesSearchRequestFilter() {
+        List<DocumentManager.ScoredDocument> results = documentManager.searchRanked("water java",
+                                                                                     DocumentManager.SearchRequest.builder()
+                                                                                                                  .authorIds(List.of("A1"))
+                                                                                                                  .build(),
+                                                                                     10);
+
+        assertEquals(List.of("1",
+                             "3"),
+                     idsOf(results));
+    }
+
+    @Test
+    void testSearchRankedFollowsUpdates() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("2")
+                                                     .title("Programming Languages")
+                                                     .content("Kotlin and Scala.")
+                                                     .build());
+
+        assertEquals(List.of("1"),
+                     idsOf(documentManager.searchRanked("java",
+                                                        10)));
+        assertEquals(List.of("2"),
+                     idsOf(documentManager.searchRanked("scala",
+                                                        10)));
+    }
+
+    @Test
+    void testSearchRankedUnknownWords() {
+        assertTrue(documentManager.searchRanked("haskell",
+                                                10)
+                                  .isEmpty());
+        assertTrue(documentManager.searchRanked("  ...  ",
+                                                10)
+                                  .isEmpty());
+    }
+
+    @Test
+    void testSearchRankedTopMatchesExhaustiveRanking() {
+        Random random = new Random(7);
+        for (int index = 0; index < 2_000; index++) {
+            StringBuilder content = new StringBuilder();
+            int words = 5 + random.nextInt(40);
+            for (int word = 0; word < words; word++) {
+                content.append("w")
+                       .append((int) Math.pow(random.nextInt(30),
+                                              2))
+                       .append(' ');
+            }
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id("generated-" + index)
+                                                         .title("t" + random.nextInt(50))
+                                                         .content(content.toString())
+                                                         .build());
+        }
+
+        for (String query : List.of("w0",
+                                    "w1 w4",
+                                    "w9 w16 w841 t3",
+                                    "w0 w1 w4 w9 w25 w100 w400")) {
+            List<DocumentManager.ScoredDocument> allDocuments = documentManager.searchRanked(query,
+                                                                                              Integer.MAX_VALUE);
+            List<DocumentManager.ScoredDocument> topDocuments = documentManager.searchRanked(query,
+                                                                                              10);
+
+            assertEquals(idsOf(allDocuments.subList(0,
+                                                    10)),
+                         idsOf(topDocuments),
+                         query);
+        }
+    }
+
+    @Test
+    void testSearchRankedValidatesArguments() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentManager.searchRanked(null,
+                                                        10));
+        assertThrows(IllegalArgumentException.class,
+                     () -> documentManager.searchRanked("java",
+                                                        -1));
+        assertThrows(IllegalStateException.class,
+                     () -> new DocumentManager().searchRanked("java",
+                                                              10));
+    }
+
+    private List<String> idsOf(List<DocumentManager.ScoredDocument> results) {
+        return results.stream()
+                      .map(result -> result.getDocument()
+                                           .getId())
+                      .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,235 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SearchStreamMethodTest {
+
+    private DocumentManager documentManager;
+
+    @BeforeEach
+    void setUp() {
+        documentManager = new DocumentManager();
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("1")
+                                                     .title("First Document")
+                                                     .content("This is the content of the first document.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("2")
+                                                     .title("Second Document")
+                                                     .content("This document talks about Java.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-02-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("3")
+                                                     .title("Third Document")
+                                                     .content("Java is a great programming language.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A3")
+                                                                                   .name("Author Three")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-03-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("4")
+                                                     .title("Fourth Document")
+                                                     .content("Content about something else.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-04-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("5")
+                                                     .title("Fifth Document")
+                                                     .content("This document contains important information.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-05-01T10:00:00Z"))
+                                                     .build());
+    }
+
+    @Test
+    void testSearchStreamMatchesSearch() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("Java"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results;
+        try (Stream<DocumentManager.Document> stream = documentManager.searchStream(request)) {
+            results = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(documentManager.search(request)
+                                    .size(),
+                     results.size());
+    }
+
+    @Test
+    void testSearchStreamFindFirst() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .authorIds(List.of("A3"))
+                                                                             .build();
+
+        assertEquals("3",
+                     documentManager.searchStream(request)
+                                    .findFirst()
+                                    .map(DocumentManager.Document::getId)
+                                    .orElseThrow());
+    }
+
+    @Test
+    void testSearchStreamReadsSnapshotTakenAtCreation() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .containsContents(List.of("Java"))
+                                                                             .build();
+
+        try (Stream<DocumentManager.Document> stream = documentManager.searchStream(request)) {
+            DocumentManager.Document updatedDocument = documentManager.findById("2")
+                                                                      .orElseThrow();
+            updatedDocument.setContent("This document talks about Kotlin.");
+            documentManager.save(updatedDocument);
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id("6")
+                                                         .title("Sixth Document")
+                                                         .content("Java again.")
+                                                         .build());
+
+            List<DocumentManager.Document> results = stream.collect(Collectors.toList());
+
+            assertEquals(List.of("2",
+                                 "3"),
+                         results.stream()
+                                .map(DocumentManager.Document::getId)
+                                .sorted()
+                                .collect(Collectors.toList()));
+            assertEquals("This document talks about Java.",
+                         results.stream()
+                                .filter(document -> document.getId()
+                                                            .equals("2"))
+                                .findFirst()
+                                .orElseThrow()
+                                .getContent());
+        }
+
+        assertEquals(List.of("3",
+                             "6"),
+                     documentManager.search(request)
+                                    .stream()
+                                    .map(DocumentManager.Document::getId)
+                                    .sorted()
+                                    .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSearchStreamFindsOlderVersionThroughIndex() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .authorIds(List.of("A3"))
+                                                                             .build();
+
+        try (Stream<DocumentManager.Document> stream = documentManager.searchStream(request)) {
+            DocumentManager.Document updatedDocument = documentManager.findById("3")
+                                                                      .orElseThrow();
+            updatedDocument.setAuthor(DocumentManager.Author.builder()
+                                                            .id("A1")
+                                                            .name("Author One")
+                                                            .build());
+            documentManager.save(updatedDocument);
+
+            assertEquals(List.of("3"),
+                         stream.map(DocumentManager.Document::getId)
+                               .collect(Collectors.toList()));
+        }
+
+        assertTrue(documentManager.search(request)
+                                  .isEmpty());
+    }
+
+    @Test
+    void testManyOpenSearchStreamsReadTheirOwnSnapshots() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .authorIds(List.of("A1"))
+                                                                             .build();
+        List<Stream<DocumentManager.Document>> streams = new ArrayList<>();
+        for (int index = 0; index < 100; index++) {
+            DocumentManager.Document updatedDocument = documentManager.findById("1")
+                                                                      .orElseThrow();
+            updatedDocument.setTitle("Version " + index);
+            documentManager.save(updatedDocument);
+            streams.add(documentManager.searchStream(request));
+        }
+
+        for (int index = 0; index < streams.size(); index++) {
+            try (Stream<DocumentManager.Document> stream = streams.get(index)) {
+                assertEquals(List.of("Version " + index),
+                             stream.filter(document -> document.getId()
+                                                               .equals("1"))
+                                   .map(DocumentManager.Document::getTitle)
+                                   .collect(Collectors.toList()));
+            }
+        }
+        assertEquals("Version 99",
+                     documentManager.findById("1")
+                                    .orElseThrow()
+                                    .getTitle());
+    }
+
+    @Test
+    void testSearchStreamConsumedWithoutCloseReleasesItsSnapshot() throws InterruptedException {
+        WeakReference<String> oldContent = saveContentOnlyTheStorageHolds("6");
+        Stream<DocumentManager.Document> stream = documentManager.searchStream(null);
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("6")
+                                                     .title("Sixth Document")
+                                                     .content("Updated content.")
+                                                     .build());
+
+        assertEquals(6,
+                     stream.map(DocumentManager.Document::getId)
+                           .collect(Collectors.toList())
+                           .size());
+
+        for (int attempt = 0; attempt < 50 && oldContent.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(oldContent.get());
+    }
+
+    private WeakReference<String> saveContentOnlyTheStorageHolds(String id) {
+        String content = new String("Content only the storage holds.".toCharArray());
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id(id)
+                                                     .title("Sixth Document")
+                                                     .content(content)
+                                                     .build());
+        return new WeakReference<>(content);
+    }
+}
@@ -0,0 +1,220 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SearchWithOptionsMethodTest {
+
+    private DocumentManager documentManager;
+
+    @BeforeEach
+    void setUp() {
+        documentManager = new DocumentManager();
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("1")
+                                                     .title("First Document")
+                                                     .content("This is the content of the first document.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("2")
+                                                     .title("Second Document")
+                                                     .content("This document talks about Java.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-02-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("3")
+                                                     .title("Third Document")
+                                                     .content("Java is a great programming language.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A3")
+                                                                                   .name("Author Three")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-03-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("4")
+                                                     .title("Fourth Document")
+                                                     .content("Content about something else.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-04-01T10:00:00Z"))
+                                                     .build());
+
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("5")
+                                                     .title("Fifth Document")
+                                                     .content("This document contains important information.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A2")
+                                                                                   .name("Author Two")
+                                                                                   .build())
+                                                     .created(Instant.parse("2024-05-01T10:00:00Z"))
+                                                     .build());
+    }
+
+    @Test
+    void testSearchFirstPageSortedByCreated() {
+        List<DocumentManager.Document> results = documentManager.search(null,
+                                                                        DocumentManager.SearchOptions.builder()
+                                                                                                     .sortBy(DocumentManager.SortKey.CREATED)
+                                                                                                     .limit(2)
+                                                                                                     .build());
+
+        assertEquals(List.of("1",
+                             "2"),
+                     idsOf(results));
+    }
+
+    @Test
+    void testSearchSecondPageSortedByCreatedDescending() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .createdFrom(Instant.parse("2024-02-01T00:00:00Z"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request,
+                                                                        DocumentManager.SearchOptions.builder()
+                                                                                                     .sortBy(DocumentManager.SortKey.CREATED)
+                                                                                                     .descending(true)
+                                                                                                     .offset(2)
+                                                                                                     .limit(5)
+                                                                                                     .build());
+
+        assertEquals(List.of("3",
+                             "2"),
+                     idsOf(results));
+    }
+
+    @Test
+    void testSearchSortedByTitleWithFilter() {
+        DocumentManager.SearchRequest request = DocumentManager.SearchRequest.builder()
+                                                                             .authorIds(List.of("A1",
+                                                                                                "A2"))
+                                                                             .build();
+
+        List<DocumentManager.Document> results = documentManager.search(request,
+                                                                        DocumentManager.SearchOptions.builder()
+                                                                                                     .sortBy(DocumentManager.SortKey.TITLE)
+                                                                                                     .limit(3)
+                                                                                                     .build());
+
+        assertEquals(List.of("5",
+                             "1",
+                             "4"),
+                     idsOf(results));
+    }
+
+    @Test
+    void testSearchSortedByCreatedPutsDocumentsWithoutCreatedLast() {
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("6")
+                                                     .title("Sixth Document")
+                                                     .content("Document without creation date.")
+                                                     .author(DocumentManager.Author.builder()
+                                                                                   .id("A1")
+                                                                                   .name("Author One")
+                                                                                   .build())
+                                                     .build());
+
+        List<DocumentManager.Document> results = documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                                     .authorIds(List.of("A1"))
+                                                                                                     .build(),
+                                                                        DocumentManager.SearchOptions.builder()
+                                                                                                     .sortBy(DocumentManager.SortKey.CREATED)
+                                                                                                     .descending(true)
+                                                                                                     .build());
+
+        assertEquals(List.of("4",
+                             "1",
+                             "6"),
+                     idsOf(results));
+    }
+
+    @Test
+    void testSearchSortedByTitleOrdersGeneratedIdsLikeStrings() {
+        for (int index = 0; index < 50; index++) {
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .title("Same Title")
+                                                         .build());
+        }
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("8")
+                                                     .title("Same Title")
+                                                     .build());
+        documentManager.save(DocumentManager.Document.builder()
+                                                     .id("A0000000-0000-0000-0000-000000000000")
+                                                     .title("Same Title")
+                                                     .build());
+
+        List<String> ids = idsOf(documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                                     .titlePrefixes(List.of("Same"))
+                                                                                     .build(),
+                                                        DocumentManager.SearchOptions.builder()
+                                                                                     .sortBy(DocumentManager.SortKey.TITLE)
+                                                                                     .limit(100)
+                                                                                     .build()));
+
+        assertEquals(52,
+                     ids.size());
+        assertEquals(ids.stream()
+                        .sorted()
+                        .collect(Collectors.toList()),
+                     ids);
+    }
+
+    @Test
+    void testSearchUnsortedPageHasRequestedSize() {
+        List<DocumentManager.Document> results = documentManager.search(null,
+                                                                        DocumentManager.SearchOptions.builder()
+                                                                                                     .offset(1)
+                                                                                                     .limit(3)
+                                                                                                     .build());
+
+        assertEquals(3,
+                     results.size());
+    }
+
+    @Test
+    void testSearchWithNegativeLimitThrowsException() {
+        DocumentManager.SearchOptions options = DocumentManager.SearchOptions.builder()
+                                                                             .limit(-1)
+                                                                             .build();
+
+        assertThrowsExactly(IllegalArgumentException.class,
+                            () -> documentManager.search(null,
+                                                         options));
+    }
+
+    @Test
+    void testSearchWithNullOptionsThrowsException() {
+        assertThrowsExactly(IllegalArgumentException.class,
+                            () -> documentManager.search(null,
+                                                         null));
+    }
+
+    private List<String> idsOf(List<DocumentManager.Document> documents) {
+        return documents.stream()
+                        .map(DocumentManager.Document::getId)
+                        .collect(Collectors.toList());
+    }
+}
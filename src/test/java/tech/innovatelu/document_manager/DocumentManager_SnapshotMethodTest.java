@@ -0,0 +1,182 @@
+package tech.innovatelu.document_manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentManager_SnapshotMethodTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoverFromLogWithoutSnapshot() {
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            documentManager.save(document("1",
+                                          "First Document"));
+            documentManager.save(document("2",
+                                          "Second Document"));
+        }
+
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            assertEquals("First Document",
+                         documentManager.findById("1")
+                                        .orElseThrow()
+                                        .getTitle());
+            assertEquals(1,
+                         documentManager.search(DocumentManager.SearchRequest.builder()
+                                                                             .titlePrefixes(List.of("Second"))
+                                                                             .build())
+                                        .size());
+        }
+    }
+
+    @Test
+    void testRecoverFromSnapshotAndLogTail() throws IOException {
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.GROUP_COMMIT)) {
+            documentManager.save(document("1",
+                                          "First Document"));
+            documentManager.snapshot();
+            documentManager.save(document("1",
+                                          "Updated Document"));
+            documentManager.save(document("2",
+                                          "Second Document"));
+        }
+
+        assertEquals(1,
+                     filesStartingWith("snapshot-").size());
+
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.GROUP_COMMIT)) {
+            assertEquals("Updated Document",
+                         documentManager.findById("1")
+                                        .orElseThrow()
+                                        .getTitle());
+            assertTrue(documentManager.findById("2")
+                                      .isPresent());
+        }
+    }
+
+    @Test
+    void testSnapshotDeletesCoveredLogSegments() throws IOException {
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.PERIODIC)) {
+            documentManager.save(document("1",
+                                          "First Document"));
+            documentManager.snapshot();
+            documentManager.save(document("2",
+                                          "Second Document"));
+            documentManager.snapshot();
+        }
+
+        assertEquals(1,
+                     filesStartingWith("snapshot-").size());
+        assertEquals(1,
+                     filesStartingWith("wal-").size());
+    }
+
+    @Test
+    void testRecoverIgnoresTornLogRecord() throws IOException {
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            documentManager.save(document("1",
+                                          "First Document"));
+        }
+        Files.write(filesStartingWith("wal-").get(0),
+                    new byte[] { 0, 0, 0, 42, 0, 0 },
+                    StandardOpenOption.APPEND);
+
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            documentManager.save(document("2",
+                                          "Second Document"));
+        }
+
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            assertTrue(documentManager.findById("1")
+                                      .isPresent());
+            assertTrue(documentManager.findById("2")
+                                      .isPresent());
+        }
+    }
+
+    @Test
+    void testRecoverStringsWithUnpairedSurrogates() {
+        String title = "Broken \uD800 pair";
+        String content = "Ends with a high surrogate \uD83D";
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id("1")
+                                                         .title(title)
+                                                         .content(content)
+                                                         .build());
+            documentManager.snapshot();
+            documentManager.save(DocumentManager.Document.builder()
+                                                         .id("2")
+                                                         .title("\uDC00" + title)
+                                                         .content("\uD83D\uDE00 " + content)
+                                                         .build());
+        }
+
+        try (DocumentManager documentManager = openDocumentManager(DocumentManager.FsyncPolicy.EVERY_WRITE)) {
+            DocumentManager.Document fromSnapshot = documentManager.findById("1")
+                                                                   .orElseThrow();
+            DocumentManager.Document fromLog = documentManager.findById("2")
+                                                              .orElseThrow();
+            assertEquals(title,
+                         fromSnapshot.getTitle());
+            assertEquals(content,
+                         fromSnapshot.getContent());
+            assertEquals("\uDC00" + title,
+                         fromLog.getTitle());
+            assertEquals("\uD83D\uDE00 " + content,
+                         fromLog.getContent());
+        }
+    }
+
+    @Test
+    void testSnapshotWithoutPersistenceThrowsException() {
+        DocumentManager documentManager = new DocumentManager();
+
+        assertThrowsExactly(IllegalStateException.class,
+                            documentManager::snapshot);
+    }
+
+    private DocumentManager openDocumentManager(DocumentManager.FsyncPolicy fsyncPolicy) {
+        return new DocumentManager(DocumentManager.Configuration.builder()
+                                                                .persistenceDirectory(directory)
+                                                                .fsyncPolicy(fsyncPolicy)
+                                                                .snapshotInterval(null)
+                                                                .build());
+    }
+
+    private DocumentManager.Document document(String id,
+                                              String title) {
+        return DocumentManager.Document.builder()
+                                       .id(id)
+                                       .title(title)
+                                       .content("Content of " + title)
+                                       .author(DocumentManager.Author.builder()
+                                                                     .id("A1")
+                                                                     .name("Author One")
+                                                                     .build())
+                                       .created(Instant.parse("2024-01-01T10:00:00Z"))
+                                       .build();
+    }
+
+    private List<Path> filesStartingWith(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName()
+                                            .toString()
+                                            .startsWith(prefix))
+                        .collect(Collectors.toList());
+        }
+    }
+
+}